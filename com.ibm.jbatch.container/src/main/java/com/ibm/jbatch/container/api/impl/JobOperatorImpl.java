@@ -22,6 +22,7 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -130,6 +131,45 @@ public class JobOperatorImpl implements JobOperator {
 		return executionId;
 	}
 
+	/**
+	 * Starts one instance of the job per set of job parameters, much faster than as many calls to 
+	 * {@link #start(String, Properties)}: the job xml is loaded once, all the instances are persisted in one 
+	 * transaction, and only then are they all submitted.  Should the thread pool reject one of them, a JobStartException 
+	 * is thrown: the jobs submitted before it carry on (their execution ids are given in the message), and it and the 
+	 * jobs after it are marked FAILED, never having run.
+	 * 
+	 * @param jobXMLName the job xml name
+	 * @param jobParametersList the job parameters of each job (any entry may be null)
+	 * @return the execution ids of the new jobs, in the order of jobParametersList
+	 */
+	public List<Long> startAll(String jobXMLName, List<Properties> jobParametersList) throws JobStartException, JobSecurityException {
+		if (logger.isLoggable(Level.FINE)) {            
+			logger.fine("JobOperator startAll, with jobXMLName = " + jobXMLName + ", for " + jobParametersList.size() + " jobs");
+		}
+
+		List<Long> executionIds = new ArrayList<Long>(jobParametersList.size());
+		if (jobParametersList.isEmpty()) {
+			return executionIds;
+		}
+
+		try {
+			String jobXML = jobXMLLoaderService.loadJSL(jobXMLName);
+			for (IJobExecution execution : batchKernel.startJobs(jobXML, jobParametersList)) {
+				executionIds.add(execution.getExecutionId());
+			}
+		} catch (JobSecurityException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new JobStartException(e);
+		}
+
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Started " + executionIds.size() + " jobs with executionIds: " + executionIds);
+		}
+
+		return executionIds;
+	}
+
 	@Override
 	public void abandon(long executionId)
 			throws NoSuchJobExecutionException, JobExecutionIsRunningException, JobSecurityException {
@@ -318,6 +358,24 @@ public class JobOperatorImpl implements JobOperator {
 		logger.entering(sourceClass, "getRunningExecutions", jobName);
 		List<Long> jobExecutions = new ArrayList<Long>();
 
+		if (!batchKernel.isSharedJobRepository()) {
+			// Only this JVM runs jobs against the repository, so the kernel knows all the running executions
+			Map<Long, Long> runningExecutions = batchKernel.getRunningExecutions(jobName);
+			if (runningExecutions.isEmpty()) {
+				logger.fine("getRunningExecutions: Job Name " + jobName + " not found");
+				throw new NoSuchJobException( "Job Name " + jobName + " not found");
+			}
+			for (Map.Entry<Long, Long> runningExecution : runningExecutions.entrySet()) {
+				if (isAuthorized(runningExecution.getValue())) {
+					jobExecutions.add(runningExecution.getKey());
+				} else {
+					logger.finer("Don't have authorization for executionId: " + runningExecution.getKey());
+				}
+			}
+			logger.exiting(sourceClass, "getRunningExecutions", jobExecutions);
+			return jobExecutions;
+		}
+
 		// get the jobexecution ids associated with this job name
 		Set<Long> executionIds = persistenceService.jobOperatorGetRunningExecutions(jobName);
 
@@ -464,17 +522,34 @@ public class JobOperatorImpl implements JobOperator {
 		}
 	}
 
+	/**
+	 * Purges the job instances with the given job name whose executions all ended before the
+	 * given time, along with everything belonging to them, in batches.  Unless the current tag
+	 * is admin, only job instances owned by the current tag are purged.
+	 * 
+	 * @param jobName the job name, or null for any
+	 * @param endedBefore the cutoff time, or null for no cutoff (i.e. including running jobs)
+	 * @return the number of job instances purged
+	 */
+	public int purge(String jobName, Date endedBefore) {
+		logger.entering(sourceClass, "purge", new Object[] {jobName, endedBefore});
+		BatchSecurityHelper bsh = getBatchSecurityHelper();
+		String apptag = isCurrentTagAdmin(bsh) ? null : bsh.getCurrentTag();
+		Timestamp endedBeforeTS = (endedBefore == null) ? null : new Timestamp(endedBefore.getTime());
+		int purged = persistenceService.purgeJobInstances(apptag, jobName, endedBeforeTS);
+		logger.exiting(sourceClass, "purge", purged);
+		return purged;
+	}
+
 	private boolean isAuthorized(long instanceId) {
 		logger.entering(sourceClass, "isAuthorized", instanceId);
 		boolean retVal = false;
 		
-		String apptag = persistenceService.getJobCurrentTag(instanceId);
-		
 		BatchSecurityHelper bsh = getBatchSecurityHelper();
 		if (isCurrentTagAdmin(bsh)) {
 			logger.finer("Current tag is admin, so always authorized");
 			retVal = true;
-		} else if (bsh.getCurrentTag().equals(apptag)) { 
+		} else if (bsh.getCurrentTag().equals(persistenceService.getJobCurrentTag(instanceId))) { 
 			logger.finer("Current tag is the tag of record");
 			retVal = true;
 		} else {
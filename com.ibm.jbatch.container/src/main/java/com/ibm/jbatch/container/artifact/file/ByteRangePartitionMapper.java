@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.api.partition.PartitionMapper;
+import jakarta.batch.api.partition.PartitionPlan;
+import jakarta.batch.api.partition.PartitionPlanImpl;
+import jakarta.inject.Inject;
+
+/**
+ * Splits a flat file into byte ranges of about the same size, one per partition, each moved up to
+ * start on a record boundary.  Each partition's properties are fileName, startOffset and endOffset,
+ * to be passed on to a {@link MappedFileItemReader}, and its number, partition, from 0, which can name 
+ * the partition's own output file.  
+ * 
+ * The number of partitions defaults to the number of processors, and is lowered if the file is too 
+ * small to give each partition a record.
+ */
+public class ByteRangePartitionMapper implements PartitionMapper {
+
+	private final static String sourceClass = ByteRangePartitionMapper.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	public static final String FILE_NAME = "fileName";
+	public static final String START_OFFSET = "startOffset";
+	public static final String END_OFFSET = "endOffset";
+	public static final String PARTITION = "partition";
+
+	private static final int SCAN_BUFFER_SIZE = 8192;
+
+	@Inject @BatchProperty
+	protected String fileName;
+
+	@Inject @BatchProperty
+	protected String delimiter;
+
+	@Inject @BatchProperty
+	protected String charset;
+
+	@Inject @BatchProperty
+	protected String partitions;
+
+	@Override
+	public PartitionPlan mapPartitions() throws Exception {
+		if (fileName == null) {
+			throw new IllegalArgumentException("The fileName property is required");
+		}
+		byte[] delimiterBytes = MappedFileItemReader.delimiterBytes(delimiter,
+				Charset.forName(charset != null ? charset : MappedFileItemReader.DEFAULT_CHARSET));
+		int count = (partitions != null) ? Integer.parseInt(partitions) : Runtime.getRuntime().availableProcessors();
+
+		long[] boundaries;
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			boundaries = boundaries(channel, delimiterBytes, Math.max(count, 1));
+		}
+
+		int ranges = boundaries.length - 1;
+		Properties[] partitionProperties = new Properties[ranges];
+		for (int i = 0; i < ranges; i++) {
+			partitionProperties[i] = new Properties();
+			partitionProperties[i].setProperty(FILE_NAME, fileName);
+			partitionProperties[i].setProperty(START_OFFSET, Long.toString(boundaries[i]));
+			partitionProperties[i].setProperty(END_OFFSET, Long.toString(boundaries[i + 1]));
+			partitionProperties[i].setProperty(PARTITION, Integer.toString(i));
+		}
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Split " + fileName + " into " + ranges + " byte ranges, of " + count + " requested");
+		}
+
+		PartitionPlanImpl plan = new PartitionPlanImpl();
+		plan.setPartitions(ranges);
+		plan.setPartitionProperties(partitionProperties);
+		return plan;
+	}
+
+	/**
+	 * @return the start of each range, the first 0, followed by the file size, without the 
+	 * duplicates left where a record spans more than one nominal range 
+	 */
+	static long[] boundaries(FileChannel channel, byte[] delimiterBytes, int count) throws IOException {
+		long size = channel.size();
+		long[] boundaries = new long[count + 1];
+		int distinct = 1;
+		for (int i = 1; i < count; i++) {
+			long nominal = size * i / count;
+			long boundary = (nominal <= boundaries[distinct - 1]) ? boundaries[distinct - 1]
+					: nextRecordStart(channel, delimiterBytes, nominal, size);
+			if (boundary > boundaries[distinct - 1] && boundary < size) {
+				boundaries[distinct++] = boundary;
+			}
+		}
+		boundaries[distinct++] = size;
+
+		long[] result = new long[distinct];
+		System.arraycopy(boundaries, 0, result, 0, distinct);
+		return result;
+	}
+
+	/**
+	 * @return the offset of the first record starting at or after the given offset, found by looking 
+	 * for a delimiter ending there or later 
+	 */
+	private static long nextRecordStart(FileChannel channel, byte[] delimiterBytes, long offset, long size) throws IOException {
+		long scanFrom = Math.max(0, offset - delimiterBytes.length);
+		ByteBuffer buffer = ByteBuffer.allocate(Math.max(SCAN_BUFFER_SIZE, delimiterBytes.length * 2));
+		while (scanFrom < size) {
+			buffer.clear();
+			int read = 0;
+			while (buffer.hasRemaining()) {
+				int n = channel.read(buffer, scanFrom + read);
+				if (n < 0) {
+					break;
+				}
+				read += n;
+			}
+			buffer.flip();
+			for (int i = 0; i + delimiterBytes.length <= read; i++) {
+				int j = 0;
+				while (j < delimiterBytes.length && buffer.get(i + j) == delimiterBytes[j]) {
+					j++;
+				}
+				long recordStart = scanFrom + i + delimiterBytes.length;
+				if (j == delimiterBytes.length && recordStart >= offset) {
+					return recordStart;
+				}
+			}
+			if (scanFrom + read >= size) {
+				break;
+			}
+			// Overlap the next read, in case a delimiter straddles the two
+			scanFrom += read - delimiterBytes.length + 1;
+		}
+		return size;
+	}
+}
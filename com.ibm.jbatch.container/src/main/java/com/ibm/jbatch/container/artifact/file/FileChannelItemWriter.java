@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.file;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.inject.Inject;
+
+/**
+ * Writes each item to a flat file as a record, followed by a delimiter, through a reusable direct buffer 
+ * and a FileChannel.  Each chunk is forced to disk before it commits, and the checkpoint is the file's 
+ * length after it, so a restart truncates the file back to that length, dropping the records of any 
+ * chunk that rolled back, even partly written ones.  A fresh start truncates the file to nothing.
+ * 
+ * A byte[] or ByteBuffer item is written as it is, and any other item as its toString() in the given 
+ * charset.  The delimiter (by default a newline) may be given with the escapes \n, \r and \t.
+ * 
+ * The partitions of a partitioned step should each write their own file, for instance named with the
+ * partition number given by a {@link ByteRangePartitionMapper}, which a {@link FileMergeBatchlet} can 
+ * then concatenate.
+ */
+public class FileChannelItemWriter extends AbstractItemWriter {
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	@Inject @BatchProperty
+	protected String fileName;
+
+	@Inject @BatchProperty
+	protected String delimiter;
+
+	@Inject @BatchProperty
+	protected String charset;
+
+	@Inject @BatchProperty
+	protected String bufferSize;
+
+	private FileChannel channel;
+	private CharsetEncoder encoder;
+	private byte[] delimiterBytes;
+	private ByteBuffer buffer;
+
+	@Override
+	public void open(Serializable checkpoint) throws Exception {
+		if (fileName == null) {
+			throw new IllegalArgumentException("The fileName property is required");
+		}
+		Charset recordCharset = Charset.forName(charset != null ? charset : MappedFileItemReader.DEFAULT_CHARSET);
+		encoder = recordCharset.newEncoder();
+		delimiterBytes = MappedFileItemReader.delimiterBytes(delimiter, recordCharset);
+		buffer = ByteBuffer.allocateDirect(Math.max((bufferSize != null) ? Integer.parseInt(bufferSize) : DEFAULT_BUFFER_SIZE, 
+				delimiterBytes.length));
+
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		long committed = (checkpoint != null) ? (Long) checkpoint : 0;
+		channel.truncate(committed);
+		channel.position(committed);
+	}
+
+	@Override
+	public void writeItems(List<Object> items) throws Exception {
+		for (Object item : items) {
+			if (item instanceof ByteBuffer) {
+				put(((ByteBuffer) item).duplicate());
+			} else if (item instanceof byte[]) {
+				put(ByteBuffer.wrap((byte[]) item));
+			} else {
+				encode(String.valueOf(item));
+			}
+			put(ByteBuffer.wrap(delimiterBytes));
+		}
+		drain();
+		channel.force(false);
+	}
+
+	@Override
+	public Serializable checkpointInfo() throws Exception {
+		return channel.position();
+	}
+
+	@Override
+	public void close() throws Exception {
+		buffer = null;
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private void put(ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			if (!buffer.hasRemaining()) {
+				drain();
+			}
+			if (bytes.remaining() <= buffer.remaining()) {
+				buffer.put(bytes);
+			} else {
+				ByteBuffer part = bytes.duplicate();
+				part.limit(part.position() + buffer.remaining());
+				buffer.put(part);
+				bytes.position(part.position());
+			}
+		}
+	}
+
+	private void encode(String record) throws IOException {
+		CharBuffer chars = CharBuffer.wrap(record);
+		encoder.reset();
+		while (true) {
+			CoderResult result = encoder.encode(chars, buffer, true);
+			if (result.isOverflow()) {
+				drain();
+			} else if (result.isUnderflow()) {
+				break;
+			} else {
+				result.throwException();
+			}
+		}
+		while (encoder.flush(buffer).isOverflow()) {
+			drain();
+		}
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.file;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.batch.api.AbstractBatchlet;
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.runtime.BatchStatus;
+import jakarta.inject.Inject;
+
+/**
+ * Concatenates the files written by the partitions of an earlier step into one, in partition order, by
+ * transferring between FileChannels.  The partition files are named by inputFilePrefix followed by the 
+ * partition number, counting from 0 until the first one missing, and are deleted once merged unless 
+ * deleteInputFiles is false.  
+ */
+public class FileMergeBatchlet extends AbstractBatchlet {
+
+	private final static String sourceClass = FileMergeBatchlet.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	@Inject @BatchProperty
+	protected String fileName;
+
+	@Inject @BatchProperty
+	protected String inputFilePrefix;
+
+	@Inject @BatchProperty
+	protected String deleteInputFiles;
+
+	@Override
+	public String process() throws Exception {
+		if (fileName == null || inputFilePrefix == null) {
+			throw new IllegalArgumentException("The fileName and inputFilePrefix properties are required");
+		}
+
+		int merged = 0;
+		try (FileChannel out = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			File input;
+			while ((input = new File(inputFilePrefix + merged)).exists()) {
+				try (FileChannel in = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+					long size = in.size();
+					long position = 0;
+					while (position < size) {
+						position += in.transferTo(position, size - position, out);
+					}
+				}
+				merged++;
+			}
+			out.force(false);
+		}
+
+		if (!"false".equalsIgnoreCase(deleteInputFiles)) {
+			for (int i = 0; i < merged; i++) {
+				new File(inputFilePrefix + i).delete();
+			}
+		}
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Merged " + merged + " files named " + inputFilePrefix + "<n> into " + fileName);
+		}
+		return BatchStatus.COMPLETED.name();
+	}
+}
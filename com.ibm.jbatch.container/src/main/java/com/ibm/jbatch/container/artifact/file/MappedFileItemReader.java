@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.file;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.inject.Inject;
+
+/**
+ * Reads the records of a flat file, split on a delimiter, checkpointing the byte offset of the next record, 
+ * so a restart seeks straight to it.  
+ * 
+ * The file, or the byte range of it given by the startOffset and endOffset properties (as set by a 
+ * {@link ByteRangePartitionMapper}), is memory-mapped, unless larger than maxMappedBytes, in which case 
+ * it is read through a buffer of bufferSize bytes instead (grown to fit any longer record).  A byte range 
+ * must start and end on record boundaries.
+ * 
+ * Records are read as Strings in the given charset, or, with itemType "bytes", as read-only ByteBuffers,
+ * which, when the file is mapped, are views of the mapping rather than copies.  The delimiter (by default 
+ * a newline) is not included, and may be given with the escapes \n, \r and \t.
+ */
+public class MappedFileItemReader extends AbstractItemReader {
+
+	public static final String ITEM_TYPE_STRING = "string";
+	public static final String ITEM_TYPE_BYTES = "bytes";
+
+	static final String DEFAULT_DELIMITER = "\\n";
+	static final String DEFAULT_CHARSET = "UTF-8";
+	private static final long DEFAULT_MAX_MAPPED_BYTES = Integer.MAX_VALUE;
+	private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	@Inject @BatchProperty
+	protected String fileName;
+
+	@Inject @BatchProperty
+	protected String delimiter;
+
+	@Inject @BatchProperty
+	protected String charset;
+
+	@Inject @BatchProperty
+	protected String itemType;
+
+	@Inject @BatchProperty
+	protected String startOffset;
+
+	@Inject @BatchProperty
+	protected String endOffset;
+
+	@Inject @BatchProperty
+	protected String maxMappedBytes;
+
+	@Inject @BatchProperty
+	protected String bufferSize;
+
+	private FileChannel channel;
+	private Charset recordCharset;
+	private byte[] delimiterBytes;
+	private boolean bytesItems;
+	private boolean mapped;
+	private long end;
+
+	// The next record's offset in the file
+	private long position;
+	// The part of the file in the window, which starts at windowStart
+	private ByteBuffer window;
+	private long windowStart;
+	private byte[] decodeBuffer = new byte[256];
+
+	@Override
+	public void open(Serializable checkpoint) throws Exception {
+		if (fileName == null) {
+			throw new IllegalArgumentException("The fileName property is required");
+		}
+		recordCharset = Charset.forName(charset != null ? charset : DEFAULT_CHARSET);
+		delimiterBytes = delimiterBytes(delimiter, recordCharset);
+		bytesItems = ITEM_TYPE_BYTES.equalsIgnoreCase(itemType);
+
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+		long start = (startOffset != null) ? Long.parseLong(startOffset) : 0;
+		end = (endOffset != null) ? Math.min(Long.parseLong(endOffset), channel.size()) : channel.size();
+		position = (checkpoint != null) ? (Long) checkpoint : start;
+
+		long maxMapped = (maxMappedBytes != null) ? Long.parseLong(maxMappedBytes) : DEFAULT_MAX_MAPPED_BYTES;
+		mapped = end - start <= Math.min(maxMapped, Integer.MAX_VALUE);
+		if (mapped) {
+			windowStart = start;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		} else {
+			windowStart = position;
+			window = ByteBuffer.allocate((bufferSize != null) ? Integer.parseInt(bufferSize) : DEFAULT_BUFFER_SIZE);
+			window.limit(0);
+			fill();
+		}
+	}
+
+	@Override
+	public Object readItem() throws Exception {
+		if (position >= end) {
+			return null;
+		}
+		while (true) {
+			int from = (int) (position - windowStart);
+			int delimiterAt = indexOfDelimiter(from);
+			if (delimiterAt >= 0) {
+				position = windowStart + delimiterAt + delimiterBytes.length;
+				return toItem(from, delimiterAt);
+			}
+			if (windowStart + window.limit() >= end) {
+				// The last record, with no delimiter after it
+				position = end;
+				return toItem(from, window.limit());
+			}
+			fill();
+		}
+	}
+
+	@Override
+	public Serializable checkpointInfo() throws Exception {
+		return position;
+	}
+
+	@Override
+	public void close() throws Exception {
+		window = null;
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private int indexOfDelimiter(int from) {
+		byte first = delimiterBytes[0];
+		int last = window.limit() - delimiterBytes.length;
+		for (int i = from; i <= last; i++) {
+			if (window.get(i) == first) {
+				int j = 1;
+				while (j < delimiterBytes.length && window.get(i + j) == delimiterBytes[j]) {
+					j++;
+				}
+				if (j == delimiterBytes.length) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Moves the window up to the next record, reading on from the file, with a larger buffer if the
+	 * record doesn't fit.
+	 */
+	private void fill() throws IOException {
+		int from = (int) (position - windowStart);
+		int remaining = window.limit() - from;
+		if (from == 0 && remaining == window.capacity()) {
+			ByteBuffer larger = ByteBuffer.allocate(window.capacity() * 2);
+			window.position(0);
+			larger.put(window);
+			window = larger;
+		} else {
+			window.position(from);
+			window.compact();
+		}
+		windowStart = position;
+		window.limit((int) Math.min(window.capacity(), end - windowStart));
+		window.position(remaining);
+		while (window.hasRemaining()) {
+			if (channel.read(window, windowStart + window.position()) < 0) {
+				break;
+			}
+		}
+		window.flip();
+	}
+
+	private Object toItem(int from, int to) {
+		int length = to - from;
+		if (bytesItems) {
+			if (mapped) {
+				ByteBuffer record = window.duplicate();
+				record.limit(to).position(from);
+				return record.slice().asReadOnlyBuffer();
+			}
+			byte[] copy = new byte[length];
+			for (int i = 0; i < length; i++) {
+				copy[i] = window.get(from + i);
+			}
+			return ByteBuffer.wrap(copy).asReadOnlyBuffer();
+		}
+		if (window.hasArray()) {
+			return new String(window.array(), window.arrayOffset() + from, length, recordCharset);
+		}
+		if (decodeBuffer.length < length) {
+			decodeBuffer = new byte[Math.max(length, decodeBuffer.length * 2)];
+		}
+		ByteBuffer record = window.duplicate();
+		record.limit(to).position(from);
+		record.get(decodeBuffer, 0, length);
+		return new String(decodeBuffer, 0, length, recordCharset);
+	}
+
+	/**
+	 * @return the delimiter, defaulting to a newline and with its escapes replaced, encoded in the charset
+	 */
+	static byte[] delimiterBytes(String delimiter, Charset charset) {
+		String value = (delimiter != null && !delimiter.isEmpty()) ? delimiter : DEFAULT_DELIMITER;
+		StringBuilder unescaped = new StringBuilder();
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char escaped = value.charAt(++i);
+				switch (escaped) {
+				case 'n':
+					c = '\n';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				default:
+					c = escaped;
+				}
+			}
+			unescaped.append(c);
+		}
+		return unescaped.toString().getBytes(charset);
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * The default {@link ItemBinder}, binding the values of an Object[] or a List item, in order, 
+ * or any other item as a single parameter.
+ */
+public class ColumnArrayItemBinder implements ItemBinder {
+
+	@Override
+	public void bind(PreparedStatement statement, int firstParameter, Object item) throws SQLException {
+		if (item instanceof Object[]) {
+			Object[] values = (Object[]) item;
+			for (int i = 0; i < values.length; i++) {
+				statement.setObject(firstParameter + i, values[i]);
+			}
+		} else if (item instanceof List) {
+			List<?> values = (List<?>) item;
+			for (int i = 0; i < values.size(); i++) {
+				statement.setObject(firstParameter + i, values.get(i));
+			}
+		} else {
+			statement.setObject(firstParameter, item);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The default {@link RowMapper}, mapping a row to an Object[] of its column values.
+ */
+public class ColumnArrayRowMapper implements RowMapper {
+
+	private int columnCount = -1;
+
+	@Override
+	public Object mapRow(ResultSet resultSet) throws SQLException {
+		if (columnCount < 0) {
+			columnCount = resultSet.getMetaData().getColumnCount();
+		}
+		Object[] row = new Object[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			row[i] = resultSet.getObject(i + 1);
+		}
+		return row;
+	}
+}
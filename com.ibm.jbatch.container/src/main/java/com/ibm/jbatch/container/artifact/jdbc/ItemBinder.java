@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Binds an item to the parameters of the statement a {@link JdbcBatchItemWriter} writes it with.  One
+ * instance binds all the items a writer writes.
+ */
+public interface ItemBinder {
+
+	/**
+	 * @param firstParameter the index of the item's first parameter, which is past 1 for the second and
+	 * later rows of a multi-row insert 
+	 */
+	public void bind(PreparedStatement statement, int firstParameter, Object item) throws SQLException;
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+/**
+ * What the JDBC artifacts share: getting their own connection, and building their queries over a 
+ * table's key range.
+ */
+class JdbcArtifactSupport {
+
+	private JdbcArtifactSupport() {}
+
+	/**
+	 * @return a new connection from the DataSource bound to the given JNDI name, or if there is none,
+	 * from the DriverManager for the given URL
+	 */
+	static Connection getConnection(String dataSource, String url, String user, String password) throws SQLException {
+		if (dataSource != null) {
+			try {
+				DataSource ds = (DataSource) new InitialContext().lookup(dataSource);
+				return (user != null) ? ds.getConnection(user, password) : ds.getConnection();
+			} catch (NamingException e) {
+				throw new IllegalArgumentException("No DataSource found for: " + dataSource, e);
+			}
+		}
+		if (url == null) {
+			throw new IllegalArgumentException("Either the dataSource or the url property is required");
+		}
+		return (user != null) ? DriverManager.getConnection(url, user, password) : DriverManager.getConnection(url);
+	}
+
+	/**
+	 * @return a query of the table's rows, ordered by the key column if there is one, restricted by the where clause 
+	 * if there is one, and with the given key conditions, each with a parameter
+	 */
+	static String select(String columns, String table, String keyColumn, String where, String... keyConditions) {
+		StringBuilder sql = new StringBuilder("SELECT ").append(columns != null ? columns : "*").append(" FROM ").append(table);
+		String separator = " WHERE ";
+		if (where != null) {
+			sql.append(separator).append('(').append(where).append(')');
+			separator = " AND ";
+		}
+		for (String condition : keyConditions) {
+			sql.append(separator).append(keyColumn).append(' ').append(condition).append(" ?");
+			separator = " AND ";
+		}
+		if (keyColumn != null) {
+			sql.append(" ORDER BY ").append(keyColumn);
+		}
+		return sql.toString();
+	}
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.jdbc;
+
+import java.io.Serializable;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.inject.Inject;
+
+/**
+ * Writes each chunk's items with JDBC batches of one prepared statement, each item's parameters bound 
+ * by the {@link ItemBinder} named by the itemBinder property (by default a {@link ColumnArrayItemBinder}).
+ * The statement is either the sql property, or an insert into the table property's columns.  The items 
+ * are sent batchSize at a time.  For an insert built from the table and columns, rowsPerStatement, if 
+ * more than 1, inserts that many items with each execution of the statement, with a multi-row VALUES 
+ * clause, for the databases that support one.
+ * 
+ * With the dataSource property, the JNDI name of a DataSource, a connection is taken from it for each 
+ * chunk, inside the chunk's transaction, which commits or rolls back the writes along with the rest of
+ * the chunk.  With the url property (with the user and password if given), as when running outside a 
+ * Jakarta EE server, the writer keeps a connection of its own, and commits each chunk's writes itself 
+ * at the end of writeItems, and its statements are kept across chunks.
+ * 
+ * When a batch fails, a {@link JdbcBatchWriteException} is thrown, saying which item failed, when the 
+ * driver says and one item is written per statement, so the "isolate" write skip strategy can skip
+ * just that item. 
+ */
+public class JdbcBatchItemWriter extends AbstractItemWriter {
+
+	private final static String sourceClass = JdbcBatchItemWriter.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	private static final int DEFAULT_BATCH_SIZE = 1000;
+
+	@Inject @BatchProperty
+	protected String dataSource;
+
+	@Inject @BatchProperty
+	protected String url;
+
+	@Inject @BatchProperty
+	protected String user;
+
+	@Inject @BatchProperty
+	protected String password;
+
+	@Inject @BatchProperty
+	protected String sql;
+
+	@Inject @BatchProperty
+	protected String table;
+
+	@Inject @BatchProperty
+	protected String columns;
+
+	@Inject @BatchProperty
+	protected String batchSize;
+
+	@Inject @BatchProperty
+	protected String rowsPerStatement;
+
+	@Inject @BatchProperty
+	protected String itemBinder;
+
+	private ItemBinder binder;
+	private int itemsPerBatch;
+	private int rowsPerInsert;
+	private int columnCount;
+
+	// Kept across chunks only when the writer has a connection of its own
+	private Connection ownConnection;
+	private final Map<Integer, PreparedStatement> statements = new HashMap<Integer, PreparedStatement>();
+
+	@Override
+	public void open(Serializable checkpoint) throws Exception {
+		if (sql == null && (table == null || columns == null)) {
+			throw new IllegalArgumentException("Either the sql property, or the table and columns properties, are required");
+		}
+		rowsPerInsert = (rowsPerStatement != null) ? Integer.parseInt(rowsPerStatement) : 1;
+		if (rowsPerInsert > 1 && sql != null) {
+			throw new IllegalArgumentException("A multi-row insert is only built from the table and columns properties");
+		}
+		columnCount = (columns != null) ? columns.split(",").length : 0;
+		itemsPerBatch = Math.max((batchSize != null) ? Integer.parseInt(batchSize) : DEFAULT_BATCH_SIZE, rowsPerInsert);
+		binder = (itemBinder != null) 
+				? (ItemBinder) Thread.currentThread().getContextClassLoader().loadClass(itemBinder).newInstance()
+				: new ColumnArrayItemBinder();
+
+		if (dataSource == null) {
+			ownConnection = JdbcArtifactSupport.getConnection(null, url, user, password);
+			ownConnection.setAutoCommit(false);
+		}
+	}
+
+	@Override
+	public void writeItems(List<Object> items) throws Exception {
+		Connection connection = (ownConnection != null) ? ownConnection : JdbcArtifactSupport.getConnection(dataSource, null, user, password);
+		try {
+			write(connection, items);
+			if (ownConnection != null) {
+				ownConnection.commit();
+			}
+		} catch (SQLException e) {
+			if (ownConnection != null) {
+				for (PreparedStatement statement : statements.values()) {
+					statement.clearBatch();
+				}
+				ownConnection.rollback();
+			}
+			throw e;
+		} finally {
+			if (ownConnection == null) {
+				closeStatements();
+				connection.close();
+			}
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		closeStatements();
+		if (ownConnection != null) {
+			try {
+				ownConnection.rollback();
+			} finally {
+				ownConnection.close();
+				ownConnection = null;
+			}
+		}
+	}
+
+	private void write(Connection connection, List<Object> items) throws SQLException {
+		int size = items.size();
+		int tail = size % rowsPerInsert;
+		int fullStatements = size / rowsPerInsert;
+		int statementsPerBatch = itemsPerBatch / rowsPerInsert;
+
+		if (fullStatements > 0) {
+			PreparedStatement statement = statement(connection, rowsPerInsert);
+			int batchStart = 0;
+			int batched = 0;
+			for (int i = 0; i < fullStatements; i++) {
+				for (int row = 0; row < rowsPerInsert; row++) {
+					binder.bind(statement, 1 + row * columnCount, items.get(i * rowsPerInsert + row));
+				}
+				statement.addBatch();
+				if (++batched == statementsPerBatch) {
+					executeBatch(statement, batchStart, rowsPerInsert);
+					batchStart += batched * rowsPerInsert;
+					batched = 0;
+				}
+			}
+			if (batched > 0) {
+				executeBatch(statement, batchStart, rowsPerInsert);
+			}
+		}
+
+		if (tail > 0) {
+			PreparedStatement statement = statement(connection, tail);
+			int first = fullStatements * rowsPerInsert;
+			for (int row = 0; row < tail; row++) {
+				binder.bind(statement, 1 + row * columnCount, items.get(first + row));
+			}
+			statement.addBatch();
+			executeBatch(statement, first, tail);
+		}
+	}
+
+	private void executeBatch(PreparedStatement statement, int firstItem, int rowsPerExecution) throws SQLException {
+		try {
+			statement.executeBatch();
+		} catch (BatchUpdateException e) {
+			// The driver either stopped at the failed statement, or carried on and marked it as failed
+			int[] updateCounts = e.getUpdateCounts();
+			int failed = (updateCounts != null) ? updateCounts.length : -1;
+			if (updateCounts != null) {
+				for (int i = 0; i < updateCounts.length; i++) {
+					if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+						failed = i;
+						break;
+					}
+				}
+			}
+			int failedItemIndex = (failed >= 0 && rowsPerExecution == 1) ? firstItem + failed : -1;
+			if (logger.isLoggable(Level.FINE)) {
+				logger.fine("Batch of items from index " + firstItem + " failed at item " + failedItemIndex + ": " + e);
+			}
+			throw new JdbcBatchWriteException(e, updateCounts, failedItemIndex);
+		}
+	}
+
+	private PreparedStatement statement(Connection connection, int rows) throws SQLException {
+		PreparedStatement statement = statements.get(rows);
+		if (statement == null) {
+			statement = connection.prepareStatement(sql != null ? sql : insert(rows));
+			statements.put(rows, statement);
+		}
+		return statement;
+	}
+
+	private String insert(int rows) {
+		StringBuilder values = new StringBuilder("(");
+		for (int i = 0; i < columnCount; i++) {
+			values.append(i == 0 ? "?" : ", ?");
+		}
+		values.append(')');
+
+		StringBuilder insert = new StringBuilder("INSERT INTO ").append(table).append(" (").append(columns).append(") VALUES ");
+		for (int i = 0; i < rows; i++) {
+			insert.append(i == 0 ? "" : ", ").append(values);
+		}
+		return insert.toString();
+	}
+
+	private void closeStatements() throws SQLException {
+		SQLException failure = null;
+		for (PreparedStatement statement : statements.values()) {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				failure = (failure == null) ? e : failure;
+			}
+		}
+		statements.clear();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
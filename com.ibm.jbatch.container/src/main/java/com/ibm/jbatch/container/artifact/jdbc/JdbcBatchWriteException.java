@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.jdbc;
+
+import java.sql.BatchUpdateException;
+
+import com.ibm.jbatch.container.exception.ItemWriteFailure;
+
+/**
+ * Thrown by a {@link JdbcBatchItemWriter} when a batch fails, saying which item failed if the driver 
+ * told it, so the "isolate" write skip strategy can go straight to it.  The driver's exception is the 
+ * cause.
+ */
+public class JdbcBatchWriteException extends BatchUpdateException implements ItemWriteFailure {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int failedItemIndex;
+
+	public JdbcBatchWriteException(BatchUpdateException cause, int[] updateCounts, int failedItemIndex) {
+		super("Failed writing the item at index " + failedItemIndex + ": " + cause.getMessage(), cause.getSQLState(), 
+				cause.getErrorCode(), updateCounts, cause);
+		this.failedItemIndex = failedItemIndex;
+	}
+
+	@Override
+	public int getFailedItemIndex() {
+		return failedItemIndex;
+	}
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.jdbc;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.inject.Inject;
+
+/**
+ * Reads the rows of a query, each mapped to an item by the {@link RowMapper} named by the rowMapper 
+ * property (by default a {@link ColumnArrayRowMapper}), on a read-only connection of its own, outside 
+ * the chunk transaction.  The connection comes from the DataSource bound to the dataSource JNDI name, 
+ * or else from the DriverManager for the url, with the user and password if given.
+ * 
+ * The query is either the sql property, or built from the table, columns (by default all), keyColumn 
+ * and where properties, ordered by the key column.  The key range of a partition, as set by a 
+ * {@link KeyRangePartitionMapper}, is given by the numeric minKey (inclusive) and maxKey (exclusive) 
+ * properties, which are bound, when set and in that order, to the parameters of the sql property, or
+ * else are added to the built query.
+ * 
+ * In the default "cursor" mode, the query runs once, and its rows are read through a forward-only 
+ * cursor, fetchSize at a time.  The checkpoint is the number of rows read, so a restart runs the query
+ * again and skips that many.
+ * 
+ * In "keyset" mode, which needs the built query, the rows are read a page of pageSize at a time, each
+ * page a query of the rows with keys after the last one read, so no cursor is held between pages and
+ * the database never has to skip rows.  The checkpoint is the key of the last row read, so a restart 
+ * picks up right after it.
+ */
+public class JdbcItemReader extends AbstractItemReader {
+
+	private final static String sourceClass = JdbcItemReader.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	public static final String MODE_CURSOR = "cursor";
+	public static final String MODE_KEYSET = "keyset";
+
+	private static final int DEFAULT_FETCH_SIZE = 1000;
+	private static final int DEFAULT_PAGE_SIZE = 1000;
+
+	@Inject @BatchProperty
+	protected String dataSource;
+
+	@Inject @BatchProperty
+	protected String url;
+
+	@Inject @BatchProperty
+	protected String user;
+
+	@Inject @BatchProperty
+	protected String password;
+
+	@Inject @BatchProperty
+	protected String mode;
+
+	@Inject @BatchProperty
+	protected String sql;
+
+	@Inject @BatchProperty
+	protected String table;
+
+	@Inject @BatchProperty
+	protected String columns;
+
+	@Inject @BatchProperty
+	protected String keyColumn;
+
+	@Inject @BatchProperty
+	protected String where;
+
+	@Inject @BatchProperty
+	protected String minKey;
+
+	@Inject @BatchProperty
+	protected String maxKey;
+
+	@Inject @BatchProperty
+	protected String fetchSize;
+
+	@Inject @BatchProperty
+	protected String pageSize;
+
+	@Inject @BatchProperty
+	protected String rowMapper;
+
+	private Connection connection;
+	private RowMapper mapper;
+	private boolean keyset;
+
+	// Cursor mode
+	private PreparedStatement cursorStatement;
+	private ResultSet cursor;
+	private long rowsRead;
+
+	// Keyset mode
+	private PreparedStatement firstPageStatement;
+	private PreparedStatement nextPageStatement;
+	private int pageRows;
+	private final List<Object> page = new ArrayList<Object>();
+	private final List<Object> pageKeys = new ArrayList<Object>();
+	private int pageIndex;
+	private boolean lastPage;
+	private Object lastKey;
+
+	@Override
+	public void open(Serializable checkpoint) throws Exception {
+		keyset = MODE_KEYSET.equalsIgnoreCase(mode);
+		if (keyset && (table == null || keyColumn == null)) {
+			throw new IllegalArgumentException("The keyset mode needs the table and keyColumn properties");
+		}
+		if (!keyset && sql == null && table == null) {
+			throw new IllegalArgumentException("Either the sql or the table property is required");
+		}
+		if (sql == null && keyColumn == null && (minKey != null || maxKey != null)) {
+			throw new IllegalArgumentException("A key range needs the keyColumn property");
+		}
+		mapper = newRowMapper();
+
+		connection = JdbcArtifactSupport.getConnection(dataSource, url, user, password);
+		connection.setReadOnly(true);
+		if (keyset) {
+			openKeyset(checkpoint);
+		} else {
+			openCursor(checkpoint);
+		}
+	}
+
+	@Override
+	public Object readItem() throws Exception {
+		return keyset ? readKeyset() : readCursor();
+	}
+
+	@Override
+	public Serializable checkpointInfo() throws Exception {
+		return keyset ? (Serializable) lastKey : Long.valueOf(rowsRead);
+	}
+
+	@Override
+	public void close() throws Exception {
+		SQLException failure = null;
+		for (AutoCloseable closeable : new AutoCloseable[] { cursor, cursorStatement, firstPageStatement, nextPageStatement }) {
+			failure = close(closeable, failure);
+		}
+		if (connection != null) {
+			try {
+				if (!connection.getAutoCommit()) {
+					connection.rollback();
+				}
+			} catch (SQLException e) {
+				failure = (failure == null) ? e : failure;
+			}
+			failure = close(connection, failure);
+		}
+		cursor = null;
+		cursorStatement = firstPageStatement = nextPageStatement = null;
+		connection = null;
+		page.clear();
+		pageKeys.clear();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void openCursor(Serializable checkpoint) throws SQLException {
+		// Some drivers only fetch a batch at a time in a transaction
+		connection.setAutoCommit(false);
+		String query = sql;
+		if (query == null) {
+			query = JdbcArtifactSupport.select(columns, table, keyColumn, where, rangeConditions());
+		}
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Opening cursor on: " + query);
+		}
+		cursorStatement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, 
+				ResultSet.HOLD_CURSORS_OVER_COMMIT);
+		cursorStatement.setFetchSize((fetchSize != null) ? Integer.parseInt(fetchSize) : DEFAULT_FETCH_SIZE);
+		bindRange(cursorStatement, 1);
+		cursor = cursorStatement.executeQuery();
+
+		rowsRead = 0;
+		long skip = (checkpoint != null) ? (Long) checkpoint : 0;
+		while (rowsRead < skip && cursor.next()) {
+			rowsRead++;
+		}
+	}
+
+	private Object readCursor() throws SQLException {
+		if (cursor == null || !cursor.next()) {
+			return null;
+		}
+		rowsRead++;
+		return mapper.mapRow(cursor);
+	}
+
+	private void openKeyset(Serializable checkpoint) throws SQLException {
+		pageRows = (pageSize != null) ? Integer.parseInt(pageSize) : DEFAULT_PAGE_SIZE;
+		String[] afterLast = (maxKey != null) ? new String[] { ">", "<" } : new String[] { ">" };
+		firstPageStatement = prepareKeysetStatement(JdbcArtifactSupport.select(columns, table, keyColumn, where, rangeConditions()));
+		nextPageStatement = prepareKeysetStatement(JdbcArtifactSupport.select(columns, table, keyColumn, where, afterLast));
+
+		lastKey = checkpoint;
+		lastPage = false;
+		page.clear();
+		pageKeys.clear();
+		pageIndex = 0;
+	}
+
+	private PreparedStatement prepareKeysetStatement(String query) throws SQLException {
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Paging with: " + query);
+		}
+		PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		statement.setMaxRows(pageRows);
+		statement.setFetchSize(pageRows);
+		return statement;
+	}
+
+	private Object readKeyset() throws SQLException {
+		if (pageIndex == page.size()) {
+			if (lastPage) {
+				return null;
+			}
+			fetchPage();
+			if (page.isEmpty()) {
+				return null;
+			}
+		}
+		lastKey = pageKeys.get(pageIndex);
+		return page.get(pageIndex++);
+	}
+
+	private void fetchPage() throws SQLException {
+		page.clear();
+		pageKeys.clear();
+		pageIndex = 0;
+
+		PreparedStatement statement;
+		if (lastKey == null) {
+			statement = firstPageStatement;
+			bindRange(statement, 1);
+		} else {
+			statement = nextPageStatement;
+			statement.setObject(1, lastKey);
+			if (maxKey != null) {
+				statement.setLong(2, Long.parseLong(maxKey));
+			}
+		}
+		ResultSet resultSet = statement.executeQuery();
+		try {
+			while (resultSet.next()) {
+				pageKeys.add(resultSet.getObject(keyColumn));
+				page.add(mapper.mapRow(resultSet));
+			}
+		} finally {
+			resultSet.close();
+		}
+		lastPage = page.size() < pageRows;
+	}
+
+	private String[] rangeConditions() {
+		List<String> conditions = new ArrayList<String>();
+		if (minKey != null) {
+			conditions.add(">=");
+		}
+		if (maxKey != null) {
+			conditions.add("<");
+		}
+		return conditions.toArray(new String[conditions.size()]);
+	}
+
+	private void bindRange(PreparedStatement statement, int parameter) throws SQLException {
+		if (minKey != null) {
+			statement.setLong(parameter++, Long.parseLong(minKey));
+		}
+		if (maxKey != null) {
+			statement.setLong(parameter, Long.parseLong(maxKey));
+		}
+	}
+
+	private RowMapper newRowMapper() throws Exception {
+		if (rowMapper == null) {
+			return new ColumnArrayRowMapper();
+		}
+		return (RowMapper) Thread.currentThread().getContextClassLoader().loadClass(rowMapper).newInstance();
+	}
+
+	private static SQLException close(AutoCloseable closeable, SQLException failure) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (Exception e) {
+				if (failure == null) {
+					failure = (e instanceof SQLException) ? (SQLException) e : new SQLException(e);
+				}
+			}
+		}
+		return failure;
+	}
+}
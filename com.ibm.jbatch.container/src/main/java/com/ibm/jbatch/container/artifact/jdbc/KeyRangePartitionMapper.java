@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.api.partition.PartitionMapper;
+import jakarta.batch.api.partition.PartitionPlan;
+import jakarta.batch.api.partition.PartitionPlanImpl;
+import jakarta.inject.Inject;
+
+/**
+ * Splits the numeric key range of a table's rows (restricted by the where property if set) into ranges,
+ * one per partition, each given by the partition properties minKey (inclusive) and maxKey (exclusive)
+ * for a {@link JdbcItemReader}, along with the partition's number, partition, from 0.  The connection 
+ * properties are those of the reader.
+ * 
+ * With splitBy "range", the default, the span between the minimum and maximum key is cut into equal 
+ * parts.  With "count", which costs a scan of the key column but copes with skewed keys, the ranges 
+ * hold about the same number of rows.
+ * 
+ * The number of partitions defaults to the number of processors, and is lowered if there aren't 
+ * enough keys to go round.
+ */
+public class KeyRangePartitionMapper implements PartitionMapper {
+
+	private final static String sourceClass = KeyRangePartitionMapper.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	public static final String MIN_KEY = "minKey";
+	public static final String MAX_KEY = "maxKey";
+	public static final String PARTITION = "partition";
+
+	public static final String SPLIT_BY_RANGE = "range";
+	public static final String SPLIT_BY_COUNT = "count";
+
+	private static final int KEY_FETCH_SIZE = 1000;
+
+	@Inject @BatchProperty
+	protected String dataSource;
+
+	@Inject @BatchProperty
+	protected String url;
+
+	@Inject @BatchProperty
+	protected String user;
+
+	@Inject @BatchProperty
+	protected String password;
+
+	@Inject @BatchProperty
+	protected String table;
+
+	@Inject @BatchProperty
+	protected String keyColumn;
+
+	@Inject @BatchProperty
+	protected String where;
+
+	@Inject @BatchProperty
+	protected String partitions;
+
+	@Inject @BatchProperty
+	protected String splitBy;
+
+	@Override
+	public PartitionPlan mapPartitions() throws Exception {
+		if (table == null || keyColumn == null) {
+			throw new IllegalArgumentException("The table and keyColumn properties are required");
+		}
+		int count = Math.max(1, (partitions != null) ? Integer.parseInt(partitions) : Runtime.getRuntime().availableProcessors());
+
+		List<Long> boundaries;
+		Connection connection = JdbcArtifactSupport.getConnection(dataSource, url, user, password);
+		try {
+			connection.setReadOnly(true);
+			boundaries = SPLIT_BY_COUNT.equalsIgnoreCase(splitBy) ? splitByCount(connection, count) : splitByRange(connection, count);
+		} finally {
+			connection.close();
+		}
+
+		int ranges = boundaries.size() - 1;
+		Properties[] partitionProperties = new Properties[ranges];
+		for (int i = 0; i < ranges; i++) {
+			partitionProperties[i] = new Properties();
+			partitionProperties[i].setProperty(MIN_KEY, Long.toString(boundaries.get(i)));
+			partitionProperties[i].setProperty(MAX_KEY, Long.toString(boundaries.get(i + 1)));
+			partitionProperties[i].setProperty(PARTITION, Integer.toString(i));
+		}
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Split the keys of " + table + " into " + ranges + " ranges, of " + count + " requested: " + boundaries);
+		}
+
+		PartitionPlanImpl plan = new PartitionPlanImpl();
+		plan.setPartitions(ranges);
+		plan.setPartitionProperties(partitionProperties);
+		return plan;
+	}
+
+	private List<Long> splitByRange(Connection connection, int count) throws Exception {
+		StringBuilder sql = new StringBuilder("SELECT MIN(").append(keyColumn).append("), MAX(").append(keyColumn)
+				.append(") FROM ").append(table);
+		if (where != null) {
+			sql.append(" WHERE ").append(where);
+		}
+		long min, max;
+		PreparedStatement statement = connection.prepareStatement(sql.toString());
+		try {
+			ResultSet resultSet = statement.executeQuery();
+			resultSet.next();
+			min = resultSet.getLong(1);
+			boolean empty = resultSet.wasNull();
+			max = resultSet.getLong(2);
+			if (empty) {
+				max = min - 1;
+			}
+		} finally {
+			statement.close();
+		}
+
+		List<Long> boundaries = new ArrayList<Long>();
+		boundaries.add(min);
+		long span = max - min + 1;
+		for (int i = 1; i < count; i++) {
+			long boundary = min + span / count * i + span % count * i / count;
+			if (boundary > boundaries.get(boundaries.size() - 1)) {
+				boundaries.add(boundary);
+			}
+		}
+		boundaries.add(Math.max(max + 1, min));
+		return boundaries;
+	}
+
+	private List<Long> splitByCount(Connection connection, int count) throws Exception {
+		StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(table);
+		if (where != null) {
+			sql.append(" WHERE ").append(where);
+		}
+		long rows;
+		PreparedStatement statement = connection.prepareStatement(sql.toString());
+		try {
+			ResultSet resultSet = statement.executeQuery();
+			resultSet.next();
+			rows = resultSet.getLong(1);
+		} finally {
+			statement.close();
+		}
+
+		List<Long> boundaries = new ArrayList<Long>();
+		if (rows == 0) {
+			boundaries.add(0L);
+			boundaries.add(0L);
+			return boundaries;
+		}
+
+		// The key at every count'th fraction of the rows starts a range
+		statement = connection.prepareStatement("SELECT " + keyColumn + " FROM " + table 
+				+ (where != null ? " WHERE " + where : "") + " ORDER BY " + keyColumn);
+		try {
+			statement.setFetchSize(KEY_FETCH_SIZE);
+			ResultSet resultSet = statement.executeQuery();
+			long row = 0;
+			int next = 1;
+			long key = 0;
+			while (resultSet.next()) {
+				key = resultSet.getLong(1);
+				if (row == 0) {
+					boundaries.add(key);
+				} else if (next < count && row >= rows * next / count) {
+					if (key > boundaries.get(boundaries.size() - 1)) {
+						boundaries.add(key);
+					}
+					next++;
+				}
+				row++;
+			}
+			boundaries.add(key + 1);
+		} finally {
+			statement.close();
+		}
+		return boundaries;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.proxy;
+
+import java.util.List;
+
+/**
+ * The chunk listeners of one step execution, in the order they were configured, compiled into a
+ * single call site for the chunk loop: a shared no-op chain when the step has none, a direct call
+ * when it has one, and a loop over an array otherwise, so dispatching allocates nothing per item.
+ */
+public final class ChunkListenerChain {
+
+    private static final ChunkListenerProxy[] NO_PROXIES = new ChunkListenerProxy[0];
+
+    /**
+     * The chain of a step with no chunk listeners.
+     */
+    public static final ChunkListenerChain NONE = new ChunkListenerChain(null, NO_PROXIES);
+
+    private final ChunkListenerProxy single;
+    private final ChunkListenerProxy[] proxies;
+
+    private ChunkListenerChain(ChunkListenerProxy single, ChunkListenerProxy[] proxies) {
+        this.single = single;
+        this.proxies = proxies;
+    }
+
+    public static ChunkListenerChain of(List<ChunkListenerProxy> listeners) {
+        switch (listeners.size()) {
+        case 0:
+            return NONE;
+        case 1:
+            return new ChunkListenerChain(listeners.get(0), NO_PROXIES);
+        default:
+            return new ChunkListenerChain(null, listeners.toArray(new ChunkListenerProxy[listeners.size()]));
+        }
+    }
+
+    public void beforeChunk() throws Exception {
+        if (single != null) {
+            single.beforeChunk();
+            return;
+        }
+        for (ChunkListenerProxy proxy : proxies) {
+            proxy.beforeChunk();
+        }
+    }
+
+    public void afterChunk() throws Exception {
+        if (single != null) {
+            single.afterChunk();
+            return;
+        }
+        for (ChunkListenerProxy proxy : proxies) {
+            proxy.afterChunk();
+        }
+    }
+
+    public void onError(Exception ex) throws Exception {
+        if (single != null) {
+            single.onError(ex);
+            return;
+        }
+        for (ChunkListenerProxy proxy : proxies) {
+            proxy.onError(ex);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.proxy;
+
+import java.util.List;
+
+/**
+ * The item process listeners of one step execution, in the order they were configured, compiled into a
+ * single call site for the chunk loop: a shared no-op chain when the step has none, a direct call
+ * when it has one, and a loop over an array otherwise, so dispatching allocates nothing per item.
+ */
+public final class ItemProcessListenerChain {
+
+    private static final ItemProcessListenerProxy[] NO_PROXIES = new ItemProcessListenerProxy[0];
+
+    /**
+     * The chain of a step with no item process listeners.
+     */
+    public static final ItemProcessListenerChain NONE = new ItemProcessListenerChain(null, NO_PROXIES);
+
+    private final ItemProcessListenerProxy single;
+    private final ItemProcessListenerProxy[] proxies;
+
+    private ItemProcessListenerChain(ItemProcessListenerProxy single, ItemProcessListenerProxy[] proxies) {
+        this.single = single;
+        this.proxies = proxies;
+    }
+
+    public static ItemProcessListenerChain of(List<ItemProcessListenerProxy> listeners) {
+        switch (listeners.size()) {
+        case 0:
+            return NONE;
+        case 1:
+            return new ItemProcessListenerChain(listeners.get(0), NO_PROXIES);
+        default:
+            return new ItemProcessListenerChain(null, listeners.toArray(new ItemProcessListenerProxy[listeners.size()]));
+        }
+    }
+
+    public void beforeProcess(Object item) {
+        if (single != null) {
+            single.beforeProcess(item);
+            return;
+        }
+        for (ItemProcessListenerProxy proxy : proxies) {
+            proxy.beforeProcess(item);
+        }
+    }
+
+    public void afterProcess(Object item, Object result) {
+        if (single != null) {
+            single.afterProcess(item, result);
+            return;
+        }
+        for (ItemProcessListenerProxy proxy : proxies) {
+            proxy.afterProcess(item, result);
+        }
+    }
+
+    public void onProcessError(Object item, Exception ex) {
+        if (single != null) {
+            single.onProcessError(item, ex);
+            return;
+        }
+        for (ItemProcessListenerProxy proxy : proxies) {
+            proxy.onProcessError(item, ex);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.proxy;
+
+import java.util.List;
+
+/**
+ * The item read listeners of one step execution, in the order they were configured, compiled into a
+ * single call site for the chunk loop: a shared no-op chain when the step has none, a direct call
+ * when it has one, and a loop over an array otherwise, so dispatching allocates nothing per item.
+ */
+public final class ItemReadListenerChain {
+
+    private static final ItemReadListenerProxy[] NO_PROXIES = new ItemReadListenerProxy[0];
+
+    /**
+     * The chain of a step with no item read listeners.
+     */
+    public static final ItemReadListenerChain NONE = new ItemReadListenerChain(null, NO_PROXIES);
+
+    private final ItemReadListenerProxy single;
+    private final ItemReadListenerProxy[] proxies;
+
+    private ItemReadListenerChain(ItemReadListenerProxy single, ItemReadListenerProxy[] proxies) {
+        this.single = single;
+        this.proxies = proxies;
+    }
+
+    public static ItemReadListenerChain of(List<ItemReadListenerProxy> listeners) {
+        switch (listeners.size()) {
+        case 0:
+            return NONE;
+        case 1:
+            return new ItemReadListenerChain(listeners.get(0), NO_PROXIES);
+        default:
+            return new ItemReadListenerChain(null, listeners.toArray(new ItemReadListenerProxy[listeners.size()]));
+        }
+    }
+
+    public void beforeRead() {
+        if (single != null) {
+            single.beforeRead();
+            return;
+        }
+        for (ItemReadListenerProxy proxy : proxies) {
+            proxy.beforeRead();
+        }
+    }
+
+    public void afterRead(Object item) {
+        if (single != null) {
+            single.afterRead(item);
+            return;
+        }
+        for (ItemReadListenerProxy proxy : proxies) {
+            proxy.afterRead(item);
+        }
+    }
+
+    public void onReadError(Exception ex) {
+        if (single != null) {
+            single.onReadError(ex);
+            return;
+        }
+        for (ItemReadListenerProxy proxy : proxies) {
+            proxy.onReadError(ex);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.artifact.proxy;
+
+import java.util.List;
+
+/**
+ * The item write listeners of one step execution, in the order they were configured, compiled into a
+ * single call site for the chunk loop: a shared no-op chain when the step has none, a direct call
+ * when it has one, and a loop over an array otherwise, so dispatching allocates nothing per item.
+ */
+public final class ItemWriteListenerChain {
+
+    private static final ItemWriteListenerProxy[] NO_PROXIES = new ItemWriteListenerProxy[0];
+
+    /**
+     * The chain of a step with no item write listeners.
+     */
+    public static final ItemWriteListenerChain NONE = new ItemWriteListenerChain(null, NO_PROXIES);
+
+    private final ItemWriteListenerProxy single;
+    private final ItemWriteListenerProxy[] proxies;
+
+    private ItemWriteListenerChain(ItemWriteListenerProxy single, ItemWriteListenerProxy[] proxies) {
+        this.single = single;
+        this.proxies = proxies;
+    }
+
+    public static ItemWriteListenerChain of(List<ItemWriteListenerProxy> listeners) {
+        switch (listeners.size()) {
+        case 0:
+            return NONE;
+        case 1:
+            return new ItemWriteListenerChain(listeners.get(0), NO_PROXIES);
+        default:
+            return new ItemWriteListenerChain(null, listeners.toArray(new ItemWriteListenerProxy[listeners.size()]));
+        }
+    }
+
+    public void beforeWrite(List items) {
+        if (single != null) {
+            single.beforeWrite(items);
+            return;
+        }
+        for (ItemWriteListenerProxy proxy : proxies) {
+            proxy.beforeWrite(items);
+        }
+    }
+
+    public void afterWrite(List items) {
+        if (single != null) {
+            single.afterWrite(items);
+            return;
+        }
+        for (ItemWriteListenerProxy proxy : proxies) {
+            proxy.afterWrite(items);
+        }
+    }
+
+    public void onWriteError(List items, Exception ex) {
+        if (single != null) {
+            single.onWriteError(items, ex);
+            return;
+        }
+        for (ItemWriteListenerProxy proxy : proxies) {
+            proxy.onWriteError(items, ex);
+        }
+    }
+}
@@ -44,6 +44,68 @@ import com.ibm.jbatch.jsl.model.Step;
 
 public class ListenerFactory {
 
+    // The listener interfaces an artifact class implements, as a bit set
+    private static final int JOB_LISTENER = 1 << 0;
+    private static final int STEP_LISTENER = 1 << 1;
+    private static final int CHUNK_LISTENER = 1 << 2;
+    private static final int ITEM_PROCESS_LISTENER = 1 << 3;
+    private static final int ITEM_READ_LISTENER = 1 << 4;
+    private static final int ITEM_WRITE_LISTENER = 1 << 5;
+    private static final int RETRY_READ_LISTENER = 1 << 6;
+    private static final int RETRY_WRITE_LISTENER = 1 << 7;
+    private static final int RETRY_PROCESS_LISTENER = 1 << 8;
+    private static final int SKIP_PROCESS_LISTENER = 1 << 9;
+    private static final int SKIP_READ_LISTENER = 1 << 10;
+    private static final int SKIP_WRITE_LISTENER = 1 << 11;
+
+    /*
+     * Classify each listener artifact class once, rather than testing it against every
+     * listener interface each time a step asks for one type of listener.
+     */
+    private static final ClassValue<Integer> LISTENER_TYPES = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            int types = 0;
+            if (JobListener.class.isAssignableFrom(type)) {
+                types |= JOB_LISTENER;
+            }
+            if (StepListener.class.isAssignableFrom(type)) {
+                types |= STEP_LISTENER;
+            }
+            if (ChunkListener.class.isAssignableFrom(type)) {
+                types |= CHUNK_LISTENER;
+            }
+            if (ItemProcessListener.class.isAssignableFrom(type)) {
+                types |= ITEM_PROCESS_LISTENER;
+            }
+            if (ItemReadListener.class.isAssignableFrom(type)) {
+                types |= ITEM_READ_LISTENER;
+            }
+            if (ItemWriteListener.class.isAssignableFrom(type)) {
+                types |= ITEM_WRITE_LISTENER;
+            }
+            if (RetryReadListener.class.isAssignableFrom(type)) {
+                types |= RETRY_READ_LISTENER;
+            }
+            if (RetryWriteListener.class.isAssignableFrom(type)) {
+                types |= RETRY_WRITE_LISTENER;
+            }
+            if (RetryProcessListener.class.isAssignableFrom(type)) {
+                types |= RETRY_PROCESS_LISTENER;
+            }
+            if (SkipProcessListener.class.isAssignableFrom(type)) {
+                types |= SKIP_PROCESS_LISTENER;
+            }
+            if (SkipReadListener.class.isAssignableFrom(type)) {
+                types |= SKIP_READ_LISTENER;
+            }
+            if (SkipWriteListener.class.isAssignableFrom(type)) {
+                types |= SKIP_WRITE_LISTENER;
+            }
+            return types;
+        }
+    };
+
     private List<ListenerInfo> jobLevelListenerInfo = null;
 
     private Map<String, List<ListenerInfo>> stepLevelListenerInfo = new HashMap<String, List<ListenerInfo>>();
@@ -301,7 +363,7 @@ public class ListenerFactory {
 
     private class ListenerInfo {
         Object listenerArtifact = null;
-        Class listenerArtifactClass = null;
+        int listenerTypes = 0;
         List<Property> propList = null;
 
         Object getArtifact() {
@@ -310,57 +372,56 @@ public class ListenerFactory {
 
         private ListenerInfo(Object listenerArtifact, List<Property> propList) {
             this.listenerArtifact = listenerArtifact;
-            this.listenerArtifactClass = listenerArtifact.getClass();
+            this.listenerTypes = LISTENER_TYPES.get(listenerArtifact.getClass());
             this.propList = propList;
         }
 
         boolean isJobListener() {
-
-            return JobListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & JOB_LISTENER) != 0;
         }
 
         boolean isStepListener() {
-            return StepListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & STEP_LISTENER) != 0;
         }
 
         boolean isChunkListener() {
-            return ChunkListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & CHUNK_LISTENER) != 0;
         }
 
         boolean isItemProcessListener() {
-            return ItemProcessListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & ITEM_PROCESS_LISTENER) != 0;
         }
 
         boolean isItemReadListener() {
-            return ItemReadListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & ITEM_READ_LISTENER) != 0;
         }
 
         boolean isItemWriteListener() {
-            return ItemWriteListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & ITEM_WRITE_LISTENER) != 0;
         }
 
         boolean isRetryReadListener() {
-            return RetryReadListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & RETRY_READ_LISTENER) != 0;
         }
-        
+
         boolean isRetryWriteListener() {
-            return RetryWriteListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & RETRY_WRITE_LISTENER) != 0;
         }
-        
+
         boolean isRetryProcessListener() {
-            return RetryProcessListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & RETRY_PROCESS_LISTENER) != 0;
         }
 
         boolean isSkipProcessListener() {
-            return SkipProcessListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & SKIP_PROCESS_LISTENER) != 0;
         }
-        
+
         boolean isSkipReadListener() {
-            return SkipReadListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & SKIP_READ_LISTENER) != 0;
         }
-        
+
         boolean isSkipWriteListener() {
-            return SkipWriteListener.class.isAssignableFrom(listenerArtifactClass);
+            return (listenerTypes & SKIP_WRITE_LISTENER) != 0;
         }
 
         List<Property> getPropList() {
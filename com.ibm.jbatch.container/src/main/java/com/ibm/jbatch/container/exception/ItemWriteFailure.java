@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.exception;
+
+/**
+ * Implemented by an exception thrown by an ItemWriter that knows which item it failed on.  When the
+ * "isolate" write skip strategy re-runs the chunk, it then splits the rolled-back range around that item,
+ * rather than in halves, so the item is tried on its own straight away.
+ */
+public interface ItemWriteFailure {
+
+	/**
+	 * @return the index, in the list of items passed to writeItems, of the first item that failed, 
+	 * or -1 if not known
+	 */
+	public int getFailedItemIndex();
+}
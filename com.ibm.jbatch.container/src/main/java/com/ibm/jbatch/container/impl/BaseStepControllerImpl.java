@@ -19,9 +19,12 @@ package com.ibm.jbatch.container.impl;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.io.StringWriter;
+import java.security.MessageDigest;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
@@ -41,8 +44,8 @@ import com.ibm.jbatch.container.context.impl.StepContextImpl;
 import com.ibm.jbatch.container.exception.BatchContainerRuntimeException;
 import com.ibm.jbatch.container.exception.BatchContainerServiceException;
 import com.ibm.jbatch.container.jobinstance.RuntimeJobExecution;
-import com.ibm.jbatch.container.jobinstance.StepExecutionImpl;
-import com.ibm.jbatch.container.persistence.PersistentDataWrapper;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService.Phase;
 import com.ibm.jbatch.container.services.IBatchKernelService;
 import com.ibm.jbatch.container.services.IJobStatusManagerService;
 import com.ibm.jbatch.container.services.IPersistenceManagerService;
@@ -78,6 +81,11 @@ public abstract class BaseStepControllerImpl implements IExecutionElementControl
 	// Restart of partitioned steps needs to be handled specially 
 	protected boolean restartAfterCompletion = false;
 
+	// Digest of the persistent user data as last written, so that unchanged data isn't written
+	// again at every checkpoint.  Null when we don't know what's stored.
+	private byte[] persistedUserDataDigest = NO_USER_DATA_DIGEST;
+	private static final byte[] NO_USER_DATA_DIGEST = new byte[0];
+
 	protected static IBatchKernelService batchKernel = ServicesManagerImpl.getInstance().getBatchKernelService();
 
 	protected TransactionManagerAdapter	transactionManager = null;
@@ -86,6 +94,9 @@ public abstract class BaseStepControllerImpl implements IExecutionElementControl
 
 	private static IJobStatusManagerService _jobStatusService = (IJobStatusManagerService) ServicesManagerImpl.getInstance().getJobStatusManagerService();
 
+	protected final IBatchInstrumentationService instrumentation = ServicesManagerImpl.getInstance().getInstrumentationService();
+	protected final boolean instrumented = instrumentation.isEnabled();
+
 	protected BaseStepControllerImpl(RuntimeJobExecution jobExecution, Step step, StepContextImpl stepContext, long rootJobExecutionId) {
 		this.jobExecutionImpl = jobExecution;
 		this.jobInstance = jobExecution.getJobInstance();
@@ -119,6 +130,31 @@ public abstract class BaseStepControllerImpl implements IExecutionElementControl
 
 	@Override
 	public ExecutionStatus execute() {
+		long start = spanStart();
+		try {
+			return executeStep();
+		} finally {
+			spanEnd(Phase.STEP, start);
+		}
+	}
+
+	/**
+	 * @return the start time of a span, if instrumented
+	 */
+	protected long spanStart() {
+		return instrumented ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records a span of this step, if instrumented.
+	 */
+	protected void spanEnd(Phase phase, long startNanos) {
+		if (instrumented) {
+			instrumentation.span(phase, jobExecutionImpl.getExecutionId(), stepName, startNanos, System.nanoTime());
+		}
+	}
+
+	private ExecutionStatus executeStep() {
 
 		// Here we're just setting up to decide if we're going to run the step or not (if it's already complete and 
 		// allow-start-if-complete=false.
@@ -210,6 +246,18 @@ public abstract class BaseStepControllerImpl implements IExecutionElementControl
 			rethrowWithWarning("Failure ending step execution", t);
 		} 
 
+		if (BatchStatus.COMPLETED.equals(stepStatus.getBatchStatus())) {
+			try {
+				cleanupAfterCompletion();
+			} catch (Throwable t) {
+				// The step did complete, so a failure cleaning up after it is no reason to fail it.
+				StringWriter sw = new StringWriter();
+				PrintWriter pw = new PrintWriter(sw);
+				t.printStackTrace(pw);
+				logger.warning("Error cleaning up after completed step. Stack trace: " + sw.toString());
+			}
+		}
+
 		//
 		// Only happens on main thread.
 		//
@@ -249,20 +297,11 @@ public abstract class BaseStepControllerImpl implements IExecutionElementControl
 	}
 	
 	private void startStep() {
-		// Update status
-		statusStarting();
+		// The step was already persisted as STARTED, in beginStep().
 		//Set Step context properties
 		setContextProperties();
 		//Set up step artifacts like step listeners, partition reducers
 		setupStepArtifacts();
-		// Move batch status to started.
-		updateBatchStatus(BatchStatus.STARTED);
-		
-		long time = System.currentTimeMillis();
-		Timestamp startTS = new Timestamp(time);
-		stepContext.setStartTime(startTS);
-		
-		_persistenceManagementService.updateStepExecution(stepContext);
 	}
 	
 
@@ -272,21 +311,26 @@ public abstract class BaseStepControllerImpl implements IExecutionElementControl
 	 */
 	private void transitionToFinalBatchStatus() {
 		BatchStatus currentBatchStatus = stepContext.getBatchStatus();
+		// Only set here, since persistExitStatusEndTimestampAndStepExecution() persists it along with the rest of the step end.
 		if (currentBatchStatus.equals(BatchStatus.STARTED)) {
-			updateBatchStatus(BatchStatus.COMPLETED);
+			setBatchStatus(BatchStatus.COMPLETED);
 		} else if (currentBatchStatus.equals(BatchStatus.STOPPING)) {
-			updateBatchStatus(BatchStatus.STOPPED);
+			setBatchStatus(BatchStatus.STOPPED);
 		} else if (currentBatchStatus.equals(BatchStatus.FAILED)) {
-			updateBatchStatus(BatchStatus.FAILED);           // Should have already been done but maybe better for possible code refactoring to have it here.
+			setBatchStatus(BatchStatus.FAILED);           // Should have already been done but maybe better for possible code refactoring to have it here.
 		} else {
 			throw new IllegalStateException("Step batch status should not be in a " + currentBatchStatus.name() + " state");
 		}
 	}
 
 	protected void updateBatchStatus(BatchStatus updatedBatchStatus) {
+		setBatchStatus(updatedBatchStatus);
+		_jobStatusService.updateStepStatus(stepStatus.getStepExecutionId(), stepStatus);
+	}
+
+	private void setBatchStatus(BatchStatus updatedBatchStatus) {
 		logger.fine("Updating batch status from : " + stepStatus.getBatchStatus() + ", to: " + updatedBatchStatus);
 		stepStatus.setBatchStatus(updatedBatchStatus);
-		_jobStatusService.updateStepStatus(stepStatus.getStepExecutionId(), stepStatus);
 		stepContext.setBatchStatus(updatedBatchStatus);
 	}
 
@@ -299,25 +343,22 @@ public abstract class BaseStepControllerImpl implements IExecutionElementControl
 		this.stepStatus = _jobStatusService.getStepStatus(jobInstance.getInstanceId(), step.getId());
 		if (stepStatus == null) {
 			logger.finer("No existing step status found.  Create new step execution and proceed to execution.");
-			// create new step execution
-			StepExecutionImpl stepExecution = getNewStepExecution(rootJobExecutionId, stepContext);
-			// create new step status for this run
-			stepStatus = _jobStatusService.createStepStatus(stepExecution.getStepExecutionId());
-			((StepContextImpl) stepContext).setStepExecutionId(stepExecution.getStepExecutionId());
+			// create new step execution and new step status for this run
+			beginStep(null);
 			return true;
 		} else {
 			logger.finer("Existing step status found.");
 			// if a step status already exists for this instance id. It means this
 			// is a restart and we need to get the previously persisted data
-			((StepContextImpl) stepContext).setPersistentUserData(stepStatus.getPersistentUserData());
+			Serializable persistentUserData = stepStatus.getPersistentUserData();
+			((StepContextImpl) stepContext).setPersistentUserData(persistentUserData);
+			persistedUserDataDigest = (persistentUserData == null) ? NO_USER_DATA_DIGEST : null;
 			if (shouldStepBeExecutedOnRestart()) {
 				// Seems better to let the start count get incremented without getting a step execution than
 				// vice versa (in an unexpected error case).
 				stepStatus.incrementStartCount();
 				// create new step execution
-				StepExecutionImpl stepExecution = getNewStepExecution(rootJobExecutionId, stepContext);
-				this.stepStatus.setLastRunStepExecutionId(stepExecution.getStepExecutionId());
-				((StepContextImpl) stepContext).setStepExecutionId(stepExecution.getStepExecutionId());
+				beginStep(stepStatus);
 				return true;
 			} else {
 				return false;
@@ -373,47 +414,75 @@ public abstract class BaseStepControllerImpl implements IExecutionElementControl
 		return stepStatus.getStartCount() > 1;
 	}
 	
-	protected void statusStarting() {
-		stepStatus.setBatchStatus(BatchStatus.STARTING);
-		_jobStatusService.updateJobCurrentStep(jobInstance.getInstanceId(), step.getId());
-		_jobStatusService.updateStepStatus(stepStatus.getStepExecutionId(), stepStatus);
-		stepContext.setBatchStatus(BatchStatus.STARTING);
+	/**
+	 * Creates the step execution, creates or updates the step status, and records the step as the job's current
+	 * one, in a single persistence call.  The step goes straight to STARTED, since nothing is persisted between
+	 * STARTING and STARTED that would ever be seen.
+	 * 
+	 * @param previousStepStatus the step status of a restart, or null
+	 */
+	private void beginStep(StepStatus previousStepStatus) {
+		stepContext.setBatchStatus(BatchStatus.STARTED);
+		stepContext.setStartTime(new Timestamp(System.currentTimeMillis()));
+		this.stepStatus = _persistenceManagementService.beginStep(jobInstance.getInstanceId(), rootJobExecutionId, stepContext, previousStepStatus);
 	}
 
+	/**
+	 * Writes the persistent user data to its own table, apart from the StepStatus, 
+	 * and only if it changed since it was last written.
+	 */
 	protected void persistUserData() {
-		ByteArrayOutputStream persistentBAOS = new ByteArrayOutputStream();
-		ObjectOutputStream persistentDataOOS = null;
+		Serializable persistentUserData = stepContext.getPersistentUserData();
+		byte[] persistentUserDataBytes = null;
+		byte[] digest = NO_USER_DATA_DIGEST;
 
-		try {
-			persistentDataOOS = new ObjectOutputStream(persistentBAOS);
-			persistentDataOOS.writeObject(stepContext.getPersistentUserData());
-			persistentDataOOS.close();
-		} catch (Exception e) {
-			throw new BatchContainerServiceException("Cannot persist the persistent user data for the step.", e);
+		if (persistentUserData != null) {
+			ByteArrayOutputStream persistentBAOS = new ByteArrayOutputStream();
+			ObjectOutputStream persistentDataOOS = null;
+
+			try {
+				persistentDataOOS = new ObjectOutputStream(persistentBAOS);
+				persistentDataOOS.writeObject(persistentUserData);
+				persistentDataOOS.close();
+				persistentUserDataBytes = persistentBAOS.toByteArray();
+				digest = MessageDigest.getInstance("SHA-256").digest(persistentUserDataBytes);
+			} catch (Exception e) {
+				throw new BatchContainerServiceException("Cannot persist the persistent user data for the step.", e);
+			}
 		}
 
-		stepStatus.setPersistentUserData(new PersistentDataWrapper(persistentBAOS.toByteArray()));
-		_jobStatusService.updateStepStatus(stepStatus.getStepExecutionId(), stepStatus);
+		if (Arrays.equals(digest, persistedUserDataDigest)) {
+			logger.finer("Persistent user data unchanged, not writing it.");
+			return;
+		}
+
+		_persistenceManagementService.updateStepUserData(stepStatus.getStepExecutionId(), persistentUserDataBytes);
+		persistedUserDataDigest = digest;
 	}
 
 	protected void persistExitStatusEndTimestampAndStepExecution() {
 		stepStatus.setExitStatus(stepContext.getExitStatus());
-		_jobStatusService.updateStepStatus(stepStatus.getStepExecutionId(), stepStatus);
 
 		// set the end time metric before flushing
 		long time = System.currentTimeMillis();
 		Timestamp endTS = new Timestamp(time);
 		stepContext.setEndTime(endTS);
 
-		persistStepExecution();
+		persistStepEnd();
 	} 
 
-	protected void persistStepExecution() {
-		_persistenceManagementService.updateStepExecution(stepContext);
+	/**
+	 * Persists the step status and the step execution together.
+	 */
+	protected void persistStepEnd() {
+		_persistenceManagementService.endStep(stepContext, stepStatus);
 	}
 
-	private StepExecutionImpl getNewStepExecution(long rootJobExecutionId, StepContextImpl stepContext) {
-		return _persistenceManagementService.createStepExecution(rootJobExecutionId, stepContext);
+	/**
+	 * Called once the step has been persisted as COMPLETED, to remove state only needed 
+	 * to restart it (e.g. checkpoints).  Does nothing by default.
+	 */
+	protected void cleanupAfterCompletion() {
 	}
 
 	private void setContextProperties() {
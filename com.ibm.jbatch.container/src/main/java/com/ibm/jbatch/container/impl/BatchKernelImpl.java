@@ -16,14 +16,20 @@
  */
 package com.ibm.jbatch.container.impl;
 
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,6 +39,7 @@ import jakarta.batch.operations.JobExecutionNotRunningException;
 import jakarta.batch.operations.JobRestartException;
 import jakarta.batch.operations.JobStartException;
 import jakarta.batch.operations.NoSuchJobExecutionException;
+import jakarta.batch.runtime.BatchStatus;
 import jakarta.batch.runtime.JobInstance;
 
 import com.ibm.jbatch.container.IThreadRootController;
@@ -41,13 +48,16 @@ import com.ibm.jbatch.container.exception.BatchContainerServiceException;
 import com.ibm.jbatch.container.jobinstance.JobExecutionHelper;
 import com.ibm.jbatch.container.jobinstance.RuntimeFlowInSplitExecution;
 import com.ibm.jbatch.container.jobinstance.RuntimeJobExecution;
+import com.ibm.jbatch.container.partition.PartitionQueueWorker;
 import com.ibm.jbatch.container.services.IBatchKernelService;
 import com.ibm.jbatch.container.services.IJobExecution;
+import com.ibm.jbatch.container.services.IJobStatusManagerService;
 import com.ibm.jbatch.container.services.IPersistenceManagerService;
 import com.ibm.jbatch.container.services.impl.NoOpBatchSecurityHelper;
 import com.ibm.jbatch.container.services.impl.RuntimeBatchJobUtil;
 import com.ibm.jbatch.container.servicesmanager.ServicesManager;
 import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
+import com.ibm.jbatch.container.util.BatchContainerConstants;
 import com.ibm.jbatch.container.util.BatchFlowInSplitWorkUnit;
 import com.ibm.jbatch.container.util.BatchPartitionWorkUnit;
 import com.ibm.jbatch.container.util.BatchWorkUnit;
@@ -68,6 +78,17 @@ public class BatchKernelImpl implements IBatchKernelService {
 
 	private Map<Long, IThreadRootController> executionId2jobControllerMap = new ConcurrentHashMap<Long, IThreadRootController>();
 	private Set<Long> instanceIdExecutingSet = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+	// Running executions (execution id -> instance id) by job name, to answer getRunningExecutions() without a query.
+	// Emptied entries are left in place, there being only as many as there are job names.
+	private ConcurrentMap<String, ConcurrentMap<Long, Long>> jobName2runningExecutionsMap = new ConcurrentHashMap<String, ConcurrentMap<Long, Long>>();
+
+	private boolean sharedJobRepository = false;
+
+	// Only set when some cap on running jobs is configured
+	private JobAdmissionController admissionController = null;
+
+	// Only set when taking part in running the partitions queued in the job repository
+	private PartitionQueueWorker partitionQueueWorker = null;
 
 	ServicesManager servicesManager = ServicesManagerImpl.getInstance();
 
@@ -82,7 +103,14 @@ public class BatchKernelImpl implements IBatchKernelService {
 	private BatchJobUtil batchJobUtil = null;
 
 	public BatchKernelImpl() {
-		executorService = servicesManager.getThreadPoolService();
+		this(ServicesManagerImpl.getInstance().getThreadPoolService());
+	}
+
+	/**
+	 * @param executorService the thread pool to run jobs in, in place of the configured one
+	 */
+	public BatchKernelImpl(IBatchThreadPoolService executorService) {
+		this.executorService = executorService;
 		callbackService = servicesManager.getJobCallbackService();
 		persistenceService = servicesManager.getPersistenceManagerService();
 
@@ -100,12 +128,91 @@ public class BatchKernelImpl implements IBatchKernelService {
 	}
 
 	public void init(IBatchConfig pgcConfig) throws BatchContainerServiceException {
+		String shared = pgcConfig.getConfigProperties().getProperty(BatchContainerConstants.SHARED_JOB_REPOSITORY);
+		if (shared != null) {
+			sharedJobRepository = Boolean.parseBoolean(shared.trim());
+		} else {
+			// Only a repository no other JVM can open is known not to be shared
+			sharedJobRepository = persistenceService.isRepositoryShareable();
+		}
+		logger.config("Shared job repository: " + sharedJobRepository + (shared == null ? " (from the job repository's configuration)" : ""));
+
+		Properties configProps = pgcConfig.getConfigProperties();
+		int maxRunning = Integer.parseInt(configProps.getProperty(
+				BatchContainerConstants.ADMISSION_MAX_RUNNING_JOBS, BatchContainerConstants.DEFAULT_ADMISSION_MAX_RUNNING_JOBS));
+		int maxRunningPerJobName = Integer.parseInt(configProps.getProperty(
+				BatchContainerConstants.ADMISSION_MAX_RUNNING_JOBS_PER_JOB_NAME, BatchContainerConstants.DEFAULT_ADMISSION_MAX_RUNNING_JOBS_PER_JOB_NAME));
+		int maxRunningPerAppTag = Integer.parseInt(configProps.getProperty(
+				BatchContainerConstants.ADMISSION_MAX_RUNNING_JOBS_PER_APPTAG, BatchContainerConstants.DEFAULT_ADMISSION_MAX_RUNNING_JOBS_PER_APPTAG));
+		if (maxRunning > 0 || maxRunningPerJobName > 0 || maxRunningPerAppTag > 0) {
+			String priorityParameter = configProps.getProperty(
+					BatchContainerConstants.ADMISSION_PRIORITY_PARAMETER, BatchContainerConstants.DEFAULT_ADMISSION_PRIORITY_PARAMETER);
+			long agingSeconds = Long.parseLong(configProps.getProperty(
+					BatchContainerConstants.ADMISSION_PRIORITY_AGING_SECONDS, BatchContainerConstants.DEFAULT_ADMISSION_PRIORITY_AGING_SECONDS));
+			admissionController = new JobAdmissionController(executorService, maxRunning, maxRunningPerJobName, maxRunningPerAppTag, 
+					priorityParameter, TimeUnit.SECONDS.toMillis(agingSeconds));
+			admissionController.register();
+			logger.config("Admission control on, with at most " + maxRunning + " running jobs, " + maxRunningPerJobName + " per job name and " 
+					+ maxRunningPerAppTag + " per application tag (0 meaning no limit), priority from job parameter: " + priorityParameter
+					+ ", aging one class every " + agingSeconds + " s (0 meaning never)");
+		}
+
+		int partitionQueueThreads = Integer.parseInt(configProps.getProperty(
+				BatchContainerConstants.PARTITION_QUEUE_WORKER_THREADS, BatchContainerConstants.DEFAULT_PARTITION_QUEUE_WORKER_THREADS));
+		if (partitionQueueThreads > 0) {
+			String nodeName = configProps.getProperty(BatchContainerConstants.PARTITION_QUEUE_NODE_NAME, "").trim();
+			if (nodeName.isEmpty()) {
+				nodeName = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+			}
+			long leaseMillis = Long.parseLong(configProps.getProperty(
+					BatchContainerConstants.PARTITION_QUEUE_LEASE_MILLIS, BatchContainerConstants.DEFAULT_PARTITION_QUEUE_LEASE_MILLIS));
+			long pollMillis = Long.parseLong(configProps.getProperty(
+					BatchContainerConstants.PARTITION_QUEUE_POLL_MILLIS, BatchContainerConstants.DEFAULT_PARTITION_QUEUE_POLL_MILLIS));
+			partitionQueueWorker = new PartitionQueueWorker(nodeName, partitionQueueThreads, leaseMillis, pollMillis);
+			partitionQueueWorker.start();
+		}
+	}
+
+	/**
+	 * @return the admission control in front of the thread pool, or null if there is none configured
+	 */
+	public JobAdmissionController getJobAdmissionController() {
+		return admissionController;
+	}
+
+	/**
+	 * Submit a top-level job to the thread pool, through the admission control if there is any.
+	 * 
+	 * @throws RuntimeException if the thread pool rejected the job right away; if it rejects the job once
+	 *         admitted from the queue, later, the job is marked FAILED then
+	 */
+	private void submitJob(BatchWorkUnit batchWork, Properties jobParameters) {
+		if (batchWork.getJobExecutionImpl().getStartTiming() != null) {
+			batchWork.getJobExecutionImpl().getStartTiming().submitted();
+		}
+		if (admissionController == null) {
+			executorService.executeTask(batchWork, null);
+		} else {
+			final RuntimeJobExecution jobExecution = batchWork.getJobExecutionImpl();
+			admissionController.submit(batchWork, jobExecution.getExecutionId(), jobExecution.getJobInstance().getJobName(), 
+					getBatchSecurityHelper().getCurrentTag(), jobParameters, new JobAdmissionController.RejectionHandler() {
+				@Override
+				public void rejected(long executionId, RuntimeException cause) {
+					endUnrunJob(jobExecution, BatchStatus.FAILED);
+				}
+			});
+		}
 	}
 
 	@Override
 	public void shutdown() throws BatchContainerServiceException {
-		// TODO Auto-generated method stub
-
+		if (partitionQueueWorker != null) {
+			partitionQueueWorker.stop();
+			partitionQueueWorker = null;
+		}
+		if (admissionController != null) {
+			admissionController.unregister();
+		}
 	}
 
 	@Override
@@ -132,7 +239,12 @@ public class BatchKernelImpl implements IBatchKernelService {
 		BatchWorkUnit batchWork = new BatchWorkUnit(this, jobExecution);
 		registerCurrentInstanceAndExecution(jobExecution, batchWork.getController());
 
-		executorService.executeTask(batchWork, null);
+		try {
+			submitJob(batchWork, jobParameters);
+		} catch (RuntimeException e) {
+			endUnrunJob(jobExecution, BatchStatus.FAILED);
+			throw new JobStartException("Job execution " + jobExecution.getExecutionId() + " could not be submitted, and was marked FAILED", e);
+		}
 
 		if (logger.isLoggable(Level.FINER)) {
 			logger.exiting(sourceClass, method, jobExecution);
@@ -141,6 +253,77 @@ public class BatchKernelImpl implements IBatchKernelService {
 		return jobExecution.getJobOperatorJobExecution();
 	}
 
+	@Override
+	public List<IJobExecution> startJobs(String jobXML, List<Properties> jobParametersList) throws JobStartException {
+		String method = "startJobs";
+
+		if (logger.isLoggable(Level.FINER)) {
+			logger.entering(sourceClass, method, new Object[] { jobXML, jobParametersList.size() });
+		}
+
+		List<RuntimeJobExecution> jobExecutions = JobExecutionHelper.startJobs(jobXML, jobParametersList);
+
+		// Register them all before submitting any, as they're all already persisted.
+		List<BatchWorkUnit> batchWorkUnits = new ArrayList<BatchWorkUnit>(jobExecutions.size());
+		List<IJobExecution> retVal = new ArrayList<IJobExecution>(jobExecutions.size());
+		for (RuntimeJobExecution jobExecution : jobExecutions) {
+			BatchWorkUnit batchWork = new BatchWorkUnit(this, jobExecution);
+			registerCurrentInstanceAndExecution(jobExecution, batchWork.getController());
+			batchWorkUnits.add(batchWork);
+			retVal.add(jobExecution.getJobOperatorJobExecution());
+		}
+
+		for (int i = 0; i < batchWorkUnits.size(); i++) {
+			try {
+				submitJob(batchWorkUnits.get(i), jobParametersList.get(i));
+			} catch (RuntimeException e) {
+				// The jobs already submitted carry on, but the rest will never run
+				List<Long> submittedIds = new ArrayList<Long>(i);
+				for (int j = 0; j < i; j++) {
+					submittedIds.add(jobExecutions.get(j).getExecutionId());
+				}
+				for (int j = i; j < jobExecutions.size(); j++) {
+					endUnrunJob(jobExecutions.get(j), BatchStatus.FAILED);
+				}
+				throw new JobStartException("Only " + i + " of " + jobExecutions.size() + " jobs could be submitted, with execution ids " 
+						+ submittedIds + ", the rest were marked FAILED", e);
+			}
+		}
+
+		if (logger.isLoggable(Level.FINER)) {
+			logger.exiting(sourceClass, method, retVal.size());
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Ends a job execution that never ran, either because the thread pool never took it (FAILED) or because
+	 * it was stopped while waiting for admission (STOPPED): sets its status and end time, and no longer counts
+	 * it as running.
+	 */
+	private void endUnrunJob(RuntimeJobExecution jobExecution, BatchStatus batchStatus) {
+		if (batchStatus == BatchStatus.FAILED) {
+			logger.warning("Marking job execution " + jobExecution.getExecutionId() + " FAILED, as it could not be submitted");
+		} else {
+			logger.info("Marking job execution " + jobExecution.getExecutionId() + " " + batchStatus + ", before it was admitted");
+		}
+		Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+		jobExecution.setBatchStatus(batchStatus.name());
+		jobExecution.setExitStatus(batchStatus.name());
+		jobExecution.setLastUpdateTime(timestamp);
+		jobExecution.setEndTime(timestamp);
+		try {
+			IJobStatusManagerService jobStatusService = servicesManager.getJobStatusManagerService();
+			jobStatusService.updateJobBatchStatus(jobExecution.getInstanceId(), batchStatus);
+			jobStatusService.updateJobExecutionStatus(jobExecution.getInstanceId(), batchStatus, batchStatus.name());
+			persistenceService.updateWithFinalExecutionStatusesAndTimestamps(jobExecution.getExecutionId(), 
+					batchStatus, batchStatus.name(), timestamp);
+		} finally {
+			jobExecutionDone(jobExecution);
+		}
+	}
+
 	@Override
 	public void stopJob(long executionId) throws NoSuchJobExecutionException, JobExecutionNotRunningException {
 
@@ -150,7 +333,13 @@ public class BatchKernelImpl implements IBatchKernelService {
 			logger.warning("stopJob(): " + msg);
 			throw new JobExecutionNotRunningException(msg);
 		}
-		controller.stop();
+		// A job still waiting for admission would otherwise hold its place in the queue, and take a slot just to stop
+		Runnable queuedWork = (admissionController == null) ? null : admissionController.cancel(executionId);
+		if (queuedWork != null) {
+			endUnrunJob(((BatchWorkUnit) queuedWork).getJobExecutionImpl(), BatchStatus.STOPPED);
+		} else {
+			controller.stop();
+		}
 	}
 
 	@Override
@@ -187,7 +376,12 @@ public class BatchKernelImpl implements IBatchKernelService {
 
 		registerCurrentInstanceAndExecution(jobExecution, batchWork.getController());
 
-		executorService.executeTask(batchWork, null);
+		try {
+			submitJob(batchWork, jobExecution.getJobParameters());
+		} catch (RuntimeException e) {
+			endUnrunJob(jobExecution, BatchStatus.FAILED);
+			throw new JobRestartException("Job execution " + jobExecution.getExecutionId() + " could not be submitted, and was marked FAILED", e);
+		}
 
 		if (logger.isLoggable(Level.FINER)) {
 			logger.exiting(sourceClass, method, jobExecution);
@@ -212,6 +406,10 @@ public class BatchKernelImpl implements IBatchKernelService {
 		// Remove from executionId, instanceId map,set after job is done        
 		this.executionId2jobControllerMap.remove(jobExecution.getExecutionId());
 		this.instanceIdExecutingSet.remove(jobExecution.getInstanceId());
+		runningExecutionsOf(jobExecution.getJobInstance().getJobName()).remove(jobExecution.getExecutionId());
+		if (admissionController != null) {
+			admissionController.done(jobExecution.getExecutionId());
+		}
 
 		// AJM: ah - purge jobExecution from map here and flush to DB?
 		// edit: no long want a 2 tier for the jobexecution...do want it for step execution
@@ -274,14 +472,15 @@ public class BatchKernelImpl implements IBatchKernelService {
 
 		List<BatchPartitionWorkUnit> batchWorkUnits = new ArrayList<BatchPartitionWorkUnit>(jobModels.size());
 
-		int instance = 0;
-		for (JSLJob parallelJob  : jobModels){
-			Properties partitionProps = (partitionPropertiesArray == null) ? null : partitionPropertiesArray[instance];    			
+		if (logger.isLoggable(Level.FINER)) {
+			logger.finer("Starting executions for " + jobModels.size() + " partition jobModels");
+		}
 
-			if (logger.isLoggable(Level.FINER)) {
-				logger.finer("Starting execution for jobModel = " + parallelJob.toString());
-			}
-			RuntimeJobExecution jobExecution = JobExecutionHelper.startPartition(parallelJob, partitionProps);
+		// Create the persistent entries for all the partitions in one shot.
+		List<RuntimeJobExecution> jobExecutions = JobExecutionHelper.startPartitions(jobModels, partitionPropertiesArray);
+
+		int instance = 0;
+		for (RuntimeJobExecution jobExecution : jobExecutions) {
 			jobExecution.setPartitionInstance(instance);
 
 			if (logger.isLoggable(Level.FINE)) {
@@ -450,7 +649,34 @@ public class BatchKernelImpl implements IBatchKernelService {
 		} else {
 			instanceIdExecutingSet.add(instanceId);
 			executionId2jobControllerMap.put(jobExecution.getExecutionId(), controller);
+			runningExecutionsOf(jobExecution.getJobInstance().getJobName()).put(execId, instanceId);
+		}
+	}
+
+	private ConcurrentMap<Long, Long> runningExecutionsOf(String jobName) {
+		ConcurrentMap<Long, Long> runningExecutions = jobName2runningExecutionsMap.get(jobName);
+		if (runningExecutions == null) {
+			runningExecutions = new ConcurrentHashMap<Long, Long>();
+			ConcurrentMap<Long, Long> existing = jobName2runningExecutionsMap.putIfAbsent(jobName, runningExecutions);
+			if (existing != null) {
+				runningExecutions = existing;
+			}
+		}
+		return runningExecutions;
+	}
+
+	@Override
+	public Map<Long, Long> getRunningExecutions(String jobName) {
+		ConcurrentMap<Long, Long> runningExecutions = jobName2runningExecutionsMap.get(jobName);
+		if (runningExecutions == null) {
+			return Collections.emptyMap();
 		}
+		return new HashMap<Long, Long>(runningExecutions);
+	}
+
+	@Override
+	public boolean isSharedJobRepository() {
+		return sharedJobRepository;
 	}
 	
 	@Override
@@ -21,6 +21,8 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
@@ -31,13 +33,13 @@ import jakarta.batch.api.chunk.CheckpointAlgorithm;
 import jakarta.batch.runtime.BatchStatus;
 
 import com.ibm.jbatch.container.artifact.proxy.CheckpointAlgorithmProxy;
-import com.ibm.jbatch.container.artifact.proxy.ChunkListenerProxy;
+import com.ibm.jbatch.container.artifact.proxy.ChunkListenerChain;
 import com.ibm.jbatch.container.artifact.proxy.InjectionReferences;
-import com.ibm.jbatch.container.artifact.proxy.ItemProcessListenerProxy;
+import com.ibm.jbatch.container.artifact.proxy.ItemProcessListenerChain;
 import com.ibm.jbatch.container.artifact.proxy.ItemProcessorProxy;
-import com.ibm.jbatch.container.artifact.proxy.ItemReadListenerProxy;
+import com.ibm.jbatch.container.artifact.proxy.ItemReadListenerChain;
 import com.ibm.jbatch.container.artifact.proxy.ItemReaderProxy;
-import com.ibm.jbatch.container.artifact.proxy.ItemWriteListenerProxy;
+import com.ibm.jbatch.container.artifact.proxy.ItemWriteListenerChain;
 import com.ibm.jbatch.container.artifact.proxy.ItemWriterProxy;
 import com.ibm.jbatch.container.artifact.proxy.ProxyFactory;
 import com.ibm.jbatch.container.artifact.proxy.RetryProcessListenerProxy;
@@ -50,15 +52,21 @@ import com.ibm.jbatch.container.context.impl.MetricImpl;
 import com.ibm.jbatch.container.context.impl.StepContextImpl;
 import com.ibm.jbatch.container.exception.BatchContainerRuntimeException;
 import com.ibm.jbatch.container.exception.BatchContainerServiceException;
+import com.ibm.jbatch.container.exception.ItemWriteFailure;
 import com.ibm.jbatch.container.exception.TransactionManagementException;
+import com.ibm.jbatch.container.jfr.BatchEvents;
 import com.ibm.jbatch.container.jobinstance.RuntimeJobExecution;
 import com.ibm.jbatch.container.persistence.CheckpointData;
 import com.ibm.jbatch.container.persistence.CheckpointDataKey;
 import com.ibm.jbatch.container.persistence.CheckpointManager;
 import com.ibm.jbatch.container.persistence.ItemCheckpointAlgorithm;
+import com.ibm.jbatch.container.persistence.ItemSizeEstimator;
+import com.ibm.jbatch.container.persistence.SerializedItemSizeEstimator;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService.Phase;
 import com.ibm.jbatch.container.services.IPersistenceManagerService;
 import com.ibm.jbatch.container.servicesmanager.ServicesManager;
 import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
+import com.ibm.jbatch.container.transaction.impl.DefaultNonTransactionalManager;
 import com.ibm.jbatch.container.util.PartitionDataWrapper;
 import com.ibm.jbatch.container.util.TCCLObjectInputStream;
 import com.ibm.jbatch.container.validation.ArtifactValidationException;
@@ -76,6 +84,40 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 
     protected static final int DEFAULT_TRAN_TIMEOUT_SECONDS = 180;  // From the spec Sec. 9.7
 
+	/**
+	 * Step property selecting how the items of a chunk rolled back by a retryable exception are re-run:
+	 * "one-by-one" (the default, one item per transaction, as per the spec) or "bisect" (re-run the
+	 * rolled-back range in halves, and split further only the halves that fail again).
+	 */
+	public static final String RETRY_ROLLBACK_STRATEGY_PROP = "com.ibm.jbatch.container.retryRollbackStrategy";
+	public static final String RETRY_ROLLBACK_STRATEGY_BISECT = "bisect";
+
+	/**
+	 * Step property selecting what a skippable writer exception skips: "chunk" (the default, the
+	 * whole list of items passed to the writer) or "isolate" (roll back and re-run the chunk in
+	 * shrinking ranges, so only the items failing on their own are skipped and the rest committed).
+	 */
+	public static final String WRITE_SKIP_STRATEGY_PROP = "com.ibm.jbatch.container.writeSkipStrategy";
+	public static final String WRITE_SKIP_STRATEGY_ISOLATE = "isolate";
+
+	/**
+	 * Step property bounding, for the "item" checkpoint policy, the estimated size in bytes of the items
+	 * buffered for the writer: a checkpoint is taken once it is reached, or the item count or time limit is.
+	 */
+	public static final String MAX_CHUNK_BYTES_PROP = "com.ibm.jbatch.container.maxChunkBytes";
+
+	/**
+	 * Step property naming the {@link ItemSizeEstimator} class used to size items, by default a
+	 * {@link SerializedItemSizeEstimator}.
+	 */
+	public static final String ITEM_SIZE_ESTIMATOR_PROP = "com.ibm.jbatch.container.itemSizeEstimator";
+
+	/**
+	 * Step property giving the estimated size in bytes of the items held in memory for the writer past
+	 * which further (Serializable) items are spilled to a temp file, and read back as the writer reads the list.
+	 */
+	public static final String SPILL_THRESHOLD_BYTES_PROP = "com.ibm.jbatch.container.chunkSpillThresholdBytes";
+
 	private Chunk chunk = null;
 	private ItemReaderProxy readerProxy = null;
 	private ItemProcessorProxy processorProxy = null;
@@ -87,16 +129,16 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 	CheckpointDataKey readerChkptDK, writerChkptDK = null;
 	CheckpointData readerChkptData = null;
 	CheckpointData writerChkptData = null;
-	List<ChunkListenerProxy> chunkListeners = null;
+	ChunkListenerChain chunkListeners = null;
 	List<SkipProcessListenerProxy> skipProcessListeners = null;
 	List<SkipReadListenerProxy> skipReadListeners = null;
 	List<SkipWriteListenerProxy> skipWriteListeners = null;
 	List<RetryProcessListenerProxy> retryProcessListeners = null;
 	List<RetryReadListenerProxy> retryReadListeners = null;
 	List<RetryWriteListenerProxy> retryWriteListeners = null;
-	List<ItemReadListenerProxy> itemReadListeners = null;
-	List<ItemProcessListenerProxy> itemProcessListeners = null;
-	List<ItemWriteListenerProxy> itemWriteListeners = null;
+	ItemReadListenerChain itemReadListeners = null;
+	ItemProcessListenerChain itemProcessListeners = null;
+	ItemWriteListenerChain itemWriteListeners = null;
 	private RetryHandler retryHandler;
 
 	// metrics
@@ -107,7 +149,17 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 	long writeSkipCount = 0;
 
 	protected ChunkStatus currentChunkStatus;
-	protected SingleItemStatus currentItemStatus;
+	// Reset, rather than replaced, for each item
+	protected final SingleItemStatus currentItemStatus = new SingleItemStatus();
+
+	// The items of the current chunk; cleared, rather than replaced, for each chunk
+	private final List<Object> chunkItems = new ArrayList<Object>();
+
+	// Only used when instrumented
+	private long chunkReadNanos = 0;
+	private long chunkProcessNanos = 0;
+	private int itemsSinceSample = 0;
+	private boolean sampleItem = false;
 
 	// Default is item-based policy
 	protected boolean customCheckpointPolicy = false;
@@ -115,6 +167,16 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 
 	protected int stepPropertyTranTimeoutSeconds = DEFAULT_TRAN_TIMEOUT_SECONDS;	
 
+	protected boolean bisectRetryAfterRollback = false;
+	protected boolean isolateWriteSkips = false;
+
+	// Only set when items are sized, for a byte bound or for spilling
+	private ItemSizeEstimator itemSizeEstimator = null;
+	private ItemCheckpointAlgorithm byteBoundedCheckpointAlgorithm = null;
+	private SpillableChunkBuffer spillBuffer = null;
+	// The estimated size of the current chunk's items, if sized
+	private long chunkBytes = 0;
+
 	public ChunkStepControllerImpl(RuntimeJobExecution jobExecutionImpl, Step step, StepContextImpl stepContext, long rootJobExecutionId, BlockingQueue<PartitionDataWrapper> analyzerStatusQueue) {
 		super(jobExecutionImpl, step, stepContext, rootJobExecutionId, analyzerStatusQueue);
 	}
@@ -141,6 +203,11 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 			this.filtered = filtered;
 		}
 
+		public void reset() {
+			skipped = false;
+			filtered = false;
+		}
+
 		private boolean skipped = false;
 		private boolean filtered = false;
 	}
@@ -157,6 +224,10 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 	 * 
 	 * Another usage is simply to communicate that the reader readItem() returned 'null', so
 	 * we're done the chunk.
+	 * 
+	 * With the bisect strategy, rather than a count of items to process one-by-one, we keep
+	 * the sizes of the ranges of the rolled-back chunk still to be re-run, the current (sub-)chunk's
+	 * range first.
 	 */
 	private class ChunkStatus {
 		
@@ -202,6 +273,26 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 			this.retryableException = retryableException;
 		}
 
+		/**
+		 * Rolls back like a retry-with-rollback, but then re-runs the chunk in ranges
+		 * until the items failing the write on their own are found and skipped.
+		 * 
+		 * @param failedItemIndex the index in the range of the item the writer failed on, or -1 if not known
+		 */
+		public void markForRollbackToIsolateWriteSkip(Exception skippableException, int failedItemIndex) {
+			markForRollbackWithRetry(skippableException);
+			this.isolatingWriteSkip = true;
+			this.failedItemIndex = failedItemIndex;
+		}
+
+		public int getFailedItemIndex() {
+			return failedItemIndex;
+		}
+
+		public boolean isIsolatingWriteSkip() {
+			return isolatingWriteSkip;
+		}
+
 		public int getItemsTouchedInCurrentChunk() {
 			return itemsTouchedInCurrentChunk;
 		}
@@ -223,6 +314,24 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 			this.itemsToProcessOneByOneAfterRollback = itemsToProcessOneByOneAfterRollback;
 		}
 
+		public Deque<Integer> getRangesToRetryAfterRollback() {
+			return rangesToRetryAfterRollback;
+		}
+
+		public void setRangesToRetryAfterRollback(Deque<Integer> rangesToRetryAfterRollback) {
+			this.rangesToRetryAfterRollback = rangesToRetryAfterRollback;
+		}
+
+		/**
+		 * @return the number of items to read in this retry-after-rollback chunk
+		 */
+		public int getRetryAfterRollbackChunkSize() {
+			if (rangesToRetryAfterRollback == null || rangesToRetryAfterRollback.isEmpty()) {
+				return 1;
+			}
+			return rangesToRetryAfterRollback.peekFirst();
+		}
+
 		private boolean readNull = false;
 
 		private boolean stopping = false;
@@ -230,8 +339,27 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 		private Exception retryableException = null;
 
 		private boolean markedForRollbackWithRetry = false;
+		private boolean isolatingWriteSkip = false;
+		private int failedItemIndex = -1;
 		private int itemsTouchedInCurrentChunk = 0;
 		private int itemsToProcessOneByOneAfterRollback = 0; // For retry with rollback
+		private Deque<Integer> rangesToRetryAfterRollback = null; // For retry with rollback, bisect strategy
+
+		/**
+		 * Readies this status for reuse by the next normal chunk.
+		 */
+		void reset() {
+			type = ChunkStatusType.NORMAL;
+			readNull = false;
+			stopping = false;
+			retryableException = null;
+			markedForRollbackWithRetry = false;
+			isolatingWriteSkip = false;
+			failedItemIndex = -1;
+			itemsTouchedInCurrentChunk = 0;
+			itemsToProcessOneByOneAfterRollback = 0;
+			rangesToRetryAfterRollback = null;
+		}
 	}
 
 	/**
@@ -243,38 +371,60 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 	 * @return an array list of objects to write
 	 */
 	private List<Object> readAndProcess() {
-		logger.entering(sourceClass, "readAndProcess");
+		if (logger.isLoggable(Level.FINER)) {
+			logger.entering(sourceClass, "readAndProcess");
+		}
 
-		List<Object> chunkToWrite = new ArrayList<Object>();
+		List<Object> chunkToWrite;
+		if (spillBuffer != null) {
+			spillBuffer.clear();
+			chunkToWrite = spillBuffer;
+		} else {
+			chunkItems.clear();
+			chunkToWrite = chunkItems;
+		}
+		chunkBytes = 0;
 		Object itemRead = null;
 		Object itemProcessed = null;
 
+		long readProcessStart = spanStart();
+		chunkReadNanos = 0;
+		chunkProcessNanos = 0;
+
 		while (true) {
-			currentItemStatus = new SingleItemStatus();
+			currentItemStatus.reset();
 
-			itemRead = readItem();
+			itemRead = instrumented ? instrumentedReadItem() : readItem();
 
 			if (currentChunkStatus.wasMarkedForRollbackWithRetry()) {
 				break;
 			}
 
 			if (!currentItemStatus.isSkipped() && !currentChunkStatus.hasReadNull()) {
-				itemProcessed = processItem(itemRead);
+				itemProcessed = instrumented ? instrumentedProcessItem(itemRead) : processItem(itemRead);
 
 				if (currentChunkStatus.wasMarkedForRollbackWithRetry()) {
 					break;
 				}
 
 				if (!currentItemStatus.isSkipped() && !currentItemStatus.isFiltered()) {
-					chunkToWrite.add(itemProcessed);
+					if (itemSizeEstimator != null) {
+						addSizedItem(chunkToWrite, itemProcessed);
+					} else {
+						chunkToWrite.add(itemProcessed);
+					}
 				}
 			}
 
-			// Break out of the loop to deliver one-at-a-time processing after rollback.
-			// No point calling isReadyToCheckpoint(), we know we're done.  Let's not
-			// complicate the checkpoint algorithm to hold this logic, just break right here.
+			// Break out of the loop to deliver one-at-a-time (or, bisecting, one-range-at-a-time)
+			// processing after rollback.  No point calling isReadyToCheckpoint(), we know when we're done.
+			// Let's not complicate the checkpoint algorithm to hold this logic, just break right here.
 			if (currentChunkStatus.isRetryingAfterRollback()) {
-				break;
+				if (currentChunkStatus.hasReadNull() ||
+						currentChunkStatus.getItemsTouchedInCurrentChunk() >= currentChunkStatus.getRetryAfterRollbackChunkSize()) {
+					break;
+				}
+				continue;
 			}
 
 			// This will force the current item to finish processing on a stop request
@@ -296,17 +446,78 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 			}
 		}
 
-		logger.exiting(sourceClass, "readAndProcess", chunkToWrite);
+		if (instrumented) {
+			// Reads and processing alternate, so show the time spent in each as a span of its own, one after the other
+			long processStart = readProcessStart + chunkReadNanos;
+			instrumentation.span(Phase.READ, jobExecutionImpl.getExecutionId(), stepName, readProcessStart, processStart);
+			instrumentation.span(Phase.PROCESS, jobExecutionImpl.getExecutionId(), stepName, processStart, processStart + chunkProcessNanos);
+		}
+
+		if (logger.isLoggable(Level.FINER)) {
+			logger.exiting(sourceClass, "readAndProcess", chunkToWrite);
+		}
 		return chunkToWrite;
 	}
 
+	/**
+	 * Reads an item, adding to the chunk's read time, and recording a span if the item is sampled
+	 */
+	private Object instrumentedReadItem() {
+		int sampleInterval = instrumentation.getItemSampleInterval();
+		sampleItem = sampleInterval > 0 && ++itemsSinceSample >= sampleInterval;
+		if (sampleItem) {
+			itemsSinceSample = 0;
+		}
+		long start = System.nanoTime();
+		try {
+			return readItem();
+		} finally {
+			long end = System.nanoTime();
+			chunkReadNanos += end - start;
+			if (sampleItem) {
+				instrumentation.span(Phase.ITEM_READ, jobExecutionImpl.getExecutionId(), stepName, start, end);
+			}
+		}
+	}
+
+	/**
+	 * Processes an item, adding to the chunk's process time, and recording a span if the item is sampled
+	 */
+	private Object instrumentedProcessItem(Object itemRead) {
+		long start = System.nanoTime();
+		try {
+			return processItem(itemRead);
+		} finally {
+			long end = System.nanoTime();
+			chunkProcessNanos += end - start;
+			if (sampleItem) {
+				instrumentation.span(Phase.ITEM_PROCESS, jobExecutionImpl.getExecutionId(), stepName, start, end);
+			}
+		}
+	}
+
+	private void addSizedItem(List<Object> chunkToWrite, Object itemProcessed) {
+		long itemSize = (itemProcessed == null) ? 0 : itemSizeEstimator.estimateSize(itemProcessed);
+		chunkBytes += itemSize;
+		if (spillBuffer != null) {
+			spillBuffer.add(itemProcessed, itemSize);
+		} else {
+			chunkToWrite.add(itemProcessed);
+		}
+		if (byteBoundedCheckpointAlgorithm != null) {
+			byteBoundedCheckpointAlgorithm.addItemBytes(itemSize);
+		}
+	}
+
 	/**
 	 * Reads an item from the reader
 	 * 
 	 * @return the item read
 	 */
 	private Object readItem() {
-		logger.entering(sourceClass, "readItem");
+		if (logger.isLoggable(Level.FINER)) {
+			logger.entering(sourceClass, "readItem");
+		}
 		Object itemRead = null;
 
 		try {			
@@ -314,15 +525,11 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 			currentChunkStatus.incrementItemsTouchedInCurrentChunk();
 
 			// call read listeners before and after the actual read
-			for (ItemReadListenerProxy readListenerProxy : itemReadListeners) {
-				readListenerProxy.beforeRead();
-			}
+			itemReadListeners.beforeRead();
 
 			itemRead = readerProxy.readItem();
 
-			for (ItemReadListenerProxy readListenerProxy : itemReadListeners) {
-				readListenerProxy.afterRead(itemRead);
-			}
+			itemReadListeners.afterRead(itemRead);
 
 			// itemRead == null means we reached the end of
 			// the readerProxy "resultset"
@@ -332,9 +539,7 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 			}
 		} catch (Exception e) {
 			stepContext.setException(e);
-			for (ItemReadListenerProxy readListenerProxy : itemReadListeners) {
-				readListenerProxy.onReadError(e);
-			}
+			itemReadListeners.onReadError(e);
 			if(!currentChunkStatus.isRetryingAfterRollback()) {
 				if (retryReadException(e)) {
 					if (!retryHandler.isRollbackException(e)) {
@@ -380,7 +585,9 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 			throw new BatchContainerRuntimeException(e);
 		}
 
-		logger.exiting(sourceClass, "readItem", itemRead==null ? "<null>" : itemRead);
+		if (logger.isLoggable(Level.FINER)) {
+			logger.exiting(sourceClass, "readItem", itemRead==null ? "<null>" : itemRead);
+		}
 		return itemRead;
 	}
 
@@ -392,7 +599,9 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 	 * @return the processed item
 	 */
 	private Object processItem(Object itemRead) {
-		logger.entering(sourceClass, "processItem", itemRead);
+		if (logger.isLoggable(Level.FINER)) {
+			logger.entering(sourceClass, "processItem", itemRead);
+		}
 		Object processedItem = null;
 
 		// if no processor defined for this chunk
@@ -403,9 +612,7 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 		try {
 
 			// call process listeners before and after the actual process call
-			for (ItemProcessListenerProxy processListenerProxy : itemProcessListeners) {
-				processListenerProxy.beforeProcess(itemRead);
-			}
+			itemProcessListeners.beforeProcess(itemRead);
 
 			processedItem = processorProxy.processItem(itemRead);
 
@@ -413,13 +620,9 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 				currentItemStatus.setFiltered(true);
 			}
 
-			for (ItemProcessListenerProxy processListenerProxy : itemProcessListeners) {
-				processListenerProxy.afterProcess(itemRead, processedItem);
-			}
+			itemProcessListeners.afterProcess(itemRead, processedItem);
 		} catch (Exception e) {
-			for (ItemProcessListenerProxy processListenerProxy : itemProcessListeners) {
-				processListenerProxy.onProcessError(itemRead, e);
-			}
+			itemProcessListeners.onProcessError(itemRead, e);
 			if(!currentChunkStatus.isRetryingAfterRollback()) {
 				if (retryProcessException(e, itemRead)) {
 					if (!retryHandler.isRollbackException(e)) {
@@ -458,7 +661,9 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 			throw new BatchContainerRuntimeException(e);
 		}
 
-		logger.exiting(sourceClass, "processItem", processedItem==null ? "<null>" : processedItem);
+		if (logger.isLoggable(Level.FINER)) {
+			logger.exiting(sourceClass, "processItem", processedItem==null ? "<null>" : processedItem);
+		}
 		return processedItem;
 	}
 
@@ -469,25 +674,21 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 	 *            the array list with all items processed ready to be written
 	 */
 	private void writeChunk(List<Object> theChunk) {
-		logger.entering(sourceClass, "writeChunk", theChunk);
+		if (logger.isLoggable(Level.FINER)) {
+			logger.entering(sourceClass, "writeChunk", theChunk);
+		}
 		if (!theChunk.isEmpty()) {
 			try {
 
 				// call read listeners before and after the actual read
-				for (ItemWriteListenerProxy writeListenerProxy : itemWriteListeners) {
-					writeListenerProxy.beforeWrite(theChunk);
-				}
+				itemWriteListeners.beforeWrite(theChunk);
 
 				writerProxy.writeItems(theChunk);
 
-				for (ItemWriteListenerProxy writeListenerProxy : itemWriteListeners) {
-					writeListenerProxy.afterWrite(theChunk);
-				}
+				itemWriteListeners.afterWrite(theChunk);
 			} catch (Exception e) {
 				this.stepContext.setException(e);
-				for (ItemWriteListenerProxy writeListenerProxy : itemWriteListeners) {
-					writeListenerProxy.onWriteError(theChunk, e);
-				}
+				itemWriteListeners.onWriteError(theChunk, e);
 				if(!currentChunkStatus.isRetryingAfterRollback()) {
 
 					if (retryWriteException(e, theChunk)) {
@@ -498,6 +699,8 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 							// retry with rollback
 							currentChunkStatus.markForRollbackWithRetry(e);
 						}
+					} else if (isolateWriteSkip(e, theChunk)) {
+						currentChunkStatus.markForRollbackToIsolateWriteSkip(e, failedItemIndex(e, theChunk));
 					} else if (skipWriteException(e, theChunk)) {
 						stepContext.getMetric(MetricImpl.MetricType.WRITE_SKIP_COUNT).incValueBy(1);
 					} else {
@@ -506,7 +709,12 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 
 				}
 				else {
-					if (skipWriteException(e, theChunk)) {
+					if (isolateWriteSkip(e, theChunk)) {
+						currentChunkStatus.markForRollbackToIsolateWriteSkip(e, failedItemIndex(e, theChunk));
+					} else if (splitFailedRange(e, theChunk)) {
+						// Narrow down to the failing item before skipping or retrying anything
+						currentChunkStatus.markForRollbackWithRetry(e);
+					} else if (skipWriteException(e, theChunk)) {
 						stepContext.getMetric(MetricImpl.MetricType.WRITE_SKIP_COUNT).incValueBy(1);
 					} else if (retryWriteException(e, theChunk)) {
 						if (!retryHandler.isRollbackException(e)) {
@@ -525,7 +733,9 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 				throw new BatchContainerRuntimeException(e);
 			}
 		}
-		logger.exiting(sourceClass, "writeChunk");
+		if (logger.isLoggable(Level.FINER)) {
+			logger.exiting(sourceClass, "writeChunk");
+		}
 	}
 
 	/**
@@ -553,6 +763,14 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 			transactionManager.commit();
 
 			nextChunkStatus = new ChunkStatus(ChunkStatusType.RETRY_AFTER_ROLLBACK);
+
+			// Isolating write skips always works through ranges, and once working through ranges
+			// we carry on doing so until they're all done, whatever the retry strategy.
+			if (bisectRetryAfterRollback || currentChunkStatus.isIsolatingWriteSkip() ||
+					currentChunkStatus.getRangesToRetryAfterRollback() != null) {
+				nextChunkStatus.setRangesToRetryAfterRollback(bisectFailedRange());
+				return nextChunkStatus;
+			}
 			
 			// What happens if we get a retry-with-rollback on a single item that we were processing
 			// after a prior retry with rollback?   We don't want to revert to normal processing
@@ -570,6 +788,18 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 		} else if (currentChunkStatus.isRetryingAfterRollback()) {
 			// In this case the 'current' (actually the last) chunk was a single-item retry after rollback chunk,
 			// so we have to see if it's time to revert to normal processing.
+			if (currentChunkStatus.getRangesToRetryAfterRollback() != null) {
+				// Likewise, bisecting, the last chunk completed the first of the remaining ranges.
+				Deque<Integer> ranges = new LinkedList<Integer>(currentChunkStatus.getRangesToRetryAfterRollback());
+				ranges.removeFirst();
+				if (ranges.isEmpty()) {
+					nextChunkStatus = new ChunkStatus();
+				} else {
+					nextChunkStatus = new ChunkStatus(ChunkStatusType.RETRY_AFTER_ROLLBACK);
+					nextChunkStatus.setRangesToRetryAfterRollback(ranges);
+				}
+				return nextChunkStatus;
+			}
 			int numToProcessOneByOne = currentChunkStatus.getItemsToProcessOneByOneAfterRollback();
 			if (numToProcessOneByOne == 1) {
 				// we're done, revert to normal
@@ -579,12 +809,66 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 				nextChunkStatus.setItemsToProcessOneByOneAfterRollback(numToProcessOneByOne - 1);
 			}
 		} else {
-			nextChunkStatus = new ChunkStatus();
+			// The usual case, a normal chunk following a normal chunk, reuses the status
+			currentChunkStatus.reset();
+			nextChunkStatus = currentChunkStatus;
 		}
 		
 		return nextChunkStatus;
 	}
 
+	/**
+	 * Splits the range the just-rolled-back chunk covered into halves, to be re-run one after the other.
+	 * Used both for the bisect retry strategy and to isolate the items failing a skippable write.
+	 * 
+	 * If that chunk was itself a range being re-run after an earlier rollback, only this range is split, and the
+	 * ranges still to be re-run after it are kept.  A failing single-item range is simply re-run as is, just as in
+	 * one-by-one processing.  When the writer said which item it failed on, the range is split around that item
+	 * instead, into the items before it, the item on its own, and the items after it.
+	 * 
+	 * @return the sizes of the ranges to re-run, in order
+	 */
+	private Deque<Integer> bisectFailedRange() {
+		Deque<Integer> ranges;
+		int failedRange;
+		if (currentChunkStatus.getRangesToRetryAfterRollback() != null) {
+			ranges = new LinkedList<Integer>(currentChunkStatus.getRangesToRetryAfterRollback());
+			failedRange = ranges.removeFirst();
+		} else {
+			ranges = new LinkedList<Integer>();
+			failedRange = currentChunkStatus.getItemsTouchedInCurrentChunk();
+		}
+
+		int failedItemIndex = currentChunkStatus.getFailedItemIndex();
+		if (currentChunkStatus.isIsolatingWriteSkip() && failedItemIndex >= 0 && failedItemIndex < failedRange) {
+			int after = failedRange - failedItemIndex - 1;
+			if (after > 0) {
+				ranges.addFirst(after);
+			}
+			ranges.addFirst(1);
+			if (failedItemIndex > 0) {
+				ranges.addFirst(failedItemIndex);
+			}
+		} else {
+			int firstHalf = failedRange / 2;
+			int secondHalf = failedRange - firstHalf;
+			if (secondHalf > 0) {
+				ranges.addFirst(secondHalf);
+			}
+			if (firstHalf > 0) {
+				ranges.addFirst(firstHalf);
+			}
+		}
+		if (ranges.isEmpty()) {
+			ranges.addFirst(1);
+		}
+
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Splitting rolled-back range of " + failedRange + " items, ranges to retry: " + ranges);
+		}
+		return ranges;
+	}
+
 	/**
 	 * Main Read-Process-Write loop
 	 * 
@@ -593,7 +877,8 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 	private void invokeChunk() {
 		logger.entering(sourceClass, "invokeChunk");
 
-		List<Object> chunkToWrite = new ArrayList<Object>();
+		List<Object> chunkToWrite = null;
+		Object chunkEvent = null;
 
 		try {
 			transactionManager.begin();
@@ -609,46 +894,62 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 				// https://java.net/bugzilla/show_bug.cgi?id=5873
 				setNextChunkTransactionTimeout();
 
+				long chunkStart = spanStart();
+				chunkEvent = BatchEvents.CHUNK_COMMIT.begin();
+
 				// Remember we "wrap" the built-in item-count + time-limit "algorithm"
 				// in a CheckpointAlgorithm for ease in keeping the sequence consistent
 				checkpointManager.beginCheckpoint();
 
 				transactionManager.begin();
 
-				for (ChunkListenerProxy chunkProxy : chunkListeners) {
-					chunkProxy.beforeChunk();
-				}
+				chunkListeners.beforeChunk();
 
 				chunkToWrite = readAndProcess();
 
 				if (currentChunkStatus.wasMarkedForRollbackWithRetry()) {
 					rollbackAfterRetryableException();
+					commitChunkEvent(chunkEvent, chunkToWrite, true);
+					chunkEvent = null;
 					continue;
 				}
 
 				// MR 1.0 Rev A clarified we'd only write a chunk with at least one item.
 				// See, e.g. Sec 11.6 of Spec
 				if (chunkToWrite.size() > 0) {
+					long writeStart = spanStart();
 					writeChunk(chunkToWrite);
+					spanEnd(Phase.WRITE, writeStart);
 				}
 
 				if (currentChunkStatus.wasMarkedForRollbackWithRetry()) {
 					rollbackAfterRetryableException();
+					commitChunkEvent(chunkEvent, chunkToWrite, true);
+					chunkEvent = null;
 					continue;
 				}
 
-				for (ChunkListenerProxy chunkProxy : chunkListeners) {
-					chunkProxy.afterChunk();
-				}
+				chunkListeners.afterChunk();
+
+				long checkpointStart = spanStart();
 
 				checkpointManager.checkpoint();
 
 				this.persistUserData();
 
+				spanEnd(Phase.CHECKPOINT, checkpointStart);
+				long commitStart = spanStart();
+
 				transactionManager.commit();
 
+				spanEnd(Phase.COMMIT, commitStart);
+
 				checkpointManager.endCheckpoint();
 
+				spanEnd(Phase.CHUNK, chunkStart);
+				commitChunkEvent(chunkEvent, chunkToWrite, false);
+				chunkEvent = null;
+
 				invokeCollectorIfPresent();
 
 				updateNormalMetrics(chunkToWrite.size());
@@ -680,15 +981,27 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 				stepContext.getMetric(MetricImpl.MetricType.ROLLBACK_COUNT).incValue();
 			} finally {
 				transactionManager.rollback();
+				commitChunkEvent(chunkEvent, chunkToWrite, true);
 			}
 			logger.exiting(sourceClass, "invokeChunk");
 			throw new BatchContainerRuntimeException("Failure in Read-Process-Write Loop", t);
-		} 
+		} finally {
+			if (spillBuffer != null) {
+				spillBuffer.close();
+			}
+		}
 
 		logger.finest("Exiting normally");
 		logger.exiting(sourceClass, "invokeChunk");
 	}
 	
+	private void commitChunkEvent(Object chunkEvent, List<Object> chunkToWrite, boolean rollback) {
+		if (chunkEvent != null) {
+			BatchEvents.CHUNK_COMMIT.commit(chunkEvent, jobExecutionImpl.getExecutionId(), stepName, 
+					(long) (chunkToWrite == null ? 0 : chunkToWrite.size()), chunkBytes, rollback);
+		}
+	}
+
 	private void updateNormalMetrics(int writeCount) {
 
 		int readCount = currentChunkStatus.getItemsTouchedInCurrentChunk();
@@ -707,14 +1020,12 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 
 	private void callChunkListenerOnError(Exception e) {
 		logger.fine("Caught exception in chunk processing. Attempting to call onError() for chunk listeners.");
-		for (ChunkListenerProxy chunkProxy : chunkListeners) {
-			try {
-				chunkProxy.onError(e);
-		    // 2. Catch throwable, not exception
-			} catch (Throwable t) {
-				// Fail-fast and abort.
-				throw new BatchContainerRuntimeException("Caught secondary throwable when calling chunk listener onError().", t);
-			}
+		try {
+			chunkListeners.onError(e);
+	    // 2. Catch throwable, not exception
+		} catch (Throwable t) {
+			// Fail-fast and abort.
+			throw new BatchContainerRuntimeException("Caught secondary throwable when calling chunk listener onError().", t);
 		}
 	}
 
@@ -763,6 +1074,17 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 		invokeChunk();
 	}
 
+	/**
+	 * A completed step's checkpoints are only read again if the step runs again on restart, which
+	 * only allow-start-if-complete permits, so otherwise they are deleted to keep the table small.
+	 */
+	@Override
+	protected void cleanupAfterCompletion() {
+		if (!Boolean.parseBoolean(step.getAllowStartIfComplete())) {
+			_persistenceManagementService.deleteCheckpointData(jobExecutionImpl.getJobInstance().getInstanceId(), step.getId());
+		}
+	}
+
 	private void initializeCheckpointManager() {
 		
 		CheckpointAlgorithm checkpointAlgorithm = null;
@@ -771,14 +1093,21 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 		int timeLimitSeconds = ChunkHelper.getTimeLimit(chunk);
 		customCheckpointPolicy = ChunkHelper.isCustomCheckpointPolicy(chunk);  // Supplies default if needed
 
+		long maxChunkBytes = getLongStepProperty(MAX_CHUNK_BYTES_PROP);
+		long spillThresholdBytes = getLongStepProperty(SPILL_THRESHOLD_BYTES_PROP);
+
 		if (!customCheckpointPolicy) {
 
 			ItemCheckpointAlgorithm ica = new ItemCheckpointAlgorithm();
 			ica.setItemCount(checkpointAtThisItemCount);
 			ica.setTimeLimitSeconds(timeLimitSeconds);
+			ica.setMaxChunkBytes(maxChunkBytes);
 			logger.fine("Initialize checkpoint manager with item-count=" + checkpointAtThisItemCount + 
-					", and time limit = " + timeLimitSeconds + " seconds.");
+					", time limit = " + timeLimitSeconds + " seconds, and max chunk bytes = " + maxChunkBytes);
 			checkpointAlgorithm = ica;
+			if (maxChunkBytes > 0) {
+				byteBoundedCheckpointAlgorithm = ica;
+			}
 
 		} else { 
 
@@ -802,15 +1131,30 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 						+ "]", e);
 			}
 
+			if (maxChunkBytes > 0) {
+				logger.warning("Ignoring step property " + MAX_CHUNK_BYTES_PROP + " on step " + step.getId() + ", which has a custom checkpoint policy");
+			}
 		}	
+
+		if (byteBoundedCheckpointAlgorithm != null || spillThresholdBytes > 0) {
+			itemSizeEstimator = initItemSizeEstimator();
+		}
+		if (spillThresholdBytes > 0) {
+			spillBuffer = new SpillableChunkBuffer(spillThresholdBytes);
+		}
 		
 		// Finally, for both policies now
+		// Without a global transaction the checkpoint can be committed on its own (and group-committed with other partitions).
+		boolean localCommit = transactionManager instanceof DefaultNonTransactionalManager;
 		checkpointManager = new CheckpointManager(readerProxy, writerProxy, checkpointAlgorithm, jobExecutionImpl.getExecutionId(), jobExecutionImpl
-					.getJobInstance().getInstanceId(), step.getId());
+					.getJobInstance().getInstanceId(), step.getId(), localCommit);
 		
 		// A related piece of data we'll calculate here is the tran timeout.   Though we won't include
 		// it in the checkpoint manager since we'll set it directly on the tran mgr before each chunk.
 		stepPropertyTranTimeoutSeconds = initStepTransactionTimeout();
+
+		bisectRetryAfterRollback = initBisectRetryAfterRollback();
+		isolateWriteSkips = initIsolateWriteSkips();
 	}
 
 
@@ -873,16 +1217,16 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 		InjectionReferences injectionRef = new InjectionReferences(jobExecutionImpl.getJobContext(), stepContext, 
 				null);
 
-		this.chunkListeners = jobExecutionImpl.getListenerFactory().getChunkListeners(step, injectionRef, stepContext);
+		this.chunkListeners = ChunkListenerChain.of(jobExecutionImpl.getListenerFactory().getChunkListeners(step, injectionRef, stepContext));
 		this.skipProcessListeners = jobExecutionImpl.getListenerFactory().getSkipProcessListeners(step, injectionRef, stepContext);
 		this.skipReadListeners = jobExecutionImpl.getListenerFactory().getSkipReadListeners(step, injectionRef, stepContext);
 		this.skipWriteListeners = jobExecutionImpl.getListenerFactory().getSkipWriteListeners(step, injectionRef, stepContext);
 		this.retryProcessListeners = jobExecutionImpl.getListenerFactory().getRetryProcessListeners(step, injectionRef, stepContext);
 		this.retryReadListeners = jobExecutionImpl.getListenerFactory().getRetryReadListeners(step, injectionRef, stepContext);
 		this.retryWriteListeners = jobExecutionImpl.getListenerFactory().getRetryWriteListeners(step, injectionRef, stepContext);
-		this.itemReadListeners = jobExecutionImpl.getListenerFactory().getItemReadListeners(step, injectionRef, stepContext);
-		this.itemProcessListeners = jobExecutionImpl.getListenerFactory().getItemProcessListeners(step, injectionRef, stepContext);
-		this.itemWriteListeners = jobExecutionImpl.getListenerFactory().getItemWriteListeners(step, injectionRef, stepContext);
+		this.itemReadListeners = ItemReadListenerChain.of(jobExecutionImpl.getListenerFactory().getItemReadListeners(step, injectionRef, stepContext));
+		this.itemProcessListeners = ItemProcessListenerChain.of(jobExecutionImpl.getListenerFactory().getItemProcessListeners(step, injectionRef, stepContext));
+		this.itemWriteListeners = ItemWriteListenerChain.of(jobExecutionImpl.getListenerFactory().getItemWriteListeners(step, injectionRef, stepContext));
 
 		if (logger.isLoggable(Level.FINE)) {
 			logger.fine("Setting contexts for chunk artifacts");
@@ -1049,6 +1393,37 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
 
 	}
 
+	/**
+	 * Whether, rather than skipping all the items, we should roll back and narrow
+	 * down which of them actually fail to be written.  The exception is only reported
+	 * as a skip (and counted against the skip limit) once narrowed down to a single item.
+	 */
+	boolean isolateWriteSkip(Exception e, List<Object> chunkToWrite) {
+		return isolateWriteSkips && chunkToWrite.size() > 1 && skipHandler.isSkippableWithinLimit(e);
+	}
+
+	/**
+	 * Whether, re-running the ranges of a rolled-back chunk, a range of more than one item that failed the write
+	 * should just be rolled back and split further.  Only once narrowed down to a single item is the exception
+	 * reported as a skip or a retry, as in one-by-one processing, so a skip never drops more than the one item and
+	 * the original failure is the only retry counted for the whole range (so the retry limit isn't checked here).
+	 */
+	boolean splitFailedRange(Exception e, List<Object> chunkToWrite) {
+		return currentChunkStatus.getRangesToRetryAfterRollback() != null && chunkToWrite.size() > 1 &&
+				(skipHandler.isSkippableWithinLimit(e) || (retryHandler.isRetryable(e) && retryHandler.isRollbackException(e)));
+	}
+
+	/**
+	 * @return the index of the item the writer said it failed on, as long as the items written are exactly 
+	 * the items read in the range (none having been filtered out by the processor), or else -1
+	 */
+	private int failedItemIndex(Exception e, List<Object> chunkToWrite) {
+		if (e instanceof ItemWriteFailure && chunkToWrite.size() == currentChunkStatus.getItemsTouchedInCurrentChunk()) {
+			return ((ItemWriteFailure) e).getFailedItemIndex();
+		}
+		return -1;
+	}
+
 	boolean retryWriteException(Exception e, List<Object> chunkToWrite) {
 
 		try {
@@ -1100,6 +1475,63 @@ public class ChunkStepControllerImpl extends SingleThreadedStepControllerImpl {
         return timeout;
     }
 
+    /**
+     * @return true if the step properties select the bisect retry-with-rollback strategy
+     */
+    private boolean initBisectRetryAfterRollback() {
+        Properties p = stepContext.getProperties();
+        String strategy = (p == null) ? null : p.getProperty(RETRY_ROLLBACK_STRATEGY_PROP);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, RETRY_ROLLBACK_STRATEGY_PROP + " = {0}", strategy==null ? "<null>" : strategy);
+        }
+        return RETRY_ROLLBACK_STRATEGY_BISECT.equalsIgnoreCase(strategy);
+    }
+
+    /**
+     * @return true if the step properties select the isolate write skip strategy
+     */
+    private boolean initIsolateWriteSkips() {
+        Properties p = stepContext.getProperties();
+        String strategy = (p == null) ? null : p.getProperty(WRITE_SKIP_STRATEGY_PROP);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, WRITE_SKIP_STRATEGY_PROP + " = {0}", strategy==null ? "<null>" : strategy);
+        }
+        return WRITE_SKIP_STRATEGY_ISOLATE.equalsIgnoreCase(strategy);
+    }
+
+    /**
+     * @return the value of the given step property, or 0 if it isn't set
+     */
+    private long getLongStepProperty(String name) {
+        Properties p = stepContext.getProperties();
+        String value = (p == null) ? null : p.getProperty(name);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, name + " = {0}", value==null ? "<null>" : value);
+        }
+        if (value == null || value.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Step property " + name + " must be a number of bytes, but is: " + value, e);
+        }
+    }
+
+    private ItemSizeEstimator initItemSizeEstimator() {
+        Properties p = stepContext.getProperties();
+        String className = (p == null) ? null : p.getProperty(ITEM_SIZE_ESTIMATOR_PROP);
+        if (className == null || className.trim().isEmpty()) {
+            return new SerializedItemSizeEstimator();
+        }
+        try {
+            Class<?> clazz = Thread.currentThread().getContextClassLoader().loadClass(className.trim());
+            return (ItemSizeEstimator) clazz.newInstance();
+        } catch (Exception e) {
+            throw new BatchContainerServiceException("Cannot create the ItemSizeEstimator [" + className + "] named by step property " + ITEM_SIZE_ESTIMATOR_PROP, e);
+        }
+    }
+
 	private void positionReaderAtCheckpoint() {
 		_persistenceManagerService = servicesManager.getPersistenceManagerService();
 		readerChkptDK = new CheckpointDataKey(jobExecutionImpl.getJobInstance().getInstanceId(), step.getId(), "READER");
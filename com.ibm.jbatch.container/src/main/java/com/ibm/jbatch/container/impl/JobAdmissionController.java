@@ -0,0 +1,458 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.ibm.jbatch.spi.services.IBatchThreadPoolService;
+
+/**
+ * Admission control in front of the thread pool, for top-level jobs (the partitions and split-flows
+ * of a running job are never held back, since the job is waiting on them).
+ *
+ * A job is only handed to the thread pool while the number of running jobs, overall, with its job name
+ * and with its application tag, are all under their caps (0 meaning no cap).  Otherwise it waits in
+ * the queue of its priority class, read from a job parameter.  Higher priority classes are served
+ * first, but a queued job moves up one class for each aging interval it has waited, so that a steady
+ * stream of higher priority jobs can't starve it.  Within a class, the jobs aged up from lower classes
+ * go first, then the application tags are served in turn, and the jobs of one application tag in the
+ * order they arrived, skipping any held back by its job name's cap.
+ *
+ * The queue and its wait times are exported as an MBean, once {@link #register()} is called.
+ */
+public class JobAdmissionController implements JobAdmissionControllerMBean {
+
+	private final static String sourceClass = JobAdmissionController.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	/**
+	 * Priority classes, in the order they are served.  A job's class is given by the (case-insensitive)
+	 * value of the priority job parameter, NORMAL if it has none or an unknown one.
+	 */
+	public enum Priority { HIGH, NORMAL, LOW };
+
+	public static final String OBJECT_NAME = "com.ibm.jbatch:type=JobAdmission";
+
+	/**
+	 * Told of a queued job the thread pool rejected once it was admitted, while dispatching on behalf of
+	 * another job's submit or end, so that the job can be ended.
+	 */
+	public interface RejectionHandler {
+		void rejected(long executionId, RuntimeException cause);
+	}
+
+	private final IBatchThreadPoolService executorService;
+	private final int maxRunning;
+	private final int maxRunningPerJobName;
+	private final int maxRunningPerAppTag;
+	private final String priorityParameter;
+	private final long agingMillis;
+
+	private final Object lock = new Object();
+	// By priority class, the queued jobs of each application tag, the next tag to serve first
+	private final List<LinkedHashMap<String, LinkedList<AdmissionRequest>>> queues = new ArrayList<LinkedHashMap<String, LinkedList<AdmissionRequest>>>();
+	private final Map<Long, AdmissionRequest> running = new HashMap<Long, AdmissionRequest>();
+	private final Map<String, Integer> runningByJobName = new HashMap<String, Integer>();
+	private final Map<String, Integer> runningByAppTag = new HashMap<String, Integer>();
+	private int queuedCount = 0;
+
+	private long admittedCount = 0;
+	private long totalQueueWaitMillis = 0;
+	private long maxQueueWaitMillis = 0;
+
+	private ObjectName registeredName = null;
+
+	/**
+	 * @param agingMillis the time after which a queued job moves up one priority class, 0 for never
+	 */
+	public JobAdmissionController(IBatchThreadPoolService executorService, int maxRunning, int maxRunningPerJobName,
+			int maxRunningPerAppTag, String priorityParameter, long agingMillis) {
+		this.executorService = executorService;
+		this.maxRunning = maxRunning;
+		this.maxRunningPerJobName = maxRunningPerJobName;
+		this.maxRunningPerAppTag = maxRunningPerAppTag;
+		this.priorityParameter = priorityParameter;
+		this.agingMillis = agingMillis;
+		for (int i = 0; i < Priority.values().length; i++) {
+			queues.add(new LinkedHashMap<String, LinkedList<AdmissionRequest>>());
+		}
+	}
+
+	/**
+	 * Hands the job to the thread pool right away if it can run now, or else queues it until it can.
+	 * 
+	 * @param work the job's work unit, which must call {@link #done(long)} when it ends
+	 * @param rejectionHandler told if the thread pool rejects the job after it has waited in the queue
+	 * @throws RuntimeException if the thread pool rejected the job right away (rejections of any other jobs
+	 *         admitted along with it go to their own handlers)
+	 */
+	public void submit(Runnable work, long executionId, String jobName, String appTag, Properties jobParameters,
+			RejectionHandler rejectionHandler) {
+		AdmissionRequest request = new AdmissionRequest(work, executionId, jobName, appTag, getPriority(jobParameters), rejectionHandler);
+
+		synchronized (lock) {
+			LinkedHashMap<String, LinkedList<AdmissionRequest>> queue = queues.get(request.priority.ordinal());
+			LinkedList<AdmissionRequest> appTagQueue = queue.get(appTag);
+			if (appTagQueue == null) {
+				appTagQueue = new LinkedList<AdmissionRequest>();
+				queue.put(appTag, appTagQueue);
+			}
+			appTagQueue.add(request);
+			queuedCount++;
+		}
+
+		dispatch(admitQueued(), request);
+	}
+
+	/**
+	 * Frees the running job's slot, admitting whichever queued jobs can now run.
+	 */
+	public void done(long executionId) {
+		synchronized (lock) {
+			AdmissionRequest request = running.remove(executionId);
+			if (request == null) {
+				return;
+			}
+			release(request);
+		}
+
+		dispatch(admitQueued(), null);
+	}
+
+	/**
+	 * Takes the job out of the queue, if it is still waiting there, so it will never be admitted.
+	 * 
+	 * @return the job's work unit, or null if it isn't queued (either admitted already or never submitted)
+	 */
+	public Runnable cancel(long executionId) {
+		synchronized (lock) {
+			for (LinkedHashMap<String, LinkedList<AdmissionRequest>> queue : queues) {
+				Iterator<LinkedList<AdmissionRequest>> appTagQueues = queue.values().iterator();
+				while (appTagQueues.hasNext()) {
+					LinkedList<AdmissionRequest> appTagQueue = appTagQueues.next();
+					Iterator<AdmissionRequest> requests = appTagQueue.iterator();
+					while (requests.hasNext()) {
+						AdmissionRequest request = requests.next();
+						if (request.executionId == executionId) {
+							requests.remove();
+							queuedCount--;
+							if (appTagQueue.isEmpty()) {
+								appTagQueues.remove();
+							}
+							return request.work;
+						}
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	private List<AdmissionRequest> admitQueued() {
+		List<AdmissionRequest> admitted = new ArrayList<AdmissionRequest>();
+		synchronized (lock) {
+			AdmissionRequest next;
+			while (queuedCount > 0 && (maxRunning <= 0 || running.size() < maxRunning) && (next = takeNextAdmissible()) != null) {
+				long waited = System.currentTimeMillis() - next.queuedTime;
+				admittedCount++;
+				totalQueueWaitMillis += waited;
+				if (waited > maxQueueWaitMillis) {
+					maxQueueWaitMillis = waited;
+				}
+				if (logger.isLoggable(Level.FINE)) {
+					logger.fine("Admitting execution " + next.executionId + " of job " + next.jobName + " (" + next.priority
+							+ " priority, tag " + next.appTag + ") after waiting " + waited + " ms");
+				}
+
+				running.put(next.executionId, next);
+				increment(runningByJobName, next.jobName);
+				increment(runningByAppTag, next.appTag);
+				admitted.add(next);
+			}
+		}
+		return admitted;
+	}
+
+	private AdmissionRequest takeNextAdmissible() {
+		long now = System.currentTimeMillis();
+		for (int priority = 0; priority < queues.size(); priority++) {
+			// The jobs aged up to this class, from the lowest class first, since they've waited the longest
+			for (int lower = queues.size() - 1; lower > priority; lower--) {
+				AdmissionRequest request = takeNextAdmissible(queues.get(lower), priority, now);
+				if (request != null) {
+					return request;
+				}
+			}
+			AdmissionRequest request = takeNextAdmissible(queues.get(priority), priority, now);
+			if (request != null) {
+				return request;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the next job of the queue that is (or has aged up to) the priority class and can run now, taken out of the queue
+	 */
+	private AdmissionRequest takeNextAdmissible(LinkedHashMap<String, LinkedList<AdmissionRequest>> queue, int priority, long now) {
+		Iterator<Map.Entry<String, LinkedList<AdmissionRequest>>> appTags = queue.entrySet().iterator();
+		while (appTags.hasNext()) {
+			Map.Entry<String, LinkedList<AdmissionRequest>> entry = appTags.next();
+			if (!underCap(runningByAppTag, entry.getKey(), maxRunningPerAppTag)) {
+				continue;
+			}
+			Iterator<AdmissionRequest> requests = entry.getValue().iterator();
+			while (requests.hasNext()) {
+				AdmissionRequest request = requests.next();
+				if (getAgedPriority(request, now) > priority) {
+					// The ones after it arrived later still
+					break;
+				}
+				if (underCap(runningByJobName, request.jobName, maxRunningPerJobName)) {
+					requests.remove();
+					queuedCount--;
+					// Move the tag to the back, so the others get their turn first
+					appTags.remove();
+					if (!entry.getValue().isEmpty()) {
+						queue.put(entry.getKey(), entry.getValue());
+					}
+					return request;
+				}
+			}
+		}
+		return null;
+	}
+
+	private int getAgedPriority(AdmissionRequest request, long now) {
+		int priority = request.priority.ordinal();
+		if (agingMillis > 0) {
+			priority -= (int) Math.min(priority, (now - request.queuedTime) / agingMillis);
+		}
+		return priority;
+	}
+
+	/**
+	 * Hands the admitted jobs to the thread pool.  Any it rejects are freed, and handed to their rejection 
+	 * handlers, except the caller's own, whose rejection is thrown, and the queued jobs that can now run in
+	 * their place are admitted in turn.
+	 */
+	private void dispatch(List<AdmissionRequest> admitted, AdmissionRequest own) {
+		RuntimeException ownFailure = null;
+		while (!admitted.isEmpty()) {
+			boolean rejected = false;
+			for (AdmissionRequest request : admitted) {
+				try {
+					executorService.executeTask(request.work, null);
+				} catch (RuntimeException e) {
+					logger.warning("Failed to submit admitted execution " + request.executionId + " to the thread pool: " + e);
+					rejected = true;
+					synchronized (lock) {
+						if (running.remove(request.executionId) != null) {
+							release(request);
+						}
+					}
+					if (request == own) {
+						ownFailure = e;
+					} else if (request.rejectionHandler != null) {
+						try {
+							request.rejectionHandler.rejected(request.executionId, e);
+						} catch (RuntimeException handlerFailure) {
+							logger.log(Level.WARNING, "Failed to end rejected execution " + request.executionId, handlerFailure);
+						}
+					}
+				}
+			}
+			// Each pass takes jobs out of the queue, so this ends even if the thread pool rejects them all
+			admitted = rejected ? admitQueued() : Collections.<AdmissionRequest>emptyList();
+		}
+		if (ownFailure != null) {
+			throw ownFailure;
+		}
+	}
+
+	private void release(AdmissionRequest request) {
+		decrement(runningByJobName, request.jobName);
+		decrement(runningByAppTag, request.appTag);
+	}
+
+	private Priority getPriority(Properties jobParameters) {
+		String value = (jobParameters == null) ? null : jobParameters.getProperty(priorityParameter);
+		if (value != null) {
+			try {
+				return Priority.valueOf(value.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.warning("Unknown priority: " + value + ", from job parameter: " + priorityParameter + ", using " + Priority.NORMAL);
+			}
+		}
+		return Priority.NORMAL;
+	}
+
+	private static boolean underCap(Map<String, Integer> counts, String key, int cap) {
+		if (cap <= 0) {
+			return true;
+		}
+		Integer count = counts.get(key);
+		return count == null || count < cap;
+	}
+
+	private static void increment(Map<String, Integer> counts, String key) {
+		Integer count = counts.get(key);
+		counts.put(key, count == null ? 1 : count + 1);
+	}
+
+	private static void decrement(Map<String, Integer> counts, String key) {
+		Integer count = counts.get(key);
+		if (count == null || count <= 1) {
+			counts.remove(key);
+		} else {
+			counts.put(key, count - 1);
+		}
+	}
+
+	/**
+	 * Registers this as an MBean, replacing any left over from an earlier runtime in this JVM.
+	 */
+	public synchronized void register() {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+			registeredName = name;
+		} catch (Exception e) {
+			logger.log(Level.WARNING, "Failed to register the MBean for job admission control", e);
+		}
+	}
+
+	public synchronized void unregister() {
+		if (registeredName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+			} catch (Exception e) {
+				logger.log(Level.FINE, "Failed to unregister MBean " + registeredName, e);
+			}
+			registeredName = null;
+		}
+	}
+
+	/**
+	 * @return the number of jobs currently waiting to be admitted
+	 */
+	public int getQueuedCount() {
+		synchronized (lock) {
+			return queuedCount;
+		}
+	}
+
+	/**
+	 * @return the number of admitted jobs still running
+	 */
+	public int getRunningCount() {
+		synchronized (lock) {
+			return running.size();
+		}
+	}
+
+	/**
+	 * @return the number of jobs admitted so far
+	 */
+	public long getAdmittedCount() {
+		synchronized (lock) {
+			return admittedCount;
+		}
+	}
+
+	/**
+	 * @return the time the jobs admitted so far spent waiting in the queue, in total
+	 */
+	public long getTotalQueueWaitMillis() {
+		synchronized (lock) {
+			return totalQueueWaitMillis;
+		}
+	}
+
+	/**
+	 * @return the longest time any job admitted so far spent waiting in the queue
+	 */
+	public long getMaxQueueWaitMillis() {
+		synchronized (lock) {
+			return maxQueueWaitMillis;
+		}
+	}
+
+	/**
+	 * @return the time the jobs admitted so far spent waiting in the queue, on average
+	 */
+	public double getMeanQueueWaitMillis() {
+		synchronized (lock) {
+			return (admittedCount == 0) ? 0 : (double) totalQueueWaitMillis / admittedCount;
+		}
+	}
+
+	/**
+	 * @return the time the job waiting the longest has been in the queue so far, 0 if none is queued
+	 */
+	public long getOldestQueuedWaitMillis() {
+		long now = System.currentTimeMillis();
+		long oldest = now;
+		synchronized (lock) {
+			for (LinkedHashMap<String, LinkedList<AdmissionRequest>> queue : queues) {
+				for (LinkedList<AdmissionRequest> appTagQueue : queue.values()) {
+					if (!appTagQueue.isEmpty()) {
+						oldest = Math.min(oldest, appTagQueue.getFirst().queuedTime);
+					}
+				}
+			}
+		}
+		return now - oldest;
+	}
+
+	private static class AdmissionRequest {
+		private final Runnable work;
+		private final long executionId;
+		private final String jobName;
+		private final String appTag;
+		private final Priority priority;
+		private final RejectionHandler rejectionHandler;
+		private final long queuedTime = System.currentTimeMillis();
+
+		AdmissionRequest(Runnable work, long executionId, String jobName, String appTag, Priority priority, RejectionHandler rejectionHandler) {
+			this.work = work;
+			this.executionId = executionId;
+			this.jobName = jobName;
+			this.appTag = appTag;
+			this.priority = priority;
+			this.rejectionHandler = rejectionHandler;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.impl;
+
+/**
+ * The admission control's queue, and the time the jobs it admitted spent waiting in it.
+ */
+public interface JobAdmissionControllerMBean {
+
+	int getQueuedCount();
+
+	int getRunningCount();
+
+	long getAdmittedCount();
+
+	long getTotalQueueWaitMillis();
+
+	long getMaxQueueWaitMillis();
+
+	double getMeanQueueWaitMillis();
+
+	long getOldestQueuedWaitMillis();
+}
@@ -33,8 +33,11 @@ import com.ibm.jbatch.container.artifact.proxy.InjectionReferences;
 import com.ibm.jbatch.container.artifact.proxy.JobListenerProxy;
 import com.ibm.jbatch.container.artifact.proxy.ListenerFactory;
 import com.ibm.jbatch.container.context.impl.JobContextImpl;
+import com.ibm.jbatch.container.jfr.BatchEvents.JobStartTiming;
 import com.ibm.jbatch.container.jobinstance.RuntimeJobExecution;
 import com.ibm.jbatch.container.navigator.ModelNavigator;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService.Phase;
 import com.ibm.jbatch.container.services.IJobStatusManagerService;
 import com.ibm.jbatch.container.services.IPersistenceManagerService;
 import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
@@ -61,6 +64,8 @@ public abstract class JobThreadRootControllerImpl implements IThreadRootControll
 	private ExecutionTransitioner transitioner; 
 	protected final ModelNavigator<JSLJob> jobNavigator;
 	private BlockingQueue<PartitionDataWrapper> analyzerQueue;
+	private final IBatchInstrumentationService instrumentation;
+	private final boolean instrumented;
 
 	public JobThreadRootControllerImpl(RuntimeJobExecution jobExecution, long rootJobExecutionId) {
 		this.jobExecution = jobExecution;
@@ -69,6 +74,8 @@ public abstract class JobThreadRootControllerImpl implements IThreadRootControll
 		this.jobInstanceId = jobExecution.getInstanceId();
 		this.jobStatusService = ServicesManagerImpl.getInstance().getJobStatusManagerService();
 		this.persistenceService = ServicesManagerImpl.getInstance().getPersistenceManagerService();
+		this.instrumentation = ServicesManagerImpl.getInstance().getInstrumentationService();
+		this.instrumented = instrumentation.isEnabled();
 		this.jobNavigator = jobExecution.getJobNavigator();
 		setupListeners();
 	}
@@ -91,6 +98,9 @@ public abstract class JobThreadRootControllerImpl implements IThreadRootControll
 	public ExecutionStatus originateExecutionOnThread() {
 		String methodName = "executeJob";
 		logger.entering(CLASSNAME, methodName);
+		long start = instrumented ? System.nanoTime() : 0;
+		JobStartTiming startTiming = jobExecution.getStartTiming();
+		long runningSince = (startTiming != null) ? System.nanoTime() : 0;
 
 		ExecutionStatus retVal = null;
 		try {
@@ -102,6 +112,11 @@ public abstract class JobThreadRootControllerImpl implements IThreadRootControll
 
 				jobListenersBeforeJob();
 
+				if (startTiming != null) {
+					startTiming.commit(jobExecution.getExecutionId(), jobExecution.getJobInstance().getJobName(), runningSince);
+					jobExecution.setStartTiming(null);
+				}
+
 				// --------------------
 				// The BIG loop transitioning 
 				// within the job !!!
@@ -127,6 +142,10 @@ public abstract class JobThreadRootControllerImpl implements IThreadRootControll
 
 		endOfJob();
 
+		if (instrumented) {
+			instrumentation.span(Phase.JOB, jobExecution.getExecutionId(), jobExecution.getJobInstance().getJobName(), start, System.nanoTime());
+		}
+
 		logger.exiting(CLASSNAME, methodName);
 		return retVal;
 	}
@@ -16,18 +16,12 @@
 */
 package com.ibm.jbatch.container.impl;
 
-import jakarta.batch.runtime.context.JobContext;
-
 import com.ibm.jbatch.container.context.impl.JobContextImpl;
 import com.ibm.jbatch.container.context.impl.StepContextImpl;
 import com.ibm.jbatch.container.jsl.CloneUtility;
 import com.ibm.jbatch.jsl.model.Flow;
 import com.ibm.jbatch.jsl.model.JSLJob;
-import com.ibm.jbatch.jsl.model.JSLProperties;
 import com.ibm.jbatch.jsl.model.ObjectFactory;
-import com.ibm.jbatch.jsl.model.Partition;
-import com.ibm.jbatch.jsl.model.PartitionPlan;
-import com.ibm.jbatch.jsl.model.Property;
 import com.ibm.jbatch.jsl.model.Split;
 import com.ibm.jbatch.jsl.model.Step;
 
@@ -68,97 +62,36 @@ public class PartitionedStepBuilder {
      * Build a generated job with only one step in it to submit to the
      * BatchKernel. This is used for partitioned steps.
      * 
+     * When building more than one partition of a step, build a PartitionedStepTemplate
+     * once and use buildPartitionSubJob(PartitionedStepTemplate, int) instead.
      */
     public static JSLJob buildPartitionSubJob(JobContextImpl jobContext, StepContextImpl stepCtx, Step step, int partitionInstance) {
+    	return buildPartitionSubJob(new PartitionedStepTemplate(jobContext, stepCtx, step), partitionInstance);
+    }
+
+    /*
+     * Build a generated job with only one step in it to submit to the
+     * BatchKernel, from a template shared by all the partitions of the step.
+     * 
+     * Only the job and step "shells", and any elements still needing per-partition
+     * property resolution, are new objects; the rest of the model is shared with the template.
+     */
+    public static JSLJob buildPartitionSubJob(PartitionedStepTemplate template, int partitionInstance) {
 
         ObjectFactory jslFactory = new ObjectFactory();
         JSLJob subJob = jslFactory.createJSLJob();
-        
 
         // Set the generated subjob id
         // Uses the true top-level job instance id, not an internal "subjob" id.
-        String subJobId = generateSubJobId(jobContext.getInstanceId(), step.getId(), partitionInstance);
+        String subJobId = generateSubJobId(template.getJobContext().getInstanceId(), template.getStepId(), partitionInstance);
         subJob.setId(subJobId);
-        
-        
-        //Copy all properties from parent JobContext to partitioned step threads
-        subJob.setProperties(CloneUtility.javaPropsTojslProperties(jobContext.getProperties()));
 
-        // Add one step to job
-        Step newStep = jslFactory.createStep();
-        
-        //set id
-        newStep.setId(step.getId());
+        // Properties from parent JobContext, plus the JobContext info, to propagate to partitioned step threads
+        subJob.setProperties(template.getJobProperties());
 
-        
-        /***
-         * deep copy all fields in a step
-         */
-        newStep.setAllowStartIfComplete(step.getAllowStartIfComplete());
-        
-        if (step.getBatchlet() != null){
-        	newStep.setBatchlet(CloneUtility.cloneBatchlet(step.getBatchlet()));
-        }
-        
-        if (step.getChunk() != null) {
-        	newStep.setChunk(CloneUtility.cloneChunk(step.getChunk()));
-        }
-        
-        // Do not copy next attribute and control elements.  Transitioning should ONLY
-        // take place on the main thread.
-        
-        //Do not add step listeners, only call them on parent thread.
-
-        //Add partition artifacts and set instances to 1 as the base case 
-        Partition partition = step.getPartition();
-        if (partition != null) {
-        	if (partition.getCollector() != null) {
-        		
-        		Partition basePartition = jslFactory.createPartition();
-        		
-        		PartitionPlan partitionPlan = jslFactory.createPartitionPlan();
-        		partitionPlan.setPartitions(null);
-        		basePartition.setPlan(partitionPlan);
-        		
-        		basePartition.setCollector(partition.getCollector());
-        		newStep.setPartition(basePartition);
-                	
-        	}
-        }
-        
-        newStep.setStartLimit(step.getStartLimit());
-        JSLProperties newProperties = CloneUtility.cloneJSLProperties(step.getProperties());
-
-        // 
-        // Propagate StepContext info.  Note that unlike the JobContext info, this is
-        // propagated for partitions, but NOT split-flows, since only for a partition
-        // is a step split up across threads.
-        // 
-        if (newProperties == null) {
-        	newProperties = jslFactory.createJSLProperties();
-        }
-
-		Property jobName = jslFactory.createProperty();
-		jobName.setName(StepContextImpl.TOP_LEVEL_STEP_EXECUTION_ID_PROP);
-		// No such thing as a partition of a partition so internal and "external" execution IDs are identical here.
-		jobName.setValue(String.valueOf(stepCtx.getInternalStepExecutionId()));  
-		newProperties.getPropertyList().add(jobName);
-		
-		// Link back to Step object
-        newStep.setProperties(newProperties);
-        
-        // Don't try to only clone based on type (e.g. ChunkListener vs. StepListener).
-        // We don't know the type at the model level, and a given artifact could implement more
-        // than one listener interface (e.g. ChunkListener AND StepListener).
-        newStep.setListeners(CloneUtility.cloneListeners(step.getListeners()));       
-        
-        //Add Step properties, need to be careful here to remember the right precedence
-        
-        subJob.getExecutionElements().add(newStep);
+        // Add one step to job
+        subJob.getExecutionElements().add(template.createPartitionStep());
 
-        // Propagate JobContext info
-        jobContext.addTopLevelContextProperties(subJob.getProperties());
-        
         return subJob;
     }
 
@@ -16,8 +16,12 @@
  */
 package com.ibm.jbatch.container.impl;
 
+import java.io.Serializable;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -39,11 +43,19 @@ import com.ibm.jbatch.container.artifact.proxy.PartitionMapperProxy;
 import com.ibm.jbatch.container.artifact.proxy.PartitionReducerProxy;
 import com.ibm.jbatch.container.artifact.proxy.ProxyFactory;
 import com.ibm.jbatch.container.artifact.proxy.StepListenerProxy;
+import com.ibm.jbatch.container.context.impl.JobContextImpl;
 import com.ibm.jbatch.container.context.impl.StepContextImpl;
 import com.ibm.jbatch.container.exception.BatchContainerRuntimeException;
 import com.ibm.jbatch.container.exception.BatchContainerServiceException;
+import com.ibm.jbatch.container.jfr.BatchEvents;
 import com.ibm.jbatch.container.jobinstance.RuntimeJobExecution;
 import com.ibm.jbatch.container.jsl.CloneUtility;
+import com.ibm.jbatch.container.partition.PartitionCallback;
+import com.ibm.jbatch.container.partition.PartitionRequest;
+import com.ibm.jbatch.container.partition.PartitionTransport;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService.Phase;
+import com.ibm.jbatch.container.services.IJobStatusManagerService;
+import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
 import com.ibm.jbatch.container.util.BatchPartitionPlan;
 import com.ibm.jbatch.container.util.BatchPartitionWorkUnit;
 import com.ibm.jbatch.container.util.BatchWorkUnit;
@@ -93,6 +105,14 @@ public class PartitionedStepControllerImpl extends BaseStepControllerImpl {
 	
 	BlockingQueue<BatchPartitionWorkUnit> finishedWorkQueue = null;
 
+	// The PartitionComplete events begun as each partition was dispatched, if being recorded
+	private final Map<BatchPartitionWorkUnit, Object> partitionCompleteEvents = new IdentityHashMap<BatchPartitionWorkUnit, Object>();
+
+	// Set if the partitions are dispatched through a transport, rather than run on threads of this process
+	private volatile PartitionTransport partitionTransport = null;
+
+	private static IJobStatusManagerService jobStatusService = ServicesManagerImpl.getInstance().getJobStatusManagerService();
+
 	protected PartitionedStepControllerImpl(final RuntimeJobExecution jobExecutionImpl, final Step step, StepContextImpl stepContext, long rootJobExecutionId) {
 		super(jobExecutionImpl, step, stepContext, rootJobExecutionId);
 	}
@@ -111,7 +131,11 @@ public class PartitionedStepControllerImpl extends BaseStepControllerImpl {
 					long jobExecutionId = -1;
 					try {
 						jobExecutionId = subJob.getJobExecutionImpl().getExecutionId();
-						batchKernel.stopJob(jobExecutionId);
+						if (partitionTransport != null) {
+							partitionTransport.stop(jobExecutionId);
+						} else {
+							batchKernel.stopJob(jobExecutionId);
+						}
 					} catch (JobExecutionNotRunningException e) {
 						logger.fine("Caught exception trying to stop subjob: " + jobExecutionId + ", which was not running.");
 						// We want to stop all running sub steps. 
@@ -327,11 +351,18 @@ public class PartitionedStepControllerImpl extends BaseStepControllerImpl {
 		}
 		this.finishedWorkQueue = new LinkedBlockingQueue<BatchPartitionWorkUnit>();
 
-		// Build all sub jobs from partitioned step
-		buildSubJobBatchWorkUnits();
+		this.partitionTransport = createPartitionTransport();
+		try {
+			// Build all sub jobs from partitioned step
+			buildSubJobBatchWorkUnits();
 
-		// kick off the threads
-		executeAndWaitForCompletion();
+			// kick off the threads
+			executeAndWaitForCompletion();
+		} finally {
+			if (partitionTransport != null) {
+				partitionTransport.close();
+			}
+		}
 
 		// Deal with the results.
 		checkFinishedPartitions();
@@ -350,8 +381,10 @@ public class PartitionedStepControllerImpl extends BaseStepControllerImpl {
 				return;
 			}
 
+			// The parts of the sub-job common to all partitions are built once and shared.
+			PartitionedStepTemplate template = new PartitionedStepTemplate(jobExecutionImpl.getJobContext(), stepContext, step);
 			for (int instance = 0; instance < partitions; instance++) {
-				subJobs.add(PartitionedStepBuilder.buildPartitionSubJob(jobExecutionImpl.getJobContext(), stepContext, step, instance));
+				subJobs.add(PartitionedStepBuilder.buildPartitionSubJob(template, instance));
 			}
 
 			PartitionsBuilderConfig config = new PartitionsBuilderConfig(subJobs, partitionProperties, analyzerStatusQueue, finishedWorkQueue, jobExecutionImpl.getExecutionId());
@@ -393,11 +426,7 @@ public class PartitionedStepControllerImpl extends BaseStepControllerImpl {
 
 		//Start up to to the max num we are allowed from the num threads attribute
 		for (int i=0; i < this.threads && i < numTotalForThisExecution; i++, numCurrentSubmitted++) {
-			if (stepStatus.getStartCount() > 1 && !plan.getPartitionsOverride()) {
-				batchKernel.restartGeneratedJob(parallelBatchWorkUnits.get(i));
-			} else {
-				batchKernel.startGeneratedJob(parallelBatchWorkUnits.get(i));
-			}
+			dispatchPartition(parallelBatchWorkUnits.get(i), stepStatus.getStartCount() > 1 && !plan.getPartitionsOverride());
 		}
 
 		boolean readyToSubmitAnother = false;
@@ -431,7 +460,7 @@ public class PartitionedStepControllerImpl extends BaseStepControllerImpl {
 							logger.warning("Caught exception calling analyzeStatus(), catching and continuing.  Will even continue starting new partitions if there are more to run.");
 						}
 						logger.fine("Analyze status called for completed partition: batchStatus= " + dataWrapper.getBatchstatus() + ", exitStatus = " + dataWrapper.getExitStatus());
-						finishedWork.add(finishedWorkQueue.take());  // Shouldn't be a a long wait.
+						partitionFinished(finishedWorkQueue.take());  // Shouldn't be a a long wait.
 						readyToSubmitAnother = true;
 					} else {
 						logger.warning("Invalid partition state");
@@ -441,7 +470,7 @@ public class PartitionedStepControllerImpl extends BaseStepControllerImpl {
 					logger.fine("No analyzer, proceeding on finishedWorkQueue path");
 					// block until at least one thread has finished to
 					// submit more batch work. hold on to the finished work to look at later
-					finishedWork.add(finishedWorkQueue.take());
+					partitionFinished(finishedWorkQueue.take());
 					readyToSubmitAnother = true;
 				}
 			} catch (InterruptedException e) {
@@ -455,11 +484,7 @@ public class PartitionedStepControllerImpl extends BaseStepControllerImpl {
 				if (numCurrentCompleted < numTotalForThisExecution) {
 					if (numCurrentSubmitted < numTotalForThisExecution) {
 						logger.fine("Submitting # " + numCurrentSubmitted + " out of " + numTotalForThisExecution + " total for this execution");
-						if (stepStatus.getStartCount() > 1) {
-							batchKernel.restartGeneratedJob(parallelBatchWorkUnits.get(numCurrentSubmitted++));
-						} else {
-							batchKernel.startGeneratedJob(parallelBatchWorkUnits.get(numCurrentSubmitted++));
-						}
+						dispatchPartition(parallelBatchWorkUnits.get(numCurrentSubmitted++), stepStatus.getStartCount() > 1);
 						readyToSubmitAnother = false;
 					}
 				} else {
@@ -480,6 +505,143 @@ public class PartitionedStepControllerImpl extends BaseStepControllerImpl {
 		}
 	}        
 
+	private void dispatchPartition(BatchPartitionWorkUnit workUnit, boolean restart) throws JobRestartException {
+		long start = spanStart();
+		Object dispatchEvent = BatchEvents.PARTITION_DISPATCH.begin();
+		Object completeEvent = BatchEvents.PARTITION_COMPLETE.begin();
+		if (completeEvent != null) {
+			partitionCompleteEvents.put(workUnit, completeEvent);
+		}
+		if (partitionTransport != null) {
+			dispatchToTransport(workUnit);
+		} else if (restart) {
+			batchKernel.restartGeneratedJob(workUnit);
+		} else {
+			batchKernel.startGeneratedJob(workUnit);
+		}
+		if (dispatchEvent != null) {
+			BatchEvents.PARTITION_DISPATCH.commit(dispatchEvent, jobExecutionImpl.getExecutionId(), stepName, 
+					partitionNumber(workUnit), restart);
+		}
+		spanEnd(Phase.PARTITION_DISPATCH, start);
+	}
+
+	private PartitionTransport createPartitionTransport() {
+		Properties p = stepContext.getProperties();
+		String className = (p == null) ? null : p.getProperty(PartitionTransport.PARTITION_TRANSPORT_PROP);
+		if (className == null || className.trim().isEmpty()) {
+			return null;
+		}
+		try {
+			Class<?> clazz = Thread.currentThread().getContextClassLoader().loadClass(className.trim());
+			PartitionTransport transport = (PartitionTransport) clazz.newInstance();
+			transport.open(p);
+			return transport;
+		} catch (Exception e) {
+			throw new BatchContainerServiceException("Cannot create the PartitionTransport [" + className + "] named by step property " 
+					+ PartitionTransport.PARTITION_TRANSPORT_PROP, e);
+		}
+	}
+
+	/*
+	 * Ships the partition's resolved sub-job to be run by the transport, which reports back through a
+	 * callback feeding the same queues the partition's thread would have, were it run here.
+	 */
+	private void dispatchToTransport(BatchPartitionWorkUnit workUnit) {
+		RuntimeJobExecution execution = workUnit.getJobExecutionImpl();
+		int partition = execution.getPartitionInstance();
+		PartitionCallback callback = new TransportCallback(workUnit);
+		try {
+			Properties props = (partitionProperties == null) ? null : partitionProperties[partition];
+			partitionTransport.dispatch(new PartitionRequest(stepName, partition, execution.getExecutionId(), execution.getInstanceId(), 
+					execution.getJobNavigator().getRootModelElement(), props, execution.getRestartOn(), analyzerStatusQueue != null), callback);
+		} catch (Exception e) {
+			callback.lost(e);
+		}
+	}
+
+	private class TransportCallback implements PartitionCallback {
+
+		private final BatchPartitionWorkUnit workUnit;
+		private volatile boolean analyzerStatusSent = false;
+
+		TransportCallback(BatchPartitionWorkUnit workUnit) {
+			this.workUnit = workUnit;
+		}
+
+		@Override
+		public void collectorData(Serializable data) {
+			if (analyzerStatusQueue != null) {
+				PartitionDataWrapper dataWrapper = new PartitionDataWrapper();
+				dataWrapper.setCollectorData(data);
+				dataWrapper.setEventType(PartitionEventType.ANALYZE_COLLECTOR_DATA);
+				analyzerStatusQueue.add(dataWrapper);
+			}
+		}
+
+		@Override
+		public void analyzerStatus(BatchStatus batchStatus, String exitStatus) {
+			if (analyzerStatusQueue != null) {
+				analyzerStatusSent = true;
+				PartitionDataWrapper dataWrapper = new PartitionDataWrapper();
+				dataWrapper.setBatchStatus(batchStatus);
+				dataWrapper.setExitStatus(exitStatus);
+				dataWrapper.setEventType(PartitionEventType.ANALYZE_STATUS);
+				analyzerStatusQueue.add(dataWrapper);
+			}
+		}
+
+		@Override
+		public void finished(BatchStatus batchStatus, String exitStatus) {
+			JobContextImpl partitionContext = workUnit.getJobExecutionImpl().getJobContext();
+			partitionContext.setBatchStatus(batchStatus);
+			partitionContext.setExitStatus(exitStatus);
+			batchKernel.jobExecutionDone(workUnit.getJobExecutionImpl());
+
+			// The step's main loop waits on the partition's status before taking it as finished
+			if (!analyzerStatusSent) {
+				analyzerStatus(batchStatus, exitStatus);
+			}
+			finishedWorkQueue.add(workUnit);
+		}
+
+		@Override
+		public void lost(Exception cause) {
+			RuntimeJobExecution execution = workUnit.getJobExecutionImpl();
+			logger.warning("Partition " + execution.getPartitionInstance() + " of step " + stepName + " (execution " 
+					+ execution.getExecutionId() + ") did not run to its end, marking it FAILED: " + cause);
+			if (logger.isLoggable(Level.FINE)) {
+				logger.log(Level.FINE, "Partition lost", cause);
+			}
+			// Recorded here since whatever was running it could not, so a restart will run it again
+			try {
+				String exitStatus = BatchStatus.FAILED.name();
+				jobStatusService.updateJobBatchStatus(execution.getInstanceId(), BatchStatus.FAILED);
+				jobStatusService.updateJobExecutionStatus(execution.getInstanceId(), BatchStatus.FAILED, exitStatus);
+				_persistenceManagementService.updateWithFinalExecutionStatusesAndTimestamps(execution.getExecutionId(), 
+						BatchStatus.FAILED, exitStatus, new Timestamp(System.currentTimeMillis()));
+			} catch (RuntimeException e) {
+				logger.warning("Could not record partition execution " + execution.getExecutionId() + " as FAILED: " + e);
+			}
+			finished(BatchStatus.FAILED, null);
+		}
+	}
+
+	private void partitionFinished(BatchPartitionWorkUnit workUnit) {
+		finishedWork.add(workUnit);
+		Object completeEvent = partitionCompleteEvents.remove(workUnit);
+		if (completeEvent != null) {
+			JobContextImpl partitionContext = workUnit.getJobExecutionImpl().getJobContext();
+			BatchEvents.PARTITION_COMPLETE.commit(completeEvent, jobExecutionImpl.getExecutionId(), stepName, 
+					partitionNumber(workUnit), String.valueOf(partitionContext.getBatchStatus()), partitionContext.getExitStatus());
+		}
+	}
+
+	private static long partitionNumber(BatchPartitionWorkUnit workUnit) {
+		Integer partitionInstance = workUnit.getJobExecutionImpl().getPartitionInstance();
+		return (partitionInstance == null) ? -1 : partitionInstance;
+	}
+
 	private void checkFinishedPartitions() {
 
 		/**
@@ -618,8 +780,8 @@ public class PartitionedStepControllerImpl extends BaseStepControllerImpl {
 	}
 	
 	@Override
-	protected void persistStepExecution() {
+	protected void persistStepEnd() {
 		// Call special aggregating method
-		_persistenceManagementService.updateWithFinalPartitionAggregateStepExecution(rootJobExecutionId, stepContext);
+		_persistenceManagementService.endPartitionedStep(rootJobExecutionId, stepContext, stepStatus);
 	}
 }
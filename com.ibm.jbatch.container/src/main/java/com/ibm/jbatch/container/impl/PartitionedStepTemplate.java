@@ -0,0 +1,349 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.impl;
+
+import java.util.List;
+
+import com.ibm.jbatch.container.context.impl.JobContextImpl;
+import com.ibm.jbatch.container.context.impl.StepContextImpl;
+import com.ibm.jbatch.container.jsl.CloneUtility;
+import com.ibm.jbatch.jsl.model.Batchlet;
+import com.ibm.jbatch.jsl.model.CheckpointAlgorithm;
+import com.ibm.jbatch.jsl.model.Chunk;
+import com.ibm.jbatch.jsl.model.Collector;
+import com.ibm.jbatch.jsl.model.ExceptionClassFilter;
+import com.ibm.jbatch.jsl.model.ItemProcessor;
+import com.ibm.jbatch.jsl.model.ItemReader;
+import com.ibm.jbatch.jsl.model.ItemWriter;
+import com.ibm.jbatch.jsl.model.JSLProperties;
+import com.ibm.jbatch.jsl.model.Listener;
+import com.ibm.jbatch.jsl.model.Listeners;
+import com.ibm.jbatch.jsl.model.ObjectFactory;
+import com.ibm.jbatch.jsl.model.Partition;
+import com.ibm.jbatch.jsl.model.PartitionPlan;
+import com.ibm.jbatch.jsl.model.Property;
+import com.ibm.jbatch.jsl.model.Step;
+
+/**
+ * The parts of a partitioned step's generated sub-job that are the same for every partition,
+ * built once per step execution rather than once per partition.
+ *
+ * By the time partitions are built, the top-level job model has already been resolved, so the only
+ * property expressions left in it are those that depend on the partition plan properties.  A model
+ * element containing no remaining expression resolves identically in every partition, so the template
+ * copy of it is shared, read-only, by all the partition sub-jobs.  Only elements that still contain an
+ * expression are copied per partition (the "overlay"), and these are then resolved by each partition's
+ * property resolver.  (A shared element still passes through the resolver, but since it holds no
+ * expression each value is set back to itself.)
+ *
+ * Note this relies on all partition sub-jobs being resolved on the parent step's thread before any
+ * partition starts executing, and on the executing partitions treating their model as read-only.
+ */
+public class PartitionedStepTemplate {
+
+	private static final String EXPRESSION_START = "#{";
+
+	private final ObjectFactory jslFactory = new ObjectFactory();
+
+	private final JobContextImpl jobContext;
+	private final String stepId;
+
+	private final JSLProperties jobProperties;
+	private final boolean jobPropertiesShared;
+
+	private final Step templateStep;
+
+	public PartitionedStepTemplate(JobContextImpl jobContext, StepContextImpl stepCtx, Step step) {
+		this.jobContext = jobContext;
+		this.stepId = step.getId();
+
+		//Copy all properties from parent JobContext to partitioned step threads
+		JSLProperties jobProps = CloneUtility.javaPropsTojslProperties(jobContext.getProperties());
+		// Propagate JobContext info
+		jobContext.addTopLevelContextProperties(jobProps);
+		this.jobProperties = jobProps;
+		this.jobPropertiesShared = !hasExpression(jobProps);
+
+		this.templateStep = buildTemplateStep(stepCtx, step);
+	}
+
+	/*
+	 * One deep copy of the step, holding only what a partition sub-job needs.
+	 */
+	private Step buildTemplateStep(StepContextImpl stepCtx, Step step) {
+		Step newStep = jslFactory.createStep();
+
+		newStep.setId(step.getId());
+		newStep.setAllowStartIfComplete(step.getAllowStartIfComplete());
+		newStep.setStartLimit(step.getStartLimit());
+
+		if (step.getBatchlet() != null){
+			newStep.setBatchlet(CloneUtility.cloneBatchlet(step.getBatchlet()));
+		}
+
+		if (step.getChunk() != null) {
+			newStep.setChunk(CloneUtility.cloneChunk(step.getChunk()));
+		}
+
+		// Do not copy next attribute and control elements.  Transitioning should ONLY
+		// take place on the main thread.
+
+		//Add partition artifacts and set instances to 1 as the base case
+		Partition partition = step.getPartition();
+		if (partition != null && partition.getCollector() != null) {
+			Partition basePartition = jslFactory.createPartition();
+
+			PartitionPlan partitionPlan = jslFactory.createPartitionPlan();
+			partitionPlan.setPartitions(null);
+			basePartition.setPlan(partitionPlan);
+
+			basePartition.setCollector(CloneUtility.cloneCollector(partition.getCollector()));
+			newStep.setPartition(basePartition);
+		}
+
+		JSLProperties newProperties = CloneUtility.cloneJSLProperties(step.getProperties());
+
+		//
+		// Propagate StepContext info.  Note that unlike the JobContext info, this is
+		// propagated for partitions, but NOT split-flows, since only for a partition
+		// is a step split up across threads.
+		//
+		if (newProperties == null) {
+			newProperties = jslFactory.createJSLProperties();
+		}
+
+		Property topLevelStepExecId = jslFactory.createProperty();
+		topLevelStepExecId.setName(StepContextImpl.TOP_LEVEL_STEP_EXECUTION_ID_PROP);
+		// No such thing as a partition of a partition so internal and "external" execution IDs are identical here.
+		topLevelStepExecId.setValue(String.valueOf(stepCtx.getInternalStepExecutionId()));
+		newProperties.getPropertyList().add(topLevelStepExecId);
+
+		newStep.setProperties(newProperties);
+
+		// Don't try to only clone based on type (e.g. ChunkListener vs. StepListener).
+		// We don't know the type at the model level, and a given artifact could implement more
+		// than one listener interface (e.g. ChunkListener AND StepListener).
+		newStep.setListeners(CloneUtility.cloneListeners(step.getListeners()));
+
+		return newStep;
+	}
+
+	public JobContextImpl getJobContext() {
+		return jobContext;
+	}
+
+	public String getStepId() {
+		return stepId;
+	}
+
+	/**
+	 * @return the job-level properties for a new partition sub-job: the shared copy, unless
+	 * they contain an unresolved expression.
+	 */
+	public JSLProperties getJobProperties() {
+		return jobPropertiesShared ? jobProperties : CloneUtility.cloneJSLProperties(jobProperties);
+	}
+
+	/**
+	 * @return the step for a new partition sub-job.  The step itself is new (its attributes are
+	 * resolved in place), but its child elements are shared template elements, apart from
+	 * per-partition copies of any element still containing an expression.
+	 */
+	public Step createPartitionStep() {
+		Step newStep = jslFactory.createStep();
+
+		newStep.setId(templateStep.getId());
+		newStep.setAllowStartIfComplete(templateStep.getAllowStartIfComplete());
+		newStep.setStartLimit(templateStep.getStartLimit());
+		newStep.setProperties(overlay(templateStep.getProperties()));
+		newStep.setListeners(overlay(templateStep.getListeners()));
+
+		if (templateStep.getBatchlet() != null) {
+			newStep.setBatchlet(overlay(templateStep.getBatchlet()));
+		}
+		if (templateStep.getChunk() != null) {
+			newStep.setChunk(overlay(templateStep.getChunk()));
+		}
+		if (templateStep.getPartition() != null) {
+			newStep.setPartition(overlay(templateStep.getPartition()));
+		}
+
+		return newStep;
+	}
+
+	//
+	// Overlays:  return the shared template element if it holds no expression, else a per-partition copy
+	// (sharing any children that themselves hold no expression).
+	//
+
+	private JSLProperties overlay(JSLProperties props) {
+		return hasExpression(props) ? CloneUtility.cloneJSLProperties(props) : props;
+	}
+
+	private Listeners overlay(Listeners listeners) {
+		if (!hasExpression(listeners)) {
+			return listeners;
+		}
+		Listeners newListeners = jslFactory.createListeners();
+		for (Listener listener : listeners.getListenerList()) {
+			newListeners.getListenerList().add(hasExpression(listener) ? CloneUtility.cloneListener(listener) : listener);
+		}
+		return newListeners;
+	}
+
+	private Batchlet overlay(Batchlet batchlet) {
+		return hasExpression(batchlet) ? CloneUtility.cloneBatchlet(batchlet) : batchlet;
+	}
+
+	private Partition overlay(Partition partition) {
+		if (!hasExpression(partition.getCollector())) {
+			return partition;
+		}
+		Partition newPartition = jslFactory.createPartition();
+		newPartition.setPlan(partition.getPlan());
+		newPartition.setCollector(CloneUtility.cloneCollector(partition.getCollector()));
+		return newPartition;
+	}
+
+	private Chunk overlay(Chunk chunk) {
+		if (!hasExpression(chunk)) {
+			return chunk;
+		}
+
+		Chunk newChunk = jslFactory.createChunk();
+		newChunk.setItemCount(chunk.getItemCount());
+		newChunk.setRetryLimit(chunk.getRetryLimit());
+		newChunk.setSkipLimit(chunk.getSkipLimit());
+		newChunk.setTimeLimit(chunk.getTimeLimit());
+		newChunk.setCheckpointPolicy(chunk.getCheckpointPolicy());
+
+		ItemReader reader = chunk.getReader();
+		newChunk.setReader(hasExpression(reader.getRef(), reader.getProperties()) ? CloneUtility.cloneItemReader(reader) : reader);
+
+		ItemProcessor processor = chunk.getProcessor();
+		if (processor != null) {
+			newChunk.setProcessor(hasExpression(processor.getRef(), processor.getProperties()) ? CloneUtility.cloneItemProcessor(processor) : processor);
+		}
+
+		ItemWriter writer = chunk.getWriter();
+		newChunk.setWriter(hasExpression(writer.getRef(), writer.getProperties()) ? CloneUtility.cloneItemWriter(writer) : writer);
+
+		CheckpointAlgorithm algorithm = chunk.getCheckpointAlgorithm();
+		if (algorithm != null) {
+			newChunk.setCheckpointAlgorithm(hasExpression(algorithm.getRef(), algorithm.getProperties()) ? CloneUtility.cloneCheckpointAlorithm(algorithm) : algorithm);
+		}
+
+		newChunk.setSkippableExceptionClasses(overlay(chunk.getSkippableExceptionClasses()));
+		newChunk.setRetryableExceptionClasses(overlay(chunk.getRetryableExceptionClasses()));
+		newChunk.setNoRollbackExceptionClasses(overlay(chunk.getNoRollbackExceptionClasses()));
+
+		return newChunk;
+	}
+
+	private ExceptionClassFilter overlay(ExceptionClassFilter filter) {
+		return hasExpression(filter) ? CloneUtility.cloneExceptionClassFilter(filter) : filter;
+	}
+
+	//
+	// Expression detection
+	//
+
+	private static boolean hasExpression(String value) {
+		return value != null && value.indexOf(EXPRESSION_START) >= 0;
+	}
+
+	private static boolean hasExpression(JSLProperties props) {
+		if (props == null) {
+			return false;
+		}
+		if (hasExpression(props.getPartition())) {
+			return true;
+		}
+		for (Property prop : props.getPropertyList()) {
+			if (hasExpression(prop.getName()) || hasExpression(prop.getValue())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasExpression(String ref, JSLProperties props) {
+		return hasExpression(ref) || hasExpression(props);
+	}
+
+	private static boolean hasExpression(Listener listener) {
+		return hasExpression(listener.getRef(), listener.getProperties());
+	}
+
+	private static boolean hasExpression(Listeners listeners) {
+		if (listeners == null) {
+			return false;
+		}
+		for (Listener listener : listeners.getListenerList()) {
+			if (hasExpression(listener)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasExpression(Batchlet batchlet) {
+		return hasExpression(batchlet.getRef(), batchlet.getProperties());
+	}
+
+	private static boolean hasExpression(Collector collector) {
+		return collector != null && hasExpression(collector.getRef(), collector.getProperties());
+	}
+
+	private static boolean hasExpression(ExceptionClassFilter filter) {
+		if (filter == null) {
+			return false;
+		}
+		List<ExceptionClassFilter.Include> includes = filter.getIncludeList();
+		for (ExceptionClassFilter.Include include : includes) {
+			if (hasExpression(include.getClazz())) {
+				return true;
+			}
+		}
+		List<ExceptionClassFilter.Exclude> excludes = filter.getExcludeList();
+		for (ExceptionClassFilter.Exclude exclude : excludes) {
+			if (hasExpression(exclude.getClazz())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasExpression(Chunk chunk) {
+		if (hasExpression(chunk.getItemCount()) || hasExpression(chunk.getRetryLimit()) || hasExpression(chunk.getSkipLimit())
+				|| hasExpression(chunk.getTimeLimit()) || hasExpression(chunk.getCheckpointPolicy())) {
+			return true;
+		}
+		if (hasExpression(chunk.getReader().getRef(), chunk.getReader().getProperties())
+				|| hasExpression(chunk.getWriter().getRef(), chunk.getWriter().getProperties())) {
+			return true;
+		}
+		if (chunk.getProcessor() != null && hasExpression(chunk.getProcessor().getRef(), chunk.getProcessor().getProperties())) {
+			return true;
+		}
+		if (chunk.getCheckpointAlgorithm() != null && hasExpression(chunk.getCheckpointAlgorithm().getRef(), chunk.getCheckpointAlgorithm().getProperties())) {
+			return true;
+		}
+		return hasExpression(chunk.getSkippableExceptionClasses()) || hasExpression(chunk.getRetryableExceptionClasses())
+				|| hasExpression(chunk.getNoRollbackExceptionClasses());
+	}
+}
@@ -322,9 +322,10 @@ public class RetryHandler {
 
 	  /**
 	   * Check the retryable exception lists to determine whether
-	   * the given Exception is retryable.
+	   * the given Exception is retryable.  This neither counts a retry
+	   * nor checks the retry limit.
 	   */
-	  private boolean isRetryable(Exception e)
+	  public boolean isRetryable(Exception e)
 	  {
 	    final String mName = "isRetryable";
 
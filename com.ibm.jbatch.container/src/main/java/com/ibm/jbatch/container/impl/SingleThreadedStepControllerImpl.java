@@ -19,6 +19,7 @@ package com.ibm.jbatch.container.impl;
 import java.io.Serializable;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
@@ -112,7 +113,9 @@ public abstract class SingleThreadedStepControllerImpl extends BaseStepControlle
 	protected void invokeCollectorIfPresent() {
 		if (collectorProxy != null) {
 			Serializable data = collectorProxy.collectPartitionData();
-			logger.finer("Got partition data: " + data + ", from collector: " + collectorProxy);
+			if (logger.isLoggable(Level.FINER)) {
+				logger.finer("Got partition data: " + data + ", from collector: " + collectorProxy);
+			}
 			sendCollectorDataToAnalyzerIfPresent(data);
 		} 
 	}
@@ -120,7 +123,9 @@ public abstract class SingleThreadedStepControllerImpl extends BaseStepControlle
 	// Useless to have collector without analyzer but let's check so we don't hang or blow up.
 	protected void sendCollectorDataToAnalyzerIfPresent(Serializable data) {
 		if (analyzerStatusQueue != null) {
-			logger.finer("Sending collector partition data: " + data + " to analyzer queue: " + analyzerStatusQueue);
+			if (logger.isLoggable(Level.FINER)) {
+				logger.finer("Sending collector partition data: " + data + " to analyzer queue: " + analyzerStatusQueue);
+			}
 			PartitionDataWrapper dataWrapper = new PartitionDataWrapper();
 			dataWrapper.setCollectorData(data);
 			dataWrapper.setEventType(PartitionEventType.ANALYZE_COLLECTOR_DATA);
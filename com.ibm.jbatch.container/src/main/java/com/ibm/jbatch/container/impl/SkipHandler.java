@@ -266,6 +266,16 @@ public class SkipHandler {
 	  }
 
 
+	  /**
+	   * Check, without skipping anything, whether the given Exception could
+	   * currently be skipped, i.e. whether it is skippable and the skip limit
+	   * hasn't been reached yet.
+	   */
+	  public boolean isSkippableWithinLimit(Exception e)
+	  {
+	    return !isSkipLimitReached() && isSkippable(e);
+	  }
+
 	  /**
 	   * Check the skipCount and skippable exception lists to determine whether
 	   * the given Exception is skippable.
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.jbatch.container.exception.BatchContainerRuntimeException;
+import com.ibm.jbatch.container.util.TCCLObjectInputStream;
+
+/**
+ * The list of processed items handed to the writer, holding items in memory only up to a threshold
+ * of their estimated size.  Past it, each Serializable item is serialized to a temp file, and read
+ * back (as a new copy) whenever the list is read.  Items that aren't Serializable always stay in memory.
+ *
+ * The buffer is reused from chunk to chunk, so the writer mustn't hold on to the list past the
+ * chunk.  The temp file is created on the first spill, truncated by {@link #clear()}, and deleted
+ * by {@link #close()}.
+ */
+public class SpillableChunkBuffer extends AbstractList<Object> implements Closeable {
+
+	private final static String sourceClass = SpillableChunkBuffer.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	private final long spillThresholdBytes;
+
+	// In memory items, and SpilledItem placeholders for the others
+	private final List<Object> items = new ArrayList<Object>();
+	private long bytesInMemory = 0;
+	private int spilledCount = 0;
+
+	private FileChannel spillChannel = null;
+	private long spillPosition = 0;
+
+	/**
+	 * @param spillThresholdBytes the estimated size of the items held in memory past which further items are spilled
+	 */
+	public SpillableChunkBuffer(long spillThresholdBytes) {
+		this.spillThresholdBytes = spillThresholdBytes;
+	}
+
+	/**
+	 * Adds an item, spilling it if the items in memory would pass the threshold.
+	 */
+	public void add(Object item, long estimatedSize) {
+		if (bytesInMemory + estimatedSize > spillThresholdBytes && item instanceof Serializable) {
+			items.add(spill(item));
+			spilledCount++;
+		} else {
+			items.add(item);
+			bytesInMemory += estimatedSize;
+		}
+	}
+
+	@Override
+	public boolean add(Object item) {
+		add(item, 0);
+		return true;
+	}
+
+	@Override
+	public Object get(int index) {
+		Object item = items.get(index);
+		if (item instanceof SpilledItem) {
+			return readBack((SpilledItem) item);
+		}
+		return item;
+	}
+
+	@Override
+	public int size() {
+		return items.size();
+	}
+
+	/**
+	 * @return the number of items currently held in the temp file
+	 */
+	public int getSpilledCount() {
+		return spilledCount;
+	}
+
+	@Override
+	public void clear() {
+		items.clear();
+		bytesInMemory = 0;
+		spilledCount = 0;
+		spillPosition = 0;
+		if (spillChannel != null) {
+			try {
+				spillChannel.truncate(0);
+			} catch (IOException e) {
+				throw new BatchContainerRuntimeException("Failed to truncate the chunk spill file", e);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		items.clear();
+		if (spillChannel != null) {
+			try {
+				spillChannel.close();	// deletes the file
+			} catch (IOException e) {
+				logger.warning("Failed to close the chunk spill file: " + e);
+			}
+			spillChannel = null;
+		}
+	}
+
+	private SpilledItem spill(Object item) {
+		try {
+			if (spillChannel == null) {
+				Path spillFile = Files.createTempFile("jbatch-chunk", ".spill");
+				spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+						StandardOpenOption.DELETE_ON_CLOSE);
+				if (logger.isLoggable(Level.FINE)) {
+					logger.fine("Spilling chunk items past " + spillThresholdBytes + " bytes to " + spillFile);
+				}
+			}
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(baos);
+			oos.writeObject(item);
+			oos.close();
+
+			ByteBuffer buffer = ByteBuffer.wrap(baos.toByteArray());
+			SpilledItem spilled = new SpilledItem(spillPosition, buffer.remaining());
+			while (buffer.hasRemaining()) {
+				spillPosition += spillChannel.write(buffer, spillPosition);
+			}
+			return spilled;
+		} catch (IOException e) {
+			throw new BatchContainerRuntimeException("Failed to spill a chunk item to disk", e);
+		}
+	}
+
+	private Object readBack(SpilledItem spilled) {
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate(spilled.length);
+			while (buffer.hasRemaining()) {
+				if (spillChannel.read(buffer, spilled.position + buffer.position()) < 0) {
+					throw new IOException("Unexpected end of the chunk spill file");
+				}
+			}
+			TCCLObjectInputStream ois = new TCCLObjectInputStream(new ByteArrayInputStream(buffer.array()));
+			try {
+				return ois.readObject();
+			} finally {
+				ois.close();
+			}
+		} catch (IOException e) {
+			throw new BatchContainerRuntimeException("Failed to read a chunk item back from disk", e);
+		} catch (ClassNotFoundException e) {
+			throw new BatchContainerRuntimeException("Failed to read a chunk item back from disk", e);
+		}
+	}
+
+	private static class SpilledItem {
+		private final long position;
+		private final int length;
+
+		SpilledItem(long position, int length) {
+			this.position = position;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.jfr;
+
+import com.ibm.jbatch.container.jfr.FlightRecorderEventType.Field;
+import com.ibm.jbatch.container.jfr.FlightRecorderEventType.FieldType;
+
+/**
+ * The Flight Recorder events of the container's hot paths.  The field values are passed to 
+ * {@link FlightRecorderEventType#commit(Object, Object...)} in the order listed here.
+ */
+public final class BatchEvents {
+
+	private static final String CATEGORY = "JBatch";
+
+	private BatchEvents() {}
+
+	/**
+	 * A chunk's transaction, from the beginning of the checkpoint to its commit, or rollback.
+	 */
+	public static final FlightRecorderEventType CHUNK_COMMIT = FlightRecorderEventType.define("com.ibm.jbatch.ChunkCommit", 
+			"Chunk Commit", "A chunk, read through to committed or rolled back", CATEGORY,
+			new Field("executionId", "Job Execution Id", FieldType.COUNT),
+			new Field("stepName", "Step Name", FieldType.TEXT),
+			new Field("items", "Items", FieldType.COUNT),
+			new Field("bytes", "Estimated Size", FieldType.BYTES),
+			new Field("rollback", "Rolled Back", FieldType.FLAG));
+
+	/**
+	 * The writes of a checkpoint's reader and writer restart tokens.
+	 */
+	public static final FlightRecorderEventType CHECKPOINT_PERSIST = FlightRecorderEventType.define("com.ibm.jbatch.CheckpointPersist", 
+			"Checkpoint Persist", "Writing a checkpoint's restart tokens to the job repository", CATEGORY,
+			new Field("executionId", "Job Execution Id", FieldType.COUNT),
+			new Field("stepName", "Step Name", FieldType.TEXT),
+			new Field("readerTokenSize", "Reader Token Size", FieldType.BYTES),
+			new Field("writerTokenSize", "Writer Token Size", FieldType.BYTES),
+			new Field("groupCommit", "Group Commit", FieldType.FLAG));
+
+	/**
+	 * Handing a partition to the kernel to start, or restart.
+	 */
+	public static final FlightRecorderEventType PARTITION_DISPATCH = FlightRecorderEventType.define("com.ibm.jbatch.PartitionDispatch", 
+			"Partition Dispatch", "Submitting a partition of a step", CATEGORY,
+			new Field("executionId", "Job Execution Id", FieldType.COUNT),
+			new Field("stepName", "Step Name", FieldType.TEXT),
+			new Field("partition", "Partition", FieldType.COUNT),
+			new Field("restart", "Restart", FieldType.FLAG));
+
+	/**
+	 * A partition, from its dispatch until the step sees it has ended.
+	 */
+	public static final FlightRecorderEventType PARTITION_COMPLETE = FlightRecorderEventType.define("com.ibm.jbatch.PartitionComplete", 
+			"Partition Complete", "A partition of a step, dispatched through to ended", CATEGORY,
+			new Field("executionId", "Job Execution Id", FieldType.COUNT),
+			new Field("stepName", "Step Name", FieldType.TEXT),
+			new Field("partition", "Partition", FieldType.COUNT),
+			new Field("batchStatus", "Batch Status", FieldType.TEXT),
+			new Field("exitStatus", "Exit Status", FieldType.TEXT));
+
+	/**
+	 * A job start or restart, from the request until the job is running, its beforeJob listeners called.
+	 */
+	public static final FlightRecorderEventType JOB_START = FlightRecorderEventType.define("com.ibm.jbatch.JobStart", 
+			"Job Start", "A job start or restart, requested through to running", CATEGORY,
+			new Field("executionId", "Job Execution Id", FieldType.COUNT),
+			new Field("jobName", "Job Name", FieldType.TEXT),
+			new Field("restart", "Restart", FieldType.FLAG),
+			new Field("resolveTime", "Model Resolution Time", FieldType.TIMESPAN),
+			new Field("persistTime", "Persistence Time", FieldType.TIMESPAN),
+			new Field("queueTime", "Queued Time", FieldType.TIMESPAN),
+			new Field("beforeJobTime", "Job Startup Time", FieldType.TIMESPAN));
+
+	/**
+	 * A statement run against the job repository.  For a query, the time includes fetching its rows.
+	 */
+	public static final FlightRecorderEventType PERSISTENCE_QUERY = FlightRecorderEventType.define("com.ibm.jbatch.PersistenceQuery", 
+			"Persistence Query", "A statement run against the job repository", CATEGORY,
+			new Field("statement", "Statement", FieldType.TEXT),
+			new Field("rows", "Rows", FieldType.COUNT));
+
+	/**
+	 * The time marks of a job start, carried along with the job from the request to its thread, 
+	 * to be committed as a {@link #JOB_START} event.
+	 */
+	public static final class JobStartTiming {
+		private final Object event;
+		private final boolean restart;
+		private final long requested;
+		private long resolved;
+		private long persisted;
+		private long submitted;
+
+		private JobStartTiming(Object event, boolean restart, long requested) {
+			this.event = event;
+			this.restart = restart;
+			this.requested = requested;
+		}
+
+		/**
+		 * @return the timing of a job start being requested now, or null if the event isn't being recorded
+		 */
+		public static JobStartTiming begin(boolean restart) {
+			Object event = JOB_START.begin();
+			return (event == null) ? null : new JobStartTiming(event, restart, System.nanoTime());
+		}
+
+		public void resolved() {
+			resolved = System.nanoTime();
+		}
+
+		public void persisted() {
+			persisted = System.nanoTime();
+		}
+
+		public void submitted() {
+			submitted = System.nanoTime();
+		}
+
+		/**
+		 * @param runningSince when the job's thread began running it
+		 */
+		public void commit(long executionId, String jobName, long runningSince) {
+			JOB_START.commit(event, executionId, jobName, restart, resolved - requested, persisted - resolved, 
+					runningSince - submitted, System.nanoTime() - runningSince);
+		}
+	}
+}
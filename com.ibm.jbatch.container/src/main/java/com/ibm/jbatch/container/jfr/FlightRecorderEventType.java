@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.jfr;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A JDK Flight Recorder event type, defined at runtime through jdk.jfr.EventFactory.
+ * 
+ * Everything in jdk.jfr is reached reflectively, so the container neither needs it to compile nor to run:
+ * on a JVM without Flight Recorder the event type is simply never enabled.  When no recording has 
+ * the event enabled, {@link #begin()} returns null without creating an event, so the cost on the hot 
+ * paths is one check. 
+ */
+public final class FlightRecorderEventType {
+
+	private final static String sourceClass = FlightRecorderEventType.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	public enum FieldType { TEXT, COUNT, FLAG, BYTES, TIMESPAN }
+
+	public static final class Field {
+		private final String name;
+		private final String label;
+		private final FieldType type;
+
+		public Field(String name, String label, FieldType type) {
+			this.name = name;
+			this.label = label;
+			this.type = type;
+		}
+	}
+
+	private static final Object[] NO_ARGS = new Object[0];
+
+	private final String name;
+	private final Object factory;
+	private final Object eventType;
+
+	private static Method newEvent;
+	private static Method isEnabled;
+	private static Method beginEvent;
+	private static Method setField;
+	private static Method commitEvent;
+
+	private FlightRecorderEventType(String name, Object factory, Object eventType) {
+		this.name = name;
+		this.factory = factory;
+		this.eventType = eventType;
+	}
+
+	/**
+	 * Defines and registers an event type with Flight Recorder, if the JVM has it.
+	 * 
+	 * @param fields the event's fields, in the order their values are passed to {@link #commit(Object, Object...)}
+	 */
+	public static FlightRecorderEventType define(String name, String label, String description, String category, Field... fields) {
+		Object factory = null;
+		Object eventType = null;
+		try {
+			Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+			Constructor<?> newAnnotation = annotationElementClass.getConstructor(Class.class, Object.class);
+			Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+			Constructor<?> newValueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+			Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+			Class<?> eventClass = Class.forName("jdk.jfr.Event");
+
+			List<Object> annotations = new ArrayList<Object>();
+			annotations.add(newAnnotation.newInstance(annotationType("jdk.jfr.Name"), name));
+			annotations.add(newAnnotation.newInstance(annotationType("jdk.jfr.Label"), label));
+			annotations.add(newAnnotation.newInstance(annotationType("jdk.jfr.Description"), description));
+			annotations.add(newAnnotation.newInstance(annotationType("jdk.jfr.Category"), new String[] { category }));
+			// The events are emitted per chunk, partition or statement; stack traces would cost more than they tell.
+			annotations.add(newAnnotation.newInstance(annotationType("jdk.jfr.StackTrace"), Boolean.FALSE));
+
+			List<Object> valueDescriptors = new ArrayList<Object>();
+			for (Field field : fields) {
+				List<Object> fieldAnnotations = new ArrayList<Object>();
+				fieldAnnotations.add(newAnnotation.newInstance(annotationType("jdk.jfr.Label"), field.label));
+				Class<?> type;
+				switch (field.type) {
+				case TEXT:
+					type = String.class;
+					break;
+				case FLAG:
+					type = boolean.class;
+					break;
+				case BYTES:
+					type = long.class;
+					fieldAnnotations.add(newAnnotation.newInstance(annotationType("jdk.jfr.DataAmount"), "BYTES"));
+					break;
+				case TIMESPAN:
+					type = long.class;
+					fieldAnnotations.add(newAnnotation.newInstance(annotationType("jdk.jfr.Timespan"), "NANOSECONDS"));
+					break;
+				default:
+					type = long.class;
+				}
+				valueDescriptors.add(newValueDescriptor.newInstance(type, field.name, fieldAnnotations));
+			}
+
+			factory = eventFactoryClass.getMethod("create", List.class, List.class).invoke(null, annotations, valueDescriptors);
+			eventType = eventFactoryClass.getMethod("getEventType").invoke(factory);
+
+			synchronized (FlightRecorderEventType.class) {
+				if (newEvent == null) {
+					isEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+					beginEvent = eventClass.getMethod("begin");
+					setField = eventClass.getMethod("set", int.class, Object.class);
+					commitEvent = eventClass.getMethod("commit");
+					newEvent = eventFactoryClass.getMethod("newEvent");
+				}
+			}
+		} catch (ClassNotFoundException e) {
+			if (logger.isLoggable(Level.FINE)) {
+				logger.fine("No Flight Recorder in this JVM, event " + name + " will not be recorded");
+			}
+			factory = null;
+			eventType = null;
+		} catch (Exception e) {
+			logger.log(Level.WARNING, "Failed to define Flight Recorder event " + name + ", it will not be recorded", e);
+			factory = null;
+			eventType = null;
+		}
+		return new FlightRecorderEventType(name, factory, eventType);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Annotation> annotationType(String className) throws ClassNotFoundException {
+		return (Class<? extends Annotation>) Class.forName(className);
+	}
+
+	/**
+	 * @return true if a recording currently has this event enabled
+	 */
+	public boolean isEnabled() {
+		if (eventType == null) {
+			return false;
+		}
+		try {
+			return (Boolean) isEnabled.invoke(eventType, NO_ARGS);
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Starts timing an event.
+	 * 
+	 * @return the event, to be passed to {@link #commit(Object, Object...)}, or null if it isn't being recorded
+	 */
+	public Object begin() {
+		if (!isEnabled()) {
+			return null;
+		}
+		try {
+			Object event = newEvent.invoke(factory, NO_ARGS);
+			beginEvent.invoke(event, NO_ARGS);
+			return event;
+		} catch (Exception e) {
+			logger.log(Level.FINE, "Failed to begin Flight Recorder event " + name, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Ends the event begun by {@link #begin()} and writes it with the given field values.
+	 * Does nothing if the event is null, i.e. wasn't being recorded when begun, though callers
+	 * on hot paths should check for that themselves, to save boxing the values.
+	 */
+	public void commit(Object event, Object... values) {
+		if (event == null) {
+			return;
+		}
+		try {
+			for (int i = 0; i < values.length; i++) {
+				setField.invoke(event, i, values[i]);
+			}
+			commitEvent.invoke(event, NO_ARGS);
+		} catch (Exception e) {
+			logger.log(Level.FINE, "Failed to commit Flight Recorder event " + name, e);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+}
@@ -16,6 +16,8 @@
  */
 package com.ibm.jbatch.container.jobinstance;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -29,6 +31,8 @@ import jakarta.batch.runtime.BatchStatus;
 import jakarta.batch.runtime.JobInstance;
 
 import com.ibm.jbatch.container.context.impl.JobContextImpl;
+import com.ibm.jbatch.container.jfr.BatchEvents.JobStartTiming;
+import com.ibm.jbatch.container.jsl.ModelResolver;
 import com.ibm.jbatch.container.jsl.ModelResolverFactory;
 import com.ibm.jbatch.container.modelresolver.PropertyResolver;
 import com.ibm.jbatch.container.modelresolver.PropertyResolverFactory;
@@ -84,11 +88,6 @@ public class JobExecutionHelper {
 		return new JobContextImpl(jobNavigator, jslProperties); 
 	}
 
-	private static JobInstance getNewJobInstance(String name, String jobXml) {
-		String apptag = _batchKernelService.getBatchSecurityHelper().getCurrentTag();
-		return _persistenceManagementService.createJobInstance(name, apptag, jobXml);
-	}
-
 	private static JobInstance getNewSubJobInstance(String name) {
 		String apptag = _batchKernelService.getBatchSecurityHelper().getCurrentTag();
 		return _persistenceManagementService.createSubJobInstance(name, apptag);
@@ -110,28 +109,78 @@ public class JobExecutionHelper {
 
 	public static RuntimeJobExecution startJob(String jobXML, Properties jobParameters) throws JobStartException {
 		logger.entering(CLASSNAME, "startJob", new Object[]{jobXML, jobParameters==null ? "<null>" : jobParameters});
+		JobStartTiming startTiming = JobStartTiming.begin(false);
 
 		JSLJob jobModel = ModelResolverFactory.createJobResolver().resolveModel(jobXML); 
 
 		ModelNavigator<JSLJob> jobNavigator = getResolvedJobNavigator(jobModel, jobParameters, false);
 
 		JobContextImpl jobContext = getJobContext(jobNavigator);
+		if (startTiming != null) {
+			startTiming.resolved();
+		}
 
-		JobInstance jobInstance = getNewJobInstance(jobNavigator.getRootModelElement().getId(), jobXML);
-
+		// The instance, execution and status are all created in one go, the execution marked started later, by the job thread.
+		String apptag = _batchKernelService.getBatchSecurityHelper().getCurrentTag();
 		RuntimeJobExecution executionHelper = 
-				_persistenceManagementService.createJobExecution(jobInstance, jobParameters, jobContext.getBatchStatus());
+				_persistenceManagementService.startJobUnit(jobNavigator.getRootModelElement().getId(), apptag, jobXML, jobParameters);
 
 		executionHelper.prepareForExecution(jobContext);
-
-		JobStatus jobStatus = createNewJobStatus(jobInstance);
-		_jobStatusManagerService.updateJobStatus(jobStatus);
+		if (startTiming != null) {
+			startTiming.persisted();
+			executionHelper.setStartTiming(startTiming);
+		}
 
 		logger.exiting(CLASSNAME, "startJob", executionHelper);
 
 		return executionHelper;
 	}
 
+	/**
+	 * Starts one instance of the job per set of job parameters, with all the instances persisted together.
+	 * 
+	 * Each instance needs a model of its own, since the job parameters are substituted into it, 
+	 * but the job xml is only loaded once.
+	 */
+	public static List<RuntimeJobExecution> startJobs(String jobXML, List<Properties> jobParametersList) throws JobStartException {
+		logger.entering(CLASSNAME, "startJobs", new Object[]{jobXML, jobParametersList.size()});
+		JobStartTiming[] startTimings = new JobStartTiming[jobParametersList.size()];
+		for (int i = 0; i < startTimings.length; i++) {
+			startTimings[i] = JobStartTiming.begin(false);
+		}
+
+		ModelResolver<JSLJob> jobResolver = ModelResolverFactory.createJobResolver();
+		JSLJob firstJobModel = jobResolver.resolveModel(jobXML);
+		String jobName = firstJobModel.getId();
+
+		List<JobContextImpl> jobContexts = new ArrayList<JobContextImpl>(jobParametersList.size());
+		for (Properties jobParameters : jobParametersList) {
+			JSLJob jobModel = jobContexts.isEmpty() ? firstJobModel : jobResolver.resolveModel(jobXML);
+			jobContexts.add(getJobContext(getResolvedJobNavigator(jobModel, jobParameters, false)));
+		}
+		for (JobStartTiming startTiming : startTimings) {
+			if (startTiming != null) {
+				startTiming.resolved();
+			}
+		}
+
+		String apptag = _batchKernelService.getBatchSecurityHelper().getCurrentTag();
+		List<RuntimeJobExecution> executionHelpers = 
+				_persistenceManagementService.startJobUnits(jobName, apptag, jobXML, jobParametersList);
+
+		for (int i = 0; i < executionHelpers.size(); i++) {
+			executionHelpers.get(i).prepareForExecution(jobContexts.get(i));
+			if (startTimings[i] != null) {
+				startTimings[i].persisted();
+				executionHelpers.get(i).setStartTiming(startTimings[i]);
+			}
+		}
+
+		logger.exiting(CLASSNAME, "startJobs", executionHelpers.size());
+
+		return executionHelpers;
+	}
+
 	public static RuntimeFlowInSplitExecution startFlowInSplit(JSLJob jobModel) throws JobStartException{
 		logger.entering(CLASSNAME, "startFlowInSplit", jobModel);
 
@@ -152,24 +201,41 @@ public class JobExecutionHelper {
 		return executionHelper;
 	}
 	
-	public static RuntimeJobExecution startPartition(JSLJob jobModel, Properties jobParameters) throws JobStartException{
-		logger.entering(CLASSNAME, "startPartition", new Object[]{jobModel, jobParameters ==null ? "<null>" :jobParameters});
-
-		ModelNavigator<JSLJob> jobNavigator = getResolvedJobNavigator(jobModel, jobParameters, true);
-		JobContextImpl jobContext = getJobContext(jobNavigator);
-		
-		JobInstance jobInstance = getNewSubJobInstance(jobNavigator.getRootModelElement().getId());
-
-		RuntimeJobExecution executionHelper = 
-				_persistenceManagementService.createJobExecution(jobInstance, jobParameters, jobContext.getBatchStatus());
+	/**
+	 * Resolves each partition sub-job and creates the persistent entries for all of them at once,
+	 * in a single transaction, rather than creating the entries partition by partition.
+	 * 
+	 * @param jobModels the generated partition sub-jobs
+	 * @param partitionPropertiesArray the partition plan properties, indexed by partition (may be null)
+	 * @return the prepared execution for each partition, in the order of jobModels
+	 */
+	public static List<RuntimeJobExecution> startPartitions(List<JSLJob> jobModels, Properties[] partitionPropertiesArray) throws JobStartException{
+		logger.entering(CLASSNAME, "startPartitions", new Object[]{jobModels.size(), partitionPropertiesArray == null ? "<null>" : partitionPropertiesArray.length});
+
+		List<JobContextImpl> jobContexts = new ArrayList<JobContextImpl>(jobModels.size());
+		List<String> subJobNames = new ArrayList<String>(jobModels.size());
+		List<Properties> partitionParameters = new ArrayList<Properties>(jobModels.size());
+
+		for (int i = 0; i < jobModels.size(); i++) {
+			Properties jobParameters = (partitionPropertiesArray == null) ? null : partitionPropertiesArray[i];
+			ModelNavigator<JSLJob> jobNavigator = getResolvedJobNavigator(jobModels.get(i), jobParameters, true);
+			jobContexts.add(getJobContext(jobNavigator));
+			subJobNames.add(jobNavigator.getRootModelElement().getId());
+			partitionParameters.add(jobParameters);
+		}
 
-		executionHelper.prepareForExecution(jobContext);
+		String apptag = _batchKernelService.getBatchSecurityHelper().getCurrentTag();
+		// Every new partition's JobContext starts out with the same (STARTING) status.
+		BatchStatus batchStatus = jobContexts.isEmpty() ? BatchStatus.STARTING : jobContexts.get(0).getBatchStatus();
+		List<RuntimeJobExecution> executionHelpers = 
+				_persistenceManagementService.createPartitionSubJobExecutions(subJobNames, apptag, partitionParameters, batchStatus);
 
-		JobStatus jobStatus = createNewJobStatus(jobInstance);
-		_jobStatusManagerService.updateJobStatus(jobStatus);
+		for (int i = 0; i < executionHelpers.size(); i++) {
+			executionHelpers.get(i).prepareForExecution(jobContexts.get(i));
+		}
 
-		logger.exiting(CLASSNAME, "startPartition", executionHelper);
-		return executionHelper;
+		logger.exiting(CLASSNAME, "startPartitions", executionHelpers);
+		return executionHelpers;
 	}
 	
 	public static RuntimeJobExecution restartJob(long executionId, JSLJob gennedJobModel) throws JobRestartException, JobExecutionAlreadyCompleteException, JobExecutionNotMostRecentException, NoSuchJobExecutionException {
@@ -210,6 +276,21 @@ public class JobExecutionHelper {
 		return restartExecution(execId, gennedJobModel, partitionProps, true, false);	
 	}
 
+	/**
+	 * Prepares to run, in this process, a partition execution already created in the job repository 
+	 * by a partitioned step running elsewhere.
+	 * 
+	 * @param resolvedJobModel the partition sub-job, with its properties already resolved by the step
+	 */
+	public static RuntimeJobExecution attachPartition(long executionId, long instanceId, JSLJob resolvedJobModel, String restartOn) {
+		JobStatus jobStatus = _jobStatusManagerService.getJobStatus(instanceId);
+		JobContextImpl jobContext = getJobContext(NavigatorFactory.createJobNavigator(resolvedJobModel));
+
+		RuntimeJobExecution executionHelper = new RuntimeJobExecution(jobStatus.getJobInstance(), executionId);
+		executionHelper.prepareForExecution(jobContext, restartOn);
+		return executionHelper;
+	}
+
 	public static RuntimeFlowInSplitExecution restartFlowInSplit(long execId, JSLJob gennedJobModel) throws JobRestartException, 
 	JobExecutionAlreadyCompleteException, JobExecutionNotMostRecentException, NoSuchJobExecutionException {
 		
@@ -246,6 +327,8 @@ public class JobExecutionHelper {
 	private static RuntimeJobExecution restartExecution(long executionId, JSLJob gennedJobModel, Properties restartJobParameters, boolean parallelExecution, boolean flowInSplit) throws JobRestartException, 
 	JobExecutionAlreadyCompleteException, JobExecutionNotMostRecentException, NoSuchJobExecutionException {
 
+		JobStartTiming startTiming = (parallelExecution || flowInSplit) ? null : JobStartTiming.begin(true);
+
 		long jobInstanceId = _persistenceManagementService.getJobInstanceIdByExecutionId(executionId);
 
 		JobStatus jobStatus = _jobStatusManagerService.getJobStatus(jobInstanceId);
@@ -273,6 +356,9 @@ public class JobExecutionHelper {
 		validateRestartableFalseJobsDoNotRestart(jobNavigator.getRootModelElement());
 
 		JobContextImpl jobContext = getJobContext(jobNavigator);
+		if (startTiming != null) {
+			startTiming.resolved();
+		}
 		
 		RuntimeJobExecution executionHelper;
 		if (flowInSplit) {
@@ -282,6 +368,10 @@ public class JobExecutionHelper {
 		}
 		executionHelper.prepareForExecution(jobContext, jobStatus.getRestartOn());
 		_jobStatusManagerService.updateJobStatusWithNewExecution(jobInstance.getInstanceId(), executionHelper.getExecutionId());        
+		if (startTiming != null) {
+			startTiming.persisted();
+			executionHelper.setStartTiming(startTiming);
+		}
 
 		return executionHelper;
 	}    
@@ -25,6 +25,7 @@ import jakarta.batch.runtime.JobInstance;
 
 import com.ibm.jbatch.container.artifact.proxy.ListenerFactory;
 import com.ibm.jbatch.container.context.impl.JobContextImpl;
+import com.ibm.jbatch.container.jfr.BatchEvents.JobStartTiming;
 import com.ibm.jbatch.container.navigator.ModelNavigator;
 import com.ibm.jbatch.container.services.IJobExecution;
 import com.ibm.jbatch.jsl.model.JSLJob;
@@ -39,6 +40,8 @@ public class RuntimeJobExecution {
 	private ListenerFactory listenerFactory;
 	private IJobExecution operatorJobExecution = null;
 	private Integer partitionInstance = null;
+	// Only set while a recording has the JobStart event enabled
+	private JobStartTiming startTiming = null;
 
 	public RuntimeJobExecution(JobInstance jobInstance, long executionId) {
 		this.jobInstance = jobInstance;
@@ -179,4 +182,12 @@ public class RuntimeJobExecution {
     public void setPartitionInstance(Integer partitionInstance) {
         this.partitionInstance = partitionInstance;
     }
+
+    public JobStartTiming getStartTiming() {
+        return startTiming;
+    }
+
+    public void setStartTiming(JobStartTiming startTiming) {
+        this.startTiming = startTiming;
+    }
 }
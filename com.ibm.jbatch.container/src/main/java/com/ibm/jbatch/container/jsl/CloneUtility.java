@@ -23,6 +23,7 @@ import java.util.Properties;
 import com.ibm.jbatch.jsl.model.Batchlet;
 import com.ibm.jbatch.jsl.model.CheckpointAlgorithm;
 import com.ibm.jbatch.jsl.model.Chunk;
+import com.ibm.jbatch.jsl.model.Collector;
 import com.ibm.jbatch.jsl.model.End;
 import com.ibm.jbatch.jsl.model.ExceptionClassFilter;
 import com.ibm.jbatch.jsl.model.Fail;
@@ -116,6 +117,26 @@ public class CloneUtility {
 
     }
 
+    public static Listener cloneListener(Listener listener) {
+    	Listener newListener = jslFactory.createListener();
+    	newListener.setRef(listener.getRef());
+    	newListener.setProperties(cloneJSLProperties(listener.getProperties()));
+
+    	return newListener;
+    }
+
+    public static Collector cloneCollector(Collector collector) {
+    	if (collector == null) {
+    		return null;
+    	}
+
+    	Collector newCollector = jslFactory.createCollector();
+    	newCollector.setRef(collector.getRef());
+    	newCollector.setProperties(cloneJSLProperties(collector.getProperties()));
+
+    	return newCollector;
+    }
+
     public static Listeners cloneListeners(Listeners listeners) {
     	if (listeners == null) {
     		return null;
@@ -124,10 +145,7 @@ public class CloneUtility {
     	Listeners newListeners = jslFactory.createListeners();
 
     	for(Listener listener : listeners.getListenerList()) {
-    		Listener newListener = jslFactory.createListener();
-    		newListeners.getListenerList().add(newListener);
-    		newListener.setRef(listener.getRef());
-    		newListener.setProperties(cloneJSLProperties(listener.getProperties()));
+    		newListeners.getListenerList().add(cloneListener(listener));
     	}
 
     	return newListeners;
@@ -153,7 +171,7 @@ public class CloneUtility {
     	return newChunk;
     }
 
-    private static CheckpointAlgorithm cloneCheckpointAlorithm(CheckpointAlgorithm checkpointAlgorithm){
+    public static CheckpointAlgorithm cloneCheckpointAlorithm(CheckpointAlgorithm checkpointAlgorithm){
         if (checkpointAlgorithm == null) {
             return null;
         }
@@ -166,7 +184,7 @@ public class CloneUtility {
 
     }
 
-    private static ItemProcessor cloneItemProcessor(ItemProcessor itemProcessor) {
+    public static ItemProcessor cloneItemProcessor(ItemProcessor itemProcessor) {
         if (itemProcessor == null) {
             return null;
         }
@@ -178,7 +196,7 @@ public class CloneUtility {
         return newItemProcessor;
     }
 
-    private static ItemReader cloneItemReader(ItemReader itemReader) {
+    public static ItemReader cloneItemReader(ItemReader itemReader) {
         if (itemReader == null) {
             return null;
         }
@@ -190,7 +208,7 @@ public class CloneUtility {
         return newItemReader;
     }
 
-    private static ItemWriter cloneItemWriter(ItemWriter itemWriter) {
+    public static ItemWriter cloneItemWriter(ItemWriter itemWriter) {
         ItemWriter newItemWriter = jslFactory.createItemWriter();
         newItemWriter.setRef(itemWriter.getRef());
         newItemWriter.setProperties(cloneJSLProperties(itemWriter.getProperties()));
@@ -198,7 +216,7 @@ public class CloneUtility {
         return newItemWriter;
     }
 
-    private static ExceptionClassFilter cloneExceptionClassFilter(ExceptionClassFilter exceptionClassFilter) {
+    public static ExceptionClassFilter cloneExceptionClassFilter(ExceptionClassFilter exceptionClassFilter) {
 
         if (exceptionClassFilter == null) {
             return null;
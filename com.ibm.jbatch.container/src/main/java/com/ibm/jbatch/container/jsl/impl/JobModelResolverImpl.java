@@ -44,16 +44,26 @@ import com.ibm.jbatch.jsl.util.JSLValidationEventHandler;
 
 public class JobModelResolverImpl implements ModelResolver<JSLJob> {
     
+    // Expensive to create, but thread-safe, so created once (unlike the Unmarshallers it creates)
+    private static volatile JAXBContext jaxbContext = null;
+
     public JobModelResolverImpl() {
         super();
     }    
     
+    private static JAXBContext getJAXBContext() throws JAXBException {
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance("com.ibm.jbatch.jsl.model");
+        }
+        return jaxbContext;
+    }
+
     private JSLJob unmarshalJobXML(String jobXML) {
         Object result = null;
         JSLJob job = null;
         JSLValidationEventHandler handler = new JSLValidationEventHandler();
         try {
-            JAXBContext ctx = JAXBContext.newInstance("com.ibm.jbatch.jsl.model");
+            JAXBContext ctx = getJAXBContext();
             Unmarshaller u = ctx.createUnmarshaller();
             u.setSchema(ValidatorHelper.getXJCLSchema());
 
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.partition;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import jakarta.batch.runtime.BatchStatus;
+
+import com.ibm.jbatch.container.jobinstance.JobExecutionHelper;
+import com.ibm.jbatch.container.jobinstance.RuntimeJobExecution;
+import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
+import com.ibm.jbatch.container.util.BatchPartitionWorkUnit;
+import com.ibm.jbatch.container.util.PartitionDataWrapper;
+import com.ibm.jbatch.container.util.PartitionDataWrapper.PartitionEventType;
+import com.ibm.jbatch.container.util.PartitionsBuilderConfig;
+import com.ibm.jbatch.jsl.model.JSLJob;
+
+/**
+ * Stands in for the analyzer queue of a partition run away from its partitioned step, handing what 
+ * the partition's step puts on it to be sent back to the partitioned step as it is put.
+ */
+abstract class AnalyzerForwardingQueue extends LinkedBlockingQueue<PartitionDataWrapper> {
+
+	private static final long serialVersionUID = 1L;
+
+	abstract void collectorData(Serializable data);
+
+	abstract void analyzerStatus(BatchStatus batchStatus, String exitStatus);
+
+	@Override
+	public boolean offer(PartitionDataWrapper dataWrapper) {
+		if (PartitionEventType.ANALYZE_COLLECTOR_DATA.equals(dataWrapper.getEventType())) {
+			collectorData(dataWrapper.getCollectorData());
+		} else {
+			analyzerStatus(dataWrapper.getBatchstatus(), dataWrapper.getExitStatus());
+		}
+		return true;
+	}
+
+	@Override
+	public void put(PartitionDataWrapper dataWrapper) {
+		offer(dataWrapper);
+	}
+
+	/**
+	 * Attaches to the execution of the requested partition, created in the job repository by its
+	 * step, and creates the work unit to run it, sending back through this queue if the step has 
+	 * an analyzer.
+	 */
+	BatchPartitionWorkUnit createWorkUnit(PartitionRequest request) {
+		long executionId = request.getExecutionId();
+		JSLJob jobModel = request.getJobModel();
+		RuntimeJobExecution execution = JobExecutionHelper.attachPartition(executionId, request.getInstanceId(), 
+				jobModel, request.getRestartOn());
+		execution.setPartitionInstance(request.getPartition());
+
+		PartitionsBuilderConfig config = new PartitionsBuilderConfig(Collections.singletonList(jobModel), 
+				new Properties[] { request.getPartitionProperties() }, request.isAnalyzed() ? this : null, null, executionId);
+		return new BatchPartitionWorkUnit(ServicesManagerImpl.getInstance().getBatchKernelService(), execution, config);
+	}
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.partition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.jbatch.container.exception.BatchContainerRuntimeException;
+import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
+import com.ibm.jbatch.container.util.TCCLObjectInputStream;
+import com.ibm.jbatch.spi.BatchSPIManager;
+
+/**
+ * A {@link PartitionTransport} running the partitions in worker JVMs forked from this one, with the 
+ * same class path and com.ibm.jbatch system properties, each running one partition at a time.
+ * A worker is forked when a partition is dispatched and none is idle, so there are at most as many
+ * as the plan's threads, and they are reused for the step's later partitions until the step ends.
+ * 
+ * The workers connect back over a loopback socket, proving themselves with a random token handed to 
+ * them on standard input.  As the workers run the partitions against the same job repository, it
+ * must be one they can share: the transport refuses to open on an embedded Derby database, which 
+ * only one process can open.
+ */
+public class ForkedJvmPartitionTransport implements PartitionTransport {
+
+	private final static String sourceClass = ForkedJvmPartitionTransport.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	/**
+	 * Step property giving additional options for the worker JVMs, separated by whitespace, e.g. a heap size.
+	 */
+	public static final String JVM_OPTIONS_PROP = "com.ibm.jbatch.container.partitionTransport.jvmOptions";
+
+	/**
+	 * Step property giving how long, in milliseconds, a newly forked worker has to connect back.
+	 */
+	public static final String CONNECT_TIMEOUT_PROP = "com.ibm.jbatch.container.partitionTransport.connectTimeoutMillis";
+
+	static final int DEFAULT_CONNECT_TIMEOUT = 60000;
+
+	// How long to give the workers to end once closed
+	private static final long CLOSE_TIMEOUT_MILLIS = 30000;
+
+	private static final String SYSTEM_PROPERTY_PREFIX = "com.ibm.jbatch.";
+
+	private ServerSocket serverSocket;
+	private String token;
+	private final List<String> jvmOptions = new ArrayList<String>();
+	private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+	// Guarded by this
+	private final List<Worker> workers = new ArrayList<Worker>();
+	private final Set<Long> stopRequested = new HashSet<Long>();
+	private boolean closed = false;
+
+	@Override
+	public void open(Properties stepProperties) throws IOException {
+		checkRepositoryShareable();
+
+		String options = stepProperties.getProperty(JVM_OPTIONS_PROP);
+		if (options != null) {
+			for (String option : options.trim().split("\\s+")) {
+				if (!option.isEmpty()) {
+					jvmOptions.add(option);
+				}
+			}
+		}
+		String timeout = stepProperties.getProperty(CONNECT_TIMEOUT_PROP);
+		if (timeout != null) {
+			connectTimeout = Integer.parseInt(timeout.trim());
+		}
+
+		byte[] tokenBytes = new byte[16];
+		new SecureRandom().nextBytes(tokenBytes);
+		StringBuilder tokenBuilder = new StringBuilder();
+		for (byte b : tokenBytes) {
+			tokenBuilder.append(String.format("%02x", b));
+		}
+		token = tokenBuilder.toString();
+
+		serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Listening for partition workers on port " + serverSocket.getLocalPort());
+		}
+	}
+
+	@Override
+	public void dispatch(PartitionRequest request, PartitionCallback callback) throws IOException {
+		Worker worker = null;
+		synchronized (this) {
+			for (Worker idle : workers) {
+				if (idle.callback == null) {
+					worker = idle;
+					break;
+				}
+			}
+		}
+		if (worker == null) {
+			worker = startWorker();
+		}
+
+		long executionId = request.getExecutionId();
+		boolean stop;
+		synchronized (this) {
+			worker.executionId = executionId;
+			worker.callback = callback;
+			stop = stopRequested.remove(executionId);
+		}
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Dispatching " + request + " to worker " + worker);
+		}
+		// If these fail, the worker's connection is dropped, and its reader reports the partition lost
+		worker.send(PartitionMessage.run(request));
+		if (stop) {
+			worker.send(new PartitionMessage(PartitionMessage.Type.STOP, executionId));
+		}
+	}
+
+	@Override
+	public void stop(long executionId) {
+		Worker running = null;
+		synchronized (this) {
+			for (Worker worker : workers) {
+				if (worker.callback != null && worker.executionId == executionId) {
+					running = worker;
+					break;
+				}
+			}
+			if (running == null) {
+				stopRequested.add(executionId);
+			}
+		}
+		if (running != null) {
+			running.send(new PartitionMessage(PartitionMessage.Type.STOP, executionId));
+		}
+	}
+
+	@Override
+	public void close() {
+		List<Worker> closing;
+		synchronized (this) {
+			closed = true;
+			closing = new ArrayList<Worker>(workers);
+		}
+		for (Worker worker : closing) {
+			worker.send(new PartitionMessage(PartitionMessage.Type.CLOSE, -1));
+		}
+		for (Worker worker : closing) {
+			worker.awaitEnd();
+		}
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			logger.fine("Ignoring exception closing server socket: " + e);
+		}
+	}
+
+	/**
+	 * Fails if the worker JVMs could not open this one's job repository.
+	 */
+	protected void checkRepositoryShareable() {
+		if (!ServicesManagerImpl.getInstance().getPersistenceManagerService().isRepositoryShareable()) {
+			throw new BatchContainerRuntimeException("The partitions can't run in forked JVMs, as the job repository is an embedded "
+					+ "Derby database, which only this JVM can open.  Configure a job repository the JVMs can share, such as a "
+					+ "Derby network server (a jdbc:derby://host:port/... JDBC_URL) or another database server.");
+		}
+	}
+
+	/**
+	 * Forks a worker JVM, to connect to the given port on the loopback address.
+	 * 
+	 * @return the worker process, or null if the worker is not a process of its own
+	 */
+	protected Process launchWorker(int port, String token) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(jvmOptions);
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (name.startsWith(SYSTEM_PROPERTY_PREFIX)) {
+				command.add("-D" + name + "=" + System.getProperty(name));
+			}
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(PartitionWorker.class.getName());
+		command.add(String.valueOf(port));
+
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		Process process = builder.start();
+
+		// On standard input rather than the command line, where other users could see it
+		OutputStream stdin = process.getOutputStream();
+		stdin.write((token + "\n").getBytes("UTF-8"));
+		stdin.close();
+		return process;
+	}
+
+	private Worker startWorker() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("Transport already closed");
+			}
+		}
+		Process process = launchWorker(serverSocket.getLocalPort(), token);
+		Socket socket = null;
+		try {
+			socket = acceptWorker();
+			Worker worker = new Worker(socket, process);
+			synchronized (this) {
+				workers.add(worker);
+			}
+			worker.start();
+			return worker;
+		} catch (IOException e) {
+			if (process != null) {
+				process.destroy();
+			}
+			if (socket != null) {
+				socket.close();
+			}
+			throw e;
+		}
+	}
+
+	private Socket acceptWorker() throws IOException {
+		long deadline = System.currentTimeMillis() + connectTimeout;
+		while (true) {
+			int remaining = (int) (deadline - System.currentTimeMillis());
+			if (remaining <= 0) {
+				throw new SocketTimeoutException("No partition worker connected within " + connectTimeout + " ms");
+			}
+			serverSocket.setSoTimeout(remaining);
+			Socket socket = serverSocket.accept();
+			try {
+				socket.setSoTimeout(remaining);
+				String presented = new DataInputStream(socket.getInputStream()).readUTF();
+				if (token.equals(presented)) {
+					socket.setSoTimeout(0);
+					return socket;
+				}
+				logger.warning("Rejecting a connection with the wrong token from " + socket.getRemoteSocketAddress());
+			} catch (IOException e) {
+				logger.warning("Rejecting a connection from " + socket.getRemoteSocketAddress() + ": " + e);
+			}
+			socket.close();
+		}
+	}
+
+	/**
+	 * A connected worker, whose reader thread hands what it sends back to the callback of the 
+	 * partition it is running.
+	 */
+	private class Worker implements Runnable {
+
+		private final Socket socket;
+		private final Process process;
+		private final ObjectOutputStream out;
+		private final ObjectInputStream in;
+		private final Thread reader;
+
+		// Guarded by the transport; the callback is null while the worker is idle
+		private long executionId = -1;
+		private PartitionCallback callback = null;
+
+		Worker(Socket socket, Process process) throws IOException {
+			this.socket = socket;
+			this.process = process;
+			out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			Properties overrides = new Properties();
+			overrides.putAll(BatchSPIManager.getInstance().getBatchContainerOverrideProperties());
+			out.writeObject(overrides);
+			out.flush();
+			in = new TCCLObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+			reader = new Thread(this, "PartitionWorkerReader-" + socket.getPort());
+			reader.setDaemon(true);
+		}
+
+		void start() {
+			reader.start();
+		}
+
+		void send(PartitionMessage message) {
+			synchronized (out) {
+				try {
+					out.writeObject(message);
+					out.reset();
+					out.flush();
+				} catch (IOException e) {
+					logger.warning("Could not send " + message + " to worker " + this + ", dropping it: " + e);
+					closeSocket();
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					PartitionMessage message = (PartitionMessage) in.readObject();
+					if (logger.isLoggable(Level.FINER)) {
+						logger.finer("Received " + message + " from worker " + this);
+					}
+					PartitionCallback partitionCallback;
+					long runningExecutionId;
+					synchronized (ForkedJvmPartitionTransport.this) {
+						partitionCallback = callback;
+						runningExecutionId = executionId;
+						if (message.type == PartitionMessage.Type.FINISHED || message.type == PartitionMessage.Type.NOT_RUN) {
+							// Idle again before the step hears of it, so the step's next partition can reuse it
+							callback = null;
+						}
+					}
+					if (partitionCallback == null || message.executionId != runningExecutionId) {
+						throw new IllegalStateException("Unexpected " + message + " from worker " + this);
+					}
+					switch (message.type) {
+					case COLLECTOR_DATA:
+						partitionCallback.collectorData(message.collectorData);
+						break;
+					case ANALYZER_STATUS:
+						partitionCallback.analyzerStatus(message.batchStatus, message.exitStatus);
+						break;
+					case FINISHED:
+						partitionCallback.finished(message.batchStatus, message.exitStatus);
+						break;
+					case NOT_RUN:
+						partitionCallback.lost(new BatchContainerRuntimeException("The worker could not run the partition: " + message.reason));
+						break;
+					default:
+						throw new IllegalStateException("Unexpected " + message + " from worker " + this);
+					}
+				}
+			} catch (Exception e) {
+				PartitionCallback partitionCallback;
+				long lostExecutionId;
+				boolean closing;
+				synchronized (ForkedJvmPartitionTransport.this) {
+					workers.remove(this);
+					partitionCallback = callback;
+					lostExecutionId = executionId;
+					callback = null;
+					closing = closed;
+				}
+				closeSocket();
+				if (partitionCallback != null) {
+					logger.warning("Lost worker " + this + " running execution " + lostExecutionId + ": " + e);
+					partitionCallback.lost(e);
+				} else if (!closing) {
+					logger.warning("Lost idle worker " + this + ": " + e);
+				}
+			}
+		}
+
+		void awaitEnd() {
+			try {
+				reader.join(CLOSE_TIMEOUT_MILLIS);
+				if (process != null && !process.waitFor(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+					logger.warning("Worker " + this + " did not end when closed, destroying it");
+					process.destroyForcibly();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				closeSocket();
+			}
+		}
+
+		private void closeSocket() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				logger.fine("Ignoring exception closing worker socket: " + e);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "port " + socket.getPort();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.partition;
+
+import java.io.Serializable;
+
+import jakarta.batch.runtime.BatchStatus;
+
+/**
+ * Receives what a dispatched partition sends back to its partitioned step.  Either 
+ * {@link #finished(BatchStatus, String)} or {@link #lost(Exception)} is called once for each 
+ * partition, after anything else.
+ */
+public interface PartitionCallback {
+
+	/**
+	 * The partition's collector sent the data for the step's analyzer.
+	 */
+	public void collectorData(Serializable data);
+
+	/**
+	 * The partition's step ended with the given status, for the step's analyzer.
+	 */
+	public void analyzerStatus(BatchStatus batchStatus, String exitStatus);
+
+	/**
+	 * The partition ended with the given status, already recorded in the job repository.
+	 */
+	public void finished(BatchStatus batchStatus, String exitStatus);
+
+	/**
+	 * The partition could not be run to its end, e.g. since the process running it was lost, so its
+	 * end status is not known or recorded.
+	 */
+	public void lost(Exception cause);
+}
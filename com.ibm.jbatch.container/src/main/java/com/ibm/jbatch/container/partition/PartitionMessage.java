@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.partition;
+
+import java.io.Serializable;
+
+import jakarta.batch.runtime.BatchStatus;
+
+/**
+ * The messages exchanged with a {@link PartitionWorker} by a {@link ForkedJvmPartitionTransport}.
+ */
+class PartitionMessage implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	enum Type {
+		// To the worker
+		RUN, STOP, CLOSE,
+		// From the worker
+		COLLECTOR_DATA, ANALYZER_STATUS, FINISHED, NOT_RUN
+	}
+
+	final Type type;
+	final long executionId;
+	PartitionRequest request;
+	Serializable collectorData;
+	BatchStatus batchStatus;
+	String exitStatus;
+	// Why the partition could not be run, for NOT_RUN
+	String reason;
+
+	PartitionMessage(Type type, long executionId) {
+		this.type = type;
+		this.executionId = executionId;
+	}
+
+	static PartitionMessage run(PartitionRequest request) {
+		PartitionMessage message = new PartitionMessage(Type.RUN, request.getExecutionId());
+		message.request = request;
+		return message;
+	}
+
+	static PartitionMessage collectorData(long executionId, Serializable data) {
+		PartitionMessage message = new PartitionMessage(Type.COLLECTOR_DATA, executionId);
+		message.collectorData = data;
+		return message;
+	}
+
+	static PartitionMessage status(Type type, long executionId, BatchStatus batchStatus, String exitStatus) {
+		PartitionMessage message = new PartitionMessage(type, executionId);
+		message.batchStatus = batchStatus;
+		message.exitStatus = exitStatus;
+		return message;
+	}
+
+	static PartitionMessage notRun(long executionId, String reason) {
+		PartitionMessage message = new PartitionMessage(Type.NOT_RUN, executionId);
+		message.reason = reason;
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return type + "[executionId=" + executionId + "]";
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.partition;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.batch.runtime.BatchStatus;
+
+import com.ibm.jbatch.container.context.impl.JobContextImpl;
+import com.ibm.jbatch.container.persistence.PartitionQueueEntry;
+import com.ibm.jbatch.container.persistence.PartitionQueueEvent;
+import com.ibm.jbatch.container.services.IPersistenceManagerService;
+import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
+import com.ibm.jbatch.container.util.BatchPartitionWorkUnit;
+
+/**
+ * Takes part in running the partitions queued in the job repository by a 
+ * {@link RepositoryQueuePartitionTransport}, whichever container's step queued them.  Each of its
+ * threads claims a partition, runs it, and claims the next, polling the queue while it is empty.
+ * A separate thread renews the leases of the partitions being run, at a third of the lease time, 
+ * stopping any whose step asked for it to stop, or whose claim was lost (e.g. the lease expired 
+ * during a long pause, and another container claimed it).
+ */
+public class PartitionQueueWorker {
+
+	private final static String sourceClass = PartitionQueueWorker.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	private final String owner;
+	private final int threads;
+	private final long leaseMillis;
+	private final long pollMillis;
+
+	// A stale claim may still be running alongside a later claim of the same entry, so these are not keyed by entry
+	private final Set<ClaimedPartition> running = Collections.newSetFromMap(new ConcurrentHashMap<ClaimedPartition, Boolean>());
+	private final AtomicInteger partitionsRun = new AtomicInteger();
+	private volatile boolean stopped = false;
+
+	// Guarded by this
+	private final List<Thread> claimers = new ArrayList<Thread>();
+	private ScheduledExecutorService leaseRenewer = null;
+
+	/**
+	 * @param owner names this container in the queue, so must not be used by any other
+	 * @param threads how many partitions to run at once
+	 * @param leaseMillis how long each claim holds without being renewed
+	 * @param pollMillis how long to wait between polls of the queue while it is empty
+	 */
+	public PartitionQueueWorker(String owner, int threads, long leaseMillis, long pollMillis) {
+		this.owner = owner;
+		this.threads = threads;
+		this.leaseMillis = leaseMillis;
+		this.pollMillis = pollMillis;
+	}
+
+	/**
+	 * Starts claiming partitions, on threads using the current thread's context class loader to load
+	 * the partitions' artifacts.
+	 */
+	public synchronized void start() {
+		stopped = false;
+		for (int i = 0; i < threads; i++) {
+			Thread claimer = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					claimAndRun();
+				}
+			}, "jbatch-partition-queue-worker-" + owner + "-" + i);
+			claimer.setDaemon(true);
+			claimer.start();
+			claimers.add(claimer);
+		}
+
+		leaseRenewer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "jbatch-partition-queue-leases-" + owner);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		long renewMillis = Math.max(1, leaseMillis / 3);
+		leaseRenewer.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				renewLeases();
+			}
+		}, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+		logger.config("Partition queue worker " + owner + " started, with " + threads + " threads, lease (ms): " + leaseMillis);
+	}
+
+	/**
+	 * Stops claiming partitions, and stops those running, waiting for them to end.  They end as 
+	 * STOPPED, for their steps to be restarted.
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		for (ClaimedPartition partition : running) {
+			partition.stop();
+		}
+		for (Thread claimer : claimers) {
+			try {
+				claimer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		claimers.clear();
+		if (leaseRenewer != null) {
+			leaseRenewer.shutdownNow();
+			leaseRenewer = null;
+		}
+	}
+
+	/**
+	 * @return the number of partitions this worker ran to their end (whatever their status)
+	 */
+	public int getPartitionsRun() {
+		return partitionsRun.get();
+	}
+
+	private void claimAndRun() {
+		IPersistenceManagerService persistenceService = ServicesManagerImpl.getInstance().getPersistenceManagerService();
+		while (!stopped) {
+			PartitionQueueEntry entry = null;
+			try {
+				entry = persistenceService.claimPartition(owner, leaseMillis);
+			} catch (RuntimeException e) {
+				logger.warning("Could not claim a partition from the queue: " + e);
+			}
+			if (entry != null) {
+				runClaimed(persistenceService, entry);
+			} else {
+				try {
+					Thread.sleep(pollMillis);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	private void runClaimed(final IPersistenceManagerService persistenceService, PartitionQueueEntry entry) {
+		final ClaimedPartition partition = new ClaimedPartition(entry.getQueueId(), entry.getClaimVersion());
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine(owner + " claimed " + entry);
+		}
+
+		BatchPartitionWorkUnit workUnit;
+		try {
+			PartitionRequest request = (PartitionRequest) RepositoryQueuePartitionTransport.deserialize(entry.getRequest());
+			workUnit = new AnalyzerForwardingQueue() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				void collectorData(Serializable data) {
+					try {
+						record(persistenceService, partition, PartitionQueueEvent.collectorData(RepositoryQueuePartitionTransport.serialize(data)));
+					} catch (IOException e) {
+						logger.log(Level.WARNING, "Could not send the collector data of " + partition, e);
+					}
+				}
+
+				@Override
+				void analyzerStatus(BatchStatus batchStatus, String exitStatus) {
+					record(persistenceService, partition, PartitionQueueEvent.status(PartitionQueueEvent.ANALYZER_STATUS, name(batchStatus), exitStatus));
+				}
+			}.createWorkUnit(request);
+		} catch (Throwable t) {
+			logger.log(Level.WARNING, "Could not run the partition of " + entry, t);
+			record(persistenceService, partition, PartitionQueueEvent.status(PartitionQueueEvent.NOT_RUN, null, t.toString()));
+			return;
+		}
+
+		partition.workUnit = workUnit;
+		running.add(partition);
+		if (entry.isStopRequested() || stopped) {
+			partition.stop();
+		}
+		try {
+			workUnit.run();
+		} catch (RuntimeException e) {
+			// Already logged, and the failure recorded, by the work unit
+		} finally {
+			running.remove(partition);
+		}
+
+		JobContextImpl jobContext = workUnit.getJobExecutionImpl().getJobContext();
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine(owner + " ran " + entry + " to batchStatus = " + jobContext.getBatchStatus() + ", exitStatus = " + jobContext.getExitStatus());
+		}
+		record(persistenceService, partition, PartitionQueueEvent.status(PartitionQueueEvent.END, name(jobContext.getBatchStatus()), jobContext.getExitStatus()));
+		partitionsRun.incrementAndGet();
+	}
+
+	private void record(IPersistenceManagerService persistenceService, ClaimedPartition partition, PartitionQueueEvent event) {
+		try {
+			if (!persistenceService.addPartitionEvent(partition.queueId, owner, partition.claimVersion, leaseMillis, event)) {
+				claimLost(partition);
+			}
+		} catch (RuntimeException e) {
+			logger.warning("Could not send " + event + " of " + partition + ": " + e);
+		}
+	}
+
+	private void renewLeases() {
+		IPersistenceManagerService persistenceService = ServicesManagerImpl.getInstance().getPersistenceManagerService();
+		for (ClaimedPartition partition : running) {
+			try {
+				if (!persistenceService.renewPartitionLease(partition.queueId, owner, partition.claimVersion, leaseMillis)) {
+					claimLost(partition);
+				} else if (persistenceService.isPartitionStopRequested(partition.queueId)) {
+					partition.stop();
+				}
+			} catch (RuntimeException e) {
+				// The lease may yet be renewed in time next round
+				logger.warning("Could not renew the lease on " + partition + ": " + e);
+			}
+		}
+	}
+
+	private void claimLost(ClaimedPartition partition) {
+		if (running.contains(partition)) {
+			logger.warning(owner + " no longer holds " + partition + ", stopping it");
+			partition.stop();
+		}
+	}
+
+	private static String name(BatchStatus batchStatus) {
+		return (batchStatus == null) ? null : batchStatus.name();
+	}
+
+	private static class ClaimedPartition {
+		private final long queueId;
+		private final int claimVersion;
+		// Set before the partition is running
+		private BatchPartitionWorkUnit workUnit;
+		private boolean stopping = false;
+
+		ClaimedPartition(long queueId, int claimVersion) {
+			this.queueId = queueId;
+			this.claimVersion = claimVersion;
+		}
+
+		synchronized void stop() {
+			if (!stopping) {
+				stopping = true;
+				workUnit.getController().stop();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "the claim on partition queue entry " + queueId + " (version " + claimVersion + ")";
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.partition;
+
+import java.io.Serializable;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+
+import com.ibm.jbatch.container.exception.BatchContainerRuntimeException;
+import com.ibm.jbatch.jsl.model.JSLJob;
+
+/**
+ * What a {@link PartitionTransport} ships to run one partition: the partition sub-job, with its 
+ * properties already resolved, and the execution of it created in the job repository by the step.
+ */
+public class PartitionRequest implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final QName JOB_ELEMENT = new QName("https://jakarta.ee/xml/ns/jakartaee", "job");
+
+	// Expensive to create, but thread-safe, so created once
+	private static volatile JAXBContext jaxbContext = null;
+
+	private final String stepName;
+	private final int partition;
+	private final long executionId;
+	private final long instanceId;
+	private final String jobXml;
+	private final Properties partitionProperties;
+	private final String restartOn;
+	private final boolean analyzed;
+
+	public PartitionRequest(String stepName, int partition, long executionId, long instanceId, JSLJob jobModel, 
+			Properties partitionProperties, String restartOn, boolean analyzed) {
+		this.stepName = stepName;
+		this.partition = partition;
+		this.executionId = executionId;
+		this.instanceId = instanceId;
+		this.jobXml = marshal(jobModel);
+		this.partitionProperties = partitionProperties;
+		this.restartOn = restartOn;
+		this.analyzed = analyzed;
+	}
+
+	/**
+	 * @return the name of the partitioned step
+	 */
+	public String getStepName() {
+		return stepName;
+	}
+
+	/**
+	 * @return the partition's number in the plan
+	 */
+	public int getPartition() {
+		return partition;
+	}
+
+	/**
+	 * @return the id of the partition sub-job's execution to run
+	 */
+	public long getExecutionId() {
+		return executionId;
+	}
+
+	public long getInstanceId() {
+		return instanceId;
+	}
+
+	/**
+	 * @return the resolved partition sub-job
+	 */
+	public JSLJob getJobModel() {
+		try {
+			return getJAXBContext().createUnmarshaller().unmarshal(new StreamSource(new StringReader(jobXml)), JSLJob.class).getValue();
+		} catch (JAXBException e) {
+			throw new BatchContainerRuntimeException("Exception unmarshalling partition sub-job", e);
+		}
+	}
+
+	/**
+	 * @return the partition's properties from the plan (may be null)
+	 */
+	public Properties getPartitionProperties() {
+		return partitionProperties;
+	}
+
+	public String getRestartOn() {
+		return restartOn;
+	}
+
+	/**
+	 * @return whether the step has an analyzer, to send the partition's collector data and status to
+	 */
+	public boolean isAnalyzed() {
+		return analyzed;
+	}
+
+	/*
+	 * Not validated against the schema, as it would be by the usual model serializer and resolver, 
+	 * since the ids given to generated sub-jobs are not valid ones.
+	 */
+	private static String marshal(JSLJob jobModel) {
+		try {
+			StringWriter writer = new StringWriter();
+			getJAXBContext().createMarshaller().marshal(new JAXBElement<JSLJob>(JOB_ELEMENT, JSLJob.class, jobModel), writer);
+			return writer.toString();
+		} catch (JAXBException e) {
+			throw new BatchContainerRuntimeException("Exception marshalling partition sub-job " + jobModel.getId(), e);
+		}
+	}
+
+	private static JAXBContext getJAXBContext() throws JAXBException {
+		if (jaxbContext == null) {
+			jaxbContext = JAXBContext.newInstance("com.ibm.jbatch.jsl.model");
+		}
+		return jaxbContext;
+	}
+
+	@Override
+	public String toString() {
+		return "PartitionRequest[step=" + stepName + ", partition=" + partition + ", executionId=" + executionId + "]";
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.partition;
+
+import java.util.Properties;
+
+/**
+ * Runs the partitions of a partitioned step somewhere other than the threads of the process running
+ * the step, e.g. in worker processes.  A transport is named by the
+ * {@value #PARTITION_TRANSPORT_PROP} step property, and one instance is created for each execution
+ * of the partitioned step, used from the step's thread except for {@link #stop(long)}.
+ * 
+ * The partitions' executions are created in the job repository by the step as usual, before they
+ * are dispatched, and wherever a partition runs it must use that same repository, where it
+ * records its status, checkpoints and metrics.  This is what lets the step aggregate the partitions'
+ * metrics and a restart pick up the partitions that did not complete, however they ended.
+ */
+public interface PartitionTransport {
+
+	/**
+	 * Step property naming the {@link PartitionTransport} class the step's partitions are dispatched 
+	 * through.  If not set, the partitions run on threads of the current process.
+	 */
+	public static final String PARTITION_TRANSPORT_PROP = "com.ibm.jbatch.container.partitionTransport";
+
+	/**
+	 * @param stepProperties the partitioned step's properties, for any settings of the transport
+	 */
+	public void open(Properties stepProperties) throws Exception;
+
+	/**
+	 * Starts the partition running, returning without waiting for it to end.  The callback is given
+	 * the partition's collector data and analyzer status as they are sent, and must finally be given 
+	 * either its end status, or, if it could not be run to the end, the reason why.
+	 */
+	public void dispatch(PartitionRequest request, PartitionCallback callback) throws Exception;
+
+	/**
+	 * Stops the partition running the given execution, or that will run it if it has not been dispatched yet.
+	 */
+	public void stop(long executionId);
+
+	/**
+	 * Called when the step is done with its partitions, to release whatever the transport holds.
+	 */
+	public void close();
+}
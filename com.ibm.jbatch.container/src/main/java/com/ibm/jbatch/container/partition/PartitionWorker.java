@@ -0,0 +1,244 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.partition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.batch.runtime.BatchStatus;
+
+import com.ibm.jbatch.container.context.impl.JobContextImpl;
+import com.ibm.jbatch.container.util.BatchPartitionWorkUnit;
+import com.ibm.jbatch.container.util.TCCLObjectInputStream;
+import com.ibm.jbatch.spi.BatchSPIManager;
+
+/**
+ * The worker process of a {@link ForkedJvmPartitionTransport}.  It connects back to the transport,
+ * proving itself with the token the transport gave it, takes the container configuration
+ * overrides of the process running the step, and then runs the partitions it is sent, one at a time,
+ * against the same job repository, streaming back each one's collector data and status until 
+ * it is told to close.
+ */
+public class PartitionWorker {
+
+	private final static String sourceClass = PartitionWorker.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	private final Socket socket;
+	private ObjectOutputStream out;
+	private final Object sendLock = new Object();
+
+	// Guarded by this
+	private BatchPartitionWorkUnit running = null;
+	private final Set<Long> stopRequested = new HashSet<Long>();
+
+	// Only used by the thread reading the messages
+	private Thread runner = null;
+
+	private PartitionWorker(Socket socket) {
+		this.socket = socket;
+	}
+
+	/**
+	 * Runs a forked worker, reading the token from standard input.
+	 * 
+	 * @param args the loopback port the transport listens on
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 1) {
+			System.err.println("Usage: " + PartitionWorker.class.getName() + " <port>, with the token on standard input");
+			System.exit(2);
+		}
+		String token = new BufferedReader(new InputStreamReader(System.in, "UTF-8")).readLine();
+		run(Integer.parseInt(args[0]), token);
+		// Don't wait on any threads the container's services left running
+		System.exit(0);
+	}
+
+	/**
+	 * Connects to the transport listening on the given loopback port and runs the partitions it
+	 * sends, returning once it is told to close or the connection is lost.
+	 */
+	public static void run(int port, String token) throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		try {
+			new PartitionWorker(socket).serve(token);
+		} finally {
+			socket.close();
+		}
+	}
+
+	private void serve(String token) throws IOException {
+		DataOutputStream tokenOut = new DataOutputStream(socket.getOutputStream());
+		tokenOut.writeUTF(token);
+		tokenOut.flush();
+
+		out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		out.flush();
+		ObjectInputStream in = new TCCLObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+
+		try {
+			Properties overrides = (Properties) in.readObject();
+			BatchSPIManager.getInstance().registerBatchContainerOverrideProperties(overrides);
+
+			while (true) {
+				PartitionMessage message = (PartitionMessage) in.readObject();
+				if (logger.isLoggable(Level.FINE)) {
+					logger.fine("Received " + message);
+				}
+				switch (message.type) {
+				case RUN:
+					start(message.request);
+					break;
+				case STOP:
+					stop(message.executionId);
+					break;
+				case CLOSE:
+					return;
+				default:
+					throw new IllegalStateException("Unexpected message: " + message);
+				}
+			}
+		} catch (EOFException e) {
+			logger.warning("Lost the connection to the partitioned step, ending");
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			stopAndWait();
+		}
+	}
+
+	private void start(final PartitionRequest request) throws InterruptedException {
+		synchronized (this) {
+			if (running != null) {
+				throw new IllegalStateException("Sent " + request + " while still running a partition");
+			}
+		}
+		if (runner != null) {
+			// Only sent once the last partition ended, so this is just its thread finishing up
+			runner.join();
+		}
+		runner = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runPartition(request);
+			}
+		}, "PartitionWorker-" + request.getExecutionId());
+		runner.start();
+	}
+
+	private synchronized void stop(long executionId) {
+		if (running != null && running.getJobExecutionImpl().getExecutionId() == executionId) {
+			running.getController().stop();
+		} else {
+			// Not started yet (or already ended)
+			stopRequested.add(executionId);
+		}
+	}
+
+	private void stopAndWait() {
+		synchronized (this) {
+			if (running != null) {
+				running.getController().stop();
+			}
+		}
+		if (runner != null) {
+			try {
+				runner.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void runPartition(PartitionRequest request) {
+		final long executionId = request.getExecutionId();
+		BatchPartitionWorkUnit workUnit;
+		try {
+			workUnit = new AnalyzerForwardingQueue() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				void collectorData(Serializable data) {
+					send(PartitionMessage.collectorData(executionId, data));
+				}
+
+				@Override
+				void analyzerStatus(BatchStatus batchStatus, String exitStatus) {
+					send(PartitionMessage.status(PartitionMessage.Type.ANALYZER_STATUS, executionId, batchStatus, exitStatus));
+				}
+			}.createWorkUnit(request);
+		} catch (Throwable t) {
+			logger.log(Level.WARNING, "Could not run " + request, t);
+			send(PartitionMessage.notRun(executionId, t.toString()));
+			return;
+		}
+
+		synchronized (this) {
+			running = workUnit;
+			if (stopRequested.remove(executionId)) {
+				workUnit.getController().stop();
+			}
+		}
+		try {
+			workUnit.run();
+		} catch (RuntimeException e) {
+			// Already logged, and the failure recorded, by the work unit
+		} finally {
+			synchronized (this) {
+				running = null;
+			}
+		}
+
+		JobContextImpl jobContext = workUnit.getJobExecutionImpl().getJobContext();
+		BatchStatus batchStatus = jobContext.getBatchStatus();
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Ran " + request + " to batchStatus = " + batchStatus + ", exitStatus = " + jobContext.getExitStatus());
+		}
+		send(PartitionMessage.status(PartitionMessage.Type.FINISHED, executionId, batchStatus, jobContext.getExitStatus()));
+	}
+
+	private void send(PartitionMessage message) {
+		synchronized (sendLock) {
+			try {
+				out.writeObject(message);
+				// Don't hold on to (or send back references to) what was sent before
+				out.reset();
+				out.flush();
+			} catch (IOException e) {
+				logger.warning("Could not send " + message + " to the partitioned step: " + e);
+			}
+		}
+	}
+}
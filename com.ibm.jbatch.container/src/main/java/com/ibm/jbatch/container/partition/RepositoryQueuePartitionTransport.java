@@ -0,0 +1,253 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.partition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.batch.runtime.BatchStatus;
+
+import com.ibm.jbatch.container.persistence.PartitionQueueEvent;
+import com.ibm.jbatch.container.services.IPersistenceManagerService;
+import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
+import com.ibm.jbatch.container.util.TCCLObjectInputStream;
+
+/**
+ * A {@link PartitionTransport} queueing the partitions in the job repository, for whichever of the 
+ * containers sharing it run a {@link PartitionQueueWorker} to claim and run, so at least one of them
+ * must.  A claim is a lease, which the claiming container keeps renewing while it runs the partition.
+ * When a container dies, the partitions it claimed are claimed again by others once their leases 
+ * expire, each such run resuming from the partition's last checkpoint, up to {@value #MAX_CLAIMS_PROP}
+ * claims in all.  After that, a partition whose lease expires again is taken as lost, and so FAILED.
+ *
+ * The partitions' collector data and statuses come back through the job repository too, polled for
+ * by a thread of the transport.
+ */
+public class RepositoryQueuePartitionTransport implements PartitionTransport {
+
+	private final static String sourceClass = RepositoryQueuePartitionTransport.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	/**
+	 * Step property giving how many times, at most, each partition may be claimed.
+	 */
+	public static final String MAX_CLAIMS_PROP = "com.ibm.jbatch.container.partitionTransport.maxClaims";
+
+	/**
+	 * Step property giving how long, in milliseconds, to wait between polls of the job repository
+	 * for the partitions' collector data and statuses, while there are none.
+	 */
+	public static final String POLL_MILLIS_PROP = "com.ibm.jbatch.container.partitionTransport.pollMillis";
+
+	static final int DEFAULT_MAX_CLAIMS = 3;
+	static final long DEFAULT_POLL_MILLIS = 500;
+
+	private IPersistenceManagerService persistenceService;
+	// Identifies this execution of the step's partitions in the queue
+	private final String coordinator = UUID.randomUUID().toString();
+	private int maxClaims = DEFAULT_MAX_CLAIMS;
+	private long pollMillis = DEFAULT_POLL_MILLIS;
+
+	// By partition execution id, until the partition ends or is lost
+	private final Map<Long, PartitionCallback> callbacks = new ConcurrentHashMap<Long, PartitionCallback>();
+
+	// Guarded by this
+	private Thread poller = null;
+	private boolean closed = false;
+
+	@Override
+	public void open(Properties stepProperties) {
+		String claims = stepProperties.getProperty(MAX_CLAIMS_PROP);
+		if (claims != null) {
+			maxClaims = Integer.parseInt(claims.trim());
+		}
+		String poll = stepProperties.getProperty(POLL_MILLIS_PROP);
+		if (poll != null) {
+			pollMillis = Long.parseLong(poll.trim());
+		}
+		persistenceService = ServicesManagerImpl.getInstance().getPersistenceManagerService();
+	}
+
+	@Override
+	public void dispatch(PartitionRequest request, PartitionCallback callback) throws IOException {
+		byte[] serializedRequest = serialize(request);
+		long executionId = request.getExecutionId();
+		callbacks.put(executionId, callback);
+		try {
+			long queueId = persistenceService.enqueuePartition(coordinator, executionId, maxClaims, serializedRequest);
+			if (logger.isLoggable(Level.FINE)) {
+				logger.fine("Queued " + request + " as entry " + queueId + " of " + coordinator);
+			}
+		} catch (RuntimeException e) {
+			callbacks.remove(executionId);
+			throw e;
+		}
+
+		synchronized (this) {
+			if (poller == null) {
+				// Created from the step's thread, so the collector data is read with the application's class loader
+				poller = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						poll();
+					}
+				}, "jbatch-partition-queue-" + coordinator);
+				poller.setDaemon(true);
+				poller.start();
+			}
+		}
+	}
+
+	@Override
+	public void stop(long executionId) {
+		try {
+			persistenceService.requestPartitionStop(coordinator, executionId);
+		} catch (RuntimeException e) {
+			logger.warning("Could not ask for partition execution " + executionId + " to stop: " + e);
+		}
+	}
+
+	@Override
+	public void close() {
+		Thread pollerToJoin;
+		synchronized (this) {
+			closed = true;
+			pollerToJoin = poller;
+			notifyAll();
+		}
+		if (pollerToJoin != null) {
+			try {
+				pollerToJoin.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		// Any partition still claimed (if the step ended early) loses its claim, so its container stops it
+		try {
+			persistenceService.deletePartitionQueueEntries(coordinator);
+		} catch (RuntimeException e) {
+			logger.warning("Could not remove the partitions of " + coordinator + " from the queue: " + e);
+		}
+	}
+
+	private void poll() {
+		while (true) {
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+			}
+
+			boolean delivered = false;
+			try {
+				for (PartitionQueueEvent event : persistenceService.takePartitionEvents(coordinator)) {
+					deliver(event);
+					delivered = true;
+				}
+				for (long executionId : persistenceService.abandonExpiredPartitions(coordinator)) {
+					PartitionCallback callback = callbacks.remove(executionId);
+					if (callback != null) {
+						callback.lost(new IllegalStateException("The lease on partition execution " + executionId 
+								+ " expired, after it was claimed " + maxClaims + " times"));
+					}
+				}
+			} catch (RuntimeException e) {
+				logger.warning("Could not poll the queue for the partitions of " + coordinator + ": " + e);
+			}
+
+			if (!delivered) {
+				synchronized (this) {
+					if (!closed) {
+						try {
+							wait(pollMillis);
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void deliver(PartitionQueueEvent event) {
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("Received " + event);
+		}
+		long executionId = event.getExecutionId();
+		PartitionCallback callback = callbacks.get(executionId);
+		if (callback == null) {
+			// Already taken as lost
+			return;
+		}
+		switch (event.getEventType()) {
+		case PartitionQueueEvent.COLLECTOR_DATA:
+			try {
+				callback.collectorData((Serializable) deserialize(event.getCollectorData()));
+			} catch (Exception e) {
+				logger.log(Level.WARNING, "Could not read the collector data of partition execution " + executionId, e);
+			}
+			break;
+		case PartitionQueueEvent.ANALYZER_STATUS:
+			callback.analyzerStatus(toBatchStatus(event.getBatchStatus()), event.getExitStatus());
+			break;
+		case PartitionQueueEvent.END:
+			callbacks.remove(executionId);
+			callback.finished(toBatchStatus(event.getBatchStatus()), event.getExitStatus());
+			break;
+		case PartitionQueueEvent.NOT_RUN:
+			callbacks.remove(executionId);
+			callback.lost(new IllegalStateException("Could not run partition execution " + executionId + ": " + event.getExitStatus()));
+			break;
+		default:
+			logger.warning("Unknown " + event);
+		}
+	}
+
+	private static BatchStatus toBatchStatus(String batchStatus) {
+		return (batchStatus == null) ? null : BatchStatus.valueOf(batchStatus);
+	}
+
+	static byte[] serialize(Serializable object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		if (bytes == null) {
+			return null;
+		}
+		ObjectInputStream in = new TCCLObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return in.readObject();
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -16,7 +16,19 @@
 */
 package com.ibm.jbatch.container.persistence;
 
+/**
+ * Identifies a step's reader or writer checkpoint by job instance and step name.  The step execution id
+ * would not do, as a restart runs the step in a new step execution, which must find the checkpoint the
+ * failed one left.  Step names are unique within a job, and each partition runs as a job instance of its own.
+ */
 public class CheckpointDataKey {
+
+	/**
+	 * The codes the READER and WRITER batch data streams are stored under in the 
+	 * checkpointtype column of the CHECKPOINTDATA table.
+	 */
+	public static final int READER_TYPE = 1;
+	public static final int WRITER_TYPE = 2;
 	
 	private long _jobInstanceId;
 	
@@ -43,6 +55,28 @@ public class CheckpointDataKey {
 		return _stepName;
 	}
 	
+	/**
+	 * @return the checkpointtype code of this key's batch data stream
+	 */
+	public int getBatchDataStreamType() {
+		return batchDataStreamType(_batchDataStreamName);
+	}
+
+	/**
+	 * @param bdsName the batch data stream name, "READER" or "WRITER"
+	 * @return the checkpointtype code the batch data stream is stored under
+	 * @throws IllegalArgumentException for any other name
+	 */
+	public static int batchDataStreamType(String bdsName) {
+		if ("READER".equals(bdsName)) {
+			return READER_TYPE;
+		} else if ("WRITER".equals(bdsName)) {
+			return WRITER_TYPE;
+		} else {
+			throw new IllegalArgumentException("Unknown batch data stream name: " + bdsName);
+		}
+	}
+	
 	public String getCommaSeparatedKey() {
 		return stringify();
 	}
@@ -50,6 +84,31 @@ public class CheckpointDataKey {
 	public String toString() {
 		return stringify();
 	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CheckpointDataKey)) {
+			return false;
+		}
+		CheckpointDataKey other = (CheckpointDataKey) obj;
+		return _jobInstanceId == other._jobInstanceId && stringEquals(_stepName, other._stepName)
+				&& stringEquals(_batchDataStreamName, other._batchDataStreamName);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = (int) (_jobInstanceId ^ (_jobInstanceId >>> 32));
+		result = 31 * result + (_stepName == null ? 0 : _stepName.hashCode());
+		result = 31 * result + (_batchDataStreamName == null ? 0 : _batchDataStreamName.hashCode());
+		return result;
+	}
+
+	private static boolean stringEquals(String s1, String s2) {
+		return s1 == null ? s2 == null : s1.equals(s2);
+	}
 	
 	private String stringify() {
 		return _jobInstanceId + "," + _stepName + "," + _batchDataStreamName;
@@ -17,7 +17,11 @@
 package com.ibm.jbatch.container.persistence;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,6 +31,7 @@ import com.ibm.jbatch.container.artifact.proxy.ItemReaderProxy;
 import com.ibm.jbatch.container.artifact.proxy.ItemWriterProxy;
 import com.ibm.jbatch.container.exception.BatchContainerRuntimeException;
 import com.ibm.jbatch.container.exception.BatchContainerServiceException;
+import com.ibm.jbatch.container.jfr.BatchEvents;
 import com.ibm.jbatch.container.services.IPersistenceManagerService;
 import com.ibm.jbatch.container.servicesmanager.ServicesManager;
 import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
@@ -45,16 +50,42 @@ public class CheckpointManager {
 	private long executionId = 0;
 	private String stepId = null;
 	private long jobInstanceID = 0;
+	// True when checkpoints aren't written under a global transaction, so may be committed locally (and grouped)
+	private boolean localCommit = false;
+
+	// Reused from checkpoint to checkpoint; the persistence service copies what it keeps before returning
+	private final CheckpointDataKey readerChkptDK;
+	private final CheckpointDataKey writerChkptDK;
+	private final CheckpointData readerChkptData;
+	private final CheckpointData writerChkptData;
+	private final Map<CheckpointDataKey, CheckpointData> checkpointData = new LinkedHashMap<CheckpointDataKey, CheckpointData>(4);
+	private final ByteArrayOutputStream chkptBA = new ByteArrayOutputStream();
 	
 
 	public CheckpointManager(ItemReaderProxy reader, ItemWriterProxy writer,CheckpointAlgorithm chkptAlg,
 			long executionId, long jobInstanceID, String  stepId) {
+		this(reader, writer, chkptAlg, executionId, jobInstanceID, stepId, false);
+	}
+
+	/**
+	 * @param localCommit true if the step doesn't run under a global transaction, in which case 
+	 * the READER and WRITER checkpoints are committed together by the persistence service, possibly
+	 * as part of a group commit with other concurrently checkpointing partitions.
+	 */
+	public CheckpointManager(ItemReaderProxy reader, ItemWriterProxy writer,CheckpointAlgorithm chkptAlg,
+			long executionId, long jobInstanceID, String  stepId, boolean localCommit) {
+		this.localCommit = localCommit;
 		this.readerProxy = reader;
 		this.writerProxy = writer;
 		this.checkpointAlgorithm = chkptAlg;
 		this.executionId = executionId;
 		this.stepId = stepId;
 		this.jobInstanceID = jobInstanceID;
+
+		this.readerChkptDK = new CheckpointDataKey(jobInstanceID, stepId, "READER");
+		this.writerChkptDK = new CheckpointDataKey(jobInstanceID, stepId, "WRITER");
+		this.readerChkptData = new CheckpointData(jobInstanceID, stepId, "READER");
+		this.writerChkptData = new CheckpointData(jobInstanceID, stepId, "WRITER");
 		
 		_persistenceManagerService = servicesManager.getPersistenceManagerService();
 	}
@@ -101,31 +132,27 @@ public class CheckpointManager {
 		String method = "checkpoint";
 		if(logger.isLoggable(Level.FINER)) { logger.entering(sourceClass, method, " [executionId " + executionId + "] "); }
 
-		ByteArrayOutputStream readerChkptBA = new ByteArrayOutputStream();
-		ByteArrayOutputStream writerChkptBA = new ByteArrayOutputStream();
-		
-		ObjectOutputStream readerOOS = null, writerOOS = null;
-		CheckpointDataKey readerChkptDK = null, writerChkptDK = null;
-		
 		try{
 			
-			readerOOS = new ObjectOutputStream(readerChkptBA);
-			readerOOS.writeObject(readerProxy.checkpointInfo());
-			readerOOS.close();
-			CheckpointData readerChkptData  = new CheckpointData(jobInstanceID, stepId, "READER");
-			readerChkptData.setRestartToken(readerChkptBA.toByteArray());
-			readerChkptDK = new CheckpointDataKey(jobInstanceID, stepId, "READER");
-			
-			_persistenceManagerService.updateCheckpointData(readerChkptDK, readerChkptData);
-			
-			writerOOS = new ObjectOutputStream(writerChkptBA);
-			writerOOS.writeObject(writerProxy.checkpointInfo());
-			writerOOS.close();
-			CheckpointData writerChkptData = new CheckpointData(jobInstanceID, stepId, "WRITER");
-			writerChkptData.setRestartToken(writerChkptBA.toByteArray());
-			writerChkptDK = new CheckpointDataKey(jobInstanceID, stepId, "WRITER");
-
-			_persistenceManagerService.updateCheckpointData(writerChkptDK, writerChkptData);
+			// Both tokens are taken before either is written, so the CheckpointPersist event times only the writes
+			readerChkptData.setRestartToken(serialize(readerProxy.checkpointInfo()));
+			writerChkptData.setRestartToken(serialize(writerProxy.checkpointInfo()));
+
+			Object persistEvent = BatchEvents.CHECKPOINT_PERSIST.begin();
+
+			if (!localCommit) {
+				_persistenceManagerService.updateCheckpointData(readerChkptDK, readerChkptData);
+				_persistenceManagerService.updateCheckpointData(writerChkptDK, writerChkptData);
+			} else {
+				checkpointData.put(readerChkptDK, readerChkptData);
+				checkpointData.put(writerChkptDK, writerChkptData);
+				_persistenceManagerService.updateCheckpointDataGroupCommit(checkpointData);
+			}
+
+			if (persistEvent != null) {
+				BatchEvents.CHECKPOINT_PERSIST.commit(persistEvent, executionId, stepId, (long) readerChkptData.getRestartToken().length,
+						(long) writerChkptData.getRestartToken().length, localCommit);
+			}
 			
 		}
 		catch (Exception ex){
@@ -137,6 +164,18 @@ public class CheckpointManager {
 
 	}
 	
+	/**
+	 * Serializes a checkpoint through the reused buffer.  A new ObjectOutputStream is still needed each time,
+	 * since each restart token has to be read back as a stream of its own.
+	 */
+	private byte[] serialize(Serializable checkpointInfo) throws IOException {
+		chkptBA.reset();
+		ObjectOutputStream oos = new ObjectOutputStream(chkptBA);
+		oos.writeObject(checkpointInfo);
+		oos.close();
+		return chkptBA.toByteArray();
+	}
+
 	public int checkpointTimeout() {
 		
 		int returnTimeout = 0; 
@@ -16,7 +16,6 @@
 */
 package com.ibm.jbatch.container.persistence;
 
-import java.util.Date;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,6 +29,8 @@ public final class ItemCheckpointAlgorithm implements CheckpointAlgorithm {
     long itemsRead = 0;
     protected int itemCount;
     protected int timeLimitSeconds;
+    protected long maxChunkBytes = 0;
+    long chunkBytes = 0;
     long checkpointBeginTime = 0;
     
     public void setItemCount(int itemCount) {
@@ -40,6 +41,20 @@ public final class ItemCheckpointAlgorithm implements CheckpointAlgorithm {
     	this.timeLimitSeconds = timeLimitSeconds;
     }
 
+    /**
+     * @param maxChunkBytes the estimated size of the items buffered for the writer past which a checkpoint is taken, or 0 for no limit
+     */
+    public void setMaxChunkBytes(long maxChunkBytes) {
+    	this.maxChunkBytes = maxChunkBytes;
+    }
+
+    /**
+     * Adds an item buffered for the writer to the size of the current chunk.
+     */
+    public void addItemBytes(long itemBytes) {
+    	chunkBytes += itemBytes;
+    }
+
     @Override
 	public void endCheckpoint() throws Exception { }
 
@@ -52,7 +67,7 @@ public final class ItemCheckpointAlgorithm implements CheckpointAlgorithm {
         	logger.fine("ITEMCHKPT: item checkpoint hit");
 
         	if(logger.isLoggable(Level.FINER)) { 
-        		long millis =  Long.valueOf( (new Date().getTime()) - checkpointBeginTime );
+        		long millis =  System.currentTimeMillis() - checkpointBeginTime;
         		if ( millis>0 ) { 
         			String rate =  Integer.valueOf ( Long.valueOf( (itemsRead*1000/millis) ).intValue()).toString();
         			logger.finer(" - true [itemsReadAndProcessed/second " + rate + "]");
@@ -65,13 +80,23 @@ public final class ItemCheckpointAlgorithm implements CheckpointAlgorithm {
         return itemready;
 	}
 	
+	public boolean isReadyToCheckpointBytes() {
+
+		boolean bytesready = (chunkBytes >= maxChunkBytes);
+
+		if (bytesready && logger.isLoggable(Level.FINE)) {
+			logger.fine("ITEMBYTESCHKPT: chunk size checkpoint hit, " + chunkBytes + " bytes in " + itemsRead + " items");
+		}
+
+		return bytesready;
+	}
+
 	public boolean isReadyToCheckpointTime() {
     	String method = "isReadyToCheckpoint";
     	if(logger.isLoggable(Level.FINER)) { logger.entering(className, method); }
 
         boolean timeready = false;
-        java.util.Date curDate = new java.util.Date();
-        long curts = curDate.getTime();
+        long curts = System.currentTimeMillis();
         long curdiff = curts - checkpointBeginTime;
         int diff = (int)curdiff / 1000;
         
@@ -95,6 +120,10 @@ public final class ItemCheckpointAlgorithm implements CheckpointAlgorithm {
 			return true;
 		}
 
+		if (maxChunkBytes > 0 && isReadyToCheckpointBytes()) {
+			return true;
+		}
+
 		if (timeLimitSeconds > 0 && isReadyToCheckpointTime()) {
 			return true;
 		}
@@ -104,9 +133,9 @@ public final class ItemCheckpointAlgorithm implements CheckpointAlgorithm {
 
 	@Override
 	public void beginCheckpoint() throws Exception {
-		java.util.Date date = new java.util.Date();
-        checkpointBeginTime = date.getTime();
+        checkpointBeginTime = System.currentTimeMillis();
         itemsRead = 0;
+        chunkBytes = 0;
 	}
 
 	@Override
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.persistence;
+
+/**
+ * Estimates the size, in bytes, an item processed in a chunk takes up until the chunk is written.
+ * 
+ * Implementations are named by the step property
+ * {@link com.ibm.jbatch.container.impl.ChunkStepControllerImpl#ITEM_SIZE_ESTIMATOR_PROP}, and need a
+ * public no-arg constructor.  An estimate only has to be good enough to bound the chunk; it is called
+ * once for each item, so it should be cheap compared to processing the item.
+ */
+public interface ItemSizeEstimator {
+
+	/**
+	 * @param item a processed item (never null)
+	 * @return the estimated size of the item, in bytes
+	 */
+	public long estimateSize(Object item);
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.persistence;
+
+/**
+ * A partition claimed from the PARTITIONQUEUE table of the job repository, by a container
+ * taking part in running the partitions queued there.
+ */
+public class PartitionQueueEntry {
+
+	private final long queueId;
+	private final long executionId;
+	private final int claims;
+	private final int claimVersion;
+	private final boolean stopRequested;
+	private final byte[] request;
+
+	public PartitionQueueEntry(long queueId, long executionId, int claims, int claimVersion, boolean stopRequested, byte[] request) {
+		this.queueId = queueId;
+		this.executionId = executionId;
+		this.claims = claims;
+		this.claimVersion = claimVersion;
+		this.stopRequested = stopRequested;
+		this.request = request;
+	}
+
+	public long getQueueId() {
+		return queueId;
+	}
+
+	/**
+	 * @return the id of the partition sub-job's execution
+	 */
+	public long getExecutionId() {
+		return executionId;
+	}
+
+	/**
+	 * @return how many times the partition has been claimed, including this claim
+	 */
+	public int getClaims() {
+		return claims;
+	}
+
+	/**
+	 * @return the version of the entry this claim made it, which the claimant must give to renew the lease 
+	 *         or record events, so that only the latest claim can, even against another claim by the same owner
+	 */
+	public int getClaimVersion() {
+		return claimVersion;
+	}
+
+	/**
+	 * @return whether the partitioned step had already asked for the partition to stop when it was claimed
+	 */
+	public boolean isStopRequested() {
+		return stopRequested;
+	}
+
+	/**
+	 * @return the serialized request to run the partition, as queued by its step
+	 */
+	public byte[] getRequest() {
+		return request;
+	}
+
+	@Override
+	public String toString() {
+		return "PartitionQueueEntry[queueId=" + queueId + ", executionId=" + executionId + ", claims=" + claims + ", claimVersion=" + claimVersion + "]";
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.persistence;
+
+/**
+ * What a partition claimed from the PARTITIONQUEUE table sends back to its partitioned step, through
+ * the PARTITIONEVENT table of the job repository: its collector data, its analyzer status, and
+ * finally its end.
+ */
+public class PartitionQueueEvent {
+
+	/**
+	 * The codes the event types are stored under in the eventtype column of the PARTITIONEVENT table.
+	 * The last event of a partition is either its END, with its end status, or, if it could not be 
+	 * run at all, NOT_RUN, with the reason why in place of the exit status.
+	 */
+	public static final int COLLECTOR_DATA = 0;
+	public static final int ANALYZER_STATUS = 1;
+	public static final int END = 2;
+	public static final int NOT_RUN = 3;
+
+	private final long eventId;
+	private final long executionId;
+	private final int eventType;
+	private final byte[] collectorData;
+	private final String batchStatus;
+	private final String exitStatus;
+
+	public PartitionQueueEvent(long eventId, long executionId, int eventType, byte[] collectorData, String batchStatus, String exitStatus) {
+		this.eventId = eventId;
+		this.executionId = executionId;
+		this.eventType = eventType;
+		this.collectorData = collectorData;
+		this.batchStatus = batchStatus;
+		this.exitStatus = exitStatus;
+	}
+
+	/**
+	 * @return an event to be recorded, not having an id (or known execution) yet
+	 */
+	public static PartitionQueueEvent collectorData(byte[] collectorData) {
+		return new PartitionQueueEvent(-1, -1, COLLECTOR_DATA, collectorData, null, null);
+	}
+
+	/**
+	 * @return an event to be recorded, not having an id (or known execution) yet
+	 */
+	public static PartitionQueueEvent status(int eventType, String batchStatus, String exitStatus) {
+		return new PartitionQueueEvent(-1, -1, eventType, null, batchStatus, exitStatus);
+	}
+
+	public long getEventId() {
+		return eventId;
+	}
+
+	/**
+	 * @return the id of the partition sub-job's execution the event is from
+	 */
+	public long getExecutionId() {
+		return executionId;
+	}
+
+	public int getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * @return the serialized collector data, of a {@link #COLLECTOR_DATA} event
+	 */
+	public byte[] getCollectorData() {
+		return collectorData;
+	}
+
+	public String getBatchStatus() {
+		return batchStatus;
+	}
+
+	public String getExitStatus() {
+		return exitStatus;
+	}
+
+	@Override
+	public String toString() {
+		return "PartitionQueueEvent[eventId=" + eventId + ", executionId=" + executionId + ", eventType=" + eventType 
+				+ ", batchStatus=" + batchStatus + ", exitStatus=" + exitStatus + "]";
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.persistence;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The default {@link ItemSizeEstimator}: the length of the item's Java serialized form, counted without
+ * buffering it.  Items which aren't Serializable (or fail to serialize) are given a fixed size.
+ */
+public class SerializedItemSizeEstimator implements ItemSizeEstimator {
+
+	private final static String sourceClass = SerializedItemSizeEstimator.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	/**
+	 * The size assumed for an item which can't be serialized.
+	 */
+	public static final long UNSERIALIZABLE_ITEM_SIZE = 1024;
+
+	@Override
+	public long estimateSize(Object item) {
+		if (!(item instanceof Serializable)) {
+			return UNSERIALIZABLE_ITEM_SIZE;
+		}
+		CountingOutputStream counter = new CountingOutputStream();
+		try {
+			ObjectOutputStream oos = new ObjectOutputStream(counter);
+			oos.writeObject(item);
+			oos.close();
+		} catch (IOException e) {
+			if (logger.isLoggable(Level.FINE)) {
+				logger.fine("Couldn't serialize item of " + item.getClass() + " to estimate its size: " + e);
+			}
+			return UNSERIALIZABLE_ITEM_SIZE;
+		}
+		return counter.count;
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		long count = 0;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.services;
+
+import com.ibm.jbatch.spi.services.IBatchServiceBase;
+
+/**
+ * Receives timed spans for the phases of running jobs, to see where the time goes.
+ * 
+ * The container asks {@link #isEnabled()} once, when each controller is created, and keeps the answer in a
+ * final field, so a disabled service costs one field check per phase and is never called.  Item spans are
+ * only recorded for one in every {@link #getItemSampleInterval()} items.
+ * 
+ * Spans are reported as they end, on the thread which ran them, so a phase's spans nest within its
+ * enclosing phase's on that thread.  Times are from {@link System#nanoTime()}.
+ */
+public interface IBatchInstrumentationService extends IBatchServiceBase {
+
+	public enum Phase {
+		/** A job (or a partition or split-flow's sub-job) running on its thread, named by the job name */
+		JOB,
+		/** A step, named by the step id (as are all the phases below, but for PERSISTENCE) */
+		STEP,
+		/** A chunk, from beginning its checkpoint to ending it */
+		CHUNK,
+		/** The time spent reading a chunk's items, since reads and processing alternate item by item */
+		READ,
+		/** The time spent processing a chunk's items, following its READ span */
+		PROCESS,
+		/** Writing a chunk, including the write listeners */
+		WRITE,
+		/** Writing a chunk's checkpoint and persistent user data */
+		CHECKPOINT,
+		/** Committing a chunk's transaction */
+		COMMIT,
+		/** Reading a sampled item */
+		ITEM_READ,
+		/** Processing a sampled item */
+		ITEM_PROCESS,
+		/** Handing a partition to the batch kernel */
+		PARTITION_DISPATCH,
+		/** A call to the persistence service, named by the method called, with no execution id */
+		PERSISTENCE
+	};
+
+	/**
+	 * @return false if spans aren't wanted, in which case {@link #span} is never called
+	 */
+	public boolean isEnabled();
+
+	/**
+	 * @return the interval between sampled items, 0 meaning no item spans
+	 */
+	public int getItemSampleInterval();
+
+	/**
+	 * Records a span which has just ended.
+	 * 
+	 * @param executionId the execution of the job (or partition) running the phase, or 0 if not known
+	 */
+	public void span(Phase phase, long executionId, String name, long startNanos, long endNanos);
+}
@@ -17,6 +17,7 @@
 package com.ibm.jbatch.container.services;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import jakarta.batch.operations.JobExecutionAlreadyCompleteException;
@@ -48,6 +49,17 @@ public interface IBatchKernelService extends IBatchServiceBase {
 
 	IJobExecution startJob(String jobXML, Properties jobParameters) throws JobStartException;
 
+	/**
+	 * Start one instance of the job per set of job parameters, persisting them all together
+	 * before submitting any of them.  Should the thread pool reject one, the jobs already
+	 * submitted carry on, the rest are marked FAILED, and a JobStartException is thrown.
+	 *
+	 * @param jobXML the job xml
+	 * @param jobParametersList the job parameters of each job (any entry may be null)
+	 * @return the new job executions, in the order of jobParametersList
+	 */
+	List<IJobExecution> startJobs(String jobXML, List<Properties> jobParametersList) throws JobStartException;
+
 	void stopJob(long executionID) throws NoSuchJobExecutionException, JobExecutionNotRunningException;
 
 	void jobExecutionDone(RuntimeJobExecution jobExecution);
@@ -68,6 +80,19 @@ public interface IBatchKernelService extends IBatchServiceBase {
 	
 	boolean isExecutionRunning(long executionId);
 
+	/**
+	 * @param jobName the job name (the job id from the job xml)
+	 * @return the executions of the job currently running in this JVM, as a snapshot 
+	 *         mapping each execution id to its job instance id
+	 */
+	Map<Long, Long> getRunningExecutions(String jobName);
+
+	/**
+	 * @return true if the job repository is shared with other JVMs, so it may hold
+	 *         executions running elsewhere, false if it is only used by this one
+	 */
+	boolean isSharedJobRepository();
+
 	BatchFlowInSplitWorkUnit buildNewFlowInSplitWorkUnit(
 			FlowInSplitBuilderConfig config);
 
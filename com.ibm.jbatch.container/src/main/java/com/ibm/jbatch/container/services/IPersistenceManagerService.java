@@ -33,6 +33,8 @@ import com.ibm.jbatch.container.jobinstance.RuntimeJobExecution;
 import com.ibm.jbatch.container.jobinstance.StepExecutionImpl;
 import com.ibm.jbatch.container.persistence.CheckpointData;
 import com.ibm.jbatch.container.persistence.CheckpointDataKey;
+import com.ibm.jbatch.container.persistence.PartitionQueueEntry;
+import com.ibm.jbatch.container.persistence.PartitionQueueEvent;
 import com.ibm.jbatch.container.status.JobStatus;
 import com.ibm.jbatch.container.status.StepStatus;
 import com.ibm.jbatch.spi.services.IBatchServiceBase;
@@ -85,6 +87,22 @@ public interface IPersistenceManagerService extends IBatchServiceBase {
 
 	public void purge(String apptag);
 
+	/**
+	 * Purge the job instances matching all the given criteria, along with their executions, step executions,
+	 * job and step statuses, persistent user data and checkpoint data, as well as all the same for the
+	 * partition and split-flow sub-jobs they ran.
+	 * 
+	 * Instances are purged in batches (in ascending instance id order), each batch in its own transaction, 
+	 * so a large purge never holds locks for long, and an interrupted purge keeps what it already purged.
+	 *
+	 * @param apptag the application tag owning the instances, or null for any
+	 * @param jobName the job name, or null for any
+	 * @param endedBefore if not null, only purge instances whose executions all ended before this time
+	 *        (so instances with a running execution are never purged this way)
+	 * @return the number of top-level job instances purged
+	 */
+	public int purgeJobInstances(String apptag, String jobName, Timestamp endedBefore);
+
 	public JobStatus getJobStatusFromExecution(long executionId);
 
 	public long getJobInstanceIdByExecutionId(long executionId) throws NoSuchJobExecutionException;
@@ -100,6 +118,36 @@ public interface IPersistenceManagerService extends IBatchServiceBase {
 	 */
 	public JobInstance createJobInstance(String name, String apptag, String jobXml);
 
+	/**
+	 * Create the job instance, its first job execution (STARTING) and its job status, all within
+	 * a single transaction.
+	 * 
+	 * This is what submitting a job takes, in one round of statements on one connection, rather than
+	 * separate calls to {@link #createJobInstance}, {@link #createJobExecution}, {@link #createJobStatus}
+	 * and {@link #updateJobStatus}.  The execution is only marked STARTED, with its start time, by
+	 * {@link #markJobStarted} once the job's thread actually runs it, so that a job still waiting for
+	 * a thread is not shown as started.
+	 *
+	 * @param name the job id from job.xml
+	 * @param apptag the application tag that owns this job
+	 * @param jobXml the resolved job xml
+	 * @param jobParameters the job parameters (may be null)
+	 * @return the RuntimeJobExecution for the new JobExecution
+	 */
+	public RuntimeJobExecution startJobUnit(String name, String apptag, String jobXml, Properties jobParameters);
+
+	/**
+	 * Like {@link #startJobUnit}, but for many instances of the same job at once, one per set of job 
+	 * parameters, all within a single transaction.
+	 *
+	 * @param name the job id from job.xml
+	 * @param apptag the application tag that owns the jobs
+	 * @param jobXml the resolved job xml
+	 * @param jobParametersList the job parameters of each job (any entry may be null)
+	 * @return the RuntimeJobExecution for each new JobExecution, in the order of jobParametersList
+	 */
+	public List<RuntimeJobExecution> startJobUnits(String name, String apptag, String jobXml, List<Properties> jobParametersList);
+
 	// EXECUTIONINSTANCEDATA
 	/**
 	 * Create a JobExecution
@@ -193,6 +241,52 @@ public interface IPersistenceManagerService extends IBatchServiceBase {
 	 */
 	public void updateStepStatus(long stepExecutionId, StepStatus stepStatus);
 
+	/**
+	 * Create or update the persistent user data of a step, which is kept apart
+	 * from the StepStatus so it can be written on its own at each checkpoint.
+	 * It is returned as part of the StepStatus by {@link #getStepStatus(long, String)}.
+	 *
+	 * @param stepExecutionId the step execution id the StepStatus is keyed by
+	 * @param persistentUserData the serialized persistent user data, or null if there is none
+	 */
+	public void updateStepUserData(long stepExecutionId, byte[] persistentUserData);
+
+	/**
+	 * Begin a step execution: create its StepExecution (with the step context's batch status and start time), 
+	 * create its StepStatus, or update the existing one on a restart, and record the step as the job's 
+	 * current step, all within a single transaction.
+	 * 
+	 * This takes the place of separate calls to {@link #createStepExecution}, {@link #createStepStatus}, 
+	 * {@link #updateStepStatus} and {@link #updateStepExecution} when a step starts.  On return, the step 
+	 * context holds the new step execution id.
+	 *
+	 * @param jobInstanceId the (possibly sub-job) instance id the step runs in
+	 * @param rootJobExecId the parent JobExecution id
+	 * @param stepContext the step context for this step execution
+	 * @param stepStatus the StepStatus from a previous run of the step, or null if there is none
+	 * @return the StepStatus, created or updated with the context's batch status and the new step execution id
+	 */
+	public StepStatus beginStep(long jobInstanceId, long rootJobExecId, StepContextImpl stepContext, StepStatus stepStatus);
+
+	/**
+	 * End a step execution: update its StepStatus and its StepExecution (with the step context's 
+	 * batch and exit status, end time and metrics) within a single transaction.
+	 *
+	 * @param stepContext the step context for this step execution
+	 * @param stepStatus the step status, with its final batch and exit status
+	 */
+	public void endStep(StepContextImpl stepContext, StepStatus stepStatus);
+
+	/**
+	 * Like {@link #endStep}, but for the "top-level" StepExecution of a partitioned step, with the metrics aggregated
+	 * from the "partition-level" StepExecution(s) as by {@link #updateWithFinalPartitionAggregateStepExecution}.
+	 *
+	 * @param rootJobExecutionId the root job execution id
+	 * @param stepContext the step context for this step execution
+	 * @param stepStatus the step status, with its final batch and exit status
+	 */
+	public void endPartitionedStep(long rootJobExecutionId, StepContextImpl stepContext, StepStatus stepStatus);
+
 
 	/**
 	 * Get the application name from an execution id.
@@ -205,16 +299,134 @@ public interface IPersistenceManagerService extends IBatchServiceBase {
 
     public void updateCheckpointData(CheckpointDataKey key, CheckpointData value);
 
+	/**
+	 * Create or update a set of checkpoint data entries (e.g. a step's READER and WRITER
+	 * checkpoints) in a single local transaction.  Since this commits on its own, it
+	 * mustn't be used from within a global transaction.
+	 *
+	 * @param checkpointData the entries to persist
+	 */
+	public void updateCheckpointData(Map<CheckpointDataKey, CheckpointData> checkpointData);
+
+	/**
+	 * Like {@link #updateCheckpointData(Map)}, but when group commit is configured, the entries
+	 * may be written and committed together with those of other threads checkpointing at
+	 * about the same time.  Either way, this only returns once the entries are committed.
+	 *
+	 * @param checkpointData the entries to persist
+	 */
+	public void updateCheckpointDataGroupCommit(Map<CheckpointDataKey, CheckpointData> checkpointData);
+
 	CheckpointData getCheckpointData(CheckpointDataKey key);
 
+	/**
+	 * Delete the READER and WRITER checkpoint data of a step, e.g. once it completed
+	 * and so won't be restarted from them.
+	 *
+	 * @param jobInstanceId the (possibly sub-job) instance id the step ran in
+	 * @param stepName the step id from the job xml
+	 */
+	void deleteCheckpointData(long jobInstanceId, String stepName);
+
 	void createCheckpointData(CheckpointDataKey key, CheckpointData value);
 
 	long getMostRecentExecutionId(long jobInstanceId);
 
 	JobInstance createSubJobInstance(String name, String apptag);
 
+	/**
+	 * Create the job instance, job execution and job status entries for a set of
+	 * partition sub-jobs, all within a single transaction.
+	 *
+	 * @param subJobNames the generated sub-job names, one per partition
+	 * @param apptag the application tag that owns the sub-jobs
+	 * @param partitionParameters the parameters of each partition (the list or any entry may be null)
+	 * @param batchStatus the initial BatchStatus of each execution
+	 * @return the RuntimeJobExecution for each partition, in the order of subJobNames
+	 */
+	public List<RuntimeJobExecution> createPartitionSubJobExecutions(List<String> subJobNames, String apptag,
+			List<Properties> partitionParameters, BatchStatus batchStatus);
+
 	public RuntimeFlowInSplitExecution createFlowInSplitExecution(JobInstance jobInstance, BatchStatus batchStatus);
 
 	public StepExecution getStepExecutionByStepExecutionId(long stepExecId);
 
+	/**
+	 * @return false if the job repository is a database only this JVM can open (embedded Derby), 
+	 *         true if other JVMs can share it, or if that can't be told (as with a DataSource)
+	 */
+	public boolean isRepositoryShareable();
+
+	/*
+	 * PARTITION QUEUE, through which the containers sharing the job repository run the partitions of 
+	 * a partitioned step between them.  Leases are held until a time given by the clock of the 
+	 * container claiming the partition, so the containers' clocks are expected to be kept in step.
+	 */
+
+	/**
+	 * Queue a partition, for any container taking part to claim and run.
+	 *
+	 * @param coordinator identifies the execution of the partitioned step the partition belongs to
+	 * @param executionId the partition sub-job's execution
+	 * @param maxClaims how many times the partition may be claimed, before it is taken as abandoned
+	 *        if the last claim's lease also expires
+	 * @param request the serialized request to run the partition
+	 * @return the id of the queue entry
+	 */
+	public long enqueuePartition(String coordinator, long executionId, int maxClaims, byte[] request);
+
+	/**
+	 * Claim the first queued partition, or else the first whose lease expired and which can still be 
+	 * claimed again.  Where the database supports it, candidate entries are locked with
+	 * SELECT ... FOR UPDATE SKIP LOCKED, so claimants don't contend on the same entry; otherwise 
+	 * the claim is an optimistic update, conditional on the entry not having changed since it was read.
+	 *
+	 * @param owner the claiming container
+	 * @param leaseMillis how long the claim holds without being renewed
+	 * @return the claimed entry, or null if there is nothing to claim
+	 */
+	public PartitionQueueEntry claimPartition(String owner, long leaseMillis);
+
+	/**
+	 * Renew the lease of a claimed partition.
+	 *
+	 * @param claimVersion the {@link PartitionQueueEntry#getClaimVersion()} of the claim
+	 * @return false if the owner no longer holds the claim (e.g. it expired and was claimed again, even by
+	 *         the same owner, or the step is done with the partition), in which case it must stop running the partition
+	 */
+	public boolean renewPartitionLease(long queueId, String owner, int claimVersion, long leaseMillis);
+
+	public boolean isPartitionStopRequested(long queueId);
+
+	public void requestPartitionStop(String coordinator, long executionId);
+
+	/**
+	 * Record an event of a claimed partition for its step, renewing the lease.  An 
+	 * {@link PartitionQueueEvent#END} or {@link PartitionQueueEvent#NOT_RUN} event also ends the 
+	 * claim, within the same transaction.
+	 *
+	 * @param claimVersion the {@link PartitionQueueEntry#getClaimVersion()} of the claim
+	 * @return false, recording nothing, if the owner no longer holds the claim
+	 */
+	public boolean addPartitionEvent(long queueId, String owner, int claimVersion, long leaseMillis, PartitionQueueEvent event);
+
+	/**
+	 * Take (removing them) the events recorded for the coordinator's partitions, in the order each 
+	 * partition recorded its events.
+	 */
+	public List<PartitionQueueEvent> takePartitionEvents(String coordinator);
+
+	/**
+	 * Mark as abandoned the coordinator's claimed partitions whose lease expired and which can not be 
+	 * claimed again, so that their owners can no longer record anything for them.
+	 *
+	 * @return the execution ids of the newly abandoned partitions
+	 */
+	public List<Long> abandonExpiredPartitions(String coordinator);
+
+	/**
+	 * Remove the coordinator's partitions from the queue, along with their events.  Any container 
+	 * still running one of them loses its claim.
+	 */
+	public void deletePartitionQueueEntries(String coordinator);
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.services.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.jbatch.container.exception.PersistenceException;
+import com.ibm.jbatch.container.persistence.CheckpointData;
+import com.ibm.jbatch.container.persistence.CheckpointDataKey;
+
+/**
+ * Merges checkpoint writes arriving from concurrently running threads (typically the partitions
+ * of one step) into a single batched write and commit.
+ *
+ * There is no dedicated writer thread.  The first thread to arrive when no group is forming becomes the
+ * leader: it waits out the window (or until the group is full), then writes the whole group.  Every thread,
+ * leader or not, blocks until the group containing its write has been committed, so a checkpoint is durable
+ * by the time the caller continues, as before.  Should the group's write fail, its requests are written again
+ * one by one, so that each caller sees the outcome of its own write, not another's.
+ */
+class CheckpointGroupCommitter {
+
+	private final static String sourceClass = CheckpointGroupCommitter.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	/**
+	 * Performs the actual write of a group, in one transaction.
+	 */
+	interface GroupWriter {
+		void write(Map<CheckpointDataKey, CheckpointData> checkpointData);
+	}
+
+	private final GroupWriter groupWriter;
+	private final long windowMillis;
+	private final int maxBatch;
+
+	private final Object lock = new Object();
+	private List<Request> pending = new ArrayList<Request>();
+	private boolean groupForming = false;
+	private boolean closed = false;
+
+	CheckpointGroupCommitter(GroupWriter groupWriter, long windowMillis, int maxBatch) {
+		this.groupWriter = groupWriter;
+		this.windowMillis = windowMillis;
+		this.maxBatch = maxBatch;
+	}
+
+	/**
+	 * Returns once the given checkpoint data has been committed, along with any other
+	 * writes grouped with it.
+	 *
+	 * @throws PersistenceException if the group containing this write failed
+	 */
+	void write(Map<CheckpointDataKey, CheckpointData> checkpointData) {
+		Request request = new Request(checkpointData);
+		boolean leader = false;
+		boolean grouping;
+
+		synchronized (lock) {
+			grouping = !closed;
+			if (grouping) {
+				pending.add(request);
+				if (!groupForming) {
+					groupForming = true;
+					leader = true;
+				} else if (pending.size() >= maxBatch) {
+					lock.notifyAll();
+				}
+			}
+		}
+
+		if (!grouping) {
+			groupWriter.write(checkpointData);
+			return;
+		}
+		if (leader) {
+			writeGroup(collectGroup());
+		}
+
+		request.awaitCompletion();
+	}
+
+	private List<Request> collectGroup() {
+		synchronized (lock) {
+			long deadline = System.currentTimeMillis() + windowMillis;
+			long remaining = windowMillis;
+			while (remaining > 0 && pending.size() < maxBatch && !closed) {
+				try {
+					lock.wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				remaining = deadline - System.currentTimeMillis();
+			}
+			List<Request> group = pending;
+			pending = new ArrayList<Request>();
+			groupForming = false;
+			return group;
+		}
+	}
+
+	private void writeGroup(List<Request> group) {
+		Map<CheckpointDataKey, CheckpointData> merged = new LinkedHashMap<CheckpointDataKey, CheckpointData>();
+		for (Request request : group) {
+			merged.putAll(request.checkpointData);
+		}
+
+		if (logger.isLoggable(Level.FINER)) {
+			logger.finer("Writing checkpoint group of " + group.size() + " requests, " + merged.size() + " entries");
+		}
+
+		RuntimeException failure = null;
+		try {
+			groupWriter.write(merged);
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+
+		if (failure != null && group.size() > 1) {
+			logger.fine("Checkpoint group write failed, writing its " + group.size() + " requests one by one: " + failure);
+			for (Request request : group) {
+				RuntimeException requestFailure = null;
+				try {
+					groupWriter.write(request.checkpointData);
+				} catch (RuntimeException e) {
+					requestFailure = e;
+				}
+				request.complete(requestFailure);
+			}
+			return;
+		}
+
+		for (Request request : group) {
+			request.complete(failure);
+		}
+	}
+
+	/**
+	 * Stops grouping writes: a group still forming is written without waiting out the rest of its window,
+	 * and any later write is made on its own.
+	 */
+	void close() {
+		synchronized (lock) {
+			closed = true;
+			lock.notifyAll();
+		}
+	}
+
+	private static class Request {
+		private final Map<CheckpointDataKey, CheckpointData> checkpointData;
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile RuntimeException failure;
+
+		Request(Map<CheckpointDataKey, CheckpointData> checkpointData) {
+			this.checkpointData = checkpointData;
+		}
+
+		void complete(RuntimeException failure) {
+			this.failure = failure;
+			done.countDown();
+		}
+
+		void awaitCompletion() {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					done.await();
+					break;
+				} catch (InterruptedException e) {
+					// Keep waiting; the caller mustn't proceed before knowing whether its checkpoint is durable.
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			if (failure != null) {
+				throw new PersistenceException("Group commit of checkpoint data failed", failure);
+			}
+		}
+	}
+}
@@ -47,8 +47,12 @@ public class DelegatingBatchArtifactFactoryImpl implements IBatchArtifactFactory
 
 	// TODO - surface constants
 	private final static String BATCH_XML = "META-INF/batch.xml";
+	// The container's own artifacts, looked up by id after the application's batch.xml
+	private final static String CONTAINER_BATCH_XML = "META-INF/jbatch-container/batch.xml";
 	private final static QName BATCH_ROOT_ELEM = new QName("https://jakarta.ee/xml/ns/jakartaee", "batch-artifacts");
 
+	private ArtifactMap containerArtifactMap;
+
 	// Uses TCCL
 	@Override
 	public Object load(String batchId) {
@@ -87,6 +91,10 @@ public class DelegatingBatchArtifactFactoryImpl implements IBatchArtifactFactory
         	loadedArtifact = artifactMap.getArtifactById(batchId);
         }
 
+		if (loadedArtifact == null) {
+			loadedArtifact = getContainerArtifactMap().getArtifactById(batchId);
+		}
+
 		if (loadedArtifact == null) {
 			if (logger.isLoggable(Level.FINER)) {
 	            logger.log(Level.FINER, "Artifact not found in batch.xml, trying classloader");
@@ -116,7 +124,7 @@ public class DelegatingBatchArtifactFactoryImpl implements IBatchArtifactFactory
 	}
 
     private ArtifactMap initArtifactMapFromClassLoader(ClassLoader loader) {
-        ArtifactMap artifactMap = new ArtifactMap();
+        ArtifactMap artifactMap = new ArtifactMap(loader);
         
         InputStream is = getBatchXMLStreamFromClassLoader(loader);
         if (is == null) {
@@ -132,6 +140,23 @@ public class DelegatingBatchArtifactFactoryImpl implements IBatchArtifactFactory
 		return loader.getResourceAsStream(BATCH_XML);
 	}
 
+	/*
+	 * The built-in artifacts are loaded with the container's own class loader, 
+	 * which an application's batch.xml can't shadow.
+	 */
+	private synchronized ArtifactMap getContainerArtifactMap() {
+		if (containerArtifactMap == null) {
+			ClassLoader loader = DelegatingBatchArtifactFactoryImpl.class.getClassLoader();
+			ArtifactMap artifactMap = new ArtifactMap(loader);
+			InputStream is = loader.getResourceAsStream(CONTAINER_BATCH_XML);
+			if (is != null) {
+				artifactMap = populateArtifactMapFromStream(artifactMap, is);
+			}
+			containerArtifactMap = artifactMap;
+		}
+		return containerArtifactMap;
+	}
+
 	/*
 	 * Non-validating (e.g. that the artifact type is correct) load
 	 * 
@@ -211,19 +236,25 @@ public class DelegatingBatchArtifactFactoryImpl implements IBatchArtifactFactory
 
 	private class ArtifactMap {
 
+		private final ClassLoader classLoader;
+
 		private Map<String, Class<?>> idToArtifactClassMap = new HashMap<String, Class<?>>();
 
 		// Maps to a list of types not a single type since there's no reason a single artifact couldn't be annotated
 		// with >1 batch artifact annotation type.
 		private Map<String, List<String>> idToArtifactTypeListMap = new HashMap<String, List<String>>();
 
+		private ArtifactMap(ClassLoader classLoader) {
+			this.classLoader = classLoader;
+		}
+
 		/*
 		 * Init already synchronized, so no need to synch further
 		 */
 		private void addEntry(String batchTypeName, String id, String className) {
 			try {
 				if (!idToArtifactClassMap.containsKey(id)) {
-					Class<?> artifactClass = Thread.currentThread().getContextClassLoader().loadClass(className);
+					Class<?> artifactClass = classLoader.loadClass(className);
 
 					idToArtifactClassMap.put(id, artifactClass);
 					List<String> typeList = new ArrayList<String>();
@@ -231,7 +262,7 @@ public class DelegatingBatchArtifactFactoryImpl implements IBatchArtifactFactory
 					idToArtifactTypeListMap.put(id, typeList);                    
 				} else {
 
-					Class<?> artifactClass = Thread.currentThread().getContextClassLoader().loadClass(className);
+					Class<?> artifactClass = classLoader.loadClass(className);
 
 					// Already contains entry for this 'id', let's make sure it's the same Class
 					// which thus must implement >1 batch artifact "type" (i.e. contains >1 batch artifact annotation).
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.services.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.ibm.jbatch.container.services.IBatchInstrumentationService;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService.Phase;
+import com.ibm.jbatch.container.services.IPersistenceManagerService;
+
+/**
+ * Wraps the persistence service, when instrumentation is enabled, to record a PERSISTENCE span for each call.
+ */
+public class InstrumentedPersistenceManager implements InvocationHandler {
+
+	private final IPersistenceManagerService delegate;
+	private final IBatchInstrumentationService instrumentation;
+
+	private InstrumentedPersistenceManager(IPersistenceManagerService delegate, IBatchInstrumentationService instrumentation) {
+		this.delegate = delegate;
+		this.instrumentation = instrumentation;
+	}
+
+	/**
+	 * @return the persistence service, wrapped only if instrumentation is enabled
+	 */
+	public static IPersistenceManagerService wrap(IPersistenceManagerService delegate, IBatchInstrumentationService instrumentation) {
+		if (!instrumentation.isEnabled()) {
+			return delegate;
+		}
+		return (IPersistenceManagerService) Proxy.newProxyInstance(IPersistenceManagerService.class.getClassLoader(),
+				new Class<?>[] { IPersistenceManagerService.class }, new InstrumentedPersistenceManager(delegate, instrumentation));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		long start = System.nanoTime();
+		try {
+			return method.invoke(delegate, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			instrumentation.span(Phase.PERSISTENCE, 0, method.getName(), start, System.nanoTime());
+		}
+	}
+}
@@ -65,10 +65,14 @@ import com.ibm.jbatch.container.jobinstance.RuntimeJobExecution;
 import com.ibm.jbatch.container.jobinstance.StepExecutionImpl;
 import com.ibm.jbatch.container.persistence.CheckpointData;
 import com.ibm.jbatch.container.persistence.CheckpointDataKey;
+import com.ibm.jbatch.container.persistence.PartitionQueueEntry;
+import com.ibm.jbatch.container.persistence.PartitionQueueEvent;
+import com.ibm.jbatch.container.persistence.PersistentDataWrapper;
 import com.ibm.jbatch.container.services.IJobExecution;
 import com.ibm.jbatch.container.services.IPersistenceManagerService;
 import com.ibm.jbatch.container.status.JobStatus;
 import com.ibm.jbatch.container.status.StepStatus;
+import com.ibm.jbatch.container.util.BatchContainerConstants;
 import com.ibm.jbatch.container.util.TCCLObjectInputStream;
 import com.ibm.jbatch.spi.services.IBatchConfig;
 
@@ -89,6 +93,20 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	protected String userId = "";
 	protected String pwd = "";
 
+	private CheckpointGroupCommitter checkpointGroupCommitter = null;
+
+	private int purgeBatchSize;
+	private long purgeBatchPauseMillis;
+	private RepositoryPurgeSweeper purgeSweeper = null;
+
+	// How partitions are claimed from the queue, found out from the database on the first claim
+	private static final int CLAIM_CANDIDATES = 8;
+	private volatile boolean skipLockedChecked = false;
+	private volatile String skipLockedClaimQuery = null;
+
+	// Only set when metrics or slow statements are being kept
+	private PersistenceMetrics metrics = null;
+
 	/* (non-Javadoc)
 	 * @see com.ibm.jbatch.container.services.impl.AbstractPersistenceManagerImpl#init(com.ibm.jbatch.container.IBatchConfig)
 	 */
@@ -139,6 +157,45 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 			logger.config("driver: " + driver + ", url: " + url);
 		}
 
+		if (Boolean.parseBoolean(batchConfig.getConfigProperties().getProperty(BatchContainerConstants.CHECKPOINT_GROUP_COMMIT,
+				BatchContainerConstants.DEFAULT_CHECKPOINT_GROUP_COMMIT))) {
+			long windowMillis = Long.parseLong(batchConfig.getConfigProperties().getProperty(
+					BatchContainerConstants.CHECKPOINT_GROUP_COMMIT_WINDOW_MILLIS, BatchContainerConstants.DEFAULT_CHECKPOINT_GROUP_COMMIT_WINDOW_MILLIS));
+			int maxBatch = Integer.parseInt(batchConfig.getConfigProperties().getProperty(
+					BatchContainerConstants.CHECKPOINT_GROUP_COMMIT_MAX_BATCH, BatchContainerConstants.DEFAULT_CHECKPOINT_GROUP_COMMIT_MAX_BATCH));
+			logger.config("Checkpoint group commit enabled, window (ms): " + windowMillis + ", max batch: " + maxBatch);
+
+			checkpointGroupCommitter = new CheckpointGroupCommitter(new CheckpointGroupCommitter.GroupWriter() {
+				@Override
+				public void write(Map<CheckpointDataKey, CheckpointData> checkpointData) {
+					updateCheckpointData(checkpointData);
+				}
+			}, windowMillis, maxBatch);
+		}
+
+		purgeBatchSize = Integer.parseInt(batchConfig.getConfigProperties().getProperty(
+				BatchContainerConstants.PURGE_BATCH_SIZE, BatchContainerConstants.DEFAULT_PURGE_BATCH_SIZE));
+		purgeBatchPauseMillis = Long.parseLong(batchConfig.getConfigProperties().getProperty(
+				BatchContainerConstants.PURGE_BATCH_PAUSE_MILLIS, BatchContainerConstants.DEFAULT_PURGE_BATCH_PAUSE_MILLIS));
+		if (purgeBatchSize <= 0) {
+			throw new BatchContainerServiceException(BatchContainerConstants.PURGE_BATCH_SIZE + " must be positive, but was: " + purgeBatchSize);
+		}
+
+		boolean metered = Boolean.parseBoolean(batchConfig.getConfigProperties().getProperty(BatchContainerConstants.PERSISTENCE_METRICS,
+				BatchContainerConstants.DEFAULT_PERSISTENCE_METRICS));
+		long slowStatementMillis = Long.parseLong(batchConfig.getConfigProperties().getProperty(
+				BatchContainerConstants.PERSISTENCE_SLOW_STATEMENT_MILLIS, BatchContainerConstants.DEFAULT_PERSISTENCE_SLOW_STATEMENT_MILLIS));
+		if (metered || slowStatementMillis > 0) {
+			logger.config("Persistence metrics: " + metered + ", slow statement threshold (ms): " + slowStatementMillis);
+			metrics = new PersistenceMetrics(metered, slowStatementMillis);
+			long summaryIntervalSeconds = Long.parseLong(batchConfig.getConfigProperties().getProperty(
+					BatchContainerConstants.PERSISTENCE_METRICS_SUMMARY_INTERVAL_SECONDS, 
+					BatchContainerConstants.DEFAULT_PERSISTENCE_METRICS_SUMMARY_INTERVAL_SECONDS));
+			if (metered && summaryIntervalSeconds > 0) {
+				metrics.startSummary(summaryIntervalSeconds);
+			}
+		}
+
 		try {
 			// only auto-create on Derby
 			if(isDerby()) {	
@@ -152,6 +209,16 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 			throw new BatchContainerServiceException(e);
 		}
 
+		long sweepIntervalMinutes = Long.parseLong(batchConfig.getConfigProperties().getProperty(
+				BatchContainerConstants.PURGE_SWEEP_INTERVAL_MINUTES, BatchContainerConstants.DEFAULT_PURGE_SWEEP_INTERVAL_MINUTES));
+		if (sweepIntervalMinutes > 0) {
+			long retentionHours = Long.parseLong(batchConfig.getConfigProperties().getProperty(
+					BatchContainerConstants.PURGE_SWEEP_RETENTION_HOURS, BatchContainerConstants.DEFAULT_PURGE_SWEEP_RETENTION_HOURS));
+			logger.config("Purge sweep enabled, interval (minutes): " + sweepIntervalMinutes + ", retention (hours): " + retentionHours);
+			purgeSweeper = new RepositoryPurgeSweeper(this, sweepIntervalMinutes, retentionHours);
+			purgeSweeper.start();
+		}
+
 		logger.config("Exiting CLASSNAME.init()");
 	}
 
@@ -178,6 +245,12 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		return false;
 	}
 
+	@Override
+	public boolean isRepositoryShareable() {
+		// Embedded Derby locks the database to the JVM that boots it, unlike the network client's jdbc:derby://host/...
+		return !(batchConfig.isJ2seMode() && url != null && url.startsWith("jdbc:derby:") && !url.startsWith("jdbc:derby://"));
+	}
+
 	private boolean isDerby() throws SQLException {
 		logger.entering(CLASSNAME, "isDerby");
 		Connection conn = getConnectionToDefaultSchema();
@@ -213,8 +286,8 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	private void checkAllTables() throws SQLException {
 		logger.entering(CLASSNAME, "checkAllTables");
 
+		migrateCheckpointDataIfNecessary();
 		createIfNotExists(CHECKPOINTDATA_TABLE, CREATE_TAB_CHECKPOINTDATA);
-		executeStatement(CREATE_CHECKPOINTDATA_INDEX);
 		createIfNotExists(JOBINSTANCEDATA_TABLE, CREATE_TAB_JOBINSTANCEDATA);
 
 		createIfNotExists(EXECUTIONINSTANCEDATA_TABLE,
@@ -224,6 +297,14 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 
 		createIfNotExists(JOBSTATUS_TABLE, CREATE_TAB_JOBSTATUS);
 		createIfNotExists(STEPSTATUS_TABLE, CREATE_TAB_STEPSTATUS);	
+		createIfNotExists(STEPUSERDATA_TABLE, CREATE_TAB_STEPUSERDATA);
+		createIfNotExists(PARTITIONQUEUE_TABLE, CREATE_TAB_PARTITIONQUEUE);
+		createIfNotExists(PARTITIONEVENT_TABLE, CREATE_TAB_PARTITIONEVENT);
+
+		createIndexIfNotExists(JOBINSTANCEDATA_TABLE, JOBINSTANCE_NAME_INDEX, CREATE_JOBINSTANCE_NAME_INDEX);
+		createIndexIfNotExists(EXECUTIONINSTANCEDATA_TABLE, JOBEXECUTION_STATUS_INDEX, CREATE_JOBEXECUTION_STATUS_INDEX);
+		createIndexIfNotExists(PARTITIONQUEUE_TABLE, PARTITIONQUEUE_STATE_INDEX, CREATE_PARTITIONQUEUE_STATE_INDEX);
+		createIndexIfNotExists(PARTITIONQUEUE_TABLE, PARTITIONQUEUE_COORDINATOR_INDEX, CREATE_PARTITIONQUEUE_COORDINATOR_INDEX);
 
 		logger.exiting(CLASSNAME, "checkAllTables");
 	}
@@ -238,7 +319,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	private void createIfNotExists(String tableName, String createTableStatement) throws SQLException {
 		logger.entering(CLASSNAME, "createIfNotExists", new Object[] {tableName, createTableStatement});
 
-		Connection conn = getConnection();
+		Connection conn = getConnection("createIfNotExists");
 		DatabaseMetaData dbmd = conn.getMetaData();
 		ResultSet rs = dbmd.getTables(null, schema, tableName, null);
 		PreparedStatement ps = null;
@@ -253,22 +334,104 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	}
 
 	/**
-	 * Executes the provided SQL statement
+	 * Creates indexName on tableName using the createIndexStatement DDL.
+	 * 
+	 * @param tableName
+	 * @param indexName
+	 * @param createIndexStatement
+	 * @throws SQLException
+	 */
+	private void createIndexIfNotExists(String tableName, String indexName, String createIndexStatement) throws SQLException {
+		logger.entering(CLASSNAME, "createIndexIfNotExists", new Object[] {tableName, indexName, createIndexStatement});
+
+		Connection conn = getConnection("createIndexIfNotExists");
+		DatabaseMetaData dbmd = conn.getMetaData();
+		ResultSet rs = dbmd.getIndexInfo(null, schema, tableName, false, false);
+		boolean exists = false;
+		while (rs.next() && !exists) {
+			exists = indexName.equalsIgnoreCase(rs.getString("INDEX_NAME"));
+		}
+		PreparedStatement ps = null;
+		if (!exists) {
+			logger.log(Level.INFO, indexName + " index does not exists. Trying to create it.");
+			ps = conn.prepareStatement(createIndexStatement);
+			ps.executeUpdate();
+		}
+
+		cleanupConnection(conn, rs, ps);
+		logger.exiting(CLASSNAME, "createIndexIfNotExists");
+	}
+
+	/**
+	 * Migrates a CHECKPOINTDATA table created before the composite (jobinstanceid, stepname, checkpointtype) 
+	 * key was introduced, i.e. one still keyed by the "instanceId,stepName,READER|WRITER" string id, to the 
+	 * new layout, in a single transaction.  (The jsr352-*-migrate-checkpointdata.ddl files do the same for 
+	 * the databases the tables aren't auto-created on.)
 	 * 
-	 * @param statement
 	 * @throws SQLException
 	 */
-	private void executeStatement(String statement) throws SQLException {
-		logger.entering(CLASSNAME, "executeStatement", statement);
+	private void migrateCheckpointDataIfNecessary() throws SQLException {
+		logger.entering(CLASSNAME, "migrateCheckpointDataIfNecessary");
+
+		Connection conn = getConnection("migrateCheckpointDataIfNecessary");
+		ResultSet rs = conn.getMetaData().getColumns(null, schema, CHECKPOINTDATA_TABLE, "ID");
+		if (!rs.next()) {
+			cleanupConnection(conn, rs, null);
+			logger.exiting(CLASSNAME, "migrateCheckpointDataIfNecessary", false);
+			return;
+		}
+		rs.close();
+		rs = null;
 
-		Connection conn = getConnection();
 		PreparedStatement ps = null;
+		PreparedStatement insert = null;
+		boolean committed = false;
 
-		ps = conn.prepareStatement(statement);
-		ps.executeUpdate();
+		try {
+			logger.log(Level.INFO, CHECKPOINTDATA_TABLE + " table has the old string key. Trying to migrate it.");
+			conn.setAutoCommit(false);
+
+			ps = conn.prepareStatement(RENAME_CHECKPOINTDATA_TO_OLD);
+			ps.executeUpdate();
+			ps.close();
+			ps = conn.prepareStatement(CREATE_TAB_CHECKPOINTDATA);
+			ps.executeUpdate();
+			ps.close();
+
+			ps = conn.prepareStatement(SELECT_OLD_CHECKPOINTDATA);
+			insert = conn.prepareStatement(INSERT_CHECKPOINTDATA);
+			rs = ps.executeQuery();
+			while (rs.next()) {
+				String id = rs.getString("id");
+				int firstComma = id.indexOf(',');
+				int lastComma = id.lastIndexOf(',');
+				try {
+					insert.setLong(1, Long.parseLong(id.substring(0, firstComma)));
+					insert.setString(2, id.substring(firstComma + 1, lastComma));
+					insert.setInt(3, CheckpointDataKey.batchDataStreamType(id.substring(lastComma + 1)));
+				} catch (RuntimeException e) {
+					logger.warning("Not migrating checkpoint data with unexpected id: " + id);
+					continue;
+				}
+				insert.setBytes(4, rs.getBytes("obj"));
+				insert.addBatch();
+			}
+			insert.executeBatch();
+			rs.close();
+			rs = null;
+			ps.close();
+
+			ps = conn.prepareStatement(DROP_OLD_CHECKPOINTDATA);
+			ps.executeUpdate();
 
-		cleanupConnection(conn, ps);
-		logger.exiting(CLASSNAME, "executeStatement");
+			conn.commit();
+			committed = true;
+		} finally {
+			endTransaction(conn, committed);
+			cleanupConnection(null, insert);
+			cleanupConnection(conn, rs, ps);
+		}
+		logger.exiting(CLASSNAME, "migrateCheckpointDataIfNecessary", true);
 	}
 
 
@@ -278,7 +441,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	@Override
 	public void createCheckpointData(CheckpointDataKey key, CheckpointData value) {
 		logger.entering(CLASSNAME, "createCheckpointData", new Object[] {key, value});
-		insertCheckpointData(key.getCommaSeparatedKey(), value);
+		insertCheckpointData(key, value);
 		logger.exiting(CLASSNAME, "createCheckpointData");
 	}
 
@@ -288,7 +451,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	@Override
 	public CheckpointData getCheckpointData(CheckpointDataKey key) {
 		logger.entering(CLASSNAME, "getCheckpointData", key==null ? "<null>" : key);
-		CheckpointData checkpointData = queryCheckpointData(key.getCommaSeparatedKey());
+		CheckpointData checkpointData = queryCheckpointData(key);
 		logger.exiting(CLASSNAME, "getCheckpointData", checkpointData==null ? "<null>" : checkpointData);
 		return checkpointData;
 	}
@@ -299,9 +462,9 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	@Override
 	public void updateCheckpointData(CheckpointDataKey key, CheckpointData value) {
 		logger.entering(CLASSNAME, "updateCheckpointData", new Object[] {key, value});
-		CheckpointData data = queryCheckpointData(key.getCommaSeparatedKey());
+		CheckpointData data = queryCheckpointData(key);
 		if(data != null) {
-			updateCheckpointData(key.getCommaSeparatedKey(), value);
+			updateExistingCheckpointData(key, value);
 		} else {
 			createCheckpointData(key, value);
 		}
@@ -309,13 +472,120 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	}
 
 
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#updateCheckpointData(java.util.Map)
+	 *
+	 * Updates are sent as one JDBC batch, and any entries not found are then inserted as a second batch.
+	 */
+	@Override
+	public void updateCheckpointData(Map<CheckpointDataKey, CheckpointData> checkpointData) {
+		logger.entering(CLASSNAME, "updateCheckpointData", checkpointData.keySet());
+		Connection conn = null;
+		PreparedStatement updateStatement = null;
+		PreparedStatement insertStatement = null;
+		boolean committed = false;
+
+		try {
+			List<CheckpointDataKey> keys = new ArrayList<CheckpointDataKey>(checkpointData.size());
+			List<byte[]> values = new ArrayList<byte[]>(checkpointData.size());
+			for (Map.Entry<CheckpointDataKey, CheckpointData> entry : checkpointData.entrySet()) {
+				keys.add(entry.getKey());
+				values.add(serializeObject(entry.getValue()));
+			}
+
+			conn = getConnection("updateCheckpointData");
+			conn.setAutoCommit(false);
+
+			updateStatement = conn.prepareStatement(UPDATE_CHECKPOINTDATA);
+			for (int i = 0; i < keys.size(); i++) {
+				updateStatement.setBytes(1, values.get(i));
+				setCheckpointDataKey(updateStatement, 2, keys.get(i));
+				updateStatement.addBatch();
+			}
+			int[] updateCounts = updateStatement.executeBatch();
+
+			for (int i = 0; i < keys.size(); i++) {
+				// Statement.SUCCESS_NO_INFO is negative, so only a definite 0 is treated as "not found"
+				if (updateCounts[i] == 0) {
+					if (insertStatement == null) {
+						insertStatement = conn.prepareStatement(INSERT_CHECKPOINTDATA);
+					}
+					setCheckpointDataKey(insertStatement, 1, keys.get(i));
+					insertStatement.setBytes(4, values.get(i));
+					insertStatement.addBatch();
+				}
+			}
+			if (insertStatement != null) {
+				insertStatement.executeBatch();
+			}
+
+			conn.commit();
+			committed = true;
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} catch (IOException e) {
+			throw new PersistenceException(e);
+		} finally {
+			endTransaction(conn, committed);
+			cleanupConnection(null, insertStatement);
+			cleanupConnection(conn, null, updateStatement);
+		}
+		logger.exiting(CLASSNAME, "updateCheckpointData");
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#updateCheckpointDataGroupCommit(java.util.Map)
+	 */
+	@Override
+	public void updateCheckpointDataGroupCommit(Map<CheckpointDataKey, CheckpointData> checkpointData) {
+		if (checkpointGroupCommitter != null) {
+			checkpointGroupCommitter.write(checkpointData);
+		} else {
+			updateCheckpointData(checkpointData);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#deleteCheckpointData(long, java.lang.String)
+	 */
+	@Override
+	public void deleteCheckpointData(long jobInstanceId, String stepName) {
+		logger.entering(CLASSNAME, "deleteCheckpointData", new Object[] {jobInstanceId, stepName});
+		Connection conn = null;
+		PreparedStatement statement = null;
+		try {
+			conn = getConnection("deleteCheckpointData");
+			statement = conn.prepareStatement(DELETE_CHECKPOINTDATA);
+			statement.setLong(1, jobInstanceId);
+			statement.setString(2, stepName);
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, null, statement);
+		}
+		logger.exiting(CLASSNAME, "deleteCheckpointData");
+	}
+
+	/**
+	 * @return the database connection and sets it to the default schema JBATCH or the schema defined in batch-config.
+	 * Its statements are metered under the operation name "getConnection".
+	 *
+	 * @throws SQLException
+	 */
+	protected Connection getConnection() throws SQLException {
+		return getConnection("getConnection");
+	}
+
 	/**
+	 * @param operation the persistence operation the connection is for, which its statements are metered under
 	 * @return the database connection and sets it to the default schema JBATCH or the schema defined in batch-config.
 	 * 
 	 * @throws SQLException
 	 */
-	protected Connection getConnection() throws SQLException {
+	protected Connection getConnection(String operation) throws SQLException {
 		logger.finest("Entering: " + CLASSNAME + ".getConnection");
+		long start = System.nanoTime();
 		Connection connection = null;
 
 		if(!batchConfig.isJ2seMode()) {
@@ -335,7 +605,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		setSchemaOnConnection(connection);
 
 		logger.finest("Exiting: " + CLASSNAME + ".getConnection() with conn =" + connection);
-		return connection;
+		return MeteredConnection.wrap(connection, operation, metrics, start);
 	}
 
 	/**
@@ -411,12 +681,12 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	/**
 	 * select data from DB table
 	 * 
-	 * @param key - the IPersistenceDataKey object
+	 * @param key - the CheckpointDataKey object
 	 * @return List of serializable objects store in the DB table
 	 * 
-	 * Ex. select id, obj from tablename where id = ?
+	 * Ex. select obj from tablename where jobinstanceid = ? and stepname = ? and checkpointtype = ?
 	 */
-	private CheckpointData queryCheckpointData(Object key) {
+	private CheckpointData queryCheckpointData(CheckpointDataKey key) {
 		logger.entering(CLASSNAME, "queryCheckpointData", new Object[] {key, SELECT_CHECKPOINTDATA});
 		Connection conn = null;
 		PreparedStatement statement = null;
@@ -424,9 +694,9 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		ObjectInputStream objectIn = null;
 		CheckpointData data = null;
 		try {
-			conn = getConnection();
+			conn = getConnection("queryCheckpointData");
 			statement = conn.prepareStatement(SELECT_CHECKPOINTDATA);
-			statement.setObject(1, key);
+			setCheckpointDataKey(statement, 1, key);
 			rs = statement.executeQuery();
 			if (rs.next()) {
 				byte[] buf = rs.getBytes("obj");
@@ -456,12 +726,12 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	/**
 	 * insert data to DB table
 	 * 
-	 * @param key - the IPersistenceDataKey object
+	 * @param key - the CheckpointDataKey object
 	 * @param value - serializable object to store  
 	 * 
-	 * Ex. insert into tablename values(?, ?)
+	 * Ex. insert into tablename (jobinstanceid, stepname, checkpointtype, obj) values(?, ?, ?, ?)
 	 */
-	private <T> void insertCheckpointData(Object key, T value) {
+	private <T> void insertCheckpointData(CheckpointDataKey key, T value) {
 		logger.entering(CLASSNAME, "insertCheckpointData", new Object[] {key, value});
 		Connection conn = null;
 		PreparedStatement statement = null;
@@ -469,7 +739,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		ObjectOutputStream oout = null;
 		byte[] b;
 		try {
-			conn = getConnection();
+			conn = getConnection("insertCheckpointData");
 			statement = conn.prepareStatement(INSERT_CHECKPOINTDATA);
 			baos = new ByteArrayOutputStream();
 			oout = new ObjectOutputStream(baos);
@@ -477,8 +747,8 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 
 			b = baos.toByteArray();
 
-			statement.setObject(1, key);
-			statement.setBytes(2, b);
+			setCheckpointDataKey(statement, 1, key);
+			statement.setBytes(4, b);
 			statement.executeUpdate();
 		} catch (SQLException e) {
 			throw new PersistenceException(e);
@@ -508,20 +778,20 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	 * update data in DB table
 	 * 
 	 * @param value - serializable object to store 
-	 * @param key - the IPersistenceDataKey object
+	 * @param key - the CheckpointDataKey object
 	 * @param query - SQL statement to execute. 
 	 * 
-	 * Ex. update tablename set obj = ? where id = ?
+	 * Ex. update tablename set obj = ? where jobinstanceid = ? and stepname = ? and checkpointtype = ?
 	 */
-	private void updateCheckpointData(Object key, CheckpointData value) {
-		logger.entering(CLASSNAME, "updateCheckpointData", new Object[] {key, value});
+	private void updateExistingCheckpointData(CheckpointDataKey key, CheckpointData value) {
+		logger.entering(CLASSNAME, "updateExistingCheckpointData", new Object[] {key, value});
 		Connection conn = null;
 		PreparedStatement statement = null;
 		ByteArrayOutputStream baos = null;
 		ObjectOutputStream oout = null;
 		byte[] b;
 		try {
-			conn = getConnection();
+			conn = getConnection("updateExistingCheckpointData");
 			statement = conn.prepareStatement(UPDATE_CHECKPOINTDATA);
 			baos = new ByteArrayOutputStream();
 			oout = new ObjectOutputStream(baos);
@@ -530,7 +800,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 			b = baos.toByteArray();
 
 			statement.setBytes(1, b);
-			statement.setObject(2, key);
+			setCheckpointDataKey(statement, 2, key);
 			statement.executeUpdate();
 		} catch (SQLException e) {
 			throw new PersistenceException(e);
@@ -553,11 +823,42 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 			}
 			cleanupConnection(conn, null, statement);
 		}
-		logger.exiting(CLASSNAME, "updateCheckpointData");
+		logger.exiting(CLASSNAME, "updateExistingCheckpointData");
 	}
 
 
 
+	/**
+	 * Sets the jobinstanceid, stepname and checkpointtype parameters identifying a checkpoint,
+	 * starting at the given parameter index.
+	 */
+	private void setCheckpointDataKey(PreparedStatement statement, int index, CheckpointDataKey key) throws SQLException {
+		statement.setLong(index, key.getJobInstanceId());
+		statement.setString(index + 1, key.getStepName());
+		statement.setInt(index + 2, key.getBatchDataStreamType());
+	}
+
+	/**
+	 * Rolls back a transaction begun with setAutoCommit(false) unless it was committed, and
+	 * restores auto-commit so the connection can safely be handed back to a pool.
+	 * 
+	 * @param conn - connection the transaction was run on (may be null)
+	 * @param committed - whether the transaction was successfully committed
+	 */
+	private void endTransaction(Connection conn, boolean committed) {
+		if (conn == null) {
+			return;
+		}
+		try {
+			if (!committed) {
+				conn.rollback();
+			}
+			conn.setAutoCommit(true);
+		} catch (SQLException e) {
+			logger.log(Level.FINE, "Failed ending transaction on connection: " + conn, e);
+		}
+	}
+
 	/**
 	 * closes connection, result set and statement
 	 * 
@@ -645,7 +946,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		int count;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorGetJobInstanceCount");
 			statement = conn.prepareStatement("select count(jobinstanceid) as jobinstancecount from jobinstancedata where name = ? and apptag = ?");
 			statement.setString(1, jobName);
 			statement.setString(2, appTag);
@@ -671,7 +972,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		int count;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorGetJobInstanceCount");
 			statement = conn.prepareStatement(SELECT_JOBINSTANCEDATA_COUNT);
 			statement.setString(1, jobName);
 			rs = statement.executeQuery();
@@ -696,7 +997,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		List<Long> data = new ArrayList<Long>();
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorGetJobInstanceIds");
 			statement = conn.prepareStatement("select jobinstanceid from jobinstancedata where name = ? and apptag = ? order by jobinstanceid desc");
 			statement.setObject(1, jobName);
 			statement.setObject(2, appTag);
@@ -735,7 +1036,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		List<Long> data = new ArrayList<Long>();
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorGetJobInstanceIds");
 			statement = conn.prepareStatement(SELECT_JOBINSTANCEDATA_IDS);
 			statement.setObject(1, jobName);
 			rs = statement.executeQuery();
@@ -770,7 +1071,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		HashMap<Long, String> data = new HashMap<Long,String>();
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorGetExternalJobInstanceData");
 
 			// Filter out 'subjob' parallel execution entries which start with the special character
 			final String filter = "not like '" + PartitionedStepBuilder.JOB_ID_SEPARATOR + "%'";
@@ -806,7 +1107,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		Timestamp startTimestamp = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorQueryJobExecutionTimestamp");
 			statement = conn.prepareStatement("select createtime, endtime, updatetime, starttime from executioninstancedata where jobexecid = ?");
 			statement.setObject(1, key);
 			rs = statement.executeQuery();
@@ -845,7 +1146,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		String status = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorQueryJobExecutionBatchStatus");
 			statement = conn.prepareStatement("select batchstatus from executioninstancedata where jobexecid = ?");
 			statement.setLong(1, key);
 			rs = statement.executeQuery();
@@ -871,7 +1172,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		String status = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorQueryJobExecutionExitStatus");
 			statement = conn.prepareStatement("select exitstatus from executioninstancedata where jobexecid = ?");
 			statement.setLong(1, key);
 			rs = statement.executeQuery();
@@ -896,7 +1197,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		long jobinstanceID = 0;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorQueryJobExecutionJobInstanceId");
 			statement = conn.prepareStatement("select jobinstanceid from executioninstancedata where jobexecid = ?");
 			statement.setLong(1, executionID);
 			rs = statement.executeQuery();
@@ -926,7 +1227,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		ObjectInputStream objectIn = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("getParameters");
 			statement = conn.prepareStatement("select parameters from executioninstancedata where jobexecid = ?"); 
 			statement.setLong(1, executionId);
 			rs = statement.executeQuery();
@@ -991,7 +1292,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		ObjectInputStream objectIn = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("getMostRecentStepExecutionsForJobInstance");
 			statement = conn.prepareStatement("select A.* from stepexecutioninstancedata A inner join executioninstancedata B on A.jobexecid = B.jobexecid where B.jobinstanceid = ? order by A.stepexecid desc"); 
 			statement.setLong(1, instanceId);
 			rs = statement.executeQuery();
@@ -1084,7 +1385,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		List<StepExecution> data = new ArrayList<StepExecution>();
 
 		try {
-			conn = getConnection();
+			conn = getConnection("getStepExecutionsForJobExecution");
 			statement = conn.prepareStatement("select * from stepexecutioninstancedata where jobexecid = ?"); 
 			statement.setLong(1, execid);
 			rs = statement.executeQuery();
@@ -1173,7 +1474,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		ObjectInputStream objectIn = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("getStepExecutionByStepExecutionId");
 			statement = conn.prepareStatement("select * from stepexecutioninstancedata where stepexecid = ?");
 			statement.setLong(1, stepExecId);
 			rs = statement.executeQuery();
@@ -1242,7 +1543,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		byte[] b;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("updateBatchStatusOnly");
 			statement = conn.prepareStatement("update executioninstancedata set batchstatus = ?, updatetime = ? where jobexecid = ?");
 			statement.setString(1, batchStatus.name());
 			statement.setTimestamp(2, updatets);
@@ -1281,7 +1582,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		byte[] b;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("updateWithFinalExecutionStatusesAndTimestamps");
 			statement = conn.prepareStatement("update executioninstancedata set batchstatus = ?, exitstatus = ?, endtime = ?, updatetime = ? where jobexecid = ?");
 
 			statement.setString(1, batchStatus.name());
@@ -1321,7 +1622,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		ObjectOutputStream oout = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("markJobStarted");
 			statement = conn.prepareStatement("update executioninstancedata set batchstatus = ?, starttime = ?, updatetime = ? where jobexecid = ?");
 
 			statement.setString(1, BatchStatus.STARTED.name());
@@ -1362,7 +1663,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		ObjectInputStream objectIn = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorGetJobExecution");
 			statement = conn.prepareStatement("select A.jobexecid, A.createtime, A.starttime, A.endtime, A.updatetime, A.parameters, A.jobinstanceid, A.batchstatus, A.exitstatus, B.name from executioninstancedata A inner join jobinstancedata B on A.jobinstanceid = B.jobinstanceid where jobexecid = ?"); 
 			statement.setLong(1, jobExecutionId);
 			rs = statement.executeQuery();
@@ -1396,7 +1697,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		ObjectInputStream objectIn = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorGetJobExecutions");
 			statement = conn.prepareStatement("select A.jobexecid, A.jobinstanceid, A.createtime, A.starttime, A.endtime, A.updatetime, A.parameters, A.batchstatus, A.exitstatus, B.name from executioninstancedata A inner join jobinstancedata B ON A.jobinstanceid = B.jobinstanceid where A.jobinstanceid = ?"); 
 			statement.setLong(1, jobInstanceId);
 			rs = statement.executeQuery();
@@ -1452,7 +1753,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		Set<Long> executionIds = new HashSet<Long>();
 
 		try {
-			conn = getConnection();
+			conn = getConnection("jobOperatorGetRunningExecutions");
 			statement = conn.prepareStatement("SELECT A.jobexecid FROM executioninstancedata A INNER JOIN jobinstancedata B ON A.jobinstanceid = B.jobinstanceid WHERE A.batchstatus IN (?,?,?) AND B.name = ?"); 
 			statement.setString(1, BatchStatus.STARTED.name());
 			statement.setString(2, BatchStatus.STARTING.name());
@@ -1479,7 +1780,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		String apptag = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("getJobCurrentTag");
 			statement = conn.prepareStatement(SELECT_JOBINSTANCEDATA_APPTAG); 
 			statement.setLong(1, jobInstanceId);
 			rs = statement.executeQuery();
@@ -1500,43 +1801,169 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	public void purge(String apptag) {
 
 		logger.entering(CLASSNAME, "purge", apptag);
-		String deleteJobs = "DELETE FROM jobinstancedata WHERE apptag = ?";
-		String deleteJobExecutions = "DELETE FROM executioninstancedata " 
-				+ "WHERE jobexecid IN (" 
-				+ "SELECT B.jobexecid FROM jobinstancedata A INNER JOIN executioninstancedata B " 
-				+ "ON A.jobinstanceid = B.jobinstanceid " 
-				+ "WHERE A.apptag = ?)";
-		String deleteStepExecutions = "DELETE FROM stepexecutioninstancedata " 
-				+ "WHERE stepexecid IN ("
-				+ "SELECT C.stepexecid FROM jobinstancedata A INNER JOIN executioninstancedata B "
-				+ "ON A.jobinstanceid = B.jobinstanceid INNER JOIN stepexecutioninstancedata C "
-				+ "ON B.jobexecid = C.jobexecid "
-				+ "WHERE A.apptag = ?)";
+		purgeJobInstances(apptag, null, null);
+		logger.exiting(CLASSNAME, "purge");
+
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#purgeJobInstances(java.lang.String, java.lang.String, java.sql.Timestamp)
+	 */
+	@Override
+	public int purgeJobInstances(String apptag, String jobName, Timestamp endedBefore) {
+		logger.entering(CLASSNAME, "purgeJobInstances", new Object[] {apptag, jobName, endedBefore});
+
+		int purged = 0;
+		long lastInstanceId = 0;
+		while (true) {
+			List<Long> instanceIds = selectJobInstancesToPurge(apptag, jobName, endedBefore, lastInstanceId);
+			if (instanceIds.isEmpty()) {
+				break;
+			}
+			deleteJobInstances(instanceIds);
+			purged += instanceIds.size();
+			lastInstanceId = instanceIds.get(instanceIds.size() - 1);
+
+			if (logger.isLoggable(Level.FINE)) {
+				logger.fine("Purged " + purged + " job instances so far, up to job instance id: " + lastInstanceId);
+			}
+			if (instanceIds.size() < purgeBatchSize) {
+				break;
+			}
+			if (purgeBatchPauseMillis > 0) {
+				try {
+					Thread.sleep(purgeBatchPauseMillis);
+				} catch (InterruptedException e) {
+					// Stop here; every batch purged so far is committed.
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+
+		logger.exiting(CLASSNAME, "purgeJobInstances", purged);
+		return purged;
+	}
+
+	/**
+	 * @return the next batch of (top-level) job instance ids to purge, after the given id, in ascending order
+	 */
+	private List<Long> selectJobInstancesToPurge(String apptag, String jobName, Timestamp endedBefore, long afterInstanceId) {
+		StringBuilder query = new StringBuilder("SELECT A.jobinstanceid FROM jobinstancedata A WHERE A.jobinstanceid > ? ");
+		// Sub-jobs are purged along with their top-level job
+		query.append("AND A.name NOT LIKE '" + PartitionedStepBuilder.JOB_ID_SEPARATOR + "%' ");
+		if (apptag != null) {
+			query.append("AND A.apptag = ? ");
+		}
+		if (jobName != null) {
+			query.append("AND A.name = ? ");
+		}
+		if (endedBefore != null) {
+			query.append("AND EXISTS (SELECT 1 FROM executioninstancedata B WHERE B.jobinstanceid = A.jobinstanceid) ");
+			query.append("AND NOT EXISTS (SELECT 1 FROM executioninstancedata B WHERE B.jobinstanceid = A.jobinstanceid ");
+			query.append("AND (B.endtime IS NULL OR B.endtime >= ?)) ");
+		}
+		query.append("ORDER BY A.jobinstanceid");
 
 		Connection conn = null;
 		PreparedStatement statement = null;
+		ResultSet rs = null;
+		List<Long> instanceIds = new ArrayList<Long>();
+
 		try {
-			conn = getConnection();
-			statement = conn.prepareStatement(deleteStepExecutions);
-			statement.setString(1, apptag);
-			statement.executeUpdate();
+			conn = getConnection("selectJobInstancesToPurge");
+			statement = conn.prepareStatement(query.toString());
+			statement.setMaxRows(purgeBatchSize);
+			int index = 1;
+			statement.setLong(index++, afterInstanceId);
+			if (apptag != null) {
+				statement.setString(index++, apptag);
+			}
+			if (jobName != null) {
+				statement.setString(index++, jobName);
+			}
+			if (endedBefore != null) {
+				statement.setTimestamp(index++, endedBefore);
+			}
+			rs = statement.executeQuery();
+			while (rs.next()) {
+				instanceIds.add(rs.getLong(1));
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, rs, statement);
+		}
+		return instanceIds;
+	}
 
-			statement = conn.prepareStatement(deleteJobExecutions);
-			statement.setString(1, apptag);
-			statement.executeUpdate();
+	/**
+	 * Deletes the given job instances and their sub-job instances, along with everything
+	 * belonging to them, from all the tables, in a single transaction.
+	 */
+	private void deleteJobInstances(List<Long> topLevelInstanceIds) {
+		logger.entering(CLASSNAME, "deleteJobInstances", topLevelInstanceIds);
+
+		String stepExecutionIds = "SELECT C.stepexecid FROM executioninstancedata B INNER JOIN stepexecutioninstancedata C "
+				+ "ON B.jobexecid = C.jobexecid WHERE B.jobinstanceid = ?";
+		// Children first, in case the foreign keys don't cascade
+		String[] deletes = new String[] {
+				"DELETE FROM checkpointdata WHERE jobinstanceid = ?",
+				"DELETE FROM stepuserdata WHERE id IN (" + stepExecutionIds + ")",
+				"DELETE FROM stepstatus WHERE id IN (" + stepExecutionIds + ")",
+				"DELETE FROM stepexecutioninstancedata WHERE jobexecid IN (SELECT jobexecid FROM executioninstancedata WHERE jobinstanceid = ?)",
+				"DELETE FROM partitionevent WHERE queueid IN (SELECT D.id FROM executioninstancedata B INNER JOIN partitionqueue D "
+						+ "ON B.jobexecid = D.jobexecid WHERE B.jobinstanceid = ?)",
+				"DELETE FROM partitionqueue WHERE jobexecid IN (SELECT jobexecid FROM executioninstancedata WHERE jobinstanceid = ?)",
+				"DELETE FROM executioninstancedata WHERE jobinstanceid = ?",
+				"DELETE FROM jobstatus WHERE id = ?",
+				"DELETE FROM jobinstancedata WHERE jobinstanceid = ?" };
 
-			statement = conn.prepareStatement(deleteJobs);
-			statement.setString(1, apptag);
-			statement.executeUpdate();
+		Connection conn = null;
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+		boolean committed = false;
+
+		try {
+			conn = getConnection("deleteJobInstances");
+			conn.setAutoCommit(false);
+
+			// Sub-jobs are named after the instance id of their parent, which can itself be a sub-job
+			// (e.g. a partitioned step within a split-flow).
+			List<Long> instanceIds = new ArrayList<Long>(topLevelInstanceIds);
+			statement = conn.prepareStatement("SELECT jobinstanceid FROM jobinstancedata WHERE name LIKE ?");
+			for (int i = 0; i < instanceIds.size(); i++) {
+				statement.setString(1, PartitionedStepBuilder.JOB_ID_SEPARATOR + instanceIds.get(i) + PartitionedStepBuilder.JOB_ID_SEPARATOR + "%");
+				rs = statement.executeQuery();
+				while (rs.next()) {
+					instanceIds.add(rs.getLong(1));
+				}
+				rs.close();
+				rs = null;
+			}
+			statement.close();
+			statement = null;
+
+			for (String delete : deletes) {
+				statement = conn.prepareStatement(delete);
+				for (long instanceId : instanceIds) {
+					statement.setLong(1, instanceId);
+					statement.addBatch();
+				}
+				statement.executeBatch();
+				statement.close();
+				statement = null;
+			}
 
+			conn.commit();
+			committed = true;
 		} catch (SQLException e) {
 			throw new PersistenceException(e);
 		} finally {
-
-			cleanupConnection(conn, null, statement);
+			endTransaction(conn, committed);
+			cleanupConnection(conn, rs, statement);
 		}
-		logger.exiting(CLASSNAME, "purge");
-
+		logger.exiting(CLASSNAME, "deleteJobInstances");
 	}
 
 	@Override
@@ -1548,7 +1975,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		JobStatus retVal = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("getJobStatusFromExecution");
 			statement = conn.prepareStatement("select A.obj from jobstatus A inner join " + 
 					"executioninstancedata B on A.id = B.jobinstanceid where B.jobexecid = ?");
 			statement.setLong(1, executionId);
@@ -1575,7 +2002,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		ResultSet rs = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("getJobInstanceIdByExecutionId");
 			statement = conn.prepareStatement("select jobinstanceid from executioninstancedata where jobexecid = ?");
 			statement.setObject(1, executionId);
 			rs = statement.executeQuery();
@@ -1646,7 +2073,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		JobInstanceImpl jobInstance = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("createSubJobInstance");
 			statement = conn.prepareStatement("INSERT INTO jobinstancedata (name, apptag) VALUES(?, ?)", new String[] { "JOBINSTANCEID" } );
 			statement.setString(1, name);
 			statement.setString(2, apptag); 
@@ -1666,94 +2093,354 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	}
 
 	/* (non-Javadoc)
-	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#createJobInstance(java.lang.String, java.lang.String, java.lang.String, java.util.Properties)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#createPartitionSubJobExecutions(java.util.List, java.lang.String, java.util.List, jakarta.batch.runtime.BatchStatus)
+	 *
+	 * All rows go through one connection and one transaction, reusing one prepared statement per table,
+	 * rather than a connection per row.  The instance and execution inserts are executed row by row since
+	 * returning generated keys from a JDBC batch isn't portable across drivers; the job status rows, which
+	 * need no generated key, are sent as a single batch.
 	 */
 	@Override
-	public JobInstance createJobInstance(String name, String apptag, String jobXml) {
+	public List<RuntimeJobExecution> createPartitionSubJobExecutions(List<String> subJobNames, String apptag,
+			List<Properties> partitionParameters, BatchStatus batchStatus) {
+		logger.entering(CLASSNAME, "createPartitionSubJobExecutions", new Object[] {subJobNames, apptag, batchStatus});
+
+		List<RuntimeJobExecution> jobExecutions = new ArrayList<RuntimeJobExecution>(subJobNames.size());
 		Connection conn = null;
-		PreparedStatement statement = null;
+		PreparedStatement instanceStatement = null;
+		PreparedStatement executionStatement = null;
+		PreparedStatement statusStatement = null;
 		ResultSet rs = null;
-		JobInstanceImpl jobInstance = null;
+		boolean committed = false;
+		Timestamp now = new Timestamp(System.currentTimeMillis());
 
 		try {
-			conn = getConnection();
-			statement = conn.prepareStatement("INSERT INTO jobinstancedata (name, apptag) VALUES(?, ?)", new String[] { "JOBINSTANCEID" } );
-			statement.setString(1, name);
-			statement.setString(2, apptag);
-			statement.executeUpdate();
-			rs = statement.getGeneratedKeys();
-			if(rs.next()) {
-				long jobInstanceID = rs.getLong(1);
-				jobInstance = new JobInstanceImpl(jobInstanceID, jobXml);
+			conn = getConnection("createPartitionSubJobExecutions");
+			conn.setAutoCommit(false);
+
+			instanceStatement = conn.prepareStatement("INSERT INTO jobinstancedata (name, apptag) VALUES(?, ?)", new String[] { "JOBINSTANCEID" } );
+			executionStatement = conn.prepareStatement("INSERT INTO executioninstancedata (jobinstanceid, createtime, updatetime, batchstatus, parameters) VALUES(?, ?, ?, ?, ?)", new String[] { "JOBEXECID" });
+			statusStatement = conn.prepareStatement("INSERT INTO jobstatus (id, obj) VALUES(?, ?)");
+
+			for (int i = 0; i < subJobNames.size(); i++) {
+				String name = subJobNames.get(i);
+				Properties jobParameters = (partitionParameters == null) ? null : partitionParameters.get(i);
+
+				instanceStatement.setString(1, name);
+				instanceStatement.setString(2, apptag);
+				instanceStatement.executeUpdate();
+				rs = instanceStatement.getGeneratedKeys();
+				if (!rs.next()) {
+					throw new PersistenceException("No job instance id generated for sub-job: " + name);
+				}
+				JobInstanceImpl jobInstance = new JobInstanceImpl(rs.getLong(1));
 				jobInstance.setJobName(name);
+				rs.close();
+
+				executionStatement.setLong(1, jobInstance.getInstanceId());
+				executionStatement.setTimestamp(2, now);
+				executionStatement.setTimestamp(3, now);
+				executionStatement.setString(4, batchStatus.name());
+				executionStatement.setObject(5, serializeObject(jobParameters));
+				executionStatement.executeUpdate();
+				rs = executionStatement.getGeneratedKeys();
+				if (!rs.next()) {
+					throw new PersistenceException("No job execution id generated for sub-job: " + name);
+				}
+				long executionId = rs.getLong(1);
+				rs.close();
+				rs = null;
+
+				JobStatus jobStatus = new JobStatus(jobInstance.getInstanceId());
+				jobStatus.setJobInstance(jobInstance);
+				statusStatement.setLong(1, jobInstance.getInstanceId());
+				statusStatement.setBytes(2, serializeObject(jobStatus));
+				statusStatement.addBatch();
+
+				RuntimeJobExecution jobExecution = new RuntimeJobExecution(jobInstance, executionId);
+				jobExecution.setBatchStatus(batchStatus.name());
+				jobExecution.setCreateTime(now);
+				jobExecution.setLastUpdateTime(now);
+				jobExecutions.add(jobExecution);
 			}
+
+			statusStatement.executeBatch();
+			conn.commit();
+			committed = true;
 		} catch (SQLException e) {
 			throw new PersistenceException(e);
+		} catch (IOException e) {
+			throw new PersistenceException(e);
 		} finally {
-			cleanupConnection(conn, rs, statement);
+			endTransaction(conn, committed);
+			cleanupConnection(null, instanceStatement);
+			cleanupConnection(null, executionStatement);
+			cleanupConnection(conn, rs, statusStatement);
 		}
-		return jobInstance;
+
+		logger.exiting(CLASSNAME, "createPartitionSubJobExecutions", jobExecutions.size());
+		return jobExecutions;
 	}
 
 	/* (non-Javadoc)
-	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#createJobExecution(com.ibm.jbatch.container.jsl.JobNavigator, jakarta.batch.runtime.JobInstance, java.util.Properties, com.ibm.jbatch.container.context.impl.JobContextImpl)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#startJobUnit(java.lang.String, java.lang.String, java.lang.String, java.util.Properties)
+	 *
+	 * As in createPartitionSubJobExecutions, all rows go through one connection and one transaction.
 	 */
 	@Override
-	public RuntimeJobExecution createJobExecution(JobInstance jobInstance, Properties jobParameters, BatchStatus batchStatus) {
-		Timestamp now = new Timestamp(System.currentTimeMillis());
-		long newExecutionId = createRuntimeJobExecutionEntry(jobInstance, jobParameters, batchStatus, now);
-		RuntimeJobExecution jobExecution = new RuntimeJobExecution(jobInstance, newExecutionId);
-		jobExecution.setBatchStatus(batchStatus.name());
-		jobExecution.setCreateTime(now);
-		jobExecution.setLastUpdateTime(now);
-		return jobExecution;
-	}
+	public RuntimeJobExecution startJobUnit(String name, String apptag, String jobXml, Properties jobParameters) {
+		logger.entering(CLASSNAME, "startJobUnit", new Object[] {name, apptag});
 
-	private long createRuntimeJobExecutionEntry(JobInstance jobInstance, Properties jobParameters, BatchStatus batchStatus, Timestamp timestamp) {
+		RuntimeJobExecution jobExecution = null;
 		Connection conn = null;
 		PreparedStatement statement = null;
 		ResultSet rs = null;
-		long newJobExecutionId = 0L;
+		boolean committed = false;
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+
 		try {
-			conn = getConnection();
+			conn = getConnection("startJobUnit");
+			conn.setAutoCommit(false);
+
+			statement = conn.prepareStatement("INSERT INTO jobinstancedata (name, apptag) VALUES(?, ?)", new String[] { "JOBINSTANCEID" } );
+			statement.setString(1, name);
+			statement.setString(2, apptag);
+			statement.executeUpdate();
+			rs = statement.getGeneratedKeys();
+			if (!rs.next()) {
+				throw new PersistenceException("No job instance id generated for job: " + name);
+			}
+			JobInstanceImpl jobInstance = new JobInstanceImpl(rs.getLong(1), jobXml);
+			jobInstance.setJobName(name);
+			rs.close();
+			rs = null;
+			statement.close();
+
 			statement = conn.prepareStatement("INSERT INTO executioninstancedata (jobinstanceid, createtime, updatetime, batchstatus, parameters) VALUES(?, ?, ?, ?, ?)", new String[] { "JOBEXECID" });
 			statement.setLong(1, jobInstance.getInstanceId());
-			statement.setTimestamp(2, timestamp);
-			statement.setTimestamp(3, timestamp);
-			statement.setString(4, batchStatus.name());
+			statement.setTimestamp(2, now);
+			statement.setTimestamp(3, now);
+			statement.setString(4, BatchStatus.STARTING.name());
 			statement.setObject(5, serializeObject(jobParameters));
 			statement.executeUpdate();
 			rs = statement.getGeneratedKeys();
-			if(rs.next()) {
-				newJobExecutionId = rs.getLong(1);
+			if (!rs.next()) {
+				throw new PersistenceException("No job execution id generated for job: " + name);
 			}
+			long executionId = rs.getLong(1);
+			rs.close();
+			rs = null;
+			statement.close();
+
+			JobStatus jobStatus = new JobStatus(jobInstance.getInstanceId());
+			jobStatus.setJobInstance(jobInstance);
+			statement = conn.prepareStatement("INSERT INTO jobstatus (id, obj) VALUES(?, ?)");
+			statement.setLong(1, jobInstance.getInstanceId());
+			statement.setBytes(2, serializeObject(jobStatus));
+			statement.executeUpdate();
+
+			conn.commit();
+			committed = true;
+
+			jobExecution = new RuntimeJobExecution(jobInstance, executionId);
+			jobExecution.setBatchStatus(BatchStatus.STARTING.name());
+			jobExecution.setCreateTime(now);
+			jobExecution.setLastUpdateTime(now);
 		} catch (SQLException e) {
 			throw new PersistenceException(e);
 		} catch (IOException e) {
 			throw new PersistenceException(e);
 		} finally {
+			endTransaction(conn, committed);
 			cleanupConnection(conn, rs, statement);
 		}
-		return newJobExecutionId;
-	}
 
-	@Override
-	public RuntimeFlowInSplitExecution createFlowInSplitExecution(JobInstance jobInstance, BatchStatus batchStatus) {
-		Timestamp now = new Timestamp(System.currentTimeMillis());
-		long newExecutionId = createRuntimeJobExecutionEntry(jobInstance, null, batchStatus, now);
-		RuntimeFlowInSplitExecution flowExecution = new RuntimeFlowInSplitExecution(jobInstance, newExecutionId);
-		flowExecution.setBatchStatus(batchStatus.name());
-		flowExecution.setCreateTime(now);
-		flowExecution.setLastUpdateTime(now);
-		return flowExecution;
+		logger.exiting(CLASSNAME, "startJobUnit", jobExecution);
+		return jobExecution;
 	}
 
 	/* (non-Javadoc)
-	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#createStepExecution(long, com.ibm.jbatch.container.context.impl.StepContextImpl)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#startJobUnits(java.lang.String, java.lang.String, java.lang.String, java.util.List)
 	 */
 	@Override
-	public StepExecutionImpl createStepExecution(long rootJobExecId, StepContextImpl stepContext) {
-		StepExecutionImpl stepExecution = null;
+	public List<RuntimeJobExecution> startJobUnits(String name, String apptag, String jobXml, List<Properties> jobParametersList) {
+		logger.entering(CLASSNAME, "startJobUnits", new Object[] {name, apptag, jobParametersList.size()});
+
+		List<RuntimeJobExecution> jobExecutions = new ArrayList<RuntimeJobExecution>(jobParametersList.size());
+		Connection conn = null;
+		PreparedStatement instanceStatement = null;
+		PreparedStatement executionStatement = null;
+		PreparedStatement statusStatement = null;
+		ResultSet rs = null;
+		boolean committed = false;
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+
+		try {
+			conn = getConnection("startJobUnits");
+			conn.setAutoCommit(false);
+
+			instanceStatement = conn.prepareStatement("INSERT INTO jobinstancedata (name, apptag) VALUES(?, ?)", new String[] { "JOBINSTANCEID" } );
+			executionStatement = conn.prepareStatement("INSERT INTO executioninstancedata (jobinstanceid, createtime, updatetime, batchstatus, parameters) VALUES(?, ?, ?, ?, ?)", new String[] { "JOBEXECID" });
+			statusStatement = conn.prepareStatement("INSERT INTO jobstatus (id, obj) VALUES(?, ?)");
+
+			// The generated keys are needed row by row, so only the job status inserts can be batched.
+			for (Properties jobParameters : jobParametersList) {
+				instanceStatement.setString(1, name);
+				instanceStatement.setString(2, apptag);
+				instanceStatement.executeUpdate();
+				rs = instanceStatement.getGeneratedKeys();
+				if (!rs.next()) {
+					throw new PersistenceException("No job instance id generated for job: " + name);
+				}
+				JobInstanceImpl jobInstance = new JobInstanceImpl(rs.getLong(1), jobXml);
+				jobInstance.setJobName(name);
+				rs.close();
+
+				executionStatement.setLong(1, jobInstance.getInstanceId());
+				executionStatement.setTimestamp(2, now);
+				executionStatement.setTimestamp(3, now);
+				executionStatement.setString(4, BatchStatus.STARTING.name());
+				executionStatement.setObject(5, serializeObject(jobParameters));
+				executionStatement.executeUpdate();
+				rs = executionStatement.getGeneratedKeys();
+				if (!rs.next()) {
+					throw new PersistenceException("No job execution id generated for job: " + name);
+				}
+				long executionId = rs.getLong(1);
+				rs.close();
+				rs = null;
+
+				JobStatus jobStatus = new JobStatus(jobInstance.getInstanceId());
+				jobStatus.setJobInstance(jobInstance);
+				statusStatement.setLong(1, jobInstance.getInstanceId());
+				statusStatement.setBytes(2, serializeObject(jobStatus));
+				statusStatement.addBatch();
+
+				RuntimeJobExecution jobExecution = new RuntimeJobExecution(jobInstance, executionId);
+				jobExecution.setBatchStatus(BatchStatus.STARTING.name());
+				jobExecution.setCreateTime(now);
+				jobExecution.setLastUpdateTime(now);
+				jobExecutions.add(jobExecution);
+			}
+
+			statusStatement.executeBatch();
+			conn.commit();
+			committed = true;
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} catch (IOException e) {
+			throw new PersistenceException(e);
+		} finally {
+			endTransaction(conn, committed);
+			cleanupConnection(null, instanceStatement);
+			cleanupConnection(null, executionStatement);
+			cleanupConnection(conn, rs, statusStatement);
+		}
+
+		logger.exiting(CLASSNAME, "startJobUnits", jobExecutions.size());
+		return jobExecutions;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#createJobInstance(java.lang.String, java.lang.String, java.lang.String, java.util.Properties)
+	 */
+	@Override
+	public JobInstance createJobInstance(String name, String apptag, String jobXml) {
+		Connection conn = null;
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+		JobInstanceImpl jobInstance = null;
+
+		try {
+			conn = getConnection("createJobInstance");
+			statement = conn.prepareStatement("INSERT INTO jobinstancedata (name, apptag) VALUES(?, ?)", new String[] { "JOBINSTANCEID" } );
+			statement.setString(1, name);
+			statement.setString(2, apptag);
+			statement.executeUpdate();
+			rs = statement.getGeneratedKeys();
+			if(rs.next()) {
+				long jobInstanceID = rs.getLong(1);
+				jobInstance = new JobInstanceImpl(jobInstanceID, jobXml);
+				jobInstance.setJobName(name);
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, rs, statement);
+		}
+		return jobInstance;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#createJobExecution(com.ibm.jbatch.container.jsl.JobNavigator, jakarta.batch.runtime.JobInstance, java.util.Properties, com.ibm.jbatch.container.context.impl.JobContextImpl)
+	 */
+	@Override
+	public RuntimeJobExecution createJobExecution(JobInstance jobInstance, Properties jobParameters, BatchStatus batchStatus) {
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		long newExecutionId = createRuntimeJobExecutionEntry(jobInstance, jobParameters, batchStatus, now);
+		RuntimeJobExecution jobExecution = new RuntimeJobExecution(jobInstance, newExecutionId);
+		jobExecution.setBatchStatus(batchStatus.name());
+		jobExecution.setCreateTime(now);
+		jobExecution.setLastUpdateTime(now);
+		return jobExecution;
+	}
+
+	private long createRuntimeJobExecutionEntry(JobInstance jobInstance, Properties jobParameters, BatchStatus batchStatus, Timestamp timestamp) {
+		Connection conn = null;
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+		long newJobExecutionId = 0L;
+		try {
+			conn = getConnection("createRuntimeJobExecutionEntry");
+			statement = conn.prepareStatement("INSERT INTO executioninstancedata (jobinstanceid, createtime, updatetime, batchstatus, parameters) VALUES(?, ?, ?, ?, ?)", new String[] { "JOBEXECID" });
+			statement.setLong(1, jobInstance.getInstanceId());
+			statement.setTimestamp(2, timestamp);
+			statement.setTimestamp(3, timestamp);
+			statement.setString(4, batchStatus.name());
+			statement.setObject(5, serializeObject(jobParameters));
+			statement.executeUpdate();
+			rs = statement.getGeneratedKeys();
+			if(rs.next()) {
+				newJobExecutionId = rs.getLong(1);
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} catch (IOException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, rs, statement);
+		}
+		return newJobExecutionId;
+	}
+
+	@Override
+	public RuntimeFlowInSplitExecution createFlowInSplitExecution(JobInstance jobInstance, BatchStatus batchStatus) {
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		long newExecutionId = createRuntimeJobExecutionEntry(jobInstance, null, batchStatus, now);
+		RuntimeFlowInSplitExecution flowExecution = new RuntimeFlowInSplitExecution(jobInstance, newExecutionId);
+		flowExecution.setBatchStatus(batchStatus.name());
+		flowExecution.setCreateTime(now);
+		flowExecution.setLastUpdateTime(now);
+		return flowExecution;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#createStepExecution(long, com.ibm.jbatch.container.context.impl.StepContextImpl)
+	 */
+	@Override
+	public StepExecutionImpl createStepExecution(long rootJobExecId, StepContextImpl stepContext) {
+		Connection conn = null;
+		try {
+			conn = getConnection("createStepExecution");
+			return createStepExecution(conn, rootJobExecId, stepContext);
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, null, null);
+		}
+	}
+
+	private StepExecutionImpl createStepExecution(Connection conn, long rootJobExecId, StepContextImpl stepContext) throws SQLException {
 		String batchStatus = stepContext.getBatchStatus() == null ? BatchStatus.STARTING.name() : stepContext.getBatchStatus().name();
 		String exitStatus = stepContext.getExitStatus();
 		String stepName = stepContext.getStepName();
@@ -1793,23 +2480,20 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		}
 		Serializable persistentData = stepContext.getPersistentUserData();
 
-		stepExecution = createStepExecution(rootJobExecId, batchStatus, exitStatus, stepName, readCount, 
+		return createStepExecution(conn, rootJobExecId, batchStatus, exitStatus, stepName, readCount, 
 				writeCount, commitCount, rollbackCount, readSkipCount, processSkipCount, filterCount, writeSkipCount, startTime,
 				endTime, persistentData);
-
-		return stepExecution;
 	}
 
 
-	private StepExecutionImpl createStepExecution(long rootJobExecId,  String batchStatus, String exitStatus, String stepName, long readCount, 
+	private StepExecutionImpl createStepExecution(Connection conn, long rootJobExecId,  String batchStatus, String exitStatus, String stepName, long readCount, 
 			long writeCount, long commitCount, long rollbackCount, long readSkipCount, long processSkipCount, long filterCount,
-			long writeSkipCount, Timestamp startTime, Timestamp endTime, Serializable persistentData) {
+			long writeSkipCount, Timestamp startTime, Timestamp endTime, Serializable persistentData) throws SQLException {
 
 		logger.entering(CLASSNAME, "createStepExecution", new Object[] {rootJobExecId, batchStatus, exitStatus==null ? "<null>" : exitStatus, stepName, readCount, 
 				writeCount, commitCount, rollbackCount, readSkipCount, processSkipCount, filterCount, writeSkipCount, startTime == null ? "<null>" : startTime,
 						endTime==null ? "<null>" :endTime , persistentData==null ? "<null>" : persistentData});
 
-		Connection conn = null;
 		PreparedStatement statement = null;
 		ResultSet rs = null;
 		StepExecutionImpl stepExecution = null;
@@ -1818,7 +2502,6 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 				+ "endtime, persistentdata) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
 		try {
-			conn = getConnection();
 			statement = conn.prepareStatement(query, new String[] { "STEPEXECID" });
 			statement.setLong(1, rootJobExecId);
 			statement.setString(2, batchStatus);
@@ -1843,12 +2526,10 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 				stepExecution = new StepExecutionImpl(rootJobExecId, stepExecutionId);
 				stepExecution.setStepName(stepName);
 			}
-		} catch (SQLException e) {
-			throw new PersistenceException(e);
 		} catch (IOException e) {
 			throw new PersistenceException(e);
 		} finally {
-			cleanupConnection(conn, null, statement);
+			cleanupConnection(null, rs, statement);
 		}
 		logger.exiting(CLASSNAME, "createStepExecution");
 
@@ -1862,6 +2543,18 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	 */
 	@Override
 	public void updateStepExecution(StepContextImpl stepContext) {
+		Connection conn = null;
+		try {
+			conn = getConnection("updateStepExecution");
+			updateStepExecution(conn, stepContext);
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, null, null);
+		}
+	}
+
+	private void updateStepExecution(Connection conn, StepContextImpl stepContext) throws SQLException {
 
 		Metric[] metrics = stepContext.getMetrics();
 
@@ -1894,7 +2587,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 			}
 		}
 
-		updateStepExecutionWithMetrics(stepContext,  readCount, 
+		updateStepExecutionWithMetrics(conn, stepContext,  readCount, 
 				writeCount, commitCount, rollbackCount, readSkipCount, processSkipCount, filterCount,
 				writeSkipCount);
 	}
@@ -1951,7 +2644,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		long instanceId = 0;
 		
 		try {
-			conn = getConnection();
+			conn = getConnection("getMostRecentZerothPartitionSubJobInstanceId");
 			statement = conn.prepareStatement("select max(jobinstanceid) as mostrecentid from jobinstancedata where name = ?");
 			statement.setObject(1, zerothPartitionSubJobName);
 			rs = statement.executeQuery();
@@ -1973,9 +2666,24 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 	
 	@Override
 	public void updateWithFinalPartitionAggregateStepExecution(long rootJobExecutionId, StepContextImpl stepContext) {
+		long[] aggregateMetrics = queryPartitionAggregateMetrics(rootJobExecutionId, stepContext.getStepName());
 
-		String stepName = stepContext.getStepName();
-		
+		Connection conn = null;
+		try {
+			conn = getConnection("updateWithFinalPartitionAggregateStepExecution");
+			updateStepExecutionWithMetrics(conn, stepContext, aggregateMetrics);
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, null, null);
+		}
+	}
+
+	/**
+	 * @return the read, write, commit, rollback, read skip, process skip, filter and write skip counts 
+	 * summed over the partitions of the most recent execution of the step, in that order
+	 */
+	private long[] queryPartitionAggregateMetrics(long rootJobExecutionId, String stepName) {
 		Connection conn = null;
 		PreparedStatement statement = null;
 		ResultSet rs = null;
@@ -1990,7 +2698,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		long writeSkipCount = 0;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("queryPartitionAggregateMetrics");
 			statement = conn.prepareStatement("select SUM(STEPEX.readcount) readcount, SUM(STEPEX.writecount) writecount, SUM(STEPEX.commitcount) commitcount,  SUM(STEPEX.rollbackcount) rollbackcount," +
 					" SUM(STEPEX.readskipcount) readskipcount, SUM(STEPEX.processskipcount) processskipcount, SUM(STEPEX.filtercount) filtercount, SUM(STEPEX.writeSkipCount) writeSkipCount" + 
 					" from stepexecutioninstancedata STEPEX inner join executioninstancedata JOBEX" + 
@@ -2019,14 +2727,17 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 			cleanupConnection(conn, rs, statement);
 		}
 
-		updateStepExecutionWithMetrics(stepContext,  readCount, 
-				writeCount, commitCount, rollbackCount, readSkipCount, processSkipCount, filterCount,
-				writeSkipCount);
+		return new long[] {readCount, writeCount, commitCount, rollbackCount, readSkipCount, processSkipCount, filterCount, writeSkipCount};
 	}	
 
-	private void updateStepExecutionWithMetrics(StepContextImpl stepContext, long readCount, 
+	private void updateStepExecutionWithMetrics(Connection conn, StepContextImpl stepContext, long[] metrics) throws SQLException {
+		updateStepExecutionWithMetrics(conn, stepContext, metrics[0], metrics[1], metrics[2], metrics[3], 
+				metrics[4], metrics[5], metrics[6], metrics[7]);
+	}
+
+	private void updateStepExecutionWithMetrics(Connection conn, StepContextImpl stepContext, long readCount, 
 			long writeCount, long commitCount, long rollbackCount, long readSkipCount, long processSkipCount, long filterCount,
-			long writeSkipCount) {
+			long writeSkipCount) throws SQLException {
 
 		long stepExecutionId = stepContext.getInternalStepExecutionId();
 		String batchStatus = stepContext.getBatchStatus() == null ? BatchStatus.STARTING.name() : stepContext.getBatchStatus().name();
@@ -2047,14 +2758,12 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 							endTime==null ? "<null>" : endTime, persistentData==null ? "<null>" : persistentData});
 		}
 
-		Connection conn = null;
 		PreparedStatement statement = null;
 		String query = "UPDATE stepexecutioninstancedata SET batchstatus = ?, exitstatus = ?, stepname = ?,  readcount = ?," 
 				+ "writecount = ?, commitcount = ?, rollbackcount = ?, readskipcount = ?, processskipcount = ?, filtercount = ?, writeskipcount = ?,"
 				+ " starttime = ?, endtime = ?, persistentdata = ? WHERE stepexecid = ?";
 
 		try {
-			conn = getConnection();
 			statement = conn.prepareStatement(query);
 			statement.setString(1, batchStatus);
 			statement.setString(2, exitStatus);
@@ -2072,12 +2781,10 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 			statement.setObject(14, serializeObject(persistentData));
 			statement.setLong(15, stepExecutionId); 
 			statement.executeUpdate();
-		} catch (SQLException e) {
-			throw new PersistenceException(e);
 		} catch (IOException e) {
 			throw new PersistenceException(e);
 		} finally {
-			cleanupConnection(conn, null, statement);
+			cleanupConnection(null, null, statement);
 		}
 	}
 
@@ -2091,7 +2798,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		PreparedStatement statement = null;
 		JobStatus jobStatus = new JobStatus(jobInstanceId);
 		try {
-			conn = getConnection();
+			conn = getConnection("createJobStatus");
 			statement = conn.prepareStatement("INSERT INTO jobstatus (id, obj) VALUES(?, ?)");
 			statement.setLong(1, jobInstanceId);
 			statement.setBytes(2, serializeObject(jobStatus));
@@ -2122,7 +2829,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		JobStatus jobStatus = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("getJobStatus");
 			statement = conn.prepareStatement(query);
 			statement.setLong(1, instanceId);
 			rs = statement.executeQuery();
@@ -2154,7 +2861,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		Connection conn = null;
 		PreparedStatement statement = null;
 		try {
-			conn = getConnection();
+			conn = getConnection("updateJobStatus");
 			statement = conn.prepareStatement("UPDATE jobstatus SET obj = ? WHERE id = ?");
 			statement.setBytes(1, serializeObject(jobStatus));
 			statement.setLong(2, instanceId);
@@ -2179,7 +2886,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		PreparedStatement statement = null;
 		StepStatus stepStatus = new StepStatus(stepExecId);
 		try {
-			conn = getConnection();
+			conn = getConnection("createStepStatus");
 			statement = conn.prepareStatement("INSERT INTO stepstatus (id, obj) VALUES(?, ?)");
 			statement.setLong(1, stepExecId);
 			statement.setBytes(2, serializeObject(stepStatus));
@@ -2205,19 +2912,28 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		PreparedStatement statement = null;
 		ResultSet rs = null;
 		RuntimeJobExecution jobExecution = null;
-		String query = "SELECT obj FROM stepstatus WHERE id IN ("
-				+ "SELECT B.stepexecid FROM executioninstancedata A INNER JOIN stepexecutioninstancedata B ON A.jobexecid = B.jobexecid " 
-				+ "WHERE A.jobinstanceid = ? and B.stepname = ?)";
+		// The persistent user data, if written since it moved to its own table, supersedes any in the StepStatus itself.
+		// The StepStatus is keyed by the id of the step's first execution, so this joins to exactly one of its executions.
+		String query = "SELECT S.obj, U.id, U.obj FROM executioninstancedata A "
+				+ "INNER JOIN stepexecutioninstancedata B ON A.jobexecid = B.jobexecid "
+				+ "INNER JOIN stepstatus S ON S.id = B.stepexecid "
+				+ "LEFT OUTER JOIN stepuserdata U ON S.id = U.id "
+				+ "WHERE A.jobinstanceid = ? and B.stepname = ?";
 		StepStatus stepStatus = null;
 
 		try {
-			conn = getConnection();
+			conn = getConnection("getStepStatus");
 			statement = conn.prepareStatement(query);
 			statement.setLong(1, instanceId);
 			statement.setString(2, stepName);
 			rs = statement.executeQuery();
 			if(rs.next()) {
 				stepStatus = (StepStatus)deserializeObject(rs.getBytes(1));
+				rs.getLong(2);
+				if (!rs.wasNull()) {
+					byte[] persistentUserData = rs.getBytes(3);
+					stepStatus.setPersistentUserData(persistentUserData == null ? null : new PersistentDataWrapper(persistentUserData));
+				}
 			}
 		} catch (SQLException e) {
 			throw new PersistenceException(e);
@@ -2245,7 +2961,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		Connection conn = null;
 		PreparedStatement statement = null;
 		try {
-			conn = getConnection();
+			conn = getConnection("updateStepStatus");
 			statement = conn.prepareStatement("UPDATE stepstatus SET obj = ? WHERE id = ?");
 			statement.setBytes(1, serializeObject(stepStatus));
 			statement.setLong(2, stepExecutionId);
@@ -2260,6 +2976,163 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		logger.exiting(CLASSNAME, "updateStepStatus");
 	}
 
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#beginStep(long, long, com.ibm.jbatch.container.context.impl.StepContextImpl, com.ibm.jbatch.container.status.StepStatus)
+	 */
+	@Override
+	public StepStatus beginStep(long jobInstanceId, long rootJobExecId, StepContextImpl stepContext, StepStatus stepStatus) {
+		logger.entering(CLASSNAME, "beginStep", new Object[] {jobInstanceId, rootJobExecId, stepContext.getStepName(), stepStatus==null ? "<null>" : stepStatus});
+
+		Connection conn = null;
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+		boolean committed = false;
+
+		try {
+			conn = getConnection("beginStep");
+			conn.setAutoCommit(false);
+
+			StepExecutionImpl stepExecution = createStepExecution(conn, rootJobExecId, stepContext);
+			if (stepExecution == null) {
+				throw new PersistenceException("No step execution id generated for step: " + stepContext.getStepName());
+			}
+			long stepExecutionId = stepExecution.getStepExecutionId();
+
+			if (stepStatus == null) {
+				stepStatus = new StepStatus(stepExecutionId);
+				stepStatus.setBatchStatus(stepContext.getBatchStatus());
+				statement = conn.prepareStatement("INSERT INTO stepstatus (obj, id) VALUES(?, ?)");
+			} else {
+				stepStatus.setLastRunStepExecutionId(stepExecutionId);
+				stepStatus.setBatchStatus(stepContext.getBatchStatus());
+				statement = conn.prepareStatement("UPDATE stepstatus SET obj = ? WHERE id = ?");
+			}
+			statement.setBytes(1, serializeObject(stepStatus));
+			statement.setLong(2, stepStatus.getStepExecutionId());
+			statement.executeUpdate();
+			statement.close();
+
+			statement = conn.prepareStatement("SELECT obj FROM jobstatus WHERE id = ?");
+			statement.setLong(1, jobInstanceId);
+			rs = statement.executeQuery();
+			if (!rs.next()) {
+				throw new IllegalStateException("Couldn't find entry to update for id = " + jobInstanceId);
+			}
+			JobStatus jobStatus = (JobStatus) deserializeObject(rs.getBytes(1));
+			rs.close();
+			rs = null;
+			statement.close();
+
+			jobStatus.setCurrentStepId(stepContext.getStepName());
+			statement = conn.prepareStatement("UPDATE jobstatus SET obj = ? WHERE id = ?");
+			statement.setBytes(1, serializeObject(jobStatus));
+			statement.setLong(2, jobInstanceId);
+			statement.executeUpdate();
+
+			conn.commit();
+			committed = true;
+
+			stepContext.setStepExecutionId(stepExecutionId);
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} catch (IOException e) {
+			throw new PersistenceException(e);
+		} catch (ClassNotFoundException e) {
+			throw new PersistenceException(e);
+		} finally {
+			endTransaction(conn, committed);
+			cleanupConnection(conn, rs, statement);
+		}
+
+		logger.exiting(CLASSNAME, "beginStep", stepStatus);
+		return stepStatus;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#endStep(com.ibm.jbatch.container.context.impl.StepContextImpl, com.ibm.jbatch.container.status.StepStatus)
+	 */
+	@Override
+	public void endStep(StepContextImpl stepContext, StepStatus stepStatus) {
+		endStep(stepContext, stepStatus, null);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#endPartitionedStep(long, com.ibm.jbatch.container.context.impl.StepContextImpl, com.ibm.jbatch.container.status.StepStatus)
+	 */
+	@Override
+	public void endPartitionedStep(long rootJobExecutionId, StepContextImpl stepContext, StepStatus stepStatus) {
+		endStep(stepContext, stepStatus, queryPartitionAggregateMetrics(rootJobExecutionId, stepContext.getStepName()));
+	}
+
+	/**
+	 * @param aggregateMetrics the metrics to record, as returned by queryPartitionAggregateMetrics, 
+	 * or null to record the step context's own
+	 */
+	private void endStep(StepContextImpl stepContext, StepStatus stepStatus, long[] aggregateMetrics) {
+		logger.entering(CLASSNAME, "endStep", new Object[] {stepContext.getStepName(), stepStatus});
+
+		Connection conn = null;
+		PreparedStatement statement = null;
+		boolean committed = false;
+
+		try {
+			conn = getConnection("endStep");
+			conn.setAutoCommit(false);
+
+			statement = conn.prepareStatement("UPDATE stepstatus SET obj = ? WHERE id = ?");
+			statement.setBytes(1, serializeObject(stepStatus));
+			statement.setLong(2, stepStatus.getStepExecutionId());
+			statement.executeUpdate();
+
+			if (aggregateMetrics == null) {
+				updateStepExecution(conn, stepContext);
+			} else {
+				updateStepExecutionWithMetrics(conn, stepContext, aggregateMetrics);
+			}
+
+			conn.commit();
+			committed = true;
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} catch (IOException e) {
+			throw new PersistenceException(e);
+		} finally {
+			endTransaction(conn, committed);
+			cleanupConnection(conn, null, statement);
+		}
+
+		logger.exiting(CLASSNAME, "endStep");
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#updateStepUserData(long, byte[])
+	 */
+	@Override
+	public void updateStepUserData(long stepExecutionId, byte[] persistentUserData) {
+		logger.entering(CLASSNAME, "updateStepUserData", stepExecutionId);
+
+		Connection conn = null;
+		PreparedStatement statement = null;
+		try {
+			conn = getConnection("updateStepUserData");
+			statement = conn.prepareStatement(UPDATE_STEPUSERDATA);
+			statement.setBytes(1, persistentUserData);
+			statement.setLong(2, stepExecutionId);
+			if (statement.executeUpdate() == 0) {
+				statement.close();
+				statement = conn.prepareStatement(INSERT_STEPUSERDATA);
+				statement.setLong(1, stepExecutionId);
+				statement.setBytes(2, persistentUserData);
+				statement.executeUpdate();
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, null, statement);
+		}
+		logger.exiting(CLASSNAME, "updateStepUserData");
+	}
+
 	/* (non-Javadoc)
 	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#getTagName(long)
 	 */
@@ -2273,7 +3146,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		String query = "SELECT A.apptag FROM jobinstancedata A INNER JOIN executioninstancedata B ON A.jobinstanceid = B.jobinstanceid"
 				+ " WHERE B.jobexecid = ?";
 		try {
-			conn = getConnection();
+			conn = getConnection("getTagName");
 			statement = conn.prepareStatement(query);
 			statement.setLong(1, jobExecutionId);
 			rs = statement.executeQuery();
@@ -2299,7 +3172,7 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		String query = "SELECT jobexecid FROM executioninstancedata WHERE jobinstanceid = ? ORDER BY createtime DESC";
 
 		try {
-			conn = getConnection();
+			conn = getConnection("getMostRecentExecutionId");
 			statement = conn.prepareStatement(query);
 			statement.setLong(1, jobInstanceId);
 			rs = statement.executeQuery();
@@ -2315,10 +3188,408 @@ public class JDBCPersistenceManagerImpl implements IPersistenceManagerService, J
 		return mostRecentId;
 	}
 
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#enqueuePartition(java.lang.String, long, int, byte[])
+	 */
+	@Override
+	public long enqueuePartition(String coordinator, long executionId, int maxClaims, byte[] request) {
+		logger.entering(CLASSNAME, "enqueuePartition", new Object[] { coordinator, executionId });
+		long queueId = 0L;
+		Connection conn = null;
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+		try {
+			conn = getConnection("enqueuePartition");
+			statement = conn.prepareStatement(INSERT_PARTITIONQUEUE, new String[] { "ID" });
+			statement.setString(1, coordinator);
+			statement.setLong(2, executionId);
+			statement.setBytes(3, request);
+			statement.setInt(4, maxClaims);
+			statement.executeUpdate();
+			rs = statement.getGeneratedKeys();
+			if (rs.next()) {
+				queueId = rs.getLong(1);
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, rs, statement);
+		}
+		logger.exiting(CLASSNAME, "enqueuePartition", queueId);
+		return queueId;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#claimPartition(java.lang.String, long)
+	 */
+	@Override
+	public PartitionQueueEntry claimPartition(String owner, long leaseMillis) {
+		logger.entering(CLASSNAME, "claimPartition", owner);
+		PartitionQueueEntry entry = null;
+		Connection conn = null;
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+		boolean skipLocked = false;
+		boolean committed = false;
+		try {
+			conn = getConnection("claimPartition");
+			long now = System.currentTimeMillis();
+			String skipLockedQuery = getSkipLockedClaimQuery(conn);
+			if (skipLockedQuery != null) {
+				// The first entry not already locked by another claimant, locked until this claim commits
+				skipLocked = true;
+				conn.setAutoCommit(false);
+				statement = conn.prepareStatement(skipLockedQuery);
+				statement.setMaxRows(1);
+			} else {
+				// A few candidates, in case others claim the first ones between the read and the update
+				statement = conn.prepareStatement(SELECT_PARTITIONQUEUE_CLAIMABLE);
+				statement.setMaxRows(CLAIM_CANDIDATES);
+			}
+			statement.setLong(1, now);
+			rs = statement.executeQuery();
+			List<long[]> candidates = new ArrayList<long[]>();
+			while (rs.next()) {
+				candidates.add(new long[] { rs.getLong(1), rs.getInt(2) });
+			}
+			rs.close();
+			rs = null;
+			statement.close();
+			statement = null;
+
+			long claimedId = -1;
+			if (!candidates.isEmpty()) {
+				statement = conn.prepareStatement(UPDATE_PARTITIONQUEUE_CLAIM);
+				for (long[] candidate : candidates) {
+					statement.setString(1, owner);
+					statement.setLong(2, now + leaseMillis);
+					statement.setLong(3, candidate[0]);
+					statement.setInt(4, (int) candidate[1]);
+					if (statement.executeUpdate() == 1) {
+						claimedId = candidate[0];
+						break;
+					}
+				}
+				statement.close();
+				statement = null;
+			}
+
+			if (claimedId >= 0) {
+				statement = conn.prepareStatement(SELECT_PARTITIONQUEUE_CLAIMED);
+				statement.setLong(1, claimedId);
+				rs = statement.executeQuery();
+				if (rs.next()) {
+					entry = new PartitionQueueEntry(claimedId, rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getInt(4) != 0, rs.getBytes(5));
+				}
+			}
+			if (skipLocked) {
+				conn.commit();
+			}
+			committed = true;
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			if (skipLocked) {
+				endTransaction(conn, committed);
+			}
+			cleanupConnection(conn, rs, statement);
+		}
+		logger.exiting(CLASSNAME, "claimPartition", entry);
+		return entry;
+	}
+
+	/**
+	 * @return the claim query locking the claimed entry and skipping those locked by others, for a 
+	 *         database known to support it, or else null for an optimistic claim
+	 */
+	private String getSkipLockedClaimQuery(Connection conn) throws SQLException {
+		if (!skipLockedChecked) {
+			DatabaseMetaData dbmd = conn.getMetaData();
+			String product = dbmd.getDatabaseProductName().toLowerCase();
+			int major = dbmd.getDatabaseMajorVersion();
+			int minor = dbmd.getDatabaseMinorVersion();
+			if ((product.contains("postgresql") && (major > 9 || (major == 9 && minor >= 5)))
+					|| (product.contains("mysql") && major >= 8)) {
+				skipLockedClaimQuery = SELECT_PARTITIONQUEUE_CLAIMABLE + " limit 1 for update skip locked";
+			} else if (product.contains("oracle") && major >= 11) {
+				skipLockedClaimQuery = SELECT_PARTITIONQUEUE_CLAIMABLE + " for update skip locked";
+			}
+			logger.config("Claiming partitions from the queue with: " + (skipLockedClaimQuery != null ? skipLockedClaimQuery : "optimistic updates")
+					+ ", for database: " + dbmd.getDatabaseProductName() + " " + major + "." + minor);
+			skipLockedChecked = true;
+		}
+		return skipLockedClaimQuery;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#renewPartitionLease(long, java.lang.String, int, long)
+	 */
+	@Override
+	public boolean renewPartitionLease(long queueId, String owner, int claimVersion, long leaseMillis) {
+		logger.entering(CLASSNAME, "renewPartitionLease", new Object[] { queueId, owner, claimVersion });
+		boolean held = false;
+		Connection conn = null;
+		PreparedStatement statement = null;
+		try {
+			conn = getConnection("renewPartitionLease");
+			statement = conn.prepareStatement(UPDATE_PARTITIONQUEUE_LEASE);
+			statement.setLong(1, System.currentTimeMillis() + leaseMillis);
+			statement.setLong(2, queueId);
+			statement.setString(3, owner);
+			statement.setInt(4, claimVersion);
+			held = statement.executeUpdate() == 1;
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, null, statement);
+		}
+		logger.exiting(CLASSNAME, "renewPartitionLease", held);
+		return held;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#isPartitionStopRequested(long)
+	 */
+	@Override
+	public boolean isPartitionStopRequested(long queueId) {
+		logger.entering(CLASSNAME, "isPartitionStopRequested", queueId);
+		boolean stopRequested = false;
+		Connection conn = null;
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+		try {
+			conn = getConnection("isPartitionStopRequested");
+			statement = conn.prepareStatement(SELECT_PARTITIONQUEUE_STOPREQUESTED);
+			statement.setLong(1, queueId);
+			rs = statement.executeQuery();
+			if (rs.next()) {
+				stopRequested = rs.getInt(1) != 0;
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, rs, statement);
+		}
+		logger.exiting(CLASSNAME, "isPartitionStopRequested", stopRequested);
+		return stopRequested;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#requestPartitionStop(java.lang.String, long)
+	 */
+	@Override
+	public void requestPartitionStop(String coordinator, long executionId) {
+		logger.entering(CLASSNAME, "requestPartitionStop", new Object[] { coordinator, executionId });
+		Connection conn = null;
+		PreparedStatement statement = null;
+		try {
+			conn = getConnection("requestPartitionStop");
+			statement = conn.prepareStatement(UPDATE_PARTITIONQUEUE_STOPREQUESTED);
+			statement.setString(1, coordinator);
+			statement.setLong(2, executionId);
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, null, statement);
+		}
+		logger.exiting(CLASSNAME, "requestPartitionStop");
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#addPartitionEvent(long, java.lang.String, int, long, com.ibm.jbatch.container.persistence.PartitionQueueEvent)
+	 */
+	@Override
+	public boolean addPartitionEvent(long queueId, String owner, int claimVersion, long leaseMillis, PartitionQueueEvent event) {
+		logger.entering(CLASSNAME, "addPartitionEvent", new Object[] { queueId, owner, claimVersion, event });
+		boolean held = false;
+		Connection conn = null;
+		PreparedStatement statement = null;
+		boolean committed = false;
+		try {
+			conn = getConnection("addPartitionEvent");
+			conn.setAutoCommit(false);
+			// Only while the owner's claim is the latest, which the update then holds on to until the insert commits
+			if (event.getEventType() == PartitionQueueEvent.END || event.getEventType() == PartitionQueueEvent.NOT_RUN) {
+				statement = conn.prepareStatement(UPDATE_PARTITIONQUEUE_END);
+				statement.setLong(1, queueId);
+				statement.setString(2, owner);
+				statement.setInt(3, claimVersion);
+			} else {
+				statement = conn.prepareStatement(UPDATE_PARTITIONQUEUE_LEASE);
+				statement.setLong(1, System.currentTimeMillis() + leaseMillis);
+				statement.setLong(2, queueId);
+				statement.setString(3, owner);
+				statement.setInt(4, claimVersion);
+			}
+			held = statement.executeUpdate() == 1;
+			statement.close();
+			statement = null;
+
+			if (held) {
+				statement = conn.prepareStatement(INSERT_PARTITIONEVENT);
+				statement.setLong(1, queueId);
+				statement.setInt(2, event.getEventType());
+				statement.setBytes(3, event.getCollectorData());
+				statement.setString(4, event.getBatchStatus());
+				statement.setString(5, event.getExitStatus());
+				statement.executeUpdate();
+			}
+			conn.commit();
+			committed = true;
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			endTransaction(conn, committed);
+			cleanupConnection(conn, null, statement);
+		}
+		logger.exiting(CLASSNAME, "addPartitionEvent", held);
+		return held;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#takePartitionEvents(java.lang.String)
+	 */
+	@Override
+	public List<PartitionQueueEvent> takePartitionEvents(String coordinator) {
+		logger.entering(CLASSNAME, "takePartitionEvents", coordinator);
+		List<PartitionQueueEvent> events = new ArrayList<PartitionQueueEvent>();
+		Connection conn = null;
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+		boolean committed = false;
+		try {
+			conn = getConnection("takePartitionEvents");
+			conn.setAutoCommit(false);
+			statement = conn.prepareStatement(SELECT_PARTITIONEVENTS);
+			statement.setString(1, coordinator);
+			rs = statement.executeQuery();
+			while (rs.next()) {
+				events.add(new PartitionQueueEvent(rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getBytes(4), rs.getString(5), rs.getString(6)));
+			}
+			rs.close();
+			rs = null;
+			statement.close();
+			statement = null;
+
+			// By id, not by range, since events of other partitions with lower ids may not have committed yet
+			if (!events.isEmpty()) {
+				statement = conn.prepareStatement(DELETE_PARTITIONEVENT);
+				for (PartitionQueueEvent event : events) {
+					statement.setLong(1, event.getEventId());
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			}
+			conn.commit();
+			committed = true;
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			endTransaction(conn, committed);
+			cleanupConnection(conn, rs, statement);
+		}
+		logger.exiting(CLASSNAME, "takePartitionEvents", events.size());
+		return events;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#abandonExpiredPartitions(java.lang.String)
+	 */
+	@Override
+	public List<Long> abandonExpiredPartitions(String coordinator) {
+		logger.entering(CLASSNAME, "abandonExpiredPartitions", coordinator);
+		List<Long> executionIds = new ArrayList<Long>();
+		Connection conn = null;
+		PreparedStatement statement = null;
+		ResultSet rs = null;
+		try {
+			conn = getConnection("abandonExpiredPartitions");
+			long now = System.currentTimeMillis();
+			statement = conn.prepareStatement(SELECT_PARTITIONQUEUE_EXPIRED);
+			statement.setString(1, coordinator);
+			statement.setLong(2, now);
+			rs = statement.executeQuery();
+			List<long[]> expired = new ArrayList<long[]>();
+			while (rs.next()) {
+				expired.add(new long[] { rs.getLong(1), rs.getLong(2) });
+			}
+			rs.close();
+			rs = null;
+			statement.close();
+			statement = null;
+
+			if (!expired.isEmpty()) {
+				// Unless the owner ended it or renewed its lease in the meantime
+				statement = conn.prepareStatement(UPDATE_PARTITIONQUEUE_ABANDONED);
+				for (long[] entry : expired) {
+					statement.setLong(1, entry[0]);
+					statement.setLong(2, now);
+					if (statement.executeUpdate() == 1) {
+						executionIds.add(entry[1]);
+					}
+				}
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			cleanupConnection(conn, rs, statement);
+		}
+		logger.exiting(CLASSNAME, "abandonExpiredPartitions", executionIds);
+		return executionIds;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.ibm.jbatch.container.services.IPersistenceManagerService#deletePartitionQueueEntries(java.lang.String)
+	 */
+	@Override
+	public void deletePartitionQueueEntries(String coordinator) {
+		logger.entering(CLASSNAME, "deletePartitionQueueEntries", coordinator);
+		Connection conn = null;
+		PreparedStatement statement = null;
+		boolean committed = false;
+		try {
+			conn = getConnection("deletePartitionQueueEntries");
+			conn.setAutoCommit(false);
+			// Children first, in case the foreign keys don't cascade
+			for (String delete : new String[] { DELETE_PARTITIONQUEUE_EVENTS, DELETE_PARTITIONQUEUE }) {
+				statement = conn.prepareStatement(delete);
+				statement.setString(1, coordinator);
+				statement.executeUpdate();
+				statement.close();
+				statement = null;
+			}
+			conn.commit();
+			committed = true;
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
+		} finally {
+			endTransaction(conn, committed);
+			cleanupConnection(conn, null, statement);
+		}
+		logger.exiting(CLASSNAME, "deletePartitionQueueEntries");
+	}
+
 	@Override
 	public void shutdown() throws BatchContainerServiceException {
-		// TODO Auto-generated method stub
+		if (checkpointGroupCommitter != null) {
+			checkpointGroupCommitter.close();
+		}
+		if (purgeSweeper != null) {
+			purgeSweeper.stop();
+			purgeSweeper = null;
+		}
+		if (metrics != null) {
+			metrics.shutdown();
+			metrics = null;
+		}
+	}
 
+	/**
+	 * @return the job repository metrics, or null if they aren't being kept
+	 */
+	public PersistenceMetrics getMetrics() {
+		return metrics;
 	}
 
 
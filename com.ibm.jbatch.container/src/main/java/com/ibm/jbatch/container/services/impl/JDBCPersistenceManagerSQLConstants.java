@@ -20,10 +20,13 @@ package com.ibm.jbatch.container.services.impl;
 
 	 final String JOBSTATUS_TABLE = "JOBSTATUS";
 	 final String STEPSTATUS_TABLE = "STEPSTATUS";
+	 final String STEPUSERDATA_TABLE = "STEPUSERDATA";
 	 final String CHECKPOINTDATA_TABLE = "CHECKPOINTDATA";
 	 final String JOBINSTANCEDATA_TABLE = "JOBINSTANCEDATA";
 	 final String EXECUTIONINSTANCEDATA_TABLE = "EXECUTIONINSTANCEDATA";
 	 final String STEPEXECUTIONINSTANCEDATA_TABLE = "STEPEXECUTIONINSTANCEDATA";
+	 final String PARTITIONQUEUE_TABLE = "PARTITIONQUEUE";
+	 final String PARTITIONEVENT_TABLE = "PARTITIONEVENT";
 	
 	 final String CREATE_TAB_JOBSTATUS = "CREATE TABLE JOBSTATUS("
 			+ "id BIGINT CONSTRAINT JOBSTATUS_PK PRIMARY KEY," 
@@ -33,8 +36,16 @@ package com.ibm.jbatch.container.services.impl;
 			+ "id BIGINT CONSTRAINT STEPSTATUS_PK PRIMARY KEY," 
 			+ "obj BLOB,"
 			+ "CONSTRAINT STEPSTATUS_STEPEXEC_FK FOREIGN KEY (id) REFERENCES STEPEXECUTIONINSTANCEDATA (stepexecid) ON DELETE CASCADE)";
+	 final String CREATE_TAB_STEPUSERDATA = "CREATE TABLE STEPUSERDATA("
+			+ "id BIGINT CONSTRAINT STEPUSERDATA_PK PRIMARY KEY," 
+			+ "obj BLOB,"
+			+ "CONSTRAINT STEPUSERDATA_STEPEXEC_FK FOREIGN KEY (id) REFERENCES STEPEXECUTIONINSTANCEDATA (stepexecid) ON DELETE CASCADE)";
 	 final String CREATE_TAB_CHECKPOINTDATA = "CREATE TABLE CHECKPOINTDATA("
-			+ "id VARCHAR(512),obj BLOB)";
+			+ "jobinstanceid BIGINT NOT NULL,"
+			+ "stepname VARCHAR(512) NOT NULL,"
+			+ "checkpointtype SMALLINT NOT NULL,"
+			+ "obj BLOB,"
+			+ "CONSTRAINT CHECKPOINTDATA_PK PRIMARY KEY (jobinstanceid, stepname, checkpointtype))";
 	 final String CREATE_TAB_JOBINSTANCEDATA = "CREATE TABLE JOBINSTANCEDATA("
 			+ "jobinstanceid BIGINT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1) CONSTRAINT JOBINSTANCE_PK PRIMARY KEY,"
 			+ "name VARCHAR(512),"
@@ -68,6 +79,39 @@ package com.ibm.jbatch.container.services.impl;
 			+ "endTime TIMESTAMP,"
 			+ "persistentData BLOB," 
 			+ "CONSTRAINT JOBEXEC_STEPEXEC_FK FOREIGN KEY (jobexecid) REFERENCES EXECUTIONINSTANCEDATA (jobexecid) ON DELETE CASCADE)";
+	 final String CREATE_TAB_PARTITIONQUEUE = "CREATE TABLE PARTITIONQUEUE("
+			+ "id BIGINT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1) CONSTRAINT PARTITIONQUEUE_PK PRIMARY KEY,"
+			+ "coordinator VARCHAR(64) NOT NULL,"
+			+ "jobexecid BIGINT NOT NULL,"
+			+ "request BLOB,"
+			+ "queuestate SMALLINT NOT NULL,"
+			+ "claimedby VARCHAR(512),"
+			+ "leaseexpiry BIGINT,"
+			+ "claims INTEGER NOT NULL,"
+			+ "maxclaims INTEGER NOT NULL,"
+			+ "claimversion INTEGER NOT NULL,"
+			+ "stoprequested SMALLINT NOT NULL,"
+			+ "CONSTRAINT PARTITIONQUEUE_JOBEXEC_FK FOREIGN KEY (jobexecid) REFERENCES EXECUTIONINSTANCEDATA (jobexecid) ON DELETE CASCADE)";
+	 final String CREATE_TAB_PARTITIONEVENT = "CREATE TABLE PARTITIONEVENT("
+			+ "id BIGINT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1) CONSTRAINT PARTITIONEVENT_PK PRIMARY KEY,"
+			+ "queueid BIGINT NOT NULL,"
+			+ "eventtype SMALLINT NOT NULL,"
+			+ "obj BLOB,"
+			+ "batchstatus VARCHAR(512),"
+			+ "exitstatus VARCHAR(512),"
+			+ "CONSTRAINT PARTITIONEVENT_QUEUE_FK FOREIGN KEY (queueid) REFERENCES PARTITIONQUEUE (id) ON DELETE CASCADE)";
+	
+	 // For the running executions query, with a shared repository
+	 final String JOBINSTANCE_NAME_INDEX = "JOBINSTANCE_NAME_IDX";
+	 final String CREATE_JOBINSTANCE_NAME_INDEX = "CREATE INDEX JOBINSTANCE_NAME_IDX ON JOBINSTANCEDATA(name)";
+	 final String JOBEXECUTION_STATUS_INDEX = "JOBEXECUTION_STATUS_IDX";
+	 final String CREATE_JOBEXECUTION_STATUS_INDEX = "CREATE INDEX JOBEXECUTION_STATUS_IDX ON EXECUTIONINSTANCEDATA(jobinstanceid, batchstatus)";
+
+	 // For claiming from the partition queue, and for a partitioned step reading its partitions' events
+	 final String PARTITIONQUEUE_STATE_INDEX = "PARTITIONQUEUE_STATE_IDX";
+	 final String CREATE_PARTITIONQUEUE_STATE_INDEX = "CREATE INDEX PARTITIONQUEUE_STATE_IDX ON PARTITIONQUEUE(queuestate, id)";
+	 final String PARTITIONQUEUE_COORDINATOR_INDEX = "PARTITIONQUEUE_COORDINATOR_IDX";
+	 final String CREATE_PARTITIONQUEUE_COORDINATOR_INDEX = "CREATE INDEX PARTITIONQUEUE_COORDINATOR_IDX ON PARTITIONQUEUE(coordinator)";
 	
 	 final String INSERT_JOBSTATUS = "insert into jobstatus values(?, ?)";
 	
@@ -85,16 +129,69 @@ package com.ibm.jbatch.container.services.impl;
 	
 	 final String DELETE_STEPSTATUS = "delete from stepstatus where id = ?";
 
-	 final String INSERT_CHECKPOINTDATA = "insert into checkpointdata values(?, ?)";
+	 final String INSERT_STEPUSERDATA = "insert into stepuserdata (id, obj) values(?, ?)";
 
-	 final String UPDATE_CHECKPOINTDATA = "update checkpointdata set obj = ? where id = ?";
+	 final String UPDATE_STEPUSERDATA = "update stepuserdata set obj = ? where id = ?";
 
-	 final String SELECT_CHECKPOINTDATA = "select id, obj from checkpointdata where id = ?";
-	
-	 final String CREATE_CHECKPOINTDATA_INDEX = "create index chk_index on checkpointdata(id)";
+	 final String INSERT_CHECKPOINTDATA = "insert into checkpointdata (jobinstanceid, stepname, checkpointtype, obj) values(?, ?, ?, ?)";
+
+	 final String UPDATE_CHECKPOINTDATA = "update checkpointdata set obj = ? where jobinstanceid = ? and stepname = ? and checkpointtype = ?";
+
+	 final String SELECT_CHECKPOINTDATA = "select obj from checkpointdata where jobinstanceid = ? and stepname = ? and checkpointtype = ?";
 	
-	 final String DELETE_CHECKPOINTDATA = "delete from checkpointdata where id = ?";
+	 final String DELETE_CHECKPOINTDATA = "delete from checkpointdata where jobinstanceid = ? and stepname = ?";
+
+	 // Only used to migrate a CHECKPOINTDATA table from before the composite key was introduced
+	 final String RENAME_CHECKPOINTDATA_TO_OLD = "RENAME TABLE CHECKPOINTDATA TO CHECKPOINTDATA_OLD";
+
+	 final String SELECT_OLD_CHECKPOINTDATA = "select id, obj from checkpointdata_old";
+
+	 final String DROP_OLD_CHECKPOINTDATA = "DROP TABLE CHECKPOINTDATA_OLD";
 	
+	 // PARTITION QUEUE, whose entries are QUEUED, CLAIMED (leased to a container), ENDED or ABANDONED
+	 final int PARTITION_QUEUED = 0;
+	 final int PARTITION_CLAIMED = 1;
+	 final int PARTITION_ENDED = 2;
+	 final int PARTITION_ABANDONED = 3;
+
+	 final String INSERT_PARTITIONQUEUE = "insert into partitionqueue (coordinator, jobexecid, request, queuestate, claims, maxclaims, claimversion, stoprequested) "
+			+ "values(?, ?, ?, " + PARTITION_QUEUED + ", 0, ?, 0, 0)";
+
+	 final String SELECT_PARTITIONQUEUE_CLAIMABLE = "select id, claimversion from partitionqueue where queuestate = " + PARTITION_QUEUED 
+			+ " or (queuestate = " + PARTITION_CLAIMED + " and leaseexpiry < ? and claims < maxclaims) order by id";
+
+	 final String UPDATE_PARTITIONQUEUE_CLAIM = "update partitionqueue set queuestate = " + PARTITION_CLAIMED + ", claimedby = ?, leaseexpiry = ?, "
+			+ "claims = claims + 1, claimversion = claimversion + 1 where id = ? and claimversion = ?";
+
+	 final String SELECT_PARTITIONQUEUE_CLAIMED = "select jobexecid, claims, claimversion, stoprequested, request from partitionqueue where id = ?";
+
+	 final String UPDATE_PARTITIONQUEUE_LEASE = "update partitionqueue set leaseexpiry = ? where id = ? and claimedby = ? and claimversion = ? and queuestate = " 
+			+ PARTITION_CLAIMED;
+
+	 final String UPDATE_PARTITIONQUEUE_END = "update partitionqueue set queuestate = " + PARTITION_ENDED + " where id = ? and claimedby = ? and claimversion = ? and queuestate = " 
+			+ PARTITION_CLAIMED;
+
+	 final String SELECT_PARTITIONQUEUE_STOPREQUESTED = "select stoprequested from partitionqueue where id = ?";
+
+	 final String UPDATE_PARTITIONQUEUE_STOPREQUESTED = "update partitionqueue set stoprequested = 1 where coordinator = ? and jobexecid = ?";
+
+	 final String SELECT_PARTITIONQUEUE_EXPIRED = "select id, jobexecid from partitionqueue where coordinator = ? and queuestate = " + PARTITION_CLAIMED
+			+ " and leaseexpiry < ? and claims >= maxclaims";
+
+	 final String UPDATE_PARTITIONQUEUE_ABANDONED = "update partitionqueue set queuestate = " + PARTITION_ABANDONED + " where id = ? and queuestate = " 
+			+ PARTITION_CLAIMED + " and leaseexpiry < ? and claims >= maxclaims";
+
+	 final String DELETE_PARTITIONQUEUE_EVENTS = "delete from partitionevent where queueid in (select id from partitionqueue where coordinator = ?)";
+
+	 final String DELETE_PARTITIONQUEUE = "delete from partitionqueue where coordinator = ?";
+
+	 final String INSERT_PARTITIONEVENT = "insert into partitionevent (queueid, eventtype, obj, batchstatus, exitstatus) values(?, ?, ?, ?, ?)";
+
+	 final String SELECT_PARTITIONEVENTS = "select E.id, Q.jobexecid, E.eventtype, E.obj, E.batchstatus, E.exitstatus from partitionevent E "
+			+ "inner join partitionqueue Q on E.queueid = Q.id where Q.coordinator = ? order by E.id";
+
+	 final String DELETE_PARTITIONEVENT = "delete from partitionevent where id = ?";
+
 	// JOB OPERATOR QUERIES
 	 final String INSERT_JOBINSTANCEDATA = "insert into jobinstancedata (name, apptag) values(?, ?)";
 	
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.services.impl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ibm.jbatch.container.jfr.BatchEvents;
+
+/**
+ * Wraps the connection of one job repository operation, the central path its statements all go through,
+ * to time and count them: each statement for the slow statement log and the PersistenceQuery Flight Recorder 
+ * event, and the operation as a whole, from acquiring the connection to closing it, for {@link PersistenceMetrics}.
+ * 
+ * Statements are named after their {@link JDBCPersistenceManagerSQLConstants} constant, or else by their SQL.  
+ * A query is only complete once its result set, or statement, is closed, so its time includes fetching the 
+ * rows it counts.
+ */
+class MeteredConnection implements InvocationHandler {
+
+	private static final Map<String, String> statementNames = new HashMap<String, String>();
+
+	static {
+		for (Field field : JDBCPersistenceManagerSQLConstants.class.getFields()) {
+			try {
+				Object sql = field.get(null);
+				if (sql instanceof String) {
+					statementNames.put((String) sql, field.getName());
+				}
+			} catch (IllegalAccessException e) {
+				// Just left unnamed
+			}
+		}
+	}
+
+	private final Connection connection;
+	private final String operation;
+	private final PersistenceMetrics metrics;
+	private final long startNanos;
+	private final long acquireNanos;
+
+	private int statements = 0;
+	private long rows = 0;
+	private boolean failed = false;
+	private boolean closed = false;
+
+	private MeteredConnection(Connection connection, String operation, PersistenceMetrics metrics, long startNanos) {
+		this.connection = connection;
+		this.operation = operation;
+		this.metrics = metrics;
+		this.startNanos = startNanos;
+		this.acquireNanos = System.nanoTime() - startNanos;
+	}
+
+	/**
+	 * @param operation the persistence operation the connection is for
+	 * @param metrics null if neither metrics nor slow statements are being kept
+	 * @param startNanos when the operation began acquiring the connection
+	 * @return the connection, wrapped only if metrics are kept or the PersistenceQuery event is being recorded
+	 */
+	static Connection wrap(Connection connection, String operation, PersistenceMetrics metrics, long startNanos) {
+		if (metrics == null && !BatchEvents.PERSISTENCE_QUERY.isEnabled()) {
+			return connection;
+		}
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, 
+				new MeteredConnection(connection, operation, metrics, startNanos));
+	}
+
+	private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (method.getName().equals("close")) {
+			operationCompleted();
+		}
+		Object result = invokeTarget(connection, method, args);
+		if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement) {
+			String sql = (String) args[0];
+			String statementName = statementNames.get(sql);
+			return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, 
+					new StatementHandler((PreparedStatement) result, statementName != null ? statementName : sql));
+		}
+		return result;
+	}
+
+	private synchronized void operationCompleted() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (metrics != null) {
+			metrics.operationCompleted(operation, acquireNanos, System.nanoTime() - startNanos, statements, rows, failed);
+		}
+	}
+
+	private synchronized void statementCompleted(String statementName, long elapsedNanos, long statementRows, boolean statementFailed) {
+		statements++;
+		rows += statementRows;
+		failed |= statementFailed;
+		if (metrics != null) {
+			metrics.statementCompleted(operation, statementName, elapsedNanos, statementRows);
+		}
+	}
+
+	private class StatementHandler implements InvocationHandler {
+		private final PreparedStatement statement;
+		private final String statementName;
+		// The last query run, until its result set is closed
+		private boolean queryOpen = false;
+		private Object queryEvent;
+		private long queryStart;
+		private long queryRows;
+
+		StatementHandler(PreparedStatement statement, String statementName) {
+			this.statement = statement;
+			this.statementName = statementName;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+			if (methodName.equals("close")) {
+				queryCompleted();
+				return invokeTarget(statement, method, args);
+			}
+			if (!methodName.startsWith("execute")) {
+				return invokeTarget(statement, method, args);
+			}
+
+			queryCompleted();
+			Object event = BatchEvents.PERSISTENCE_QUERY.begin();
+			long start = System.nanoTime();
+			Object result;
+			try {
+				result = invokeTarget(statement, method, args);
+			} catch (SQLException e) {
+				statementCompleted(statementName, System.nanoTime() - start, 0, true);
+				BatchEvents.PERSISTENCE_QUERY.commit(event, statementName, 0L);
+				throw e;
+			}
+			if (result instanceof ResultSet) {
+				queryOpen = true;
+				queryEvent = event;
+				queryStart = start;
+				queryRows = 0;
+				return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, 
+						new ResultSetHandler((ResultSet) result, this));
+			}
+			long statementRows = rowCount(result);
+			statementCompleted(statementName, System.nanoTime() - start, statementRows, false);
+			if (event != null) {
+				BatchEvents.PERSISTENCE_QUERY.commit(event, statementName, statementRows);
+			}
+			return result;
+		}
+
+		private long rowCount(Object result) {
+			long count = 0;
+			if (result instanceof Integer) {
+				count = (Integer) result;
+			} else if (result instanceof int[]) {
+				for (int updateCount : (int[]) result) {
+					if (updateCount > 0) {
+						count += updateCount;
+					}
+				}
+			}
+			return count;
+		}
+
+		void queryCompleted() {
+			if (queryOpen) {
+				queryOpen = false;
+				statementCompleted(statementName, System.nanoTime() - queryStart, queryRows, false);
+				if (queryEvent != null) {
+					BatchEvents.PERSISTENCE_QUERY.commit(queryEvent, statementName, queryRows);
+					queryEvent = null;
+				}
+			}
+		}
+	}
+
+	private static class ResultSetHandler implements InvocationHandler {
+		private final ResultSet resultSet;
+		private final StatementHandler statement;
+
+		ResultSetHandler(ResultSet resultSet, StatementHandler statement) {
+			this.resultSet = resultSet;
+			this.statement = statement;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+			if (methodName.equals("close")) {
+				statement.queryCompleted();
+			}
+			Object result = invokeTarget(resultSet, method, args);
+			if (methodName.equals("next") && Boolean.TRUE.equals(result)) {
+				statement.queryRows++;
+			}
+			return result;
+		}
+	}
+}
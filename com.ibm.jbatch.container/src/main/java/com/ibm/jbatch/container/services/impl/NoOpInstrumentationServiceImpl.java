@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.services.impl;
+
+import com.ibm.jbatch.container.services.IBatchInstrumentationService;
+import com.ibm.jbatch.spi.services.IBatchConfig;
+
+/**
+ * The default instrumentation service, recording nothing.
+ */
+public class NoOpInstrumentationServiceImpl implements IBatchInstrumentationService {
+
+	@Override
+	public void init(IBatchConfig batchConfig) { }
+
+	@Override
+	public void shutdown() { }
+
+	@Override
+	public boolean isEnabled() {
+		return false;
+	}
+
+	@Override
+	public int getItemSampleInterval() {
+		return 0;
+	}
+
+	@Override
+	public void span(Phase phase, long executionId, String name, long startNanos, long endNanos) { }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.services.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of the job repository, per persistence operation, as recorded by {@link MeteredConnection}: each
+ * operation's statistics are registered as an MBean, and optionally logged as a summary at a fixed interval.
+ * Statements slower than the threshold are logged whether or not the operations are metered. 
+ */
+public class PersistenceMetrics {
+
+	private final static String sourceClass = PersistenceMetrics.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	public static final String OBJECT_NAME_PREFIX = "com.ibm.jbatch:type=PersistenceOperation,name=";
+
+	private final boolean metered;
+	private final long slowStatementNanos;
+	private final ConcurrentMap<String, PersistenceOperationStats> operations = new ConcurrentHashMap<String, PersistenceOperationStats>();
+	private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+	private ScheduledExecutorService summaryExecutor = null;
+	private long countAtLastSummary = 0;
+
+	/**
+	 * @param metered whether the operations' metrics are kept
+	 * @param slowStatementMillis the time above which a statement is logged, 0 for none
+	 */
+	public PersistenceMetrics(boolean metered, long slowStatementMillis) {
+		this.metered = metered;
+		this.slowStatementNanos = (slowStatementMillis > 0) ? TimeUnit.MILLISECONDS.toNanos(slowStatementMillis) : Long.MAX_VALUE;
+	}
+
+	void operationCompleted(String operation, long acquireNanos, long elapsedNanos, int statements, long rows, boolean failed) {
+		if (metered) {
+			getStats(operation).record(acquireNanos, elapsedNanos, statements, rows, failed);
+		}
+	}
+
+	void statementCompleted(String operation, String statementName, long elapsedNanos, long rows) {
+		if (elapsedNanos > slowStatementNanos) {
+			logger.warning("Slow job repository statement in " + operation + ", took " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) 
+					+ " ms for " + rows + " rows: " + statementName);
+		}
+	}
+
+	/**
+	 * @return the operation's metrics, created (and registered as an MBean) on first use
+	 */
+	public PersistenceOperationStats getStats(String operation) {
+		PersistenceOperationStats stats = operations.get(operation);
+		if (stats == null) {
+			PersistenceOperationStats newStats = new PersistenceOperationStats(operation);
+			stats = operations.putIfAbsent(operation, newStats);
+			if (stats == null) {
+				stats = newStats;
+				register(newStats);
+			}
+		}
+		return stats;
+	}
+
+	private void register(PersistenceOperationStats stats) {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME_PREFIX + stats.getOperation());
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(name)) {
+				// Left over from an earlier runtime in this JVM
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(stats, name);
+			synchronized (registered) {
+				registered.add(name);
+			}
+		} catch (Exception e) {
+			logger.log(Level.WARNING, "Failed to register the MBean for job repository operation " + stats.getOperation(), e);
+		}
+	}
+
+	/**
+	 * Logs a summary of the operations' metrics every interval, from a daemon thread.
+	 */
+	public synchronized void startSummary(long intervalSeconds) {
+		summaryExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "jbatch-persistence-metrics");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		summaryExecutor.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				logSummary();
+			}
+		}, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @return the summary, one line per operation, the ones taking the most time in total first
+	 */
+	public String getSummary() {
+		List<PersistenceOperationStats> stats = new ArrayList<PersistenceOperationStats>(operations.values());
+		Collections.sort(stats, new Comparator<PersistenceOperationStats>() {
+			@Override
+			public int compare(PersistenceOperationStats s1, PersistenceOperationStats s2) {
+				return Long.compare(s2.getTotalNanos(), s1.getTotalNanos());
+			}
+		});
+		StringBuilder summary = new StringBuilder("Job repository operations:");
+		for (PersistenceOperationStats operationStats : stats) {
+			if (operationStats.getCount() > 0) {
+				summary.append("\n  ").append(operationStats);
+			}
+		}
+		return summary.toString();
+	}
+
+	private void logSummary() {
+		long count = 0;
+		for (PersistenceOperationStats stats : operations.values()) {
+			count += stats.getCount();
+		}
+		// Nothing new to tell, when idle
+		if (count != countAtLastSummary) {
+			countAtLastSummary = count;
+			logger.info(getSummary());
+		}
+	}
+
+	/**
+	 * Stops the summary and unregisters the MBeans.
+	 */
+	public synchronized void shutdown() {
+		if (summaryExecutor != null) {
+			summaryExecutor.shutdownNow();
+			summaryExecutor = null;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		synchronized (registered) {
+			for (ObjectName name : registered) {
+				try {
+					server.unregisterMBean(name);
+				} catch (Exception e) {
+					logger.log(Level.FINE, "Failed to unregister MBean " + name, e);
+				}
+			}
+			registered.clear();
+		}
+	}
+}
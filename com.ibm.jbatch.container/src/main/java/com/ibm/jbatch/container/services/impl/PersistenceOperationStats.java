@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.services.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metrics kept for one job repository operation, also registered as its MBean.
+ */
+public class PersistenceOperationStats implements PersistenceOperationStatsMBean {
+
+	private static final long[] BUCKET_BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, Long.MAX_VALUE };
+	private static final long[] BUCKET_BOUNDS_NANOS = new long[BUCKET_BOUNDS_MILLIS.length];
+
+	static {
+		for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length - 1; i++) {
+			BUCKET_BOUNDS_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(BUCKET_BOUNDS_MILLIS[i]);
+		}
+		BUCKET_BOUNDS_NANOS[BUCKET_BOUNDS_NANOS.length - 1] = Long.MAX_VALUE;
+	}
+
+	private final String operation;
+
+	private long count;
+	private long failureCount;
+	private long statementCount;
+	private long rowCount;
+	private long totalNanos;
+	private long maxNanos;
+	private long totalAcquireNanos;
+	private long maxAcquireNanos;
+	private final long[] histogram = new long[BUCKET_BOUNDS_MILLIS.length];
+
+	PersistenceOperationStats(String operation) {
+		this.operation = operation;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	synchronized void record(long acquireNanos, long elapsedNanos, int statements, long rows, boolean failed) {
+		count++;
+		if (failed) {
+			failureCount++;
+		}
+		statementCount += statements;
+		rowCount += rows;
+		totalNanos += elapsedNanos;
+		maxNanos = Math.max(maxNanos, elapsedNanos);
+		totalAcquireNanos += acquireNanos;
+		maxAcquireNanos = Math.max(maxAcquireNanos, acquireNanos);
+		int bucket = 0;
+		while (elapsedNanos >= BUCKET_BOUNDS_NANOS[bucket]) {
+			bucket++;
+		}
+		histogram[bucket]++;
+	}
+
+	@Override
+	public synchronized long getCount() {
+		return count;
+	}
+
+	@Override
+	public synchronized long getFailureCount() {
+		return failureCount;
+	}
+
+	@Override
+	public synchronized long getStatementCount() {
+		return statementCount;
+	}
+
+	@Override
+	public synchronized long getRowCount() {
+		return rowCount;
+	}
+
+	@Override
+	public synchronized double getMeanMillis() {
+		return (count == 0) ? 0 : millis(totalNanos) / count;
+	}
+
+	@Override
+	public synchronized double getMaxMillis() {
+		return millis(maxNanos);
+	}
+
+	@Override
+	public double getP50Millis() {
+		return percentileMillis(0.50);
+	}
+
+	@Override
+	public double getP95Millis() {
+		return percentileMillis(0.95);
+	}
+
+	@Override
+	public double getP99Millis() {
+		return percentileMillis(0.99);
+	}
+
+	private synchronized double percentileMillis(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile * count);
+		long seen = 0;
+		for (int i = 0; i < histogram.length - 1; i++) {
+			seen += histogram[i];
+			if (seen >= rank) {
+				return Math.min(BUCKET_BOUNDS_MILLIS[i], millis(maxNanos));
+			}
+		}
+		return millis(maxNanos);
+	}
+
+	@Override
+	public synchronized double getMeanConnectionAcquireMillis() {
+		return (count == 0) ? 0 : millis(totalAcquireNanos) / count;
+	}
+
+	@Override
+	public synchronized double getMaxConnectionAcquireMillis() {
+		return millis(maxAcquireNanos);
+	}
+
+	@Override
+	public long[] getLatencyBucketBoundsMillis() {
+		return BUCKET_BOUNDS_MILLIS.clone();
+	}
+
+	@Override
+	public synchronized long[] getLatencyHistogram() {
+		return histogram.clone();
+	}
+
+	@Override
+	public synchronized void reset() {
+		count = 0;
+		failureCount = 0;
+		statementCount = 0;
+		rowCount = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+		totalAcquireNanos = 0;
+		maxAcquireNanos = 0;
+		Arrays.fill(histogram, 0);
+	}
+
+	synchronized long getTotalNanos() {
+		return totalNanos;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s: count=%d, failures=%d, mean=%.1fms, p95<=%.1fms, max=%.1fms, statements=%d, rows=%d, connection acquire mean=%.1fms",
+				operation, count, failureCount, getMeanMillis(), getP95Millis(), getMaxMillis(), statementCount, rowCount, getMeanConnectionAcquireMillis());
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1000000.0;
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.services.impl;
+
+/**
+ * The metrics of one job repository operation, over all its calls since the last reset.
+ * The percentiles are the upper bounds of the histogram buckets they fall in.
+ */
+public interface PersistenceOperationStatsMBean {
+
+	long getCount();
+
+	long getFailureCount();
+
+	long getStatementCount();
+
+	long getRowCount();
+
+	double getMeanMillis();
+
+	double getMaxMillis();
+
+	double getP50Millis();
+
+	double getP95Millis();
+
+	double getP99Millis();
+
+	double getMeanConnectionAcquireMillis();
+
+	double getMaxConnectionAcquireMillis();
+
+	/**
+	 * @return the upper bounds of the latency histogram's buckets, the last one being unbounded
+	 */
+	long[] getLatencyBucketBoundsMillis();
+
+	long[] getLatencyHistogram();
+
+	void reset();
+}
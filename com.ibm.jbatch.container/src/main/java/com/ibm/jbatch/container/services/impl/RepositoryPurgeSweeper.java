@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.services.impl;
+
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.jbatch.container.services.IPersistenceManagerService;
+
+/**
+ * Periodically purges, from a single daemon thread, the job instances whose executions
+ * all ended longer ago than the retention period.
+ */
+class RepositoryPurgeSweeper {
+
+	private final static String sourceClass = RepositoryPurgeSweeper.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	private final IPersistenceManagerService persistenceService;
+	private final long intervalMinutes;
+	private final long retentionMillis;
+
+	private ScheduledExecutorService executor = null;
+
+	RepositoryPurgeSweeper(IPersistenceManagerService persistenceService, long intervalMinutes, long retentionHours) {
+		this.persistenceService = persistenceService;
+		this.intervalMinutes = intervalMinutes;
+		this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+	}
+
+	synchronized void start() {
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "jbatch-repository-purge");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				sweep();
+			}
+		}, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+	}
+
+	synchronized void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	private void sweep() {
+		Timestamp endedBefore = new Timestamp(System.currentTimeMillis() - retentionMillis);
+		try {
+			int purged = persistenceService.purgeJobInstances(null, null, endedBefore);
+			if (logger.isLoggable(Level.FINE)) {
+				logger.fine("Purge sweep purged " + purged + " job instances ended before: " + endedBefore);
+			}
+		} catch (RuntimeException e) {
+			// Don't let one failed sweep cancel the following ones.
+			logger.log(Level.WARNING, "Purge sweep of job instances ended before: " + endedBefore + " failed", e);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.ibm.jbatch.container.services.impl;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+import com.ibm.jbatch.container.exception.BatchContainerServiceException;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService;
+import com.ibm.jbatch.container.util.BatchContainerConstants;
+import com.ibm.jbatch.spi.services.IBatchConfig;
+
+/**
+ * Writes spans to a local file in the Trace Event Format (a JSON array of complete, "X", events),
+ * which Chrome's about:tracing and Perfetto can open.  Each thread's spans show on a line of their own,
+ * with the execution id as an argument.
+ * 
+ * Spans are buffered, and flushed as each job ends and at shutdown, which also closes the array.
+ */
+public class TraceFileInstrumentationServiceImpl implements IBatchInstrumentationService {
+
+	private final static String sourceClass = TraceFileInstrumentationServiceImpl.class.getName();
+	private final static Logger logger = Logger.getLogger(sourceClass);
+
+	private final Object lock = new Object();
+	private Writer writer = null;
+	private boolean firstEvent = true;
+	private int itemSampleInterval;
+	// Timestamps are written relative to this, in microseconds
+	private final long originNanos = System.nanoTime();
+
+	@Override
+	public void init(IBatchConfig batchConfig) {
+		String traceFile = batchConfig.getConfigProperties().getProperty(BatchContainerConstants.INSTRUMENTATION_TRACE_FILE,
+				BatchContainerConstants.DEFAULT_INSTRUMENTATION_TRACE_FILE);
+		itemSampleInterval = Integer.parseInt(batchConfig.getConfigProperties().getProperty(
+				BatchContainerConstants.INSTRUMENTATION_ITEM_SAMPLE_INTERVAL, BatchContainerConstants.DEFAULT_INSTRUMENTATION_ITEM_SAMPLE_INTERVAL));
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(traceFile), StandardCharsets.UTF_8), 64 * 1024);
+			writer.write("[\n");
+		} catch (IOException e) {
+			throw new BatchContainerServiceException("Cannot open trace file: " + traceFile, e);
+		}
+		logger.config("Writing trace to: " + traceFile + ", sampling one in " + itemSampleInterval + " items");
+	}
+
+	@Override
+	public void shutdown() {
+		synchronized (lock) {
+			if (writer != null) {
+				try {
+					writer.write("\n]\n");
+					writer.close();
+				} catch (IOException e) {
+					logger.warning("Failed to close trace file: " + e);
+				}
+				writer = null;
+			}
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public int getItemSampleInterval() {
+		return itemSampleInterval;
+	}
+
+	@Override
+	public void span(Phase phase, long executionId, String name, long startNanos, long endNanos) {
+		StringBuilder event = new StringBuilder(160);
+		event.append("{\"name\":\"");
+		appendEscaped(event, name);
+		event.append("\",\"cat\":\"").append(phase.name());
+		event.append("\",\"ph\":\"X\",\"ts\":").append(micros(startNanos - originNanos));
+		event.append(",\"dur\":").append(micros(endNanos - startNanos));
+		event.append(",\"pid\":1,\"tid\":").append(Thread.currentThread().getId());
+		event.append(",\"args\":{\"executionId\":").append(executionId).append("}}");
+
+		synchronized (lock) {
+			if (writer == null) {
+				return;
+			}
+			try {
+				if (!firstEvent) {
+					writer.write(",\n");
+				}
+				firstEvent = false;
+				writer.append(event);
+				if (phase == Phase.JOB) {
+					writer.flush();
+				}
+			} catch (IOException e) {
+				logger.warning("Failed to write to trace file, no longer tracing: " + e);
+				writer = null;
+			}
+		}
+	}
+
+	private static String micros(long nanos) {
+		if (nanos < 0) {
+			return "-" + micros(-nanos);
+		}
+		long fraction = nanos % 1000;
+		return (nanos / 1000) + (fraction < 10 ? ".00" : fraction < 100 ? ".0" : ".") + fraction;
+	}
+
+	private static void appendEscaped(StringBuilder sb, String s) {
+		if (s == null) {
+			return;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+	}
+}
@@ -31,12 +31,14 @@ public class ServiceTypes implements ServiceRegistry.ServicePropertyNames, Servi
 	public static final String CALLBACK_SERVICE = "CALLBACK_SERVICE";
 	public static final String JOB_STATUS_MANAGEMENT_SERVICE = "JOB_STATUS_MANAGEMENT_SERVICE";
 	public static final String PERSISTENCE_MANAGEMENT_SERVICE = "PERSISTENCE_MANAGEMENT_SERVICE";
+	public static final String INSTRUMENTATION_SERVICE = "INSTRUMENTATION_SERVICE";
 
 	// Internal-only impls
 	private static final String DEFAULT_BATCH_KERNEL_SERVICE = "com.ibm.jbatch.container.impl.BatchKernelImpl";
 	private static final String DEFAULT_CALLBACK_SERVICE = "com.ibm.jbatch.container.callback.JobEndCallbackManagerImpl";
 	private static final String DEFAULT_PERSISTENCE_MGR_CLASS = "com.ibm.jbatch.container.services.impl.JDBCPersistenceManagerImpl";
 	private static final String DEFAULT_JOBSTATUS_MGR_SERVICE = "com.ibm.jbatch.container.services.impl.JobStatusManagerImpl";
+	private static final String DEFAULT_INSTRUMENTATION_SERVICE = "com.ibm.jbatch.container.services.impl.NoOpInstrumentationServiceImpl";
 
 	public enum Name {
 		JAVA_EDITION_IS_SE_DUMMY_SERVICE, 
@@ -49,7 +51,8 @@ public class ServiceTypes implements ServiceRegistry.ServicePropertyNames, Servi
 		JOBXML_LOADER_SERVICE,                // Preferred
 		DELEGATING_JOBXML_LOADER_SERVICE,      // Delegating wrapper
 		CONTAINER_ARTIFACT_FACTORY_SERVICE,   // Preferred
-		DELEGATING_ARTIFACT_FACTORY_SERVICE  // Delegating wrapper
+		DELEGATING_ARTIFACT_FACTORY_SERVICE,  // Delegating wrapper
+		INSTRUMENTATION_SERVICE
 	}
 	
 	// The purpose of the awkwardness of complexity of treating SE vs EE as a
@@ -73,6 +76,7 @@ public class ServiceTypes implements ServiceRegistry.ServicePropertyNames, Servi
 		servicePropertyNames.put(DELEGATING_JOBXML_LOADER_SERVICE, Name.DELEGATING_JOBXML_LOADER_SERVICE);
 		servicePropertyNames.put(CONTAINER_ARTIFACT_FACTORY_SERVICE, Name.CONTAINER_ARTIFACT_FACTORY_SERVICE);
 		servicePropertyNames.put(DELEGATING_ARTIFACT_FACTORY_SERVICE, Name.DELEGATING_ARTIFACT_FACTORY_SERVICE);
+		servicePropertyNames.put(INSTRUMENTATION_SERVICE, Name.INSTRUMENTATION_SERVICE);
 	}
 	
 	public static Map<String, Name> getServicePropertyNames() {
@@ -97,6 +101,7 @@ public class ServiceTypes implements ServiceRegistry.ServicePropertyNames, Servi
 		serviceImplClassNames.put(Name.DELEGATING_JOBXML_LOADER_SERVICE, DELEGATING_JOBXML_LOADER_DEFAULT);
 		serviceImplClassNames.put(Name.CONTAINER_ARTIFACT_FACTORY_SERVICE, DELEGATING_ARTIFACT_FACTORY_DEFAULT); 
 		serviceImplClassNames.put(Name.DELEGATING_ARTIFACT_FACTORY_SERVICE, DELEGATING_ARTIFACT_FACTORY_DEFAULT);
+		serviceImplClassNames.put(Name.INSTRUMENTATION_SERVICE, DEFAULT_INSTRUMENTATION_SERVICE);
 	}
 	
 	public static Map<Name, String> getServiceImplClassNames() {
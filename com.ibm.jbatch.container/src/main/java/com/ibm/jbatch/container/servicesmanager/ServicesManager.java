@@ -17,6 +17,7 @@
 package com.ibm.jbatch.container.servicesmanager;
 
 import com.ibm.jbatch.container.callback.IJobEndCallbackService;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService;
 import com.ibm.jbatch.container.services.IBatchKernelService;
 import com.ibm.jbatch.container.services.IJobStatusManagerService;
 import com.ibm.jbatch.container.services.IPersistenceManagerService;
@@ -37,5 +38,6 @@ public interface ServicesManager {
 	public IBatchThreadPoolService getThreadPoolService();
 	public IBatchArtifactFactory getDelegatingArtifactFactory();
 	public IBatchArtifactFactory getPreferredArtifactFactory();
+	public IBatchInstrumentationService getInstrumentationService();
 	public PlatformMode getPlatformMode();
 }
\ No newline at end of file
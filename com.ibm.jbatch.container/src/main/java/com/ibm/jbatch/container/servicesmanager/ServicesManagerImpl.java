@@ -32,9 +32,11 @@ import com.ibm.jbatch.container.callback.IJobEndCallbackService;
 import com.ibm.jbatch.container.exception.BatchContainerServiceException;
 import com.ibm.jbatch.container.exception.PersistenceException;
 import com.ibm.jbatch.container.impl.BatchConfigImpl;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService;
 import com.ibm.jbatch.container.services.IBatchKernelService;
 import com.ibm.jbatch.container.services.IJobStatusManagerService;
 import com.ibm.jbatch.container.services.IPersistenceManagerService;
+import com.ibm.jbatch.container.services.impl.InstrumentedPersistenceManager;
 import com.ibm.jbatch.container.servicesmanager.ServiceTypes.Name;
 import com.ibm.jbatch.container.util.BatchContainerConstants;
 import com.ibm.jbatch.spi.BatchSPIManager;
@@ -373,6 +375,11 @@ public class ServicesManagerImpl implements BatchContainerConstants, ServicesMan
 		return (IBatchArtifactFactory)getService(Name.DELEGATING_ARTIFACT_FACTORY_SERVICE);
 	}
 
+	@Override
+	public IBatchInstrumentationService getInstrumentationService() {
+		return (IBatchInstrumentationService)getService(Name.INSTRUMENTATION_SERVICE);
+	}
+
 	/**
 	 * Note this will always return a non-null platform mode, i.e. defaulting is
 	 * taken care of.
@@ -402,6 +409,10 @@ public class ServicesManagerImpl implements BatchContainerConstants, ServicesMan
 					if (service == null) {
 						service = _loadServiceHelper(serviceType);
 						service.init(batchConfigImpl);
+						if (serviceType == Name.PERSISTENCE_MANAGEMENT_SERVICE) {
+							// Time every persistence call, if instrumentation is enabled
+							service = InstrumentedPersistenceManager.wrap((IPersistenceManagerService) service, getInstrumentationService());
+						}
 						serviceRegistry.putIfAbsent(serviceType, service);
 					}
 				}
@@ -72,8 +72,10 @@ public class DefaultNonTransactionalManager implements TransactionManagerAdapter
 	 */
 	@Override
 	public int getStatus() throws TransactionManagementException {
-		logger.entering(CLASSNAME, "getStatus");
-		logger.exiting(CLASSNAME, "getStatus", status);
+		if (logger.isLoggable(Level.FINER)) {
+			logger.entering(CLASSNAME, "getStatus");
+			logger.exiting(CLASSNAME, "getStatus", status);
+		}
 		return status;
 	}
 
@@ -93,8 +95,10 @@ public class DefaultNonTransactionalManager implements TransactionManagerAdapter
 	 */
 	@Override
 	public void setTransactionTimeout(int seconds) throws TransactionManagementException {
-		logger.entering(CLASSNAME, "setTransactionTimeout", seconds);
-		logger.fine("do nothing");
-		logger.exiting(CLASSNAME, "setTransactionTimeout");
+		// Called for every chunk, so don't box the argument unless it's to be logged
+		if (logger.isLoggable(Level.FINER)) {
+			logger.entering(CLASSNAME, "setTransactionTimeout", seconds);
+			logger.exiting(CLASSNAME, "setTransactionTimeout");
+		}
 	}
 }
@@ -33,6 +33,69 @@ public interface BatchContainerConstants {
 	public static final String DB_PASSWORD = "DB_PWD";
 	public static final String DB_SCHEMA = "DB_SCHEMA";
 	
+	// Group commit of checkpoint writes, for steps not running under a global transaction
+	public static final String CHECKPOINT_GROUP_COMMIT = "CHECKPOINT_GROUP_COMMIT";
+	public static final String CHECKPOINT_GROUP_COMMIT_WINDOW_MILLIS = "CHECKPOINT_GROUP_COMMIT_WINDOW_MILLIS";
+	public static final String CHECKPOINT_GROUP_COMMIT_MAX_BATCH = "CHECKPOINT_GROUP_COMMIT_MAX_BATCH";
+
+	public static final String DEFAULT_CHECKPOINT_GROUP_COMMIT = "false";
+	public static final String DEFAULT_CHECKPOINT_GROUP_COMMIT_WINDOW_MILLIS = "5";
+	public static final String DEFAULT_CHECKPOINT_GROUP_COMMIT_MAX_BATCH = "64";
+
+	// Purge of the job repository, in batches of job instances, and the optional background sweep by age
+	public static final String PURGE_BATCH_SIZE = "PURGE_BATCH_SIZE";
+	public static final String PURGE_BATCH_PAUSE_MILLIS = "PURGE_BATCH_PAUSE_MILLIS";
+	public static final String PURGE_SWEEP_INTERVAL_MINUTES = "PURGE_SWEEP_INTERVAL_MINUTES";
+	public static final String PURGE_SWEEP_RETENTION_HOURS = "PURGE_SWEEP_RETENTION_HOURS";
+
+	public static final String DEFAULT_PURGE_BATCH_SIZE = "100";
+	public static final String DEFAULT_PURGE_BATCH_PAUSE_MILLIS = "0";
+	public static final String DEFAULT_PURGE_SWEEP_INTERVAL_MINUTES = "0";
+	public static final String DEFAULT_PURGE_SWEEP_RETENTION_HOURS = "720";
+
+	// Whether the job repository is shared with other JVMs, rather than only used by this one.  There is no
+	// fixed default: unless set, it is shared unless it is an embedded database (see IPersistenceManagerService.isRepositoryShareable)
+	public static final String SHARED_JOB_REPOSITORY = "SHARED_JOB_REPOSITORY";
+
+	// Admission control of top-level jobs, in front of the thread pool
+	public static final String ADMISSION_MAX_RUNNING_JOBS = "ADMISSION_MAX_RUNNING_JOBS";
+	public static final String ADMISSION_MAX_RUNNING_JOBS_PER_JOB_NAME = "ADMISSION_MAX_RUNNING_JOBS_PER_JOB_NAME";
+	public static final String ADMISSION_MAX_RUNNING_JOBS_PER_APPTAG = "ADMISSION_MAX_RUNNING_JOBS_PER_APPTAG";
+	public static final String ADMISSION_PRIORITY_PARAMETER = "ADMISSION_PRIORITY_PARAMETER";
+	public static final String ADMISSION_PRIORITY_AGING_SECONDS = "ADMISSION_PRIORITY_AGING_SECONDS";
+
+	public static final String DEFAULT_ADMISSION_MAX_RUNNING_JOBS = "0";
+	public static final String DEFAULT_ADMISSION_MAX_RUNNING_JOBS_PER_JOB_NAME = "0";
+	public static final String DEFAULT_ADMISSION_MAX_RUNNING_JOBS_PER_APPTAG = "0";
+	public static final String DEFAULT_ADMISSION_PRIORITY_PARAMETER = "com.ibm.jbatch.priority";
+	public static final String DEFAULT_ADMISSION_PRIORITY_AGING_SECONDS = "300";
+
+	// Taking part in running the partitions queued in the job repository by other containers (or this one)
+	public static final String PARTITION_QUEUE_WORKER_THREADS = "PARTITION_QUEUE_WORKER_THREADS";
+	public static final String PARTITION_QUEUE_NODE_NAME = "PARTITION_QUEUE_NODE_NAME";
+	public static final String PARTITION_QUEUE_LEASE_MILLIS = "PARTITION_QUEUE_LEASE_MILLIS";
+	public static final String PARTITION_QUEUE_POLL_MILLIS = "PARTITION_QUEUE_POLL_MILLIS";
+
+	public static final String DEFAULT_PARTITION_QUEUE_WORKER_THREADS = "0";
+	public static final String DEFAULT_PARTITION_QUEUE_LEASE_MILLIS = "30000";
+	public static final String DEFAULT_PARTITION_QUEUE_POLL_MILLIS = "1000";
+
+	// Trace file written by the TraceFileInstrumentationServiceImpl instrumentation service
+	public static final String INSTRUMENTATION_TRACE_FILE = "INSTRUMENTATION_TRACE_FILE";
+	public static final String INSTRUMENTATION_ITEM_SAMPLE_INTERVAL = "INSTRUMENTATION_ITEM_SAMPLE_INTERVAL";
+
+	public static final String DEFAULT_INSTRUMENTATION_TRACE_FILE = "jbatch-trace.json";
+	public static final String DEFAULT_INSTRUMENTATION_ITEM_SAMPLE_INTERVAL = "1000";
+
+	// Job repository metrics per persistence operation, and the logging of slow statements (0 for none)
+	public static final String PERSISTENCE_METRICS = "PERSISTENCE_METRICS";
+	public static final String PERSISTENCE_METRICS_SUMMARY_INTERVAL_SECONDS = "PERSISTENCE_METRICS_SUMMARY_INTERVAL_SECONDS";
+	public static final String PERSISTENCE_SLOW_STATEMENT_MILLIS = "PERSISTENCE_SLOW_STATEMENT_MILLIS";
+
+	public static final String DEFAULT_PERSISTENCE_METRICS = "false";
+	public static final String DEFAULT_PERSISTENCE_METRICS_SUMMARY_INTERVAL_SECONDS = "0";
+	public static final String DEFAULT_PERSISTENCE_SLOW_STATEMENT_MILLIS = "0";
+
 	public static final String DEFAULT_JDBC_JNDI_NAME = "jdbc/batch";
 	public static final String DEFAULT_JDBC_DRIVER = "org.apache.derby.jdbc.EmbeddedDriver";
 	public static final String DEFAULT_JDBC_URL = "jdbc:derby:RUNTIMEDB;create=true";
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+import jakarta.batch.runtime.StepExecution;
+import jakarta.inject.Inject;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.jbatch.container.jobinstance.StepExecutionImpl;
+import com.ibm.jbatch.container.persistence.CheckpointDataKey;
+import com.ibm.jbatch.container.services.IPersistenceManagerService;
+import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
+
+public class CheckpointCleanupTest {
+
+	private static JobOperator jobOp = null;
+	private static IPersistenceManagerService ps = null;
+	private static int sleepTime = 2000;
+
+	@BeforeClass
+	public static void init() {
+		jobOp = BatchRuntime.getJobOperator();
+		ps = ServicesManagerImpl.getInstance().getPersistenceManagerService();
+	}
+
+	@Test
+	public void testDeletedOnCompletionUnlessAllowStartIfComplete() throws Exception {
+		long execId = jobOp.start("checkpointCleanup", null);
+		Thread.sleep(sleepTime);
+		assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+
+		long instanceId = jobOp.getJobInstance(execId).getInstanceId();
+		assertNull("step1 reader checkpoint", ps.getCheckpointData(new CheckpointDataKey(instanceId, "step1", "READER")));
+		assertNull("step1 writer checkpoint", ps.getCheckpointData(new CheckpointDataKey(instanceId, "step1", "WRITER")));
+		// Kept, since step2 runs again from them on restart
+		assertNotNull("step2 reader checkpoint", ps.getCheckpointData(new CheckpointDataKey(instanceId, "step2", "READER")));
+		assertNotNull("step2 writer checkpoint", ps.getCheckpointData(new CheckpointDataKey(instanceId, "step2", "WRITER")));
+	}
+
+	/**
+	 * Checkpoints are keyed by job instance and step name, not by step execution: each partition runs as a
+	 * job instance of its own, a retry stays within its step execution, and a restart, while it is a new 
+	 * step execution, must find the checkpoint the failed one left.
+	 */
+	@Test
+	public void testKeyUniqueAcrossPartitionsRetriesAndRestarts() throws Exception {
+		opened.clear();
+		failedOnce.clear();
+		Properties jobParameters = new Properties();
+		jobParameters.setProperty("failPartition", "1");
+		long execId = jobOp.start("checkpointKeys", jobParameters);
+		Thread.sleep(sleepTime);
+		assertEquals("Didn't fail", BatchStatus.FAILED, jobOp.getJobExecution(execId).getBatchStatus());
+		assertEquals("retried partitions", new HashSet<String>(Arrays.asList("0", "1", "2")), failedOnce);
+
+		// Each partition has a job instance of its own, and only the failed one's checkpoints are left
+		long instanceId = jobOp.getJobInstance(execId).getInstanceId();
+		Set<Long> partitionInstanceIds = new HashSet<Long>();
+		for (int partition = 0; partition < 3; partition++) {
+			long partitionInstanceId = getPartitionInstanceId(instanceId, partition);
+			partitionInstanceIds.add(partitionInstanceId);
+			CheckpointDataKey key = new CheckpointDataKey(partitionInstanceId, "step1", "READER");
+			assertEquals("reader checkpoint of partition " + partition, partition == 1, ps.getCheckpointData(key) != null);
+		}
+		assertEquals("partition instances", 3, partitionInstanceIds.size());
+		assertFalse("partition shares the job's instance", partitionInstanceIds.contains(instanceId));
+		long failedInstanceId = getPartitionInstanceId(instanceId, 1);
+		long failedStepExecutionId = getLastStepExecutionId(failedInstanceId);
+
+		opened.clear();
+		failedOnce.clear();
+		jobParameters.setProperty("failPartition", "-1");
+		long restartExecId = jobOp.restart(execId, jobParameters);
+		Thread.sleep(sleepTime);
+		assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(restartExecId).getBatchStatus());
+
+		// The failed partition alone runs again, in a new step execution of the same instance, from the checkpoint the failed one left
+		assertEquals("partitions run again", Collections.singleton("1"), failedOnce);
+		assertEquals("restarted instance", failedInstanceId, getPartitionInstanceId(instanceId, 1));
+		long restartedStepExecutionId = getLastStepExecutionId(failedInstanceId);
+		assertTrue("restarted step execution", restartedStepExecutionId != failedStepExecutionId);
+		assertEquals("restarted from checkpoint", Integer.valueOf(6), opened.get(0));
+		assertNull("reader checkpoint, once completed", ps.getCheckpointData(new CheckpointDataKey(failedInstanceId, "step1", "READER")));
+	}
+
+	private static long getPartitionInstanceId(long instanceId, int partition) {
+		List<Long> instanceIds = ps.jobOperatorGetJobInstanceIds(":" + instanceId + ":step1:" + partition, 0, 10);
+		assertEquals("instances of partition " + partition, 1, instanceIds.size());
+		return instanceIds.get(0);
+	}
+
+	private static long getLastStepExecutionId(long partitionInstanceId) {
+		StepExecutionImpl stepExecution = (StepExecutionImpl) ps.getMostRecentStepExecutionsForJobInstance(partitionInstanceId).get("step1");
+		List<StepExecution> stepExecutions = ps.getStepExecutionsForJobExecution(stepExecution.getJobExecutionId());
+		assertEquals("step executions", 1, stepExecutions.size());
+		return stepExecutions.get(0).getStepExecutionId();
+	}
+
+	static final List<Integer> opened = Collections.synchronizedList(new ArrayList<Integer>());
+	static final Set<String> failedOnce = Collections.synchronizedSet(new HashSet<String>());
+
+	public static class RetryableException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+	public static class RecordingReader extends Reader {
+		@Override
+		public void open(Serializable checkpoint) throws Exception {
+			super.open(checkpoint);
+			opened.add((Integer) checkpoint);
+		}
+	}
+
+	/**
+	 * Fails the partition's first write once, to be retried, and the write of item 7 in the failing partition, for good.
+	 */
+	public static class FailingWriter extends AbstractItemWriter {
+
+		@Inject @BatchProperty(name = "partition")
+		String partition;
+
+		@Inject @BatchProperty(name = "failPartition")
+		String failPartition;
+
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+			if (failedOnce.add(partition)) {
+				throw new RetryableException();
+			}
+			if (partition.equals(failPartition) && items.contains(7)) {
+				throw new IllegalStateException("Failing partition " + partition + " at item 7");
+			}
+		}
+	}
+
+	public static class Reader extends AbstractItemReader {
+
+		int next = 0;
+
+		@Override
+		public void open(Serializable checkpoint) throws Exception {
+			next = (checkpoint == null) ? 0 : (Integer) checkpoint;
+		}
+
+		@Override
+		public Object readItem() throws Exception {
+			return (next == 10) ? null : ++next;
+		}
+
+		@Override
+		public Serializable checkpointInfo() throws Exception {
+			return next;
+		}
+	}
+
+	public static class Writer extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+		}
+	}
+}
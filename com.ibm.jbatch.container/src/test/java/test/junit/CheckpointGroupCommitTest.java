@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.ibm.jbatch.container.exception.PersistenceException;
+import com.ibm.jbatch.container.impl.BatchConfigImpl;
+import com.ibm.jbatch.container.persistence.CheckpointData;
+import com.ibm.jbatch.container.persistence.CheckpointDataKey;
+import com.ibm.jbatch.container.services.impl.JDBCPersistenceManagerImpl;
+import com.ibm.jbatch.container.util.BatchContainerConstants;
+import com.ibm.jbatch.spi.DatabaseConfigurationBean;
+
+public class CheckpointGroupCommitTest {
+
+	private static final int PARTITIONS = 6;
+	private static final int FAILING_PARTITION = 3;
+
+	/**
+	 * Counts the writes reaching the database, and fails any including the checkpoint of a given key.
+	 */
+	private static class FailingPersistenceManager extends JDBCPersistenceManagerImpl {
+		final AtomicInteger writes = new AtomicInteger();
+		volatile CheckpointDataKey failOn = null;
+
+		@Override
+		public void updateCheckpointData(Map<CheckpointDataKey, CheckpointData> checkpointData) {
+			writes.incrementAndGet();
+			if (failOn != null && checkpointData.containsKey(failOn)) {
+				throw new PersistenceException(new SQLException("Injected failure"));
+			}
+			super.updateCheckpointData(checkpointData);
+		}
+	}
+
+	private static <T extends JDBCPersistenceManagerImpl> T init(T persistenceManager, String database, 
+			boolean groupCommit, long windowMillis) {
+		DatabaseConfigurationBean databaseConfig = new DatabaseConfigurationBean();
+		databaseConfig.setJdbcDriver("org.apache.derby.jdbc.EmbeddedDriver");
+		databaseConfig.setJdbcUrl("jdbc:derby:memory:" + database + ";create=true");
+		databaseConfig.setDbUser("app");
+		databaseConfig.setDbPassword("app");
+		databaseConfig.setSchema("JBATCH");
+
+		Properties props = new Properties();
+		props.setProperty(BatchContainerConstants.CHECKPOINT_GROUP_COMMIT, String.valueOf(groupCommit));
+		props.setProperty(BatchContainerConstants.CHECKPOINT_GROUP_COMMIT_WINDOW_MILLIS, String.valueOf(windowMillis));
+		BatchConfigImpl config = new BatchConfigImpl();
+		config.setJ2seMode(true);
+		config.setDatabaseConfigurationBean(databaseConfig);
+		config.setConfigProperties(props);
+
+		persistenceManager.init(config);
+		return persistenceManager;
+	}
+
+	private static Map<CheckpointDataKey, CheckpointData> checkpoints(long instanceId, int partition, int round) {
+		Map<CheckpointDataKey, CheckpointData> checkpointData = new HashMap<CheckpointDataKey, CheckpointData>();
+		for (String type : new String[] { "READER", "WRITER" }) {
+			CheckpointData data = new CheckpointData(instanceId, stepName(partition), type);
+			data.setRestartToken(token(partition, round, type));
+			checkpointData.put(new CheckpointDataKey(instanceId, stepName(partition), type), data);
+		}
+		return checkpointData;
+	}
+
+	private static String stepName(int partition) {
+		return "step1:" + partition;
+	}
+
+	private static byte[] token(int partition, int round, String type) {
+		return (type + " " + partition + " " + round).getBytes();
+	}
+
+	/**
+	 * Has every partition write its READER and WRITER checkpoints for the round at the same moment.
+	 * 
+	 * @return the failure each partition saw, if any
+	 */
+	private static Throwable[] commitRound(final JDBCPersistenceManagerImpl persistenceManager, final long instanceId, final int round) 
+			throws Exception {
+		final Throwable[] failures = new Throwable[PARTITIONS];
+		final CyclicBarrier barrier = new CyclicBarrier(PARTITIONS);
+		Thread[] threads = new Thread[PARTITIONS];
+		for (int i = 0; i < PARTITIONS; i++) {
+			final int partition = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						barrier.await();
+						persistenceManager.updateCheckpointDataGroupCommit(checkpoints(instanceId, partition, round));
+					} catch (Throwable t) {
+						failures[partition] = t;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join(10000);
+			assertFalse("Partition still committing", thread.isAlive());
+		}
+		return failures;
+	}
+
+	private static void assertCheckpoints(JDBCPersistenceManagerImpl persistenceManager, long instanceId, int partition, int round) {
+		for (String type : new String[] { "READER", "WRITER" }) {
+			CheckpointData data = persistenceManager.getCheckpointData(new CheckpointDataKey(instanceId, stepName(partition), type));
+			assertNotNull(type + " checkpoint of partition " + partition, data);
+			assertEquals(type + " checkpoint of partition " + partition, new String(token(partition, round, type)), 
+					new String(data.getRestartToken()));
+		}
+	}
+
+	@Test
+	public void testConcurrentPartitions() throws Exception {
+		FailingPersistenceManager persistenceManager = init(new FailingPersistenceManager(), "checkpointGroupCommit", true, 500);
+		long instanceId = persistenceManager.createJobInstance("job", "tag", "<job/>").getInstanceId();
+
+		// Round 1 inserts the checkpoints, in fewer writes than there are partitions
+		Throwable[] failures = commitRound(persistenceManager, instanceId, 1);
+		for (int i = 0; i < PARTITIONS; i++) {
+			assertNull("Partition " + i + " failed: " + failures[i], failures[i]);
+		}
+		assertTrue("Writes weren't grouped: " + persistenceManager.writes, persistenceManager.writes.get() < PARTITIONS);
+
+		// Round 2 updates them, failing for one partition only
+		persistenceManager.failOn = new CheckpointDataKey(instanceId, stepName(FAILING_PARTITION), "WRITER");
+		failures = commitRound(persistenceManager, instanceId, 2);
+		for (int i = 0; i < PARTITIONS; i++) {
+			if (i == FAILING_PARTITION) {
+				assertTrue("Partition " + i + " didn't see its failure", failures[i] instanceof PersistenceException);
+			} else {
+				assertNull("Partition " + i + " failed: " + failures[i], failures[i]);
+			}
+		}
+		persistenceManager.shutdown();
+
+		// After a restart, each partition has both checkpoints of its last successful round, and the
+		// failed partition can carry on, with group commit off, from its own.
+		JDBCPersistenceManagerImpl restarted = init(new JDBCPersistenceManagerImpl(), "checkpointGroupCommit", false, 0);
+		for (int i = 0; i < PARTITIONS; i++) {
+			assertCheckpoints(restarted, instanceId, i, i == FAILING_PARTITION ? 1 : 2);
+		}
+		restarted.updateCheckpointDataGroupCommit(checkpoints(instanceId, FAILING_PARTITION, 2));
+		assertCheckpoints(restarted, instanceId, FAILING_PARTITION, 2);
+		restarted.shutdown();
+	}
+
+	@Test
+	public void testShutdownWithPendingWrites() throws Exception {
+		final long windowMillis = 30000;
+		final FailingPersistenceManager persistenceManager = init(new FailingPersistenceManager(), "checkpointGroupCommitShutdown", true, windowMillis);
+		final long instanceId = persistenceManager.createJobInstance("job", "tag", "<job/>").getInstanceId();
+
+		long start = System.currentTimeMillis();
+		final Throwable[] failures = new Throwable[PARTITIONS];
+		Thread[] threads = new Thread[PARTITIONS];
+		for (int i = 0; i < PARTITIONS; i++) {
+			final int partition = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						persistenceManager.updateCheckpointDataGroupCommit(checkpoints(instanceId, partition, 1));
+					} catch (Throwable t) {
+						failures[partition] = t;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		Thread.sleep(500);
+		assertEquals("Writes made before the window closed", 0, persistenceManager.writes.get());
+
+		// Shutting down writes the group right away, rather than at the end of its window
+		persistenceManager.shutdown();
+		for (int i = 0; i < PARTITIONS; i++) {
+			threads[i].join(10000);
+			assertFalse("Partition still committing", threads[i].isAlive());
+			assertNull("Partition " + i + " failed: " + failures[i], failures[i]);
+			assertCheckpoints(persistenceManager, instanceId, i, 1);
+		}
+
+		// Any later write is made on its own
+		persistenceManager.updateCheckpointDataGroupCommit(checkpoints(instanceId, 0, 2));
+		assertCheckpoints(persistenceManager, instanceId, 0, 2);
+		assertTrue("Waited out the window", System.currentTimeMillis() - start < windowMillis);
+	}
+}
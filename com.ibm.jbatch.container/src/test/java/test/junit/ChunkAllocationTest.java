@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the chunk loop allocates nothing per item once warmed up, by having the reader measure
+ * its thread's allocations across each chunk, from the second read to the last.
+ */
+public class ChunkAllocationTest {
+
+	private static JobOperator jobOp = null;
+	private static int sleepTime = 500;
+	private static int maxWaits = 120;
+
+	static final int CHUNK_SIZE = 1000;
+	static final int NUM_CHUNKS = 60;
+	static final Object ITEM = new Object();
+
+	// Bytes allocated reading each chunk, from its second item to its last
+	static List<Long> chunkAllocations = Collections.synchronizedList(new ArrayList<Long>());
+
+	private static com.sun.management.ThreadMXBean threadBean;
+
+	@BeforeClass
+	public static void init() {
+		jobOp = BatchRuntime.getJobOperator();
+		Object bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threadBean = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	@Test
+	public void testNoAllocationPerItem() throws Exception {
+		chunkAllocations.clear();
+		long execId = jobOp.start("chunkAllocation", null);
+		for (int i = 0; i < maxWaits && !jobOp.getJobExecution(execId).getBatchStatus().equals(BatchStatus.COMPLETED); i++) {
+			Thread.sleep(sleepTime);
+		}
+		assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+		assertEquals("chunks measured", NUM_CHUNKS, chunkAllocations.size());
+
+		// Once the loop is compiled, some chunk should get through its items with no allocation at all,
+		// but allow for the odd stray allocation (e.g. by the measuring itself)
+		long best = Long.MAX_VALUE;
+		for (Long allocated : chunkAllocations.subList(NUM_CHUNKS / 2, NUM_CHUNKS)) {
+			best = Math.min(best, allocated);
+		}
+		assertTrue("Allocated " + best + " bytes over " + (CHUNK_SIZE - 2) + " items, in all chunks: " + chunkAllocations,
+				best < CHUNK_SIZE - 2);
+	}
+
+	public static class Reader extends AbstractItemReader {
+		int next = 0;
+		long chunkStart;
+
+		@Override
+		public void open(Serializable checkpoint) throws Exception {
+			next = (checkpoint == null) ? 0 : (Integer) checkpoint;
+		}
+
+		@Override
+		public Object readItem() throws Exception {
+			if (next >= CHUNK_SIZE * NUM_CHUNKS) {
+				return null;
+			}
+			int positionInChunk = next++ % CHUNK_SIZE;
+			if (positionInChunk == 1) {
+				chunkStart = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			} else if (positionInChunk == CHUNK_SIZE - 1) {
+				chunkAllocations.add(threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - chunkStart);
+			}
+			return ITEM;
+		}
+
+		@Override
+		public Serializable checkpointInfo() throws Exception {
+			return next;
+		}
+	}
+
+	public static class Writer extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.jbatch.container.impl.SpillableChunkBuffer;
+
+public class ChunkByteLimitTest {
+
+	private static JobOperator jobOp = null;
+	private static int sleepTime = 3000;
+
+	static final int NUM_ITEMS = 30;
+	static final int ITEM_LENGTH = 1000;
+
+	static List<Object> written = Collections.synchronizedList(new ArrayList<Object>());
+	static List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<Integer>());
+	static List<Integer> spilledCounts = Collections.synchronizedList(new ArrayList<Integer>());
+
+	@BeforeClass
+	public static void init() {
+		jobOp = BatchRuntime.getJobOperator();
+	}
+
+	@Test
+	public void testItemCountOnly() throws Exception {
+		runJob(null, null);
+		assertEquals("chunk sizes", Arrays.asList(10, 10, 10), chunkSizes);
+		assertEquals("written items", items(), written);
+	}
+
+	@Test
+	public void testMaxChunkBytes() throws Exception {
+		// Each item serializes to a little over ITEM_LENGTH bytes, so the fifth one passes the bound
+		runJob("4500", null);
+		assertEquals("chunk sizes", Arrays.asList(5, 5, 5, 5, 5, 5), chunkSizes);
+		assertEquals("written items", items(), written);
+	}
+
+	@Test
+	public void testSpill() throws Exception {
+		// The first two items stay in memory, the rest of each chunk is read back from disk
+		runJob(null, "2500");
+		assertEquals("chunk sizes", Arrays.asList(10, 10, 10), chunkSizes);
+		assertEquals("spilled items", Arrays.asList(8, 8, 8), spilledCounts);
+		assertEquals("written items", items(), written);
+	}
+
+	@Test
+	public void testSpillableChunkBuffer() {
+		SpillableChunkBuffer buffer = new SpillableChunkBuffer(10);
+		Object notSerializable = new Object();
+		try {
+			buffer.add("a", 6);
+			buffer.add("b", 6);
+			buffer.add(notSerializable, 6);
+			buffer.add("c", 6);
+			assertEquals(4, buffer.size());
+			assertEquals("spilled items", 2, buffer.getSpilledCount());
+			assertEquals("a", buffer.get(0));
+			assertEquals("b", buffer.get(1));
+			assertSame(notSerializable, buffer.get(2));
+			assertEquals("c", buffer.get(3));
+
+			buffer.clear();
+			buffer.add("d", 6);
+			buffer.add("e", 6);
+			assertEquals(Arrays.asList("d", "e"), new ArrayList<Object>(buffer));
+			assertEquals("spilled items", 1, buffer.getSpilledCount());
+		} finally {
+			buffer.close();
+		}
+		assertTrue(buffer.isEmpty());
+	}
+
+	private void runJob(String maxChunkBytes, String spillThresholdBytes) throws Exception {
+		written.clear();
+		chunkSizes.clear();
+		spilledCounts.clear();
+		Properties params = new Properties();
+		if (maxChunkBytes != null) {
+			params.setProperty("maxChunkBytes", maxChunkBytes);
+		}
+		if (spillThresholdBytes != null) {
+			params.setProperty("spillThresholdBytes", spillThresholdBytes);
+		}
+		long execId = jobOp.start("chunkByteLimit", params);
+		Thread.sleep(sleepTime);
+		assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+	}
+
+	private static String item(int i) {
+		StringBuilder sb = new StringBuilder(ITEM_LENGTH);
+		sb.append(i).append(':');
+		while (sb.length() < ITEM_LENGTH) {
+			sb.append('x');
+		}
+		return sb.toString();
+	}
+
+	private static List<Object> items() {
+		List<Object> items = new ArrayList<Object>();
+		for (int i = 0; i < NUM_ITEMS; i++) {
+			items.add(item(i));
+		}
+		return items;
+	}
+
+	public static class Reader extends AbstractItemReader {
+		int next = 0;
+
+		@Override
+		public void open(Serializable checkpoint) throws Exception {
+			next = (checkpoint == null) ? 0 : (Integer) checkpoint;
+		}
+
+		@Override
+		public Object readItem() throws Exception {
+			return next < NUM_ITEMS ? item(next++) : null;
+		}
+
+		@Override
+		public Serializable checkpointInfo() throws Exception {
+			return next;
+		}
+	}
+
+	public static class Writer extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+			chunkSizes.add(items.size());
+			if (items instanceof SpillableChunkBuffer) {
+				spilledCounts.add(((SpillableChunkBuffer) items).getSpilledCount());
+			}
+			written.addAll(items);
+		}
+	}
+}
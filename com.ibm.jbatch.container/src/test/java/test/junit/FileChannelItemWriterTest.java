@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.jbatch.container.artifact.file.FileChannelItemWriter;
+
+public class FileChannelItemWriterTest {
+
+	private static int sleepTime = 3000;
+
+	private File file;
+
+	@Before
+	public void createFile() throws Exception {
+		file = File.createTempFile("out", ".txt");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		TestWriter writer = new TestWriter(file.getPath(), null);
+		writer.open(null);
+		// Records longer than the buffer, and multi-byte characters split across it
+		writer.writeItems(Arrays.<Object>asList("éééééééééé", "b".getBytes("UTF-8"), ByteBuffer.wrap("cc".getBytes("UTF-8")), 4));
+		assertEquals(file.length(), writer.checkpointInfo());
+		writer.close();
+		assertEquals("éééééééééé\nb\ncc\n4\n", new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+	}
+
+	@Test
+	public void testDelimiter() throws Exception {
+		TestWriter writer = new TestWriter(file.getPath(), "\\r\\n");
+		writer.open(null);
+		writer.writeItems(Arrays.<Object>asList("a", "b"));
+		writer.close();
+		assertArrayEquals("a\r\nb\r\n".getBytes("UTF-8"), Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void testRestartTruncates() throws Exception {
+		TestWriter writer = new TestWriter(file.getPath(), null);
+		writer.open(null);
+		writer.writeItems(Arrays.<Object>asList("a", "b"));
+		Serializable checkpoint = writer.checkpointInfo();
+		// A chunk that never commits
+		writer.writeItems(Arrays.<Object>asList("c", "d"));
+		writer.close();
+
+		writer = new TestWriter(file.getPath(), null);
+		writer.open(checkpoint);
+		writer.writeItems(Arrays.<Object>asList("e"));
+		writer.close();
+		assertEquals("a\nb\ne\n", new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+
+		// A fresh start replaces the file
+		writer = new TestWriter(file.getPath(), null);
+		writer.open(null);
+		writer.writeItems(Arrays.<Object>asList("f"));
+		writer.close();
+		assertEquals("f\n", new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+	}
+
+	@Test
+	public void testPartitionedCopyAndMerge() throws Exception {
+		File input = File.createTempFile("input", ".txt");
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 100; i++) {
+				sb.append(i).append(":record\n");
+			}
+			Files.write(input.toPath(), sb.toString().getBytes("UTF-8"));
+
+			JobOperator jobOp = BatchRuntime.getJobOperator();
+			Properties params = new Properties();
+			params.setProperty("inputFile", input.getPath());
+			params.setProperty("outputFile", file.getPath());
+			long execId = jobOp.start("fileChannelWrite", params);
+			Thread.sleep(sleepTime);
+			assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+
+			assertArrayEquals(Files.readAllBytes(input.toPath()), Files.readAllBytes(file.toPath()));
+			assertFalse("partition files deleted", new File(file.getPath() + ".part0").exists());
+		} finally {
+			input.delete();
+		}
+	}
+
+	private static class TestWriter extends FileChannelItemWriter {
+		TestWriter(String fileName, String delimiter) {
+			this.fileName = fileName;
+			this.delimiter = delimiter;
+			this.bufferSize = "4";
+		}
+	}
+}
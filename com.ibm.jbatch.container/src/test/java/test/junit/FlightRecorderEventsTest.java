@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.ibm.jbatch.container.jfr.BatchEvents;
+
+/**
+ * Flight Recorder is only reached reflectively, as in the container, so this compiles and is
+ * skipped on a JVM without it.
+ */
+public class FlightRecorderEventsTest {
+
+	private static final String[] EVENT_NAMES = { "com.ibm.jbatch.ChunkCommit", "com.ibm.jbatch.CheckpointPersist", 
+		"com.ibm.jbatch.PartitionDispatch", "com.ibm.jbatch.PartitionComplete", "com.ibm.jbatch.JobStart", 
+		"com.ibm.jbatch.PersistenceQuery" };
+
+	public static class Reader extends AbstractItemReader {
+		int count = 0;
+
+		@Override
+		public void open(Serializable checkpoint) {
+			if (checkpoint != null) {
+				count = (Integer) checkpoint;
+			}
+		}
+
+		@Override
+		public Object readItem() {
+			return (count < 12) ? count++ : null;
+		}
+
+		@Override
+		public Serializable checkpointInfo() {
+			return count;
+		}
+	}
+
+	public static class Writer extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) {}
+	}
+
+	@Test
+	public void testEvents() throws Exception {
+		Class<?> recordingClass;
+		try {
+			recordingClass = Class.forName("jdk.jfr.Recording");
+		} catch (ClassNotFoundException e) {
+			Assume.assumeNoException(e);
+			return;
+		}
+
+		assertFalse("Not enabled without a recording", BatchEvents.CHUNK_COMMIT.isEnabled());
+
+		Object recording = recordingClass.newInstance();
+		for (String name : EVENT_NAMES) {
+			recordingClass.getMethod("enable", String.class).invoke(recording, name);
+		}
+		File dump = File.createTempFile("jbatch", ".jfr");
+		List<?> events;
+		try {
+			recordingClass.getMethod("start").invoke(recording);
+			assertTrue("Enabled by the recording", BatchEvents.CHUNK_COMMIT.isEnabled());
+
+			JobOperator jobOp = BatchRuntime.getJobOperator();
+			long execId = jobOp.start("flightRecorder", null);
+			for (int i = 0; i < 100 && !isDone(jobOp.getJobExecution(execId).getBatchStatus()); i++) {
+				Thread.sleep(100);
+			}
+			assertEquals(BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+
+			recordingClass.getMethod("stop").invoke(recording);
+			recordingClass.getMethod("dump", java.nio.file.Path.class).invoke(recording, dump.toPath());
+			events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents", java.nio.file.Path.class)
+					.invoke(null, dump.toPath());
+		} finally {
+			recordingClass.getMethod("close").invoke(recording);
+			dump.delete();
+		}
+
+		// Each partition reads 12 items, in chunks of 5, 5 and 2
+		List<Object> chunkItems = new ArrayList<Object>();
+		int checkpoints = 0;
+		List<Object> dispatched = new ArrayList<Object>();
+		List<Object> completed = new ArrayList<Object>();
+		int jobStarts = 0;
+		int queries = 0;
+		for (Object event : events) {
+			Object eventType = event.getClass().getMethod("getEventType").invoke(event);
+			String name = (String) eventType.getClass().getMethod("getName").invoke(eventType);
+			if (name.equals("com.ibm.jbatch.ChunkCommit")) {
+				assertEquals(Boolean.FALSE, value(event, "rollback"));
+				assertEquals("step1", value(event, "stepName"));
+				chunkItems.add(value(event, "items"));
+			} else if (name.equals("com.ibm.jbatch.CheckpointPersist")) {
+				assertTrue((Long) value(event, "readerTokenSize") > 0);
+				checkpoints++;
+			} else if (name.equals("com.ibm.jbatch.PartitionDispatch")) {
+				dispatched.add(value(event, "partition"));
+			} else if (name.equals("com.ibm.jbatch.PartitionComplete")) {
+				assertEquals("COMPLETED", value(event, "batchStatus"));
+				completed.add(value(event, "partition"));
+			} else if (name.equals("com.ibm.jbatch.JobStart")) {
+				assertEquals("flightRecorder", value(event, "jobName"));
+				assertTrue((Long) value(event, "persistTime") > 0);
+				jobStarts++;
+			} else if (name.equals("com.ibm.jbatch.PersistenceQuery")) {
+				assertTrue(value(event, "statement") != null);
+				queries++;
+			}
+		}
+
+		assertEquals("chunks " + chunkItems, 6, chunkItems.size());
+		assertEquals(2, count(chunkItems, 2L));
+		assertEquals(4, count(chunkItems, 5L));
+		assertEquals(6, checkpoints);
+		assertEquals(2, dispatched.size());
+		assertTrue(dispatched.contains(0L) && dispatched.contains(1L));
+		assertEquals(2, completed.size());
+		assertEquals(1, jobStarts);
+		assertTrue("queries", queries > 0);
+	}
+
+	private static boolean isDone(BatchStatus status) {
+		return status == BatchStatus.COMPLETED || status == BatchStatus.FAILED || status == BatchStatus.STOPPED;
+	}
+
+	private static Object value(Object event, String field) throws Exception {
+		Method getValue = event.getClass().getMethod("getValue", String.class);
+		return getValue.invoke(event, field);
+	}
+
+	private static int count(List<Object> values, Object value) {
+		int count = 0;
+		for (Object v : values) {
+			if (value.equals(v)) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
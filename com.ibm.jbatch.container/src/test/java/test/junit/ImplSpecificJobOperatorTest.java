@@ -18,13 +18,19 @@ package test.junit;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 import jakarta.batch.operations.JobOperator;
 import jakarta.batch.operations.JobRestartException;
+import jakarta.batch.operations.JobStartException;
 import jakarta.batch.operations.NoSuchJobExecutionException;
 import jakarta.batch.runtime.BatchRuntime;
 import jakarta.batch.runtime.BatchStatus;
@@ -36,9 +42,16 @@ import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.ibm.jbatch.container.api.impl.JobOperatorImpl;
+import com.ibm.jbatch.container.impl.BatchConfigImpl;
+import com.ibm.jbatch.container.impl.BatchKernelImpl;
 import com.ibm.jbatch.container.jobinstance.StepExecutionImpl;
 import com.ibm.jbatch.container.services.IPersistenceManagerService;
 import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
+import com.ibm.jbatch.container.util.BatchContainerConstants;
+import com.ibm.jbatch.spi.services.IBatchConfig;
+import com.ibm.jbatch.spi.services.IBatchThreadPoolService;
+import com.ibm.jbatch.spi.services.ParallelTaskResult;
 
 public class ImplSpecificJobOperatorTest {
 
@@ -159,6 +172,197 @@ public class ImplSpecificJobOperatorTest {
 		
 	}
 	
+	@Test
+	public void testPurgeByJobNameAndAge() throws Exception {
+		JobOperatorImpl jobOpImpl = (JobOperatorImpl) jobOp;
+		// Clear out any left behind by earlier runs against the same repository
+		jobOpImpl.purge("runtimejunit.purgeTest", null);
+
+		long exec1Id = jobOp.start("purgeTest", null);
+		long exec2Id = jobOp.start("purgeTest", null);
+		Thread.sleep(2000);
+		assertEquals(BatchStatus.COMPLETED, jobOp.getJobExecution(exec1Id).getBatchStatus());
+		assertEquals(BatchStatus.COMPLETED, jobOp.getJobExecution(exec2Id).getBatchStatus());
+
+		Properties props = new Properties();
+		props.put("sleepTime", "3000");
+		long exec3Id = jobOp.start("purgeTest", props);
+		Thread.sleep(500);
+
+		// Leaves the still-running instance alone
+		int purged = jobOpImpl.purge("runtimejunit.purgeTest", new Date());
+		assertEquals("Purged instances", 2, purged);
+		assertEquals("Remaining instances", 1, jobOp.getJobInstanceCount("runtimejunit.purgeTest"));
+		boolean seen = false;
+		try {
+			jobOp.getJobExecution(exec1Id);
+		} catch (NoSuchJobExecutionException e) {
+			seen = true;
+		}
+		assertTrue("Purged execution still found", seen);
+
+		Thread.sleep(4000);
+		assertEquals(BatchStatus.COMPLETED, jobOp.getJobExecution(exec3Id).getBatchStatus());
+	}
+
+	@Test
+	public void testStartAll() throws Exception {
+		JobOperatorImpl jobOpImpl = (JobOperatorImpl) jobOp;
+		List<Properties> paramsList = new ArrayList<Properties>();
+		for (int i = 0; i < 20; i++) {
+			Properties props = new Properties();
+			props.put("sleepTime", String.valueOf(10 * i));
+			paramsList.add(props);
+		}
+		paramsList.add(null);
+
+		List<Long> execIds = jobOpImpl.startAll("simpleJob", paramsList);
+		assertEquals("Execution ids", paramsList.size(), execIds.size());
+		Thread.sleep(3000);
+
+		for (int i = 0; i < execIds.size(); i++) {
+			JobExecution je = jobOp.getJobExecution(execIds.get(i));
+			assertEquals("batch status", BatchStatus.COMPLETED, je.getBatchStatus());
+			assertEquals("job name", "runtimejunit.simpleJob", je.getJobName());
+			assertNotNull("start time", je.getStartTime());
+			assertEquals("job parameters", paramsList.get(i), jobOp.getParameters(execIds.get(i)));
+		}
+	}
+
+	/**
+	 * Holds on to the first few jobs submitted, without running them, then rejects any more.
+	 */
+	private static class SaturatedThreadPool implements IBatchThreadPoolService {
+		final int capacity;
+		final List<Runnable> accepted = new ArrayList<Runnable>();
+
+		SaturatedThreadPool(int capacity) {
+			this.capacity = capacity;
+		}
+
+		public void init(IBatchConfig batchConfig) {}
+		public void shutdown() {}
+
+		public synchronized void executeTask(Runnable work, Object config) {
+			if (accepted.size() >= capacity) {
+				throw new RejectedExecutionException("Thread pool saturated");
+			}
+			accepted.add(work);
+		}
+
+		public ParallelTaskResult executeParallelTask(Runnable work, Object config) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	@Test
+	public void testStartJobsRejected() throws Exception {
+		SaturatedThreadPool pool = new SaturatedThreadPool(2);
+		BatchKernelImpl kernel = new BatchKernelImpl(pool);
+		String jobXML = ServicesManagerImpl.getInstance().getDelegatingJobXMLLoaderService().loadJSL("simpleJob");
+
+		String token = UUID.randomUUID().toString();
+		List<Properties> paramsList = new ArrayList<Properties>();
+		for (int i = 0; i < 4; i++) {
+			Properties props = new Properties();
+			props.put("bulkStartRejected", token);
+			paramsList.add(props);
+		}
+		try {
+			kernel.startJobs(jobXML, paramsList);
+			fail("Expected the jobs the thread pool rejected to fail the start");
+		} catch (JobStartException e) {
+			// expected
+		}
+
+		List<JobExecution> executions = new ArrayList<JobExecution>();
+		for (JobInstance instance : jobOp.getJobInstances("runtimejunit.simpleJob", 0, 4)) {
+			JobExecution je = jobOp.getJobExecutions(instance).get(0);
+			if (token.equals(je.getJobParameters().getProperty("bulkStartRejected"))) {
+				executions.add(je);
+			}
+		}
+		assertEquals("Executions created", 4, executions.size());
+		Collections.sort(executions, new Comparator<JobExecution>() {
+			public int compare(JobExecution je1, JobExecution je2) {
+				return Long.compare(je1.getExecutionId(), je2.getExecutionId());
+			}
+		});
+
+		// The two the thread pool took haven't run yet, so haven't started, the other two never will
+		for (int i = 0; i < 2; i++) {
+			assertEquals("batch status", BatchStatus.STARTING, executions.get(i).getBatchStatus());
+			assertNull("start time", executions.get(i).getStartTime());
+		}
+		for (int i = 2; i < 4; i++) {
+			assertEquals("batch status", BatchStatus.FAILED, executions.get(i).getBatchStatus());
+			assertNotNull("end time", executions.get(i).getEndTime());
+		}
+		for (int i = 0; i < 4; i++) {
+			assertEquals("running", i < 2, kernel.isExecutionRunning(executions.get(i).getExecutionId()));
+		}
+
+		for (Runnable work : pool.accepted) {
+			work.run();
+		}
+		for (int i = 0; i < 2; i++) {
+			JobExecution je = jobOp.getJobExecution(executions.get(i).getExecutionId());
+			assertEquals("batch status", BatchStatus.COMPLETED, je.getBatchStatus());
+			assertNotNull("start time", je.getStartTime());
+		}
+	}
+
+	@Test
+	public void testStopQueuedJob() throws Exception {
+		SaturatedThreadPool pool = new SaturatedThreadPool(10);
+		BatchKernelImpl kernel = new BatchKernelImpl(pool);
+		BatchConfigImpl config = new BatchConfigImpl();
+		Properties configProps = new Properties();
+		configProps.setProperty(BatchContainerConstants.ADMISSION_MAX_RUNNING_JOBS, "1");
+		config.setConfigProperties(configProps);
+		kernel.init(config);
+		try {
+			String jobXML = ServicesManagerImpl.getInstance().getDelegatingJobXMLLoaderService().loadJSL("simpleJob");
+			long runningId = kernel.startJob(jobXML).getExecutionId();
+			long queuedId = kernel.startJob(jobXML).getExecutionId();
+			assertEquals("queued", 1, kernel.getJobAdmissionController().getQueuedCount());
+
+			// Stopped while queued, it leaves the queue and ends right away
+			kernel.stopJob(queuedId);
+			assertEquals("queued", 0, kernel.getJobAdmissionController().getQueuedCount());
+			assertFalse("running", kernel.isExecutionRunning(queuedId));
+			JobExecution stopped = jobOp.getJobExecution(queuedId);
+			assertEquals("batch status", BatchStatus.STOPPED, stopped.getBatchStatus());
+			assertNull("start time", stopped.getStartTime());
+			assertNotNull("end time", stopped.getEndTime());
+
+			// ... so the slot the running job frees isn't taken by it
+			assertEquals("submitted", 1, pool.accepted.size());
+			pool.accepted.get(0).run();
+			assertEquals("batch status", BatchStatus.COMPLETED, jobOp.getJobExecution(runningId).getBatchStatus());
+			assertEquals("submitted", 1, pool.accepted.size());
+			assertEquals("running", 0, kernel.getJobAdmissionController().getRunningCount());
+		} finally {
+			kernel.shutdown();
+		}
+	}
+
+	@Test
+	public void testSharedJobRepositoryDefault() throws Exception {
+		// Unless configured, only the embedded Derby repository the tests use is known not to be shared
+		BatchKernelImpl kernel = new BatchKernelImpl(new SaturatedThreadPool(0));
+		BatchConfigImpl config = new BatchConfigImpl();
+		config.setConfigProperties(new Properties());
+		kernel.init(config);
+		assertFalse("shared by default", kernel.isSharedJobRepository());
+
+		Properties configProps = new Properties();
+		configProps.setProperty(BatchContainerConstants.SHARED_JOB_REPOSITORY, "true");
+		config.setConfigProperties(configProps);
+		kernel.init(config);
+		assertTrue("shared when configured", kernel.isSharedJobRepository());
+	}
+
 	@Test
 	public void testNullAndEmptyJobParameters() throws Exception {
 		JobOperator jo = BatchRuntime.getJobOperator();
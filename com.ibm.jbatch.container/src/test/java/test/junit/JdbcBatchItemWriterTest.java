@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.listener.SkipWriteListener;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+import jakarta.batch.runtime.Metric;
+
+import org.junit.Test;
+
+import com.ibm.jbatch.container.artifact.jdbc.JdbcBatchItemWriter;
+import com.ibm.jbatch.container.artifact.jdbc.JdbcBatchWriteException;
+
+public class JdbcBatchItemWriterTest {
+
+	private static final String URL = "jdbc:derby:memory:jdbcBatchItemWriter;create=true";
+	private static int sleepTime = 3000;
+
+	static final int NUM_ITEMS = 50;
+
+	static List<Object> skipped = Collections.synchronizedList(new ArrayList<Object>());
+
+	@Test
+	public void testWrite() throws Exception {
+		createTable("WRITE_ONE");
+		TestWriter writer = new TestWriter("WRITE_ONE", "1");
+		writer.open(null);
+		writer.writeItems(items(0, 25));
+		writer.writeItems(items(25, 30));
+		writer.close();
+		assertEquals(names(0, 30), select("WRITE_ONE"));
+	}
+
+	@Test
+	public void testMultiRowInsert() throws Exception {
+		createTable("WRITE_MULTI");
+		TestWriter writer = new TestWriter("WRITE_MULTI", "4");
+		writer.open(null);
+		writer.writeItems(items(0, 25));
+		writer.writeItems(items(25, 30));
+		writer.close();
+		assertEquals(names(0, 30), select("WRITE_MULTI"));
+	}
+
+	@Test
+	public void testFailedItem() throws Exception {
+		createTable("WRITE_FAIL");
+		execute("INSERT INTO WRITE_FAIL VALUES (12, 'existing')");
+		TestWriter writer = new TestWriter("WRITE_FAIL", "1");
+		writer.open(null);
+		try {
+			writer.writeItems(items(0, 20));
+			fail("Wrote a duplicate key");
+		} catch (JdbcBatchWriteException e) {
+			assertEquals("failed item", 12, e.getFailedItemIndex());
+		}
+		writer.close();
+		assertEquals("rolled back", Arrays.asList("existing"), select("WRITE_FAIL"));
+	}
+
+	@Test
+	public void testIsolateFailedItems() throws Exception {
+		createTable("WRITE_JOB");
+		execute("INSERT INTO WRITE_JOB VALUES (13, 'existing')");
+		execute("INSERT INTO WRITE_JOB VALUES (27, 'existing')");
+		skipped.clear();
+
+		JobOperator jobOp = BatchRuntime.getJobOperator();
+		Properties params = new Properties();
+		params.setProperty("url", URL);
+		params.setProperty("table", "WRITE_JOB");
+		long execId = jobOp.start("jdbcBatchWrite", params);
+		Thread.sleep(sleepTime);
+		assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+
+		List<Object> expectedSkips = new ArrayList<Object>();
+		expectedSkips.add(items(13, 14));
+		expectedSkips.add(items(27, 28));
+		assertEqualItems(expectedSkips, skipped);
+		List<Object> expectedRows = names(0, NUM_ITEMS);
+		expectedRows.set(13, "existing");
+		expectedRows.set(27, "existing");
+		assertEquals(expectedRows, select("WRITE_JOB"));
+
+		// The writer says which item failed, so each failing chunk is split around it rather than in halves:
+		// 0-19 fails, 0-12 OK, 13 skipped, 14-19 OK, 20-39 fails, 20-26 OK, 27 skipped, 28-39 OK, then 40-49.
+		Metric[] metrics = jobOp.getStepExecutions(execId).get(0).getMetrics();
+		assertEquals("commit count", 7, getMetricVal(metrics, Metric.MetricType.COMMIT_COUNT));
+		assertEquals("rollback count", 2, getMetricVal(metrics, Metric.MetricType.ROLLBACK_COUNT));
+		assertEquals("write skip count", 2, getMetricVal(metrics, Metric.MetricType.WRITE_SKIP_COUNT));
+	}
+
+	private static void assertEqualItems(List<Object> expected, List<Object> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			List<?> expectedItems = (List<?>) expected.get(i);
+			List<?> actualItems = (List<?>) actual.get(i);
+			assertEquals(expectedItems.size(), actualItems.size());
+			for (int j = 0; j < expectedItems.size(); j++) {
+				assertEquals(Arrays.asList((Object[]) expectedItems.get(j)), Arrays.asList((Object[]) actualItems.get(j)));
+			}
+		}
+	}
+
+	private static void createTable(String table) throws Exception {
+		execute("CREATE TABLE " + table + " (ID BIGINT PRIMARY KEY, NAME VARCHAR(20))");
+	}
+
+	private static void execute(String sql) throws Exception {
+		Connection connection = DriverManager.getConnection(URL);
+		try {
+			Statement statement = connection.createStatement();
+			statement.execute(sql);
+			statement.close();
+		} finally {
+			connection.close();
+		}
+	}
+
+	private static List<Object> select(String table) throws Exception {
+		List<Object> names = new ArrayList<Object>();
+		Connection connection = DriverManager.getConnection(URL);
+		try {
+			Statement statement = connection.createStatement();
+			ResultSet resultSet = statement.executeQuery("SELECT NAME FROM " + table + " ORDER BY ID");
+			while (resultSet.next()) {
+				names.add(resultSet.getString(1));
+			}
+			statement.close();
+		} finally {
+			connection.close();
+		}
+		return names;
+	}
+
+	private static Object item(long id) {
+		return new Object[] { id, "item" + id };
+	}
+
+	private static List<Object> items(int from, int to) {
+		List<Object> items = new ArrayList<Object>();
+		for (int i = from; i < to; i++) {
+			items.add(item(i));
+		}
+		return items;
+	}
+
+	private static List<Object> names(int from, int to) {
+		List<Object> names = new ArrayList<Object>();
+		for (int i = from; i < to; i++) {
+			names.add("item" + i);
+		}
+		return names;
+	}
+
+	private long getMetricVal(Metric[] metrics, Metric.MetricType type) {
+		for (Metric m : metrics) {
+			if (m.getType().equals(type)) {
+				return m.getValue();
+			}
+		}
+		throw new IllegalStateException("Didn't find metric: " + type);
+	}
+
+	private static class TestWriter extends JdbcBatchItemWriter {
+		TestWriter(String table, String rowsPerStatement) {
+			this.url = URL;
+			this.table = table;
+			this.columns = "ID, NAME";
+			this.batchSize = "8";
+			this.rowsPerStatement = rowsPerStatement;
+		}
+	}
+
+	public static class Reader extends AbstractItemReader {
+		int next = 0;
+
+		@Override
+		public void open(Serializable checkpoint) throws Exception {
+			next = (checkpoint == null) ? 0 : (Integer) checkpoint;
+		}
+
+		@Override
+		public Object readItem() throws Exception {
+			return next < NUM_ITEMS ? item(next++) : null;
+		}
+
+		@Override
+		public Serializable checkpointInfo() throws Exception {
+			return next;
+		}
+	}
+
+	public static class SkipListener implements SkipWriteListener {
+		@Override
+		public void onSkipWriteItem(List<Object> items, Exception ex) throws Exception {
+			skipped.add(new ArrayList<Object>(items));
+		}
+	}
+}
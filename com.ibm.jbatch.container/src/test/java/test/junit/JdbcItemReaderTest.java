@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.api.partition.PartitionPlan;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.jbatch.container.artifact.jdbc.JdbcItemReader;
+import com.ibm.jbatch.container.artifact.jdbc.KeyRangePartitionMapper;
+import com.ibm.jbatch.container.artifact.jdbc.RowMapper;
+
+public class JdbcItemReaderTest {
+
+	private static final String URL = "jdbc:derby:memory:jdbcItemReader;create=true";
+	private static int sleepTime = 3000;
+
+	static List<Object> written = Collections.synchronizedList(new ArrayList<Object>());
+
+	@BeforeClass
+	public static void createTable() throws Exception {
+		Connection connection = DriverManager.getConnection(URL);
+		try {
+			Statement statement = connection.createStatement();
+			statement.execute("CREATE TABLE ITEMS (ID BIGINT PRIMARY KEY, NAME VARCHAR(20))");
+			statement.close();
+			PreparedStatement insert = connection.prepareStatement("INSERT INTO ITEMS VALUES (?, ?)");
+			for (long id : keys()) {
+				insert.setLong(1, id);
+				insert.setString(2, "item" + id);
+				insert.addBatch();
+			}
+			insert.executeBatch();
+			insert.close();
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void testCursor() throws Exception {
+		assertEquals(names(keys()), readAll(reader(JdbcItemReader.MODE_CURSOR, null, null), null));
+	}
+
+	@Test
+	public void testKeyset() throws Exception {
+		assertEquals(names(keys()), readAll(reader(JdbcItemReader.MODE_KEYSET, null, null), null));
+		assertEquals(names(Arrays.asList(1000L, 1001L)), readAll(reader(JdbcItemReader.MODE_KEYSET, "999", "1002"), null));
+	}
+
+	@Test
+	public void testDefaultRowMapper() throws Exception {
+		TestReader reader = new TestReader(JdbcItemReader.MODE_CURSOR, "1", "2");
+		reader.setRowMapper(null);
+		reader.open(null);
+		assertArrayEquals(new Object[] { 1L, "item1" }, (Object[]) reader.readItem());
+		reader.close();
+	}
+
+	@Test
+	public void testRestart() throws Exception {
+		for (String mode : Arrays.asList(JdbcItemReader.MODE_CURSOR, JdbcItemReader.MODE_KEYSET)) {
+			TestReader reader = reader(mode, null, null);
+			reader.open(null);
+			List<Object> items = new ArrayList<Object>();
+			for (int i = 0; i < 42; i++) {
+				items.add(reader.readItem());
+			}
+			Serializable checkpoint = reader.checkpointInfo();
+			reader.close();
+
+			items.addAll(readAll(reader(mode, null, null), checkpoint));
+			assertEquals(mode, names(keys()), items);
+		}
+	}
+
+	@Test
+	public void testSplitByRange() throws Exception {
+		PartitionPlan plan = new TestMapper(null, "3").mapPartitions();
+		assertEquals(3, plan.getPartitions());
+		assertRanges(plan);
+		// The keys are skewed, so the last range gets most of them 
+		assertEquals("1", plan.getPartitionProperties()[0].getProperty(KeyRangePartitionMapper.MIN_KEY));
+		assertEquals("1040", plan.getPartitionProperties()[2].getProperty(KeyRangePartitionMapper.MAX_KEY));
+	}
+
+	@Test
+	public void testSplitByCount() throws Exception {
+		PartitionPlan plan = new TestMapper(KeyRangePartitionMapper.SPLIT_BY_COUNT, "4").mapPartitions();
+		assertEquals(4, plan.getPartitions());
+		for (Properties props : plan.getPartitionProperties()) {
+			assertEquals(25, readAll(reader(JdbcItemReader.MODE_KEYSET, props.getProperty(KeyRangePartitionMapper.MIN_KEY), 
+					props.getProperty(KeyRangePartitionMapper.MAX_KEY)), null).size());
+		}
+		assertRanges(plan);
+	}
+
+	@Test
+	public void testPartitionedJob() throws Exception {
+		JobOperator jobOp = BatchRuntime.getJobOperator();
+		for (String mode : Arrays.asList(JdbcItemReader.MODE_CURSOR, JdbcItemReader.MODE_KEYSET)) {
+			written.clear();
+			Properties params = new Properties();
+			params.setProperty("url", URL);
+			params.setProperty("mode", mode);
+			long execId = jobOp.start("jdbcRead", params);
+			Thread.sleep(sleepTime);
+			assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+
+			List<Object> sorted = new ArrayList<Object>(written);
+			Collections.sort(sorted, new java.util.Comparator<Object>() {
+				public int compare(Object a, Object b) {
+					return Long.valueOf(((String) a).substring(4)).compareTo(Long.valueOf(((String) b).substring(4)));
+				}
+			});
+			assertEquals(mode, names(keys()), sorted);
+		}
+	}
+
+	/**
+	 * Checks the ranges are contiguous and between them read every row once.
+	 */
+	private static void assertRanges(PartitionPlan plan) throws Exception {
+		String end = null;
+		List<Object> items = new ArrayList<Object>();
+		for (Properties props : plan.getPartitionProperties()) {
+			if (end != null) {
+				assertEquals("contiguous ranges", end, props.getProperty(KeyRangePartitionMapper.MIN_KEY));
+			}
+			end = props.getProperty(KeyRangePartitionMapper.MAX_KEY);
+			items.addAll(readAll(reader(JdbcItemReader.MODE_CURSOR, props.getProperty(KeyRangePartitionMapper.MIN_KEY), end), null));
+		}
+		assertEquals("every row read once", names(keys()), items);
+	}
+
+	private static List<Long> keys() {
+		List<Long> keys = new ArrayList<Long>();
+		for (long i = 1; i <= 60; i++) {
+			keys.add(i);
+		}
+		for (long i = 1000; i < 1040; i++) {
+			keys.add(i);
+		}
+		return keys;
+	}
+
+	private static List<Object> names(List<Long> keys) {
+		List<Object> names = new ArrayList<Object>();
+		for (long key : keys) {
+			names.add("item" + key);
+		}
+		return names;
+	}
+
+	private static TestReader reader(String mode, String minKey, String maxKey) {
+		return new TestReader(mode, minKey, maxKey);
+	}
+
+	private static List<Object> readAll(TestReader reader, Serializable checkpoint) throws Exception {
+		List<Object> items = new ArrayList<Object>();
+		reader.open(checkpoint);
+		Object item;
+		while ((item = reader.readItem()) != null) {
+			items.add(item);
+		}
+		reader.close();
+		return items;
+	}
+
+	private static class TestReader extends JdbcItemReader {
+		TestReader(String mode, String minKey, String maxKey) {
+			this.url = URL;
+			this.mode = mode;
+			this.table = "ITEMS";
+			this.keyColumn = "ID";
+			this.minKey = minKey;
+			this.maxKey = maxKey;
+			this.fetchSize = "10";
+			this.pageSize = "8";
+			this.rowMapper = NameRowMapper.class.getName();
+		}
+
+		void setRowMapper(String rowMapper) {
+			this.rowMapper = rowMapper;
+		}
+	}
+
+	private static class TestMapper extends KeyRangePartitionMapper {
+		TestMapper(String splitBy, String partitions) {
+			this.url = URL;
+			this.table = "ITEMS";
+			this.keyColumn = "ID";
+			this.splitBy = splitBy;
+			this.partitions = partitions;
+		}
+	}
+
+	public static class NameRowMapper implements RowMapper {
+		@Override
+		public Object mapRow(ResultSet resultSet) throws SQLException {
+			return resultSet.getString("NAME");
+		}
+	}
+
+	public static class Writer extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+			written.addAll(items);
+		}
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.ibm.jbatch.container.impl.JobAdmissionController;
+import com.ibm.jbatch.spi.services.IBatchConfig;
+import com.ibm.jbatch.spi.services.IBatchThreadPoolService;
+import com.ibm.jbatch.spi.services.ParallelTaskResult;
+
+public class JobAdmissionControllerTest {
+
+	private static final String PRIORITY = "priority";
+
+	/**
+	 * Records the order jobs are handed to the thread pool in, without running them.
+	 */
+	private static class RecordingThreadPool implements IBatchThreadPoolService {
+		List<Long> dispatched = new ArrayList<Long>();
+		Set<Long> rejecting = new HashSet<Long>();
+
+		public void init(IBatchConfig batchConfig) {}
+		public void shutdown() {}
+
+		public void executeTask(Runnable work, Object config) {
+			long executionId = ((Job) work).executionId;
+			if (rejecting.contains(executionId)) {
+				throw new RejectedExecutionException("Rejecting execution " + executionId);
+			}
+			dispatched.add(executionId);
+		}
+
+		public ParallelTaskResult executeParallelTask(Runnable work, Object config) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static class Job implements Runnable {
+		long executionId;
+		Job(long executionId) {
+			this.executionId = executionId;
+		}
+		public void run() {}
+	}
+
+	private static void submit(JobAdmissionController admission, long executionId, String jobName, String appTag, String priority) {
+		Properties jobParameters = null;
+		if (priority != null) {
+			jobParameters = new Properties();
+			jobParameters.setProperty(PRIORITY, priority);
+		}
+		admission.submit(new Job(executionId), executionId, jobName, appTag, jobParameters, null);
+	}
+
+	private static Job submit(JobAdmissionController admission, long executionId) {
+		Job job = new Job(executionId);
+		admission.submit(job, executionId, "job", "tag", null, null);
+		return job;
+	}
+
+	@Test
+	public void testMaxRunning() {
+		RecordingThreadPool pool = new RecordingThreadPool();
+		JobAdmissionController admission = new JobAdmissionController(pool, 2, 0, 0, PRIORITY, 0);
+		for (long i = 1; i <= 4; i++) {
+			submit(admission, i, "job", "tag", null);
+		}
+		assertEquals(Arrays.asList(1L, 2L), pool.dispatched);
+		assertEquals("queued", 2, admission.getQueuedCount());
+
+		admission.done(1);
+		assertEquals(Arrays.asList(1L, 2L, 3L), pool.dispatched);
+		admission.done(2);
+		admission.done(3);
+		admission.done(4);
+		assertEquals(Arrays.asList(1L, 2L, 3L, 4L), pool.dispatched);
+		assertEquals("running", 0, admission.getRunningCount());
+		assertEquals("admitted", 4, admission.getAdmittedCount());
+	}
+
+	@Test
+	public void testMaxRunningPerJobNameAndAppTag() {
+		RecordingThreadPool pool = new RecordingThreadPool();
+		JobAdmissionController admission = new JobAdmissionController(pool, 0, 1, 2, PRIORITY, 0);
+		submit(admission, 1, "a", "tag1", null);
+		submit(admission, 2, "a", "tag1", null);	// held back by job name
+		submit(admission, 3, "b", "tag1", null);
+		submit(admission, 4, "c", "tag1", null);	// held back by tag
+		submit(admission, 5, "c", "tag2", null);
+		assertEquals(Arrays.asList(1L, 3L, 5L), pool.dispatched);
+
+		admission.done(1);
+		assertEquals(Arrays.asList(1L, 3L, 5L, 2L), pool.dispatched);
+		admission.done(3);
+		assertEquals(Arrays.asList(1L, 3L, 5L, 2L), pool.dispatched);	// job c is still running, in tag2
+		admission.done(5);
+		assertEquals(Arrays.asList(1L, 3L, 5L, 2L, 4L), pool.dispatched);
+	}
+
+	@Test
+	public void testPriorityAndFairness() throws Exception {
+		RecordingThreadPool pool = new RecordingThreadPool();
+		JobAdmissionController admission = new JobAdmissionController(pool, 1, 0, 0, PRIORITY, 0);
+		submit(admission, 1, "job", "tag1", null);
+		submit(admission, 2, "job", "tag1", "low");
+		submit(admission, 3, "job", "tag1", null);
+		submit(admission, 4, "job", "tag1", null);
+		submit(admission, 5, "job", "tag2", "Normal");
+		submit(admission, 6, "job", "tag1", "HIGH");
+		Thread.sleep(20);
+
+		for (int i = 0; i < 6; i++) {
+			admission.done(pool.dispatched.get(i));
+		}
+		// High first, then the normal ones with the two tags taking turns, then low
+		assertEquals(Arrays.asList(1L, 6L, 3L, 5L, 4L, 2L), pool.dispatched);
+		assertTrue("max queue wait", admission.getMaxQueueWaitMillis() >= 20);
+		assertTrue("total queue wait", admission.getTotalQueueWaitMillis() >= 5 * 20);
+	}
+
+	@Test
+	public void testAging() throws Exception {
+		RecordingThreadPool pool = new RecordingThreadPool();
+		JobAdmissionController admission = new JobAdmissionController(pool, 1, 0, 0, PRIORITY, 50);
+		submit(admission, 1, "job", "tag1", null);
+		submit(admission, 2, "job", "tag1", "low");
+		submit(admission, 3, "job", "tag1", "high");
+		submit(admission, 4, "job", "tag1", "high");
+		admission.done(1);
+		assertEquals(Arrays.asList(1L, 3L), pool.dispatched);
+
+		// Two aging intervals take the low priority job up to high, ahead of the high ones that came after it
+		Thread.sleep(120);
+		submit(admission, 5, "job", "tag1", "high");
+		admission.done(3);
+		assertEquals(Arrays.asList(1L, 3L, 2L), pool.dispatched);
+		admission.done(2);
+		admission.done(4);
+		assertEquals(Arrays.asList(1L, 3L, 2L, 4L, 5L), pool.dispatched);
+	}
+
+	@Test
+	public void testCancel() {
+		RecordingThreadPool pool = new RecordingThreadPool();
+		JobAdmissionController admission = new JobAdmissionController(pool, 1, 0, 0, PRIORITY, 0);
+		submit(admission, 1);
+		Job job2 = submit(admission, 2);
+		submit(admission, 3);
+
+		assertSame("cancelled work", job2, admission.cancel(2));
+		assertNull("running job not cancelled", admission.cancel(1));
+		assertNull("already cancelled", admission.cancel(2));
+		assertEquals("queued", 1, admission.getQueuedCount());
+
+		// The cancelled job neither waits for nor takes the freed slot
+		admission.done(1);
+		assertEquals(Arrays.asList(1L, 3L), pool.dispatched);
+		assertEquals("queued", 0, admission.getQueuedCount());
+		assertEquals("admitted", 2, admission.getAdmittedCount());
+	}
+
+	@Test
+	public void testMBean() throws Exception {
+		RecordingThreadPool pool = new RecordingThreadPool();
+		JobAdmissionController admission = new JobAdmissionController(pool, 1, 0, 0, PRIORITY, 0);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(JobAdmissionController.OBJECT_NAME);
+		admission.register();
+		try {
+			submit(admission, 1);
+			submit(admission, 2);
+			Thread.sleep(20);
+			assertEquals("queued", 1, server.getAttribute(name, "QueuedCount"));
+			assertEquals("running", 1, server.getAttribute(name, "RunningCount"));
+			assertTrue("oldest queued wait", (Long) server.getAttribute(name, "OldestQueuedWaitMillis") >= 20);
+
+			admission.done(1);
+			assertEquals("admitted", 2L, server.getAttribute(name, "AdmittedCount"));
+			assertTrue("max queue wait", (Long) server.getAttribute(name, "MaxQueueWaitMillis") >= 20);
+			assertTrue("mean queue wait", (Double) server.getAttribute(name, "MeanQueueWaitMillis") >= 10);
+			assertEquals("oldest queued wait", 0L, server.getAttribute(name, "OldestQueuedWaitMillis"));
+		} finally {
+			admission.unregister();
+		}
+		assertFalse("unregistered", server.isRegistered(name));
+	}
+
+	/**
+	 * Records the executions it is told were rejected.
+	 */
+	private static class RecordingRejectionHandler implements JobAdmissionController.RejectionHandler {
+		List<Long> rejected = new ArrayList<Long>();
+
+		public void rejected(long executionId, RuntimeException cause) {
+			rejected.add(executionId);
+		}
+	}
+
+	@Test
+	public void testQueuedJobRejected() {
+		RecordingThreadPool pool = new RecordingThreadPool();
+		pool.rejecting.add(2L);
+		RecordingRejectionHandler handler = new RecordingRejectionHandler();
+		JobAdmissionController admission = new JobAdmissionController(pool, 1, 0, 0, PRIORITY, 0);
+		admission.submit(new Job(1), 1, "job", "tag", null, handler);
+		admission.submit(new Job(2), 2, "job", "tag", null, handler);
+		admission.submit(new Job(3), 3, "job", "tag", null, handler);
+
+		// Job 1's end admits job 2, which is rejected: only job 2's handler hears of it, not job 1, and job 3 runs instead
+		admission.done(1);
+		assertEquals("rejected", Arrays.asList(2L), handler.rejected);
+		assertEquals(Arrays.asList(1L, 3L), pool.dispatched);
+		assertEquals("running", 1, admission.getRunningCount());
+		assertEquals("queued", 0, admission.getQueuedCount());
+
+		// A job rejected right away is thrown to its submitter, and not handed to its handler
+		pool.rejecting.add(4L);
+		admission.done(3);
+		try {
+			admission.submit(new Job(4), 4, "job", "tag", null, handler);
+			fail("Expected the submit of job 4 to be rejected");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		assertEquals("rejected", Arrays.asList(2L), handler.rejected);
+		assertEquals("running", 0, admission.getRunningCount());
+	}
+}
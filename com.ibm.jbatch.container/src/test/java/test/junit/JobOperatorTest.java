@@ -17,10 +17,14 @@
 package test.junit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.util.List;
 import java.util.Properties;
 
 import jakarta.batch.operations.JobOperator;
+import jakarta.batch.operations.NoSuchJobException;
 import jakarta.batch.runtime.BatchRuntime;
 import jakarta.batch.runtime.BatchStatus;
 import jakarta.batch.runtime.JobExecution;
@@ -79,4 +83,23 @@ public class JobOperatorTest {
 		assertEquals("Unexpected sleepTime parameter value", sleepPropVal, obtainedParams.getProperty(sleepPropName));
 
 	}
+
+	@Test
+	public void testRunningExecutions() throws Exception {
+		Properties origParams = new Properties();
+		origParams.setProperty("sleepTime", "1500");
+
+		long execId = jobOp.start("simpleJob", origParams);
+		Thread.sleep(500);
+		assertTrue("Not among the running executions", jobOp.getRunningExecutions("runtimejunit.simpleJob").contains(execId));
+
+		Thread.sleep(sleepTime);
+		assertEquals("batch status", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+		try {
+			List<Long> running = jobOp.getRunningExecutions("runtimejunit.simpleJob");
+			assertFalse("Still among the running executions", running.contains(execId));
+		} catch (NoSuchJobException e) {
+			// None running any more
+		}
+	}
 }
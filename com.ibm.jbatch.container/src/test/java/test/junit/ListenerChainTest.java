@@ -0,0 +1,235 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.api.chunk.ItemProcessor;
+import jakarta.batch.api.chunk.listener.ChunkListener;
+import jakarta.batch.api.chunk.listener.ItemProcessListener;
+import jakarta.batch.api.chunk.listener.ItemReadListener;
+import jakarta.batch.api.chunk.listener.ItemWriteListener;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ListenerChainTest {
+
+	private static JobOperator jobOp = null;
+	private static int sleepTime = 3000;
+
+	static final int NUM_ITEMS = 2;
+
+	static List<String> events = Collections.synchronizedList(new ArrayList<String>());
+	static List<Object> written = Collections.synchronizedList(new ArrayList<Object>());
+
+	@BeforeClass
+	public static void init() {
+		jobOp = BatchRuntime.getJobOperator();
+	}
+
+	/**
+	 * Step 1 has two listeners, step 2 one and step 3 none: each listener must see every call, in
+	 * the order the listeners are configured.
+	 */
+	@Test
+	public void testListenerOrder() throws Exception {
+		events.clear();
+		written.clear();
+		long execId = jobOp.start("listenerChain", null);
+		Thread.sleep(sleepTime);
+		assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+
+		List<String> step1Events = eventsOf("A", "B");
+		assertEquals("step 1 first chunk", firstChunk("A", "B"), step1Events.subList(0, firstChunk("A", "B").size()));
+		assertEquals("step 2 first chunk", firstChunk("C"), eventsOf("C").subList(0, firstChunk("C").size()));
+		// Each step ends with a chunk that reads the end of the data
+		assertEquals("step 1 events", firstChunk("A", "B").size() + 8, step1Events.size());
+		assertEquals("written items", 3 * NUM_ITEMS, written.size());
+	}
+
+	private static List<String> eventsOf(String... listeners) {
+		List<String> selected = new ArrayList<String>();
+		synchronized (events) {
+			for (String event : events) {
+				for (String listener : listeners) {
+					if (event.startsWith(listener + ":")) {
+						selected.add(event);
+					}
+				}
+			}
+		}
+		return selected;
+	}
+
+	private static List<String> firstChunk(String... listeners) {
+		List<String> expected = new ArrayList<String>();
+		add(expected, listeners, "beforeChunk");
+		for (int i = 0; i < NUM_ITEMS; i++) {
+			add(expected, listeners, "beforeRead");
+			add(expected, listeners, "afterRead " + i);
+			add(expected, listeners, "beforeProcess " + i);
+			add(expected, listeners, "afterProcess " + i);
+		}
+		add(expected, listeners, "beforeWrite " + NUM_ITEMS);
+		add(expected, listeners, "afterWrite " + NUM_ITEMS);
+		add(expected, listeners, "afterChunk");
+		return expected;
+	}
+
+	private static void add(List<String> expected, String[] listeners, String event) {
+		for (String listener : listeners) {
+			expected.add(listener + ":" + event);
+		}
+	}
+
+	public static class Reader extends AbstractItemReader {
+		int next = 0;
+
+		@Override
+		public void open(Serializable checkpoint) throws Exception {
+			next = (checkpoint == null) ? 0 : (Integer) checkpoint;
+		}
+
+		@Override
+		public Object readItem() throws Exception {
+			return next < NUM_ITEMS ? next++ : null;
+		}
+
+		@Override
+		public Serializable checkpointInfo() throws Exception {
+			return next;
+		}
+	}
+
+	public static class Processor implements ItemProcessor {
+		@Override
+		public Object processItem(Object item) throws Exception {
+			return item;
+		}
+	}
+
+	public static class Writer extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+			written.addAll(items);
+		}
+	}
+
+	/**
+	 * Records each call, tagged with the name of the listener.
+	 */
+	public static abstract class RecordingListener implements ChunkListener, ItemReadListener, ItemProcessListener, ItemWriteListener {
+		private final String name;
+
+		RecordingListener(String name) {
+			this.name = name;
+		}
+
+		private void record(String event) {
+			events.add(name + ":" + event);
+		}
+
+		@Override
+		public void beforeChunk() throws Exception {
+			record("beforeChunk");
+		}
+
+		@Override
+		public void onError(Exception ex) throws Exception {
+			record("onError");
+		}
+
+		@Override
+		public void afterChunk() throws Exception {
+			record("afterChunk");
+		}
+
+		@Override
+		public void beforeRead() throws Exception {
+			record("beforeRead");
+		}
+
+		@Override
+		public void afterRead(Object item) throws Exception {
+			record("afterRead " + item);
+		}
+
+		@Override
+		public void onReadError(Exception ex) throws Exception {
+			record("onReadError");
+		}
+
+		@Override
+		public void beforeProcess(Object item) throws Exception {
+			record("beforeProcess " + item);
+		}
+
+		@Override
+		public void afterProcess(Object item, Object result) throws Exception {
+			record("afterProcess " + item);
+		}
+
+		@Override
+		public void onProcessError(Object item, Exception ex) throws Exception {
+			record("onProcessError");
+		}
+
+		@Override
+		public void beforeWrite(List<Object> items) throws Exception {
+			record("beforeWrite " + items.size());
+		}
+
+		@Override
+		public void afterWrite(List<Object> items) throws Exception {
+			record("afterWrite " + items.size());
+		}
+
+		@Override
+		public void onWriteError(List<Object> items, Exception ex) throws Exception {
+			record("onWriteError");
+		}
+	}
+
+	public static class ListenerA extends RecordingListener {
+		public ListenerA() {
+			super("A");
+		}
+	}
+
+	public static class ListenerB extends RecordingListener {
+		public ListenerB() {
+			super("B");
+		}
+	}
+
+	public static class ListenerC extends RecordingListener {
+		public ListenerC() {
+			super("C");
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.api.partition.PartitionPlan;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.jbatch.container.artifact.file.ByteRangePartitionMapper;
+import com.ibm.jbatch.container.artifact.file.MappedFileItemReader;
+
+public class MappedFileItemReaderTest {
+
+	private static JobOperator jobOp = null;
+	private static int sleepTime = 3000;
+
+	static final int NUM_RECORDS = 100;
+
+	static List<Object> written = Collections.synchronizedList(new ArrayList<Object>());
+
+	private static File file;
+
+	@BeforeClass
+	public static void init() throws Exception {
+		jobOp = BatchRuntime.getJobOperator();
+		file = write("records", "\n");
+	}
+
+	@AfterClass
+	public static void cleanup() {
+		file.delete();
+	}
+
+	@Test
+	public void testReadMapped() throws Exception {
+		assertEquals(records(), readAll(reader(file, null, null, null, null), null));
+	}
+
+	@Test
+	public void testReadBuffered() throws Exception {
+		// The window is smaller than the longer records, so has to grow
+		assertEquals(records(), readAll(reader(file, null, null, null, "0"), null));
+	}
+
+	@Test
+	public void testMultiByteDelimiter() throws Exception {
+		File crlf = write("crlf", "\r\n");
+		try {
+			assertEquals(records(), readAll(reader(crlf, "\\r\\n", null, null, null), null));
+			assertEquals(records(), readAll(reader(crlf, "\\r\\n", null, null, "0"), null));
+		} finally {
+			crlf.delete();
+		}
+	}
+
+	@Test
+	public void testBytes() throws Exception {
+		TestReader reader = reader(file, null, null, null, null);
+		reader.setItemType(MappedFileItemReader.ITEM_TYPE_BYTES);
+		reader.open(null);
+		ByteBuffer first = (ByteBuffer) reader.readItem();
+		reader.close();
+		assertTrue(first.isReadOnly());
+		byte[] bytes = new byte[first.remaining()];
+		first.get(bytes);
+		assertEquals(record(0), new String(bytes, "UTF-8"));
+	}
+
+	@Test
+	public void testRestart() throws Exception {
+		for (String maxMappedBytes : Arrays.asList(null, "0")) {
+			TestReader reader = reader(file, null, null, null, maxMappedBytes);
+			reader.open(null);
+			List<Object> items = new ArrayList<Object>();
+			for (int i = 0; i < 40; i++) {
+				items.add(reader.readItem());
+			}
+			Serializable checkpoint = reader.checkpointInfo();
+			reader.close();
+
+			items.addAll(readAll(reader(file, null, null, null, maxMappedBytes), checkpoint));
+			assertEquals(records(), items);
+		}
+	}
+
+	@Test
+	public void testByteRanges() throws Exception {
+		TestMapper mapper = new TestMapper(file.getPath(), "6");
+		PartitionPlan plan = mapper.mapPartitions();
+		assertEquals(6, plan.getPartitions());
+
+		long end = 0;
+		List<Object> items = new ArrayList<Object>();
+		for (Properties props : plan.getPartitionProperties()) {
+			assertEquals("contiguous ranges", end, Long.parseLong(props.getProperty(ByteRangePartitionMapper.START_OFFSET)));
+			end = Long.parseLong(props.getProperty(ByteRangePartitionMapper.END_OFFSET));
+			items.addAll(readAll(reader(file, null, props.getProperty(ByteRangePartitionMapper.START_OFFSET), 
+					props.getProperty(ByteRangePartitionMapper.END_OFFSET), null), null));
+		}
+		assertEquals(file.length(), end);
+		assertEquals("every record read once", records(), items);
+	}
+
+	@Test
+	public void testFewerRecordsThanPartitions() throws Exception {
+		File small = File.createTempFile("small", ".txt");
+		try {
+			Files.write(small.toPath(), "a\nbb\n".getBytes("UTF-8"));
+			TestMapper mapper = new TestMapper(small.getPath(), "4");
+			assertEquals(2, mapper.mapPartitions().getPartitions());
+		} finally {
+			small.delete();
+		}
+	}
+
+	@Test
+	public void testPartitionedJob() throws Exception {
+		for (String maxMappedBytes : Arrays.asList(null, "0")) {
+			written.clear();
+			Properties params = new Properties();
+			params.setProperty("fileName", file.getPath());
+			if (maxMappedBytes != null) {
+				params.setProperty("maxMappedBytes", maxMappedBytes);
+			}
+			long execId = jobOp.start("mappedFileRead", params);
+			Thread.sleep(sleepTime);
+			assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+
+			List<Object> sorted = new ArrayList<Object>(written);
+			Collections.sort(sorted, new java.util.Comparator<Object>() {
+				public int compare(Object a, Object b) {
+					return Integer.valueOf(((String) a).split(":")[0]).compareTo(Integer.valueOf(((String) b).split(":")[0]));
+				}
+			});
+			assertEquals(records(), sorted);
+		}
+	}
+
+	private static File write(String prefix, String delimiter) throws Exception {
+		File f = File.createTempFile(prefix, ".txt");
+		StringBuilder sb = new StringBuilder();
+		for (Object record : records()) {
+			sb.append(record).append(delimiter);
+		}
+		// The last record has no delimiter after it
+		sb.setLength(sb.length() - delimiter.length());
+		Files.write(f.toPath(), sb.toString().getBytes("UTF-8"));
+		return f;
+	}
+
+	private static String record(int i) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(i).append(':');
+		for (int j = 0; j < i % 30; j++) {
+			sb.append('é');
+		}
+		return sb.toString();
+	}
+
+	private static List<Object> records() {
+		List<Object> records = new ArrayList<Object>();
+		for (int i = 0; i < NUM_RECORDS; i++) {
+			records.add(record(i));
+		}
+		return records;
+	}
+
+	private static TestReader reader(File f, String delimiter, String startOffset, String endOffset, String maxMappedBytes) {
+		return new TestReader(f.getPath(), delimiter, startOffset, endOffset, maxMappedBytes);
+	}
+
+	private static List<Object> readAll(TestReader reader, Serializable checkpoint) throws Exception {
+		List<Object> items = new ArrayList<Object>();
+		reader.open(checkpoint);
+		Object item;
+		while ((item = reader.readItem()) != null) {
+			items.add(item);
+		}
+		assertNull(reader.readItem());
+		reader.close();
+		return items;
+	}
+
+	private static class TestReader extends MappedFileItemReader {
+		TestReader(String fileName, String delimiter, String startOffset, String endOffset, String maxMappedBytes) {
+			this.fileName = fileName;
+			this.delimiter = delimiter;
+			this.startOffset = startOffset;
+			this.endOffset = endOffset;
+			this.maxMappedBytes = maxMappedBytes;
+			this.bufferSize = "16";
+		}
+
+		void setItemType(String itemType) {
+			this.itemType = itemType;
+		}
+	}
+
+	private static class TestMapper extends ByteRangePartitionMapper {
+		TestMapper(String fileName, String partitions) {
+			this.fileName = fileName;
+			this.partitions = partitions;
+		}
+	}
+
+	public static class Writer extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+			written.addAll(items);
+		}
+	}
+}
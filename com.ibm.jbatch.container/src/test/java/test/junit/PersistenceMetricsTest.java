@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jakarta.batch.runtime.JobInstance;
+
+import org.junit.Test;
+
+import com.ibm.jbatch.container.impl.BatchConfigImpl;
+import com.ibm.jbatch.container.persistence.CheckpointData;
+import com.ibm.jbatch.container.persistence.CheckpointDataKey;
+import com.ibm.jbatch.container.services.impl.JDBCPersistenceManagerImpl;
+import com.ibm.jbatch.container.services.impl.PersistenceMetrics;
+import com.ibm.jbatch.container.services.impl.PersistenceOperationStats;
+import com.ibm.jbatch.container.util.BatchContainerConstants;
+import com.ibm.jbatch.spi.DatabaseConfigurationBean;
+
+public class PersistenceMetricsTest {
+
+	private static JDBCPersistenceManagerImpl createPersistenceManager(String database, boolean metered) {
+		DatabaseConfigurationBean databaseConfig = new DatabaseConfigurationBean();
+		databaseConfig.setJdbcDriver("org.apache.derby.jdbc.EmbeddedDriver");
+		databaseConfig.setJdbcUrl("jdbc:derby:memory:" + database + ";create=true");
+		databaseConfig.setDbUser("app");
+		databaseConfig.setDbPassword("app");
+		databaseConfig.setSchema("JBATCH");
+
+		Properties props = new Properties();
+		props.setProperty(BatchContainerConstants.PERSISTENCE_METRICS, String.valueOf(metered));
+		BatchConfigImpl config = new BatchConfigImpl();
+		config.setJ2seMode(true);
+		config.setDatabaseConfigurationBean(databaseConfig);
+		config.setConfigProperties(props);
+
+		JDBCPersistenceManagerImpl persistenceManager = new JDBCPersistenceManagerImpl();
+		persistenceManager.init(config);
+		return persistenceManager;
+	}
+
+	@Test
+	public void testOperationMetrics() throws Exception {
+		JDBCPersistenceManagerImpl persistenceManager = createPersistenceManager("persistenceMetrics", true);
+		PersistenceMetrics metrics = persistenceManager.getMetrics();
+		assertNotNull(metrics);
+
+		JobInstance jobInstance = persistenceManager.createJobInstance("job", "tag", "<job/>");
+		CheckpointDataKey key = new CheckpointDataKey(jobInstance.getInstanceId(), "step1", "READER");
+		CheckpointData data = new CheckpointData(jobInstance.getInstanceId(), "step1", "READER");
+		data.setRestartToken(new byte[] { 1, 2, 3 });
+		persistenceManager.updateCheckpointData(key, data);	// inserted
+		persistenceManager.updateCheckpointData(key, data);	// updated
+		assertNotNull(persistenceManager.getCheckpointData(key));
+
+		PersistenceOperationStats created = metrics.getStats("createJobInstance");
+		assertEquals(1, created.getCount());
+		assertEquals(1, created.getRowCount());
+
+		// Queried once per update, and once for the get: found twice
+		PersistenceOperationStats queried = metrics.getStats("queryCheckpointData");
+		assertEquals(3, queried.getCount());
+		assertEquals(3, queried.getStatementCount());
+		assertEquals(2, queried.getRowCount());
+		assertEquals(0, queried.getFailureCount());
+		assertTrue(queried.getMaxMillis() > 0);
+		assertTrue(queried.getP50Millis() <= queried.getP99Millis());
+		assertTrue(queried.getP99Millis() <= queried.getMaxMillis());
+		long histogramCount = 0;
+		for (long bucketCount : queried.getLatencyHistogram()) {
+			histogramCount += bucketCount;
+		}
+		assertEquals(3, histogramCount);
+
+		PersistenceOperationStats updated = metrics.getStats("updateExistingCheckpointData");
+		assertEquals(1, updated.getCount());
+		assertEquals(1, updated.getRowCount());
+
+		assertTrue(metrics.getSummary(), metrics.getSummary().contains("\n  queryCheckpointData: count=3, failures=0,"));
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(PersistenceMetrics.OBJECT_NAME_PREFIX + "queryCheckpointData");
+		assertEquals(3L, server.getAttribute(name, "Count"));
+		server.invoke(name, "reset", null, null);
+		assertEquals(0, queried.getCount());
+
+		persistenceManager.shutdown();
+		assertFalse(server.isRegistered(name));
+	}
+
+	@Test
+	public void testNotMeteredByDefault() {
+		JDBCPersistenceManagerImpl persistenceManager = createPersistenceManager("persistenceNotMetered", false);
+		assertNull(persistenceManager.getMetrics());
+		persistenceManager.createJobInstance("job", "tag", "<job/>");
+		persistenceManager.shutdown();
+	}
+}
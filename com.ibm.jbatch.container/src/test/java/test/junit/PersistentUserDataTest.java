@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Properties;
+
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+import jakarta.batch.runtime.context.StepContext;
+import jakarta.inject.Inject;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PersistentUserDataTest {
+
+	private static JobOperator jobOp = null;
+	private static int sleepTime = 2000;
+
+	static Serializable userDataAtOpen = null;
+
+	@BeforeClass
+	public static void init() {
+		jobOp = BatchRuntime.getJobOperator();
+	}
+
+	@Test
+	public void testRestoredOnRestart() throws Exception {
+		Properties params = new Properties();
+		params.setProperty("failAt", "12");
+		long execId = jobOp.start("persistentUserData", params);
+		Thread.sleep(sleepTime);
+		assertEquals("Didn't fail as expected", BatchStatus.FAILED, jobOp.getJobExecution(execId).getBatchStatus());
+		assertNull("user data on first start", userDataAtOpen);
+
+		params.setProperty("failAt", "-1");
+		long restartExecId = jobOp.restart(execId, params);
+		Thread.sleep(sleepTime);
+		assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(restartExecId).getBatchStatus());
+		// Last set before the failing read, and persisted as the step ended
+		assertEquals("user data on restart", 10, userDataAtOpen);
+		assertEquals("user data of restart execution", 20, jobOp.getStepExecutions(restartExecId).get(0).getPersistentUserData());
+	}
+
+	public static class Reader extends AbstractItemReader {
+
+		@Inject
+		StepContext stepCtx;
+
+		@Inject @BatchProperty
+		String failAt;
+
+		int next = 0;
+
+		@Override
+		public void open(Serializable checkpoint) throws Exception {
+			userDataAtOpen = stepCtx.getPersistentUserData();
+			next = (checkpoint == null) ? 0 : (Integer) checkpoint;
+		}
+
+		@Override
+		public Object readItem() throws Exception {
+			if (next == 20) {
+				return null;
+			}
+			next++;
+			if (next == Integer.parseInt(failAt)) {
+				throw new IllegalStateException("Failing at item " + next);
+			}
+			// Only changes every other item
+			if (next % 2 == 0) {
+				stepCtx.setPersistentUserData(next);
+			}
+			return next;
+		}
+
+		@Override
+		public Serializable checkpointInfo() throws Exception {
+			return next;
+		}
+	}
+
+	public static class Writer extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+		}
+	}
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.api.partition.PartitionAnalyzer;
+import jakarta.batch.api.partition.PartitionCollector;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+import jakarta.batch.runtime.Metric;
+import jakarta.batch.runtime.StepExecution;
+import jakarta.batch.runtime.context.StepContext;
+import jakarta.inject.Inject;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.jbatch.container.exception.BatchContainerRuntimeException;
+import com.ibm.jbatch.container.partition.ForkedJvmPartitionTransport;
+import com.ibm.jbatch.container.partition.PartitionWorker;
+
+/**
+ * Runs the partitions through a {@link ForkedJvmPartitionTransport} whose workers are threads of this
+ * JVM rather than forked JVMs (which could not share the embedded job repository, and which the 
+ * transport itself refuses to fork for it), but otherwise talk to the transport over the same sockets.
+ */
+public class RemotePartitionTest {
+
+	private static JobOperator jobOp = null;
+	private static int sleepTime = 3000;
+
+	static final AtomicInteger workersLaunched = new AtomicInteger();
+	static final AtomicInteger itemsRead = new AtomicInteger();
+	static final AtomicInteger itemsCollected = new AtomicInteger();
+	static final List<BatchStatus> statusesAnalyzed = Collections.synchronizedList(new ArrayList<BatchStatus>());
+
+	@BeforeClass
+	public static void init() {
+		jobOp = BatchRuntime.getJobOperator();
+	}
+
+	@Before
+	public void reset() {
+		workersLaunched.set(0);
+		itemsRead.set(0);
+		itemsCollected.set(0);
+		statusesAnalyzed.clear();
+	}
+
+	@Test
+	public void testRemotePartitions() throws Exception {
+		long execId = jobOp.start("remotePartition", jobParameters(InProcessTransport.class, null));
+		Thread.sleep(sleepTime);
+		assertEquals(BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+
+		// One worker for each of the plan's threads, reused for the other partitions
+		assertEquals("workers", 2, workersLaunched.get());
+		assertEquals("collected", 10, itemsCollected.get());
+		assertEquals(Collections.nCopies(4, BatchStatus.COMPLETED), statusesAnalyzed);
+		// Aggregated from what the partitions recorded in the repository
+		assertEquals("read count", 10, getReadCount(execId));
+	}
+
+	@Test
+	public void testRestartFailedPartition() throws Exception {
+		long execId = jobOp.start("remotePartition", jobParameters(InProcessTransport.class, "1"));
+		Thread.sleep(sleepTime);
+		assertEquals(BatchStatus.FAILED, jobOp.getJobExecution(execId).getBatchStatus());
+		assertEquals("analyzed", 4, statusesAnalyzed.size());
+		assertTrue(statusesAnalyzed.contains(BatchStatus.FAILED));
+
+		itemsRead.set(0);
+		long restartExecId = jobOp.restart(execId, jobParameters(InProcessTransport.class, null));
+		Thread.sleep(sleepTime);
+		assertEquals(BatchStatus.COMPLETED, jobOp.getJobExecution(restartExecId).getBatchStatus());
+		// Only the failed partition runs again
+		assertEquals("read", 2, itemsRead.get());
+	}
+
+	@Test
+	public void testRestartLostPartitions() throws Exception {
+		long execId = jobOp.start("remotePartition", jobParameters(LosingTransport.class, null));
+		Thread.sleep(sleepTime);
+		assertEquals(BatchStatus.FAILED, jobOp.getJobExecution(execId).getBatchStatus());
+		assertEquals(Collections.nCopies(4, BatchStatus.FAILED), statusesAnalyzed);
+
+		// The lost partitions were recorded as failed, so all of them run again
+		assertEquals("read", 0, itemsRead.get());
+		long restartExecId = jobOp.restart(execId, jobParameters(InProcessTransport.class, null));
+		Thread.sleep(sleepTime);
+		assertEquals(BatchStatus.COMPLETED, jobOp.getJobExecution(restartExecId).getBatchStatus());
+		assertEquals("read", 10, itemsRead.get());
+	}
+
+	@Test
+	public void testEmbeddedRepositoryRefused() throws Exception {
+		ForkedJvmPartitionTransport transport = new ForkedJvmPartitionTransport();
+		try {
+			transport.open(new Properties());
+			transport.close();
+			fail("Expected the transport to refuse to fork workers for the embedded job repository");
+		} catch (BatchContainerRuntimeException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("embedded Derby"));
+		}
+
+		long execId = jobOp.start("remotePartition", jobParameters(ForkedJvmPartitionTransport.class, null));
+		Thread.sleep(sleepTime);
+		assertEquals(BatchStatus.FAILED, jobOp.getJobExecution(execId).getBatchStatus());
+		assertEquals("read", 0, itemsRead.get());
+	}
+
+	private static Properties jobParameters(Class<?> transport, String failPartition) {
+		Properties jobParameters = new Properties();
+		jobParameters.setProperty("transport", transport.getName());
+		if (failPartition != null) {
+			jobParameters.setProperty("failPartition", failPartition);
+		}
+		return jobParameters;
+	}
+
+	private static long getReadCount(long execId) {
+		for (StepExecution se : jobOp.getStepExecutions(execId)) {
+			for (Metric metric : se.getMetrics()) {
+				if (metric.getType().equals(Metric.MetricType.READ_COUNT)) {
+					return metric.getValue();
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Runs each worker on a thread of its own.
+	 */
+	public static class InProcessTransport extends ForkedJvmPartitionTransport {
+		@Override
+		protected void checkRepositoryShareable() {
+			// The workers share this JVM, and so its embedded job repository
+		}
+
+		@Override
+		protected Process launchWorker(final int port, final String token) {
+			workersLaunched.incrementAndGet();
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						PartitionWorker.run(port, token);
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			}.start();
+			return null;
+		}
+	}
+
+	/**
+	 * Its workers go away as soon as they are sent a partition, as though their JVM crashed.
+	 */
+	public static class LosingTransport extends ForkedJvmPartitionTransport {
+		@Override
+		protected void checkRepositoryShareable() {
+			// Never gets as far as running a partition
+		}
+
+		@Override
+		protected Process launchWorker(final int port, final String token) {
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+						try {
+							DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+							out.writeUTF(token);
+							new ObjectOutputStream(out).flush();
+							ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+							in.readObject();	// the configuration
+							in.readObject();	// the first partition
+						} finally {
+							socket.close();
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}.start();
+			return null;
+		}
+	}
+
+	public static class Reader extends AbstractItemReader {
+
+		@Inject @BatchProperty
+		String numToRead;
+
+		@Inject @BatchProperty
+		String partition;
+
+		@Inject @BatchProperty
+		String failPartition;
+
+		int i = 0;
+
+		@Override
+		public Object readItem() {
+			if (partition.equals(failPartition)) {
+				throw new IllegalStateException("Failing partition " + partition);
+			}
+			if (i++ < Integer.parseInt(numToRead)) {
+				itemsRead.incrementAndGet();
+				return i;
+			}
+			return null;
+		}
+	}
+
+	public static class Writer extends AbstractItemWriter {
+
+		@Inject
+		StepContext stepCtx;
+
+		@Override
+		public void writeItems(List<Object> items) {
+			stepCtx.setTransientUserData(items.size());
+		}
+	}
+
+	public static class Collector implements PartitionCollector {
+
+		@Inject
+		StepContext stepCtx;
+
+		@Override
+		public Serializable collectPartitionData() {
+			// Also called at the end of the partition, after the last chunk was collected
+			Integer written = (Integer) stepCtx.getTransientUserData();
+			stepCtx.setTransientUserData(null);
+			return written;
+		}
+	}
+
+	public static class Analyzer implements PartitionAnalyzer {
+
+		@Override
+		public void analyzeCollectorData(Serializable data) {
+			if (data != null) {
+				itemsCollected.addAndGet((Integer) data);
+			}
+		}
+
+		@Override
+		public void analyzeStatus(BatchStatus batchStatus, String exitStatus) {
+			statusesAnalyzed.add(batchStatus);
+		}
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.batch.api.BatchProperty;
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.api.partition.PartitionAnalyzer;
+import jakarta.batch.api.partition.PartitionCollector;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+import jakarta.batch.runtime.context.StepContext;
+import jakarta.inject.Inject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.jbatch.container.partition.PartitionQueueWorker;
+import com.ibm.jbatch.container.partition.PartitionRequest;
+import com.ibm.jbatch.container.partition.RepositoryQueuePartitionTransport;
+import com.ibm.jbatch.container.persistence.PartitionQueueEntry;
+import com.ibm.jbatch.container.persistence.PartitionQueueEvent;
+import com.ibm.jbatch.container.services.IPersistenceManagerService;
+import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
+
+/**
+ * Runs the partitions through a {@link RepositoryQueuePartitionTransport}, with several 
+ * {@link PartitionQueueWorker}s standing in for the containers sharing the job repository.
+ */
+public class RepositoryQueuePartitionTest {
+
+	private static JobOperator jobOp = null;
+	private static IPersistenceManagerService persistenceService = null;
+	private static int sleepTime = 3000;
+
+	// Shorter than the workers', so a partition claimed by a "dead" node is soon free again
+	private static final long DEAD_LEASE_MILLIS = 500;
+
+	static final AtomicInteger itemsRead = new AtomicInteger();
+	static final AtomicInteger itemsCollected = new AtomicInteger();
+	static final List<BatchStatus> statusesAnalyzed = Collections.synchronizedList(new ArrayList<BatchStatus>());
+
+	private final List<PartitionQueueWorker> workers = new ArrayList<PartitionQueueWorker>();
+
+	@BeforeClass
+	public static void init() {
+		jobOp = BatchRuntime.getJobOperator();
+		persistenceService = ServicesManagerImpl.getInstance().getPersistenceManagerService();
+	}
+
+	@Before
+	public void reset() {
+		itemsRead.set(0);
+		itemsCollected.set(0);
+		statusesAnalyzed.clear();
+	}
+
+	@After
+	public void stopWorkers() {
+		for (PartitionQueueWorker worker : workers) {
+			worker.stop();
+		}
+	}
+
+	@Test
+	public void testNodesShareThePartitions() throws Exception {
+		startWorkers(3);
+		long execId = jobOp.start("repositoryQueuePartition", null);
+		Thread.sleep(sleepTime);
+		assertEquals(BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+
+		assertEquals("partitions run", 4, partitionsRun());
+		assertEquals("read", 10, itemsRead.get());
+		assertEquals("collected", 10, itemsCollected.get());
+		assertEquals(Collections.nCopies(4, BatchStatus.COMPLETED), statusesAnalyzed);
+	}
+
+	@Test
+	public void testExpiredLeaseIsReclaimed() throws Exception {
+		long execId = jobOp.start("repositoryQueuePartition", null);
+		PartitionQueueEntry deadClaim = claimAsDeadNode();
+
+		startWorkers(2);
+		Thread.sleep(sleepTime);
+		assertEquals(BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+
+		// The dead node's partition was run by one of the others once its lease expired
+		assertEquals("partitions run", 4, partitionsRun());
+		assertEquals("read", 10, itemsRead.get());
+		assertEquals(Collections.nCopies(4, BatchStatus.COMPLETED), statusesAnalyzed);
+		assertEquals("claims", 1, deadClaim.getClaims());
+	}
+
+	@Test
+	public void testStaleClaimOfSameOwnerFenced() throws Exception {
+		long execId = jobOp.start("simpleJob", null);
+		String coordinator = "staleClaimTest-" + execId;
+		long queueId = persistenceService.enqueuePartition(coordinator, execId, 3, new byte[0]);
+		try {
+			PartitionQueueEntry staleClaim = persistenceService.claimPartition("node0", DEAD_LEASE_MILLIS);
+			assertEquals("claimed", queueId, staleClaim.getQueueId());
+			Thread.sleep(DEAD_LEASE_MILLIS * 2);
+
+			// Claimed again by another thread of the same container, once the lease expired
+			PartitionQueueEntry claim = persistenceService.claimPartition("node0", 5000);
+			assertEquals("claimed again", queueId, claim.getQueueId());
+			assertTrue("claim version", claim.getClaimVersion() != staleClaim.getClaimVersion());
+
+			PartitionQueueEvent end = PartitionQueueEvent.status(PartitionQueueEvent.END, BatchStatus.COMPLETED.name(), null);
+			assertFalse("stale claim renewed", persistenceService.renewPartitionLease(queueId, "node0", staleClaim.getClaimVersion(), 5000));
+			assertFalse("stale claim ended", persistenceService.addPartitionEvent(queueId, "node0", staleClaim.getClaimVersion(), 5000, end));
+			assertTrue("claim renewed", persistenceService.renewPartitionLease(queueId, "node0", claim.getClaimVersion(), 5000));
+			assertTrue("claim ended", persistenceService.addPartitionEvent(queueId, "node0", claim.getClaimVersion(), 5000, end));
+			assertEquals("events", 1, persistenceService.takePartitionEvents(coordinator).size());
+		} finally {
+			persistenceService.deletePartitionQueueEntries(coordinator);
+		}
+	}
+
+	@Test
+	public void testAbandonedPartitionFails() throws Exception {
+		Properties jobParameters = new Properties();
+		jobParameters.setProperty("maxClaims", "1");
+		long execId = jobOp.start("repositoryQueuePartition", jobParameters);
+		PartitionQueueEntry deadClaim = claimAsDeadNode();
+		int deadPartition = ((PartitionRequest) new ObjectInputStream(new ByteArrayInputStream(deadClaim.getRequest())).readObject()).getPartition();
+
+		startWorkers(2);
+		Thread.sleep(sleepTime);
+		// Claimed as many times as allowed, so lost once its lease expired
+		assertEquals(BatchStatus.FAILED, jobOp.getJobExecution(execId).getBatchStatus());
+		assertEquals("partitions run", 3, partitionsRun());
+		assertTrue(statusesAnalyzed.contains(BatchStatus.FAILED));
+
+		itemsRead.set(0);
+		long restartExecId = jobOp.restart(execId, null);
+		Thread.sleep(sleepTime);
+		assertEquals(BatchStatus.COMPLETED, jobOp.getJobExecution(restartExecId).getBatchStatus());
+		// Only the lost partition runs again
+		assertEquals("read", deadPartition + 1, itemsRead.get());
+	}
+
+	private void startWorkers(int nodes) {
+		for (int i = 0; i < nodes; i++) {
+			PartitionQueueWorker worker = new PartitionQueueWorker("node" + i, 1, 5000, 50);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	private int partitionsRun() {
+		int partitionsRun = 0;
+		for (PartitionQueueWorker worker : workers) {
+			partitionsRun += worker.getPartitionsRun();
+		}
+		return partitionsRun;
+	}
+
+	/**
+	 * Claims one of the partitions as a node that then dies, never renewing its lease.
+	 */
+	private static PartitionQueueEntry claimAsDeadNode() throws InterruptedException {
+		PartitionQueueEntry claimed = null;
+		for (int i = 0; i < 100 && claimed == null; i++) {
+			claimed = persistenceService.claimPartition("deadNode", DEAD_LEASE_MILLIS);
+			if (claimed == null) {
+				Thread.sleep(50);
+			}
+		}
+		assertNotNull("nothing queued", claimed);
+		return claimed;
+	}
+
+	public static class Reader extends AbstractItemReader {
+
+		@Inject @BatchProperty
+		String numToRead;
+
+		int i = 0;
+
+		@Override
+		public Object readItem() {
+			if (i++ < Integer.parseInt(numToRead)) {
+				itemsRead.incrementAndGet();
+				return i;
+			}
+			return null;
+		}
+	}
+
+	public static class Writer extends AbstractItemWriter {
+
+		@Inject
+		StepContext stepCtx;
+
+		@Override
+		public void writeItems(List<Object> items) {
+			stepCtx.setTransientUserData(items.size());
+		}
+	}
+
+	public static class Collector implements PartitionCollector {
+
+		@Inject
+		StepContext stepCtx;
+
+		@Override
+		public Serializable collectPartitionData() {
+			Integer written = (Integer) stepCtx.getTransientUserData();
+			stepCtx.setTransientUserData(null);
+			return written;
+		}
+	}
+
+	public static class Analyzer implements PartitionAnalyzer {
+
+		@Override
+		public void analyzeCollectorData(Serializable data) {
+			if (data != null) {
+				itemsCollected.addAndGet((Integer) data);
+			}
+		}
+
+		@Override
+		public void analyzeStatus(BatchStatus batchStatus, String exitStatus) {
+			statusesAnalyzed.add(batchStatus);
+		}
+	}
+}
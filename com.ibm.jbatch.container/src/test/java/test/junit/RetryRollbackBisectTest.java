@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+import jakarta.batch.runtime.Metric;
+import jakarta.batch.runtime.StepExecution;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RetryRollbackBisectTest {
+
+	private static JobOperator jobOp = null;
+	private static int sleepTime = 3000;
+
+	static final int NUM_ITEMS = 50;
+	static final Integer POISON_ITEM = 13;
+
+	static List<Object> written = Collections.synchronizedList(new ArrayList<Object>());
+
+	@BeforeClass
+	public static void init() {
+		jobOp = BatchRuntime.getJobOperator();
+	}
+
+	@Test
+	public void testOneByOne() throws Exception {
+		// 20 single-item chunks to get past the failed chunk, then 20-39 and 40-49.
+		runAndValidate("one-by-one", 22, 1);
+	}
+
+	@Test
+	public void testBisect() throws Exception {
+		// 0-19 fails, 0-9 OK, 10-19 fails, 10-14 fails, 10-11 OK, 12-14 fails, 12 OK, 13-14 fails,
+		// 13 OK, 14 OK, 15-19 OK, then 20-39 and 40-49.
+		runAndValidate("bisect", 8, 5);
+	}
+
+	/**
+	 * The poison item always fails, with an exception both skippable and retryable, so it must be skipped
+	 * on its own, without dropping any other item of the failed ranges.
+	 */
+	@Test
+	public void testOneByOneSkip() throws Exception {
+		runAndValidateSkip("one-by-one", 22, 1);
+	}
+
+	@Test
+	public void testBisectSkip() throws Exception {
+		// As for testBisect, except that 13 on its own is skipped, its (empty) chunk still committing.
+		runAndValidateSkip("bisect", 8, 5);
+	}
+
+	/**
+	 * With a retry limit of 1, the job only completes if the failed ranges re-run after the first rollback
+	 * don't count any further retries.
+	 */
+	private void runAndValidate(String strategy, long expectedCommits, long expectedRollbacks) throws Exception {
+		long execId = runJob("retryRollbackBisect", strategy);
+
+		assertEquals("written items", range(0, NUM_ITEMS), written);
+		validateMetrics(execId, expectedCommits, expectedRollbacks, 0);
+	}
+
+	private void runAndValidateSkip(String strategy, long expectedCommits, long expectedRollbacks) throws Exception {
+		long execId = runJob("retryRollbackBisectSkip", strategy);
+
+		List<Object> expected = range(0, NUM_ITEMS);
+		expected.remove(POISON_ITEM);
+		assertEquals("written items", expected, written);
+		validateMetrics(execId, expectedCommits, expectedRollbacks, 1);
+	}
+
+	private long runJob(String jobXMLName, String strategy) throws Exception {
+		written.clear();
+		Properties params = new Properties();
+		params.setProperty("strategy", strategy);
+		long execId = jobOp.start(jobXMLName, params);
+		Thread.sleep(sleepTime);
+		assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+		return execId;
+	}
+
+	private void validateMetrics(long execId, long expectedCommits, long expectedRollbacks, long expectedSkips) {
+		StepExecution step = jobOp.getStepExecutions(execId).get(0);
+		Metric[] metrics = step.getMetrics();
+		assertEquals("commit count", expectedCommits, getMetricVal(metrics, Metric.MetricType.COMMIT_COUNT));
+		assertEquals("rollback count", expectedRollbacks, getMetricVal(metrics, Metric.MetricType.ROLLBACK_COUNT));
+		assertEquals("read count", NUM_ITEMS, getMetricVal(metrics, Metric.MetricType.READ_COUNT));
+		assertEquals("write skip count", expectedSkips, getMetricVal(metrics, Metric.MetricType.WRITE_SKIP_COUNT));
+	}
+
+	private static List<Object> range(int from, int to) {
+		List<Object> items = new ArrayList<Object>();
+		for (int i = from; i < to; i++) {
+			items.add(i);
+		}
+		return items;
+	}
+
+	private long getMetricVal(Metric[] metrics, Metric.MetricType type) {
+		for (Metric m : metrics) {
+			if (m.getType().equals(type)) {
+				return m.getValue();
+			}
+		}
+		throw new IllegalStateException("Didn't find metric: " + type);
+	}
+
+	public static class PoisonItemException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+	public static class Reader extends AbstractItemReader {
+		int next = 0;
+
+		@Override
+		public void open(Serializable checkpoint) throws Exception {
+			next = (checkpoint == null) ? 0 : (Integer) checkpoint;
+		}
+
+		@Override
+		public Object readItem() throws Exception {
+			return next < NUM_ITEMS ? next++ : null;
+		}
+
+		@Override
+		public Serializable checkpointInfo() throws Exception {
+			return next;
+		}
+	}
+
+	/**
+	 * Fails on any write of more than one item including the poison item.
+	 */
+	public static class Writer extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+			if (items.size() > 1 && items.contains(POISON_ITEM)) {
+				throw new PoisonItemException();
+			}
+			written.addAll(items);
+		}
+	}
+
+	/**
+	 * Fails on any write including the poison item.
+	 */
+	public static class PoisonWriter extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+			if (items.contains(POISON_ITEM)) {
+				throw new PoisonItemException();
+			}
+			written.addAll(items);
+		}
+	}
+}
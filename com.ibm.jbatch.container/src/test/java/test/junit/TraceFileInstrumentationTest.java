@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.ibm.jbatch.container.impl.BatchConfigImpl;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService;
+import com.ibm.jbatch.container.services.IBatchInstrumentationService.Phase;
+import com.ibm.jbatch.container.services.IPersistenceManagerService;
+import com.ibm.jbatch.container.services.impl.InstrumentedPersistenceManager;
+import com.ibm.jbatch.container.services.impl.NoOpInstrumentationServiceImpl;
+import com.ibm.jbatch.container.services.impl.TraceFileInstrumentationServiceImpl;
+import com.ibm.jbatch.container.util.BatchContainerConstants;
+
+public class TraceFileInstrumentationTest {
+
+	@Test
+	public void testTraceFile() throws Exception {
+		File traceFile = File.createTempFile("trace", ".json");
+		try {
+			Properties props = new Properties();
+			props.setProperty(BatchContainerConstants.INSTRUMENTATION_TRACE_FILE, traceFile.getPath());
+			props.setProperty(BatchContainerConstants.INSTRUMENTATION_ITEM_SAMPLE_INTERVAL, "10");
+			BatchConfigImpl config = new BatchConfigImpl();
+			config.setConfigProperties(props);
+
+			TraceFileInstrumentationServiceImpl service = new TraceFileInstrumentationServiceImpl();
+			service.init(config);
+			assertTrue(service.isEnabled());
+			assertEquals(10, service.getItemSampleInterval());
+
+			long start = System.nanoTime();
+			service.span(Phase.CHUNK, 7, "step\"1", start, start + 1234567);
+			service.span(Phase.JOB, 7, "job", start, start + 2000);
+			service.shutdown();
+
+			String trace = new String(Files.readAllBytes(traceFile.toPath()), StandardCharsets.UTF_8);
+			String[] lines = trace.split("\n");
+			assertEquals(trace, 4, lines.length);
+			assertEquals("[", lines[0]);
+			assertTrue(lines[1], lines[1].startsWith("{\"name\":\"step\\\"1\",\"cat\":\"CHUNK\",\"ph\":\"X\",\"ts\":"));
+			assertTrue(lines[1], lines[1].contains(",\"dur\":1234.567,"));
+			assertTrue(lines[1], lines[1].endsWith(",\"tid\":" + Thread.currentThread().getId() + ",\"args\":{\"executionId\":7}},"));
+			assertTrue(lines[2], lines[2].contains("\"cat\":\"JOB\"") && lines[2].contains(",\"dur\":2.000,"));
+			assertEquals("]", lines[3]);
+		} finally {
+			traceFile.delete();
+		}
+	}
+
+	@Test
+	public void testPersistenceSpans() {
+		final List<String> spans = new ArrayList<String>();
+		IBatchInstrumentationService recorder = new NoOpInstrumentationServiceImpl() {
+			@Override
+			public boolean isEnabled() {
+				return true;
+			}
+			@Override
+			public void span(Phase phase, long executionId, String name, long startNanos, long endNanos) {
+				spans.add(phase + " " + name);
+			}
+		};
+		IPersistenceManagerService delegate = (IPersistenceManagerService) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { IPersistenceManagerService.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getJobCurrentTag")) {
+							throw new IllegalStateException("failed");
+						}
+						return null;
+					}
+				});
+
+		assertSame(delegate, InstrumentedPersistenceManager.wrap(delegate, new NoOpInstrumentationServiceImpl()));
+
+		IPersistenceManagerService wrapped = InstrumentedPersistenceManager.wrap(delegate, recorder);
+		wrapped.deleteCheckpointData(1, "step1");
+		try {
+			wrapped.getJobCurrentTag(1);
+			fail("Expected the delegate's exception");
+		} catch (IllegalStateException e) {
+			assertEquals("failed", e.getMessage());
+		}
+		assertEquals("[PERSISTENCE deleteCheckpointData, PERSISTENCE getJobCurrentTag]", spans.toString());
+	}
+}
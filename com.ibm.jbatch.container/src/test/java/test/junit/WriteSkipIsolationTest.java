@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 International Business Machines Corp.
+ *
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership. Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import jakarta.batch.api.chunk.AbstractItemReader;
+import jakarta.batch.api.chunk.AbstractItemWriter;
+import jakarta.batch.api.chunk.listener.SkipWriteListener;
+import jakarta.batch.operations.JobOperator;
+import jakarta.batch.runtime.BatchRuntime;
+import jakarta.batch.runtime.BatchStatus;
+import jakarta.batch.runtime.Metric;
+import jakarta.batch.runtime.StepExecution;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class WriteSkipIsolationTest {
+
+	private static JobOperator jobOp = null;
+	private static int sleepTime = 3000;
+
+	static final int NUM_ITEMS = 50;
+	static final List<Integer> POISON_ITEMS = Arrays.asList(13, 27);
+
+	static List<Object> written = Collections.synchronizedList(new ArrayList<Object>());
+	static List<Object> skipped = Collections.synchronizedList(new ArrayList<Object>());
+
+	@BeforeClass
+	public static void init() {
+		jobOp = BatchRuntime.getJobOperator();
+	}
+
+	@Test
+	public void testSkipWholeChunk() throws Exception {
+		runJob("chunk");
+
+		assertEquals("written items", range(40, 50), written);
+		List<Object> expectedSkips = new ArrayList<Object>();
+		expectedSkips.add(range(0, 20));
+		expectedSkips.add(range(20, 40));
+		assertEquals("skipped items", expectedSkips, skipped);
+		validateMetrics(3, 0);
+	}
+
+	@Test
+	public void testIsolate() throws Exception {
+		runJob("isolate");
+
+		List<Object> expectedWritten = range(0, NUM_ITEMS);
+		expectedWritten.removeAll(POISON_ITEMS);
+		assertEquals("written items", expectedWritten, written);
+		List<Object> expectedSkips = new ArrayList<Object>();
+		expectedSkips.add(Arrays.asList(13));
+		expectedSkips.add(Arrays.asList(27));
+		assertEquals("skipped items", expectedSkips, skipped);
+		// 0-19 fails, 0-9 OK, 10-19 fails, 10-14 fails, 10-11 OK, 12-14 fails, 12 OK, 13-14 fails, 13 skipped, 14 OK, 15-19 OK,
+		// 20-39 fails, 20-29 fails, 20-24 OK, 25-29 fails, 25-26 OK, 27-29 fails, 27 skipped, 28-29 OK, 30-39 OK, then 40-49.
+		validateMetrics(12, 9);
+	}
+
+	private void runJob(String strategy) throws Exception {
+		written.clear();
+		skipped.clear();
+		Properties params = new Properties();
+		params.setProperty("strategy", strategy);
+		long execId = jobOp.start("writeSkipIsolation", params);
+		Thread.sleep(sleepTime);
+		assertEquals("Didn't complete successfully", BatchStatus.COMPLETED, jobOp.getJobExecution(execId).getBatchStatus());
+		lastExecId = execId;
+	}
+
+	private long lastExecId;
+
+	private void validateMetrics(long expectedCommits, long expectedRollbacks) {
+		StepExecution step = jobOp.getStepExecutions(lastExecId).get(0);
+		Metric[] metrics = step.getMetrics();
+		assertEquals("commit count", expectedCommits, getMetricVal(metrics, Metric.MetricType.COMMIT_COUNT));
+		assertEquals("rollback count", expectedRollbacks, getMetricVal(metrics, Metric.MetricType.ROLLBACK_COUNT));
+		assertEquals("write skip count", 2, getMetricVal(metrics, Metric.MetricType.WRITE_SKIP_COUNT));
+		assertEquals("read count", NUM_ITEMS, getMetricVal(metrics, Metric.MetricType.READ_COUNT));
+	}
+
+	private static List<Object> range(int from, int to) {
+		List<Object> items = new ArrayList<Object>();
+		for (int i = from; i < to; i++) {
+			items.add(i);
+		}
+		return items;
+	}
+
+	private long getMetricVal(Metric[] metrics, Metric.MetricType type) {
+		for (Metric m : metrics) {
+			if (m.getType().equals(type)) {
+				return m.getValue();
+			}
+		}
+		throw new IllegalStateException("Didn't find metric: " + type);
+	}
+
+	public static class PoisonItemException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+	public static class Reader extends AbstractItemReader {
+		int next = 0;
+
+		@Override
+		public void open(Serializable checkpoint) throws Exception {
+			next = (checkpoint == null) ? 0 : (Integer) checkpoint;
+		}
+
+		@Override
+		public Object readItem() throws Exception {
+			return next < NUM_ITEMS ? next++ : null;
+		}
+
+		@Override
+		public Serializable checkpointInfo() throws Exception {
+			return next;
+		}
+	}
+
+	/**
+	 * Fails on any write including a poison item.
+	 */
+	public static class Writer extends AbstractItemWriter {
+		@Override
+		public void writeItems(List<Object> items) throws Exception {
+			for (Object item : items) {
+				if (POISON_ITEMS.contains(item)) {
+					throw new PoisonItemException();
+				}
+			}
+			written.addAll(items);
+		}
+	}
+
+	public static class SkipListener implements SkipWriteListener {
+		@Override
+		public void onSkipWriteItem(List<Object> items, Exception ex) throws Exception {
+			skipped.add(new ArrayList<Object>(items));
+		}
+	}
+}